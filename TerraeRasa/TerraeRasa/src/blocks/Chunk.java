@@ -2,6 +2,7 @@ package blocks;
 
 import java.util.Iterator;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
 
 import utils.Position;
 import world.Biome;
@@ -18,6 +19,10 @@ import world.Weather;
  * relatively Thread-Safe overall. All setters (for example: <code>{@link #setBlock(Block, int, int)}, 
  * {@link #setChanged(boolean)}, {@link #setLight(double, int, int)}</code>) are synchronized, all getters are 
  * final. All fields in <code>Chunk</code> are final.
+ * <br><br>
+ * Every chunk carries a content version which changes whenever the chunk is modified (see {@link #markChanged()}). 
+ * Versions are drawn from a single counter, so no two chunk objects ever share a version, even if one is unloaded 
+ * and later loaded from disk again. This lets encoded copies of a chunk be cached and reused until it changes.
  * 
  * <br><br>
  * <b>Chunk sizes are subject to change. NEVER use magic numbers and always use 
@@ -42,6 +47,10 @@ public class Chunk
 	protected int height;
 	protected Vector<Position> lightSources;
 	public Weather weather;
+	private static final AtomicLong versionCounter = new AtomicLong();
+	private volatile long version = versionCounter.incrementAndGet();
+	/** One bit per block, set where the block is solid; built on first use by getSolidBlocks() */
+	private long[] solidBlocks;
 
 	protected Chunk()
 	{
@@ -112,6 +121,7 @@ public class Chunk
 		{
 			this.biome = new Biome(biome);
 		}
+		markChanged();
 	}
 	
 	/**
@@ -148,6 +158,7 @@ public class Chunk
 		{
 			backWalls[x][y] = new MinimalBlock(block);
 		}
+		markChanged();
 	}
 	
 	/**
@@ -169,6 +180,52 @@ public class Chunk
 				addLightSource(x, y);
 			}
 			blocks[x][y] = new MinimalBlock(block);
+			if(solidBlocks != null)
+			{
+				setSolid(x, y, block.isSolid);
+			}
+		}
+		markChanged();
+	}
+	
+	/**
+	 * Gets which blocks of this chunk are solid, as a bitset with one bit per block. Block (x,y) is bit (x * height + y),
+	 * so the bits of each column are consecutive. The bitset is built on first use and then kept up to date by 
+	 * {@link #setBlock(Block, int, int)}. It must not be modified.
+	 * @return the solid blocks of this chunk
+	 */
+	public long[] getSolidBlocks()
+	{
+		synchronized(frontBlockLock)
+		{
+			if(solidBlocks == null)
+			{
+				solidBlocks = new long[(CHUNK_WIDTH * height + 63) / 64];
+				for(int i = 0; i < CHUNK_WIDTH; i++)
+				{
+					for(int j = 0; j < height; j++)
+					{
+						if(blocks[i][j].isSolid)
+						{
+							setSolid(i, j, true);
+						}
+					}
+				}
+			}
+			return solidBlocks;
+		}
+	}
+	
+	private void setSolid(int x, int y, boolean solid)
+	{
+		int bit = x * height + y;
+		if(solid)
+		{
+			solidBlocks[bit >> 6] |= 1L << bit;
+		}
+		else
+		{
+			solidBlocks[bit >> 6] &= ~(1L << bit);
 		}
 	}
 		
@@ -225,6 +282,24 @@ public class Chunk
 		return positions;
 	}
 	
+	/**
+	 * Gives this chunk a new content version. This must be called after any change to the chunk that is not made 
+	 * through one of its setters, such as changing a block's bitmap or the chunk's weather.
+	 */
+	public final void markChanged()
+	{
+		version = versionCounter.incrementAndGet();
+	}
+	
+	/**
+	 * Gets the content version of this chunk. If two calls return the same version, the chunk did not change in between.
+	 * @return the chunk's current content version
+	 */
+	public final long getVersion()
+	{
+		return version;
+	}
+	
 	public final void addLightSources(Vector<Position> lightSources)
 	{
 		if(lightSources == null)
@@ -236,4 +311,4 @@ public class Chunk
 			this.lightSources.add(position);
 		}
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
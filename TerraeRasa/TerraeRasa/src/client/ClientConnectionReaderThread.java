@@ -0,0 +1,59 @@
+package client;
+
+import java.io.IOException;
+import java.util.List;
+
+import transmission.CompressedServerUpdate;
+import transmission.GameTransport;
+import transmission.PacketSequencer;
+
+/**
+ * Reads server packets for a {@link ClientConnectionThread} as soon as they arrive, independently of the client sending
+ * its input. Packets are decoded by a {@link ServerPacketReader}, and their updates handed to the EngineLock in the order 
+ * it gives.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class ClientConnectionReaderThread extends Thread
+{
+	private ClientConnectionThread connection;
+	private EngineLock engineLock;
+	private PacketSequencer sequencer;
+	private ServerPacketReader packetReader;
+
+	public ClientConnectionReaderThread(ClientConnectionThread connection, EngineLock lock, GameTransport transport, PacketSequencer sequencer)
+	{
+		setName("Client_Connection_Reader");
+		setDaemon(true);
+		this.connection = connection;
+		this.engineLock = lock;
+		this.sequencer = sequencer;
+		this.packetReader = new ServerPacketReader(transport);
+	}
+
+	public void run()
+	{
+		try {
+			while(!connection.isDone())
+			{
+				List<CompressedServerUpdate> updates = packetReader.readPacket();
+				for(CompressedServerUpdate update : updates)
+				{
+					engineLock.addUpdate(update);
+				}
+	        	sequencer.received(packetReader.getSequence(), packetReader.getAcknowledged());
+			}
+		} catch (IOException e) {
+			if(!connection.isDone())
+			{
+				System.out.println("Clientside Socket connection terminated.");
+			}
+		} catch (ClassNotFoundException e) {
+			e.printStackTrace();
+		} finally {
+			connection.readerFinished();
+		}
+	}
+}
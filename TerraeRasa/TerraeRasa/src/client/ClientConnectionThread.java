@@ -3,18 +3,16 @@ package client;
 
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.Socket;
 import java.net.SocketException;
 import java.net.URISyntaxException;
 
 import transmission.CompressedClientUpdate;
-import transmission.CompressedServerUpdate;
-import transmission.GZIPHelper;
-import transmission.SuperCompressedChunk;
+import transmission.GameTransport;
+import transmission.PacketSequencer;
 import transmission.WorldData;
+import utils.TickScheduler;
 import blocks.ChunkClient;
+import client.io.ClientChunkCache;
 import client.utils.SaveHelper;
 import client.world.WorldClientEarth;
 import entry.MPGameLoop;
@@ -23,23 +21,22 @@ import entry.TerraeRasa;
 
 public class ClientConnectionThread extends Thread
 {
-	private Socket socket;
+	private GameTransport transport;
 	private volatile boolean done = false;
 	private EngineLock engineLock;
-	private ObjectOutputStream os;
-	private ObjectInputStream is;
-	private GZIPHelper gzipHelper;
 	private static int id = 0;
+	/** How many ticks may pass without sending anything before an empty packet is sent to carry acknowledgements */
+	private static final int HEARTBEAT_TICKS = MPGameLoop.TICKS_PER_SECOND;
+	private PacketSequencer sequencer;
+	private ClientConnectionReaderThread reader;
 	
-	public ClientConnectionThread(Socket socket, EngineLock lock, ObjectOutputStream os, ObjectInputStream is)
+	public ClientConnectionThread(GameTransport transport, EngineLock lock)
 	{
 		setName("Client_Connection_Thread"+id++);
 		setDaemon(true);
-		this.socket = socket;
+		this.transport = transport;
 		this.engineLock = lock;
-		this.os = os;
-		this.is = is;
-		gzipHelper = new GZIPHelper();
+		sequencer = new PacketSequencer();
 	}
 	
 	public void run()
@@ -52,54 +49,40 @@ public class ClientConnectionThread extends Thread
 				System.exit(1);
 			}
 			
-			final int SKIP_TICKS = 1000 / MPGameLoop.TICKS_PER_SECOND;
-			final int MAX_FRAMESKIP = 5;
-			long next_game_tick = System.currentTimeMillis();
-			int loops;
+			//Server updates are read on their own thread, so input is never held up waiting on the server (or vice versa)
+			reader = new ClientConnectionReaderThread(this, engineLock, transport, sequencer);
+			reader.start();
+			
+			TickScheduler scheduler = new TickScheduler(MPGameLoop.TICKS_PER_SECOND, MPGameLoop.MAX_CATCH_UP_TICKS, 
+					MPGameLoop.MAX_TICK_LAG_MILLIS);
+			int ticksSinceSend = 0;
 			
 			while(!done)
 			{
-			    loops = 0;
-		        while(System.currentTimeMillis() > next_game_tick && loops < MAX_FRAMESKIP) //Update the game 20 times/second 
+		        while(scheduler.isTickDue()) //Send 20 times/second 
 		        {
-		        	//The update cycle things
-		        	CompressedClientUpdate[] input = engineLock.yieldClientUpdates();
-					os.writeObject(gzipHelper.compress(input));
-		        	os.flush();
-
-		        	byte loopTotal = is.readByte();
-		        	for(int i = 0; i < loopTotal; i++)
+		        	//Send input when there is some; otherwise only send a heartbeat so the server keeps getting acknowledgements
+		        	CompressedClientUpdate[] input = removeEmptyUpdates(engineLock.yieldClientUpdates());
+		        	ticksSinceSend++;
+		        	if(input.length > 0 || ticksSinceSend >= HEARTBEAT_TICKS)
 		        	{
-			        	CompressedServerUpdate[] updates = (CompressedServerUpdate[])(gzipHelper.expand((byte[])is.readObject()));
-			        	for(CompressedServerUpdate update : updates)
-			        	{
-			        		engineLock.addUpdate(update);
-			        	}
+		        		transport.writeInt(sequencer.nextOutgoing());
+		        		transport.writeInt(sequencer.getAcknowledgement());
+		        		transport.write(transport.encode(input));
+			        	transport.flush();
+			        	ticksSinceSend = 0;
 		        	}
-		        		        	
-			        next_game_tick += SKIP_TICKS;
-				    loops++;
 		        }
-				
-		        //Make sure the game loop doesn't fall very far behind and have to accelerate the 
-		        //game for an extended period of time
-		        if(System.currentTimeMillis() - next_game_tick > 1000)
-		        {
-		        	next_game_tick = System.currentTimeMillis();
-		        }
-		        
+		        scheduler.waitForNextTick();
 			}
 		} catch (SocketException e){
 			System.out.println("Clientside Socket connection terminated.");
 		} catch (IOException e) {
 			e.printStackTrace();
-		} catch (ClassNotFoundException e) {
-			e.printStackTrace();
 		} finally {
+			done = true;
 			try {
-				os.close();
-				is.close();
-				socket.close();
+				transport.close();
 			} catch (IOException e) {
 				e.printStackTrace();
 			}		
@@ -110,35 +93,81 @@ public class ClientConnectionThread extends Thread
 		}		
 	}
 	
+	/**
+	 * Strips out updates that carry no input, commands, or objects, because there is no reason to send them.
+	 * @param updates the updates yielded by the engine lock
+	 * @return the updates that actually carry something
+	 */
+	private CompressedClientUpdate[] removeEmptyUpdates(CompressedClientUpdate[] updates)
+	{
+		int total = 0;
+		for(CompressedClientUpdate update : updates)
+		{
+			if(!update.isEmpty())
+			{
+				total++;
+			}
+		}
+		if(total == updates.length)
+		{
+			return updates;
+		}
+		CompressedClientUpdate[] nonEmpty = new CompressedClientUpdate[total];
+		int index = 0;
+		for(CompressedClientUpdate update : updates)
+		{
+			if(!update.isEmpty())
+			{
+				nonEmpty[index++] = update;
+			}
+		}
+		return nonEmpty;
+	}
+	
+	/**
+	 * Called by the reader thread when it stops, which means the server can no longer be heard from.
+	 */
+	public void readerFinished()
+	{
+		done = true;
+	}
+	
+	/**
+	 * Gets whether this connection has finished, either because it was killed or because the server went away.
+	 * @return true if the connection is finished, otherwise false
+	 */
+	public boolean isDone()
+	{
+		return done;
+	}
+	
 	private void requestBasicData()
 			throws URISyntaxException
 	{
 		try {
-			os.writeUTF("/sendplayer");
 			String savableXML = new SaveHelper().getFileXML(TerraeRasa.getBasePath() + "/Player Saves/" + engineLock.getActivePlayerName() + ".xml", false);
-//			byte[] bytes = gzipHelper.compress(savableXML);
-			os.writeUTF(savableXML);			
-			os.flush();
-			
-			int id = is.readInt();
+			int id = sendPlayer(transport, savableXML);
 			engineLock.setActivePlayerID(id);
 			
-			os.writeUTF("/requestinitChunks");
-			os.flush();
-			
-			SuperCompressedChunk[] scc = (SuperCompressedChunk[])(gzipHelper.expand((byte[])is.readObject()));
-			for(int i = 0; i < scc.length; i++)
-			{
-				engineLock.expandChunk(scc[i]);
-			}
-			
-			os.writeUTF("/initialgamedata");
-			os.flush();
+			//Chunks are streamed by the server once the connection opens, nearest to the player first
 			
-			WorldData data = (WorldData)(gzipHelper.expand((byte[])is.readObject()));
+			WorldData data = requestWorldData(transport);
 			WorldClientEarth world = new WorldClientEarth(data, new ChunkClient[] { });
 			engineLock.setWorld(world);
 			
+			//Tell the server which chunks are already cached on disk. Nothing is cached for an in-process server
+			if(transport.isLoopback())
+			{
+				engineLock.setChunkCache(null);
+				sendChunkManifest(transport, new long[0]);
+			}
+			else
+			{
+				ClientChunkCache cache = new ClientChunkCache(transport.getRemoteAddress(), data.worldName);
+				engineLock.setChunkCache(cache);
+				sendChunkManifest(transport, cache.getManifest(data.width / data.chunkWidth + 1));
+			}
+			
 		} catch (IOException e) {
 			e.printStackTrace();
 		} catch (ClassNotFoundException e) {
@@ -146,9 +175,54 @@ public class ClientConnectionThread extends Thread
 		}		
 	}
 
+	/**
+	 * Sends the player to play as, the first step of the handshake once a connection is accepted.
+	 * @param transport the connection to the server
+	 * @param savableXML the player's save file, or "type=newplayer;name=NAME;difficulty=DIFFICULTY;" for a new player
+	 * @return the player's entity ID, assigned by the server
+	 * @throws IOException indicates the connection failed
+	 */
+	public static int sendPlayer(GameTransport transport, String savableXML)
+			throws IOException
+	{
+		transport.writeUTF("/sendplayer");
+		transport.writeUTF(savableXML);			
+		transport.flush();
+		return transport.readInt();
+	}
+	
+	/**
+	 * Requests the world being played, the second step of the handshake.
+	 * @param transport the connection to the server
+	 * @return the world's data, without any chunks
+	 * @throws IOException indicates the connection failed
+	 * @throws ClassNotFoundException indicates the server sent something unexpected
+	 */
+	public static WorldData requestWorldData(GameTransport transport)
+			throws IOException, ClassNotFoundException
+	{
+		transport.writeUTF("/initialgamedata");
+		transport.flush();
+		return (WorldData)(transport.read());
+	}
+	
+	/**
+	 * Tells the server which chunks are cached on disk, the last step of the handshake. The server starts streaming 
+	 * chunks once it has this.
+	 * @param transport the connection to the server
+	 * @param manifest the content hash of each cached chunk, indexed by chunk x position (0 if not cached)
+	 * @throws IOException indicates the connection failed
+	 */
+	public static void sendChunkManifest(GameTransport transport, long[] manifest)
+			throws IOException
+	{
+		transport.write(transport.encode(manifest));
+		transport.flush();
+	}
+
 	public void kill() throws IOException
 	{
-		socket.close();
+		transport.close();
 		done = true;
 		interrupt();
 	}
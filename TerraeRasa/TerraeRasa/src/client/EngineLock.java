@@ -1,19 +1,44 @@
 package client;
 
-import java.util.Vector;
+import java.util.ArrayList;
+import java.util.List;
 
 import transmission.CompressedClientUpdate;
 import transmission.CompressedServerUpdate;
 import transmission.SuperCompressedChunk;
+import utils.SpscRing;
 import client.entities.EntityPlayer;
+import client.io.ClientChunkCache;
 import client.world.WorldClientEarth;
 import entry.SPGameLoop;
 
+/**
+ * EngineLock links the client's game loop to its connection. Updates are handed between the two threads through an
+ * {@link SpscRing} in each direction, so neither ever waits on the other: the game loop hands its input to the
+ * connection's writer, and the connection's reader hands each update from the server to the game loop.
+ * <br><br>
+ * Neither side may block or drop an update, so if a ring is full the update is kept by the thread that produced it and
+ * handed over, ahead of anything newer, the next time that thread adds an update.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
 public class EngineLock 
 {
-	private Vector<CompressedClientUpdate> clientUpdates = new Vector<CompressedClientUpdate>();
+	/** The most updates handed over in either direction before they wait with the thread that produced them */
+	private static final int RING_CAPACITY = 1024;
+	private SpscRing<CompressedClientUpdate> clientUpdates = new SpscRing<CompressedClientUpdate>(RING_CAPACITY);
+	/** Client updates that did not fit in the ring. Only used by the game loop */
+	private List<CompressedClientUpdate> clientOverflow = new ArrayList<CompressedClientUpdate>();
+	/** Only used by the connection's writer */
+	private List<CompressedClientUpdate> clientDrain = new ArrayList<CompressedClientUpdate>();
 	private SPGameLoop engine;
-	private Vector<CompressedServerUpdate> serverUpdates = new Vector<CompressedServerUpdate>();
+	private SpscRing<CompressedServerUpdate> serverUpdates = new SpscRing<CompressedServerUpdate>(RING_CAPACITY);
+	/** Server updates that did not fit in the ring. Only used by the connection's reader */
+	private List<CompressedServerUpdate> serverOverflow = new ArrayList<CompressedServerUpdate>();
+	/** Only used by the game loop */
+	private List<CompressedServerUpdate> serverDrain = new ArrayList<CompressedServerUpdate>();
 //	private EntityPlayer relevantPlayer;
 	
 	public EngineLock(SPGameLoop engine)
@@ -21,42 +46,67 @@ public class EngineLock
 		this.engine = engine;
 	}
 	
-	public synchronized void addClientUpdate(CompressedClientUpdate update)
+	/**
+	 * Hands the game loop's input to the connection. Must only be called by the game loop.
+	 * @param update the update to send to the server
+	 */
+	public void addClientUpdate(CompressedClientUpdate update)
 	{
-		clientUpdates.add(update);
+		handOff(clientUpdates, clientOverflow, update);
 	}
 	
-	//Deletes too!
-	public synchronized CompressedClientUpdate[] yieldClientUpdates()
+	//Deletes too! Must only be called by the connection's writer
+	public CompressedClientUpdate[] yieldClientUpdates()
 	{
-		CompressedClientUpdate[] updates = new CompressedClientUpdate[clientUpdates.size()];
-		clientUpdates.copyInto(updates);
-		clientUpdates.clear();
+		clientUpdates.drainTo(clientDrain);
+		CompressedClientUpdate[] updates = new CompressedClientUpdate[clientDrain.size()];
+		clientDrain.toArray(updates);
+		clientDrain.clear();
 		return updates;
 	}
 	
-	public synchronized void addUpdate(CompressedServerUpdate update)
+	/**
+	 * Hands an update from the server to the game loop. Must only be called by the connection's reader.
+	 * @param update the update received
+	 */
+	public void addUpdate(CompressedServerUpdate update)
 	{
-		serverUpdates.add(update);
+		handOff(serverUpdates, serverOverflow, update);
 	}
 	
-	//Deletes too
-	public synchronized CompressedServerUpdate[] yieldServerUpdates()
+	//Deletes too. Must only be called by the game loop
+	public CompressedServerUpdate[] yieldServerUpdates()
 	{
-		CompressedServerUpdate[] updates = new CompressedServerUpdate[serverUpdates.size()];
-		serverUpdates.copyInto(updates);
-		serverUpdates.clear();
+		serverUpdates.drainTo(serverDrain);
+		CompressedServerUpdate[] updates = new CompressedServerUpdate[serverDrain.size()];
+		serverDrain.toArray(updates);
+		serverDrain.clear();
 		return updates;
 	}
 	
-	public synchronized boolean hasUpdates()
+	public boolean hasUpdates()
 	{
-		return serverUpdates.size() > 0;
+		return !serverUpdates.isEmpty();
 	}
 	
-	public synchronized boolean hasClientUpdates()
+	public boolean hasClientUpdates()
 	{
-		return clientUpdates.size() > 0;
+		return !clientUpdates.isEmpty();
+	}
+	
+	/**
+	 * Offers an update to a ring, keeping it, after anything kept before, if the ring is full.
+	 */
+	private static <T> void handOff(SpscRing<T> ring, List<T> overflow, T update)
+	{
+		while(!overflow.isEmpty() && ring.offer(overflow.get(0)))
+		{
+			overflow.remove(0);
+		}
+		if(!overflow.isEmpty() || !ring.offer(update))
+		{
+			overflow.add(update);
+		}
 	}
 		
 	public synchronized void setPlayer(EntityPlayer player)
@@ -84,6 +134,15 @@ public class EngineLock
 		return engine.getActivePlayerName();
 	}
 	
+	/**
+	 * Sets the disk cache chunks are stored in for the server being played on.
+	 * @param cache the chunk cache, or null if chunks should not be cached
+	 */
+	public void setChunkCache(ClientChunkCache cache)
+	{
+		engine.chunkManager.setCache(cache);
+	}
+	
 	public void expandChunk(SuperCompressedChunk chunk)
 	{
 		engine.registerChunkExpand(chunk);
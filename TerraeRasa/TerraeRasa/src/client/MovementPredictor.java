@@ -0,0 +1,89 @@
+package client;
+
+import transmission.MovementState;
+import world.World;
+import entities.EntityPlayerBase;
+
+/**
+ * MovementPredictor moves the client's own player as soon as input is given, rather than waiting a round trip for the
+ * server to send its position back. Each client tick is an input frame: the player is moved through it locally with the
+ * same movement code the server uses ({@link EntityPlayerBase#applyMovementInput(World, int)}), and the frame is sent
+ * to the server with a sequence number.
+ * <br><br>
+ * The frames the server has not yet acknowledged are kept. When a {@link MovementState} arrives, the player is reset
+ * to that authoritative state and every frame after the one it acknowledges is replayed, so any difference between the
+ * server and the prediction is corrected without undoing input the server has not seen yet. Frames where the player
+ * is at rest are neither sent nor kept, as they do not move the player.
+ * <br><br>
+ * All methods should be called from the game loop thread.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class MovementPredictor 
+{
+	/** The most unacknowledged frames kept. If more are waiting, the oldest are forgotten */
+	private static final int MAX_PENDING_FRAMES = 128;
+	private int[] pendingSequences;
+	private int[] pendingFlags;
+	private int pendingStart;
+	private int pendingCount;
+	private int nextSequence;
+	
+	public MovementPredictor()
+	{
+		pendingSequences = new int[MAX_PENDING_FRAMES];
+		pendingFlags = new int[MAX_PENDING_FRAMES];
+		pendingStart = 0;
+		pendingCount = 0;
+		nextSequence = 1;
+	}
+	
+	/**
+	 * Moves the player through one input frame.
+	 * @param world the world the player is in
+	 * @param player the client's player
+	 * @param inputFlags the EnumHardwareInput flags held during the frame
+	 * @return the sequence number to send the frame with, or 0 if the frame did not move the player and need not be sent
+	 */
+	public int predict(World world, EntityPlayerBase player, int inputFlags)
+	{
+		if(player.isAtRest(world, inputFlags))
+		{
+			return 0;
+		}
+		player.applyMovementInput(world, inputFlags);
+		int sequence = nextSequence++;
+		if(pendingCount == MAX_PENDING_FRAMES)
+		{
+			pendingStart = (pendingStart + 1) % MAX_PENDING_FRAMES;
+			pendingCount--;
+		}
+		int index = (pendingStart + pendingCount) % MAX_PENDING_FRAMES;
+		pendingSequences[index] = sequence;
+		pendingFlags[index] = inputFlags;
+		pendingCount++;
+		return sequence;
+	}
+	
+	/**
+	 * Corrects the player to the server's state, then replays the frames the server has not applied yet.
+	 * @param world the world the player is in
+	 * @param player the client's player
+	 * @param state the player's movement state on the server
+	 */
+	public void reconcile(World world, EntityPlayerBase player, MovementState state)
+	{
+		while(pendingCount > 0 && pendingSequences[pendingStart] <= state.inputSequence)
+		{
+			pendingStart = (pendingStart + 1) % MAX_PENDING_FRAMES;
+			pendingCount--;
+		}
+		player.setMovementState(state);
+		for(int i = 0; i < pendingCount; i++)
+		{
+			player.applyMovementInput(world, pendingFlags[(pendingStart + i) % MAX_PENDING_FRAMES]);
+		}
+	}
+}
@@ -6,22 +6,24 @@ import java.io.ObjectOutputStream;
 import java.net.Socket;
 import java.net.UnknownHostException;
 
+import transmission.GameTransport;
+
 public class ServerInformationHelper 
 {
-	public Socket requestGameConnection(String password, String[] message, Socket socket, ObjectOutputStream os, ObjectInputStream is) throws IOException
+	public boolean requestGameConnection(String password, String[] message, GameTransport transport) throws IOException
 	{
-		os.writeUTF("/connect " + password);
-		os.flush();
+		transport.writeUTF("/connect " + password);
+		transport.flush();
 		
-		String response = is.readUTF();
+		String response = transport.readUTF();
 		message[0] = response;
 
 		if(!response.equals("connection accepted"))
 		{
-			socket.close();		
-			return null;
+			transport.close();		
+			return false;
 		}
-		return socket;
+		return true;
 	}
 	
 	public String[] getServerInformation(String ip, int port)
@@ -0,0 +1,136 @@
+package client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import transmission.ChannelFrame;
+import transmission.CompressedServerUpdate;
+import transmission.GameTransport;
+
+/**
+ * ServerPacketReader reads the packets a server sends to a client. Each packet is 
+ * <code>sequence, acknowledgement, frame count, (frame header, fragment)...</code>, as described in {@link ChannelFrame}.
+ * Realtime and reliable frames each hold a whole CompressedServerUpdate[]; bulk fragments are collected until the last 
+ * one of their payload arrives, which may be several packets later.
+ * <br><br>
+ * The updates of a packet are returned in the order they should be applied. A packet's realtime frame holds the state
+ * of each tick in its reliable frame, index for index, and each tick's state is returned straight after that tick's
+ * events, so ticks are applied strictly in order and entities added in a tick exist before its state is applied. Only
+ * bulk payloads, which span packets, are returned out of step with the ticks. A reader keeps the bulk fragments between
+ * packets, so one reader must be used for every packet of a connection.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class ServerPacketReader 
+{
+	private GameTransport transport;
+	private List<Object> bulkFragments;
+	private int sequence;
+	private int acknowledged;
+	
+	public ServerPacketReader(GameTransport transport)
+	{
+		this.transport = transport;
+		this.bulkFragments = new ArrayList<Object>();
+	}
+	
+	/**
+	 * Reads the next packet, blocking until it arrives.
+	 * @return the updates completed by the packet, in the order they should be applied
+	 * @throws IOException indicates the connection failed or closed
+	 * @throws ClassNotFoundException indicates the server sent a class that does not exist on this end
+	 */
+	public List<CompressedServerUpdate> readPacket()
+			throws IOException, ClassNotFoundException
+	{
+		sequence = transport.readInt();
+		acknowledged = transport.readInt();
+		int loopTotal = transport.readInt();
+		List<CompressedServerUpdate> updates = new ArrayList<CompressedServerUpdate>();
+		CompressedServerUpdate[] realtime = null;
+		for(int i = 0; i < loopTotal; i++)
+		{
+			int header = transport.readInt();
+			Object fragment = transport.readFragment();
+			if(ChannelFrame.getChannel(header) == ChannelFrame.BULK)
+			{
+				bulkFragments.add(fragment);
+				if(!ChannelFrame.isLastFragment(header))
+				{
+					continue;
+				}
+				addUpdates(updates, transport.decode(bulkFragments));
+				bulkFragments.clear();
+			}
+			else
+			{
+				List<Object> whole = new ArrayList<Object>(1);
+				whole.add(fragment);
+				if(ChannelFrame.getChannel(header) == ChannelFrame.REALTIME)
+				{
+					//Always written ahead of the reliable frame it belongs to
+					realtime = (CompressedServerUpdate[])(transport.decode(whole));
+				}
+				else
+				{
+					addTicks(updates, (CompressedServerUpdate[])(transport.decode(whole)), realtime);
+					realtime = null;
+				}
+			}
+		}
+		return updates;
+	}
+	
+	/**
+	 * Adds the events of each tick in a reliable frame, each followed by the state of the same tick.
+	 * @param updates the updates of the packet so far
+	 * @param events the events of each tick
+	 * @param state the state of each tick, or null if the packet had no realtime frame
+	 * @throws IOException indicates the realtime frame does not match the reliable frame
+	 */
+	private void addTicks(List<CompressedServerUpdate> updates, CompressedServerUpdate[] events, CompressedServerUpdate[] state)
+			throws IOException
+	{
+		if(state != null && state.length != events.length)
+		{
+			throw new IOException("Realtime frame holds " + state.length + " ticks but the reliable frame holds " + events.length);
+		}
+		for(int i = 0; i < events.length; i++)
+		{
+			updates.add(events[i]);
+			if(state != null)
+			{
+				updates.add(state[i]);
+			}
+		}
+	}
+	
+	/**
+	 * Gets the sequence number of the last packet read.
+	 * @return the packet's sequence number
+	 */
+	public int getSequence()
+	{
+		return sequence;
+	}
+	
+	/**
+	 * Gets the most recent client sequence number the server had received when it sent the last packet read.
+	 * @return the acknowledged client sequence number
+	 */
+	public int getAcknowledged()
+	{
+		return acknowledged;
+	}
+	
+	private void addUpdates(List<CompressedServerUpdate> updates, Object payload)
+	{
+		for(CompressedServerUpdate update : (CompressedServerUpdate[])(payload))
+		{
+			updates.add(update);
+		}
+	}
+}
@@ -0,0 +1,349 @@
+package client.bot;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Random;
+import java.util.Vector;
+
+import transmission.ClientCommand;
+import transmission.CompressedClientUpdate;
+import transmission.CompressedServerUpdate;
+import transmission.GameTransport;
+import transmission.MovementState;
+import transmission.PacketSequencer;
+import transmission.SocketTransport;
+import transmission.SuperCompressedChunk;
+import transmission.UpdateWithObject;
+import utils.PercentileRecorder;
+import blocks.Block;
+import client.ClientConnectionThread;
+import client.ServerInformationHelper;
+import client.ServerPacketReader;
+import enums.EnumHardwareInput;
+
+/**
+ * BotClient is a headless client that plays a fixed script, for generating load on a server. It connects with the same
+ * handshake as the real client ({@link ClientConnectionThread#sendPlayer(GameTransport, String)} and so on) as a new
+ * player, and decodes everything the server sends with a {@link ServerPacketReader}, but keeps no world: it only tracks
+ * its own position and which chunks have arrived.
+ * <br><br>
+ * Each call to {@link #tick()} sends one packet, like a real client does each tick. The bot walks back and forth,
+ * jumping now and then, and at fixed intervals mines the block in front of it, places a block there, fires a
+ * projectile and chats. The script is driven by a Random with a fixed seed, so the same bots always behave the same.
+ * <br><br>
+ * The bot's own thread reads packets from the server. Whenever the bot walks into a chunk it has not received, the
+ * time until that chunk arrives is recorded as a chunk delivery latency, as is the time from joining until the chunk
+ * it spawned in arrives.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class BotClient extends Thread
+{
+	/** The size of a block, in the units entity positions are in */
+	private static final int BLOCK_SIZE = 6;
+	private static final int MIN_TICKS_WALKING = 60;
+	private static final int MAX_TICKS_WALKING = 200;
+	/** A bot jumps on one tick in this many, on average */
+	private static final int JUMP_CHANCE = 30;
+	private static final int MINE_INTERVAL = 10;
+	private static final int PLACE_INTERVAL = 25;
+	private static final int FIRE_INTERVAL = 40;
+	private static final int CHAT_INTERVAL = 200;
+	private final String botName;
+	private final Random random;
+	private final PercentileRecorder chunkLatencies;
+	private GameTransport transport;
+	private CountingInputStream bytesIn;
+	private CountingOutputStream bytesOut;
+	private PacketSequencer sequencer;
+	private ServerPacketReader packetReader;
+	private int playerID;
+	private long joinTime;
+	private volatile boolean connected;
+	private volatile double x;
+	private volatile double y;
+	private int ticks;
+	private int inputSequence;
+	private boolean walkingRight;
+	private int ticksUntilTurn;
+	/** The chunk the bot was last known to be in, or -1 before its position is known */
+	private int currentChunk;
+	/** When each chunk arrived, in nanoseconds, by chunk x position. Only used by the reader thread */
+	private Hashtable<Integer, Long> chunkArrivals;
+	/** When the bot walked into each chunk that has not arrived yet, in nanoseconds. Only used by the reader thread */
+	private Hashtable<Integer, Long> chunksAwaited;
+
+	/**
+	 * Creates a bot. The bot does nothing until it is connected.
+	 * @param botName the name of the bot's player
+	 * @param seed the seed for the bot's script
+	 * @param chunkLatencies where to record chunk delivery latencies, in milliseconds; may be shared by many bots
+	 */
+	public BotClient(String botName, long seed, PercentileRecorder chunkLatencies)
+	{
+		setName("Bot_" + botName);
+		setDaemon(true);
+		this.botName = botName;
+		this.random = new Random(seed);
+		this.chunkLatencies = chunkLatencies;
+		this.sequencer = new PacketSequencer();
+		this.chunkArrivals = new Hashtable<Integer, Long>();
+		this.chunksAwaited = new Hashtable<Integer, Long>();
+		this.currentChunk = -1;
+		//Start each bot at a different point in its script, so they do not all act on the same tick
+		this.ticks = random.nextInt(CHAT_INTERVAL);
+		this.walkingRight = random.nextBoolean();
+		this.ticksUntilTurn = MIN_TICKS_WALKING + random.nextInt(MAX_TICKS_WALKING - MIN_TICKS_WALKING);
+	}
+
+	/**
+	 * Connects to a server over a socket, counting the bytes sent each way, and starts reading from it.
+	 * @param host the server's address
+	 * @param port the server's port
+	 * @param password the server's password, or an empty String
+	 * @throws IOException indicates the connection failed or was refused
+	 * @throws ClassNotFoundException indicates the server sent something unexpected
+	 */
+	public void connect(String host, int port, String password)
+			throws IOException, ClassNotFoundException
+	{
+		Socket socket = new Socket(host, port);
+		socket.setTcpNoDelay(true);
+		bytesOut = new CountingOutputStream(socket.getOutputStream());
+		bytesIn = new CountingInputStream(socket.getInputStream());
+		ObjectOutputStream os = new ObjectOutputStream(bytesOut);
+		ObjectInputStream is = new ObjectInputStream(bytesIn);
+		GameTransport transport = new SocketTransport(socket, os, is);
+		String[] message = { "" };
+		if(!new ServerInformationHelper().requestGameConnection(password, message, transport))
+		{
+			throw new IOException(botName + " was refused: " + message[0]);
+		}
+		connect(transport);
+	}
+
+	/**
+	 * Performs the handshake over an open connection, and starts reading from it. Bytes are only counted for
+	 * connections made with {@link #connect(String, int, String)}.
+	 * @param transport a connection the server has accepted
+	 * @throws IOException indicates the connection failed
+	 * @throws ClassNotFoundException indicates the server sent something unexpected
+	 */
+	public void connect(GameTransport transport)
+			throws IOException, ClassNotFoundException
+	{
+		this.transport = transport;
+		this.packetReader = new ServerPacketReader(transport);
+		joinTime = System.nanoTime();
+		playerID = ClientConnectionThread.sendPlayer(transport, "type=newplayer;name=" + botName + ";difficulty=normal;");
+		ClientConnectionThread.requestWorldData(transport);
+		//Bots cache nothing, so every chunk is sent in full
+		ClientConnectionThread.sendChunkManifest(transport, new long[0]);
+		connected = true;
+		start();
+	}
+
+	public void run()
+	{
+		try {
+			while(connected)
+			{
+				List<CompressedServerUpdate> updates = packetReader.readPacket();
+				for(CompressedServerUpdate update : updates)
+				{
+					handleUpdate(update);
+				}
+				sequencer.received(packetReader.getSequence(), packetReader.getAcknowledged());
+			}
+		} catch (IOException e) {
+			if(connected)
+			{
+				System.out.println(botName + " lost its connection: " + e.getMessage());
+			}
+		} catch (ClassNotFoundException e) {
+			e.printStackTrace();
+		} finally {
+			connected = false;
+		}
+	}
+
+	private void handleUpdate(CompressedServerUpdate update)
+	{
+		for(UpdateWithObject objectUpdate : update.objectUpdates)
+		{
+			if(objectUpdate.command.startsWith("/chunk"))
+			{
+				chunkArrived(((SuperCompressedChunk)(objectUpdate.object)).x);
+			}
+		}
+		for(String command : update.values)
+		{
+			if(command.startsWith("/chunkcached"))
+			{
+				chunkArrived(Integer.parseInt(command.split(" ")[1]));
+			}
+		}
+		for(MovementState state : update.movementStates)
+		{
+			if(state.entityID == playerID)
+			{
+				moveTo(state.x, state.y);
+			}
+		}
+	}
+
+	private void moveTo(double x, double y)
+	{
+		this.x = x;
+		this.y = y;
+		int chunk = (int)(x / BLOCK_SIZE) / SuperCompressedChunk.CHUNK_WIDTH;
+		if(chunk == currentChunk)
+		{
+			return;
+		}
+		if(currentChunk == -1)
+		{
+			//The chunk the bot spawned in was needed from the moment it joined, and may have arrived already
+			Long arrival = chunkArrivals.get(chunk);
+			if(arrival != null)
+			{
+				chunkLatencies.record((arrival - joinTime) / 1000000);
+			}
+			else
+			{
+				chunksAwaited.put(chunk, joinTime);
+			}
+		}
+		else if(!chunkArrivals.containsKey(chunk) && !chunksAwaited.containsKey(chunk))
+		{
+			chunksAwaited.put(chunk, System.nanoTime());
+		}
+		currentChunk = chunk;
+	}
+
+	private void chunkArrived(int chunk)
+	{
+		long now = System.nanoTime();
+		chunkArrivals.put(chunk, now);
+		Long awaitedSince = chunksAwaited.remove(chunk);
+		if(awaitedSince != null)
+		{
+			chunkLatencies.record((now - awaitedSince) / 1000000);
+		}
+	}
+
+	/**
+	 * Plays one tick of the bot's script and sends it to the server. Should be called once per game tick, from one
+	 * thread.
+	 * @throws IOException indicates the connection failed
+	 */
+	public void tick()
+			throws IOException
+	{
+		ticks++;
+		if(--ticksUntilTurn <= 0)
+		{
+			walkingRight = !walkingRight;
+			ticksUntilTurn = MIN_TICKS_WALKING + random.nextInt(MAX_TICKS_WALKING - MIN_TICKS_WALKING);
+		}
+		int inputFlags = (walkingRight) ? EnumHardwareInput.MOVE_RIGHT.getFlag() : EnumHardwareInput.MOVE_LEFT.getFlag();
+		if(random.nextInt(JUMP_CHANCE) == 0)
+		{
+			inputFlags |= EnumHardwareInput.JUMP.getFlag();
+		}
+
+		//The block just in front of the bot, at head height
+		int blockX = (int)(x / BLOCK_SIZE) + ((walkingRight) ? 2 : -1);
+		int blockY = (int)(y / BLOCK_SIZE);
+		Vector<ClientCommand> commands = new Vector<ClientCommand>();
+		if(ticks % MINE_INTERVAL == 0)
+		{
+			commands.add(ClientCommand.mineFront(playerID, blockX, blockY, 0));
+		}
+		if(ticks % PLACE_INTERVAL == 0)
+		{
+			commands.add(ClientCommand.placeFrontBlock(playerID, blockX, blockY, Block.dirt.getID(), 0));
+		}
+		if(ticks % FIRE_INTERVAL == 0)
+		{
+			commands.add(ClientCommand.launchProjectile(playerID, 0, x + ((walkingRight) ? 60 : -60), y));
+		}
+		if(ticks % CHAT_INTERVAL == 0)
+		{
+			commands.add(ClientCommand.say(playerID, "WHITE " + botName + " has been walking for " + ticks + " ticks"));
+		}
+
+		CompressedClientUpdate update = new CompressedClientUpdate();
+		update.playerID = playerID;
+		update.inputSequence = ++inputSequence;
+		update.inputFlags = (short) inputFlags;
+		ClientCommand[] commandArray = new ClientCommand[commands.size()];
+		commands.copyInto(commandArray);
+		update.commands = commandArray;
+
+		transport.writeInt(sequencer.nextOutgoing());
+		transport.writeInt(sequencer.getAcknowledgement());
+		transport.write(transport.encode(new CompressedClientUpdate[] { update }));
+		transport.flush();
+	}
+
+	/**
+	 * Tells the server the bot is quitting, then closes the connection.
+	 */
+	public void disconnect()
+	{
+		if(!connected)
+		{
+			return;
+		}
+		try {
+			CompressedClientUpdate update = new CompressedClientUpdate();
+			update.playerID = playerID;
+			update.commands = new ClientCommand[] { ClientCommand.quit(playerID) };
+			transport.writeInt(sequencer.nextOutgoing());
+			transport.writeInt(sequencer.getAcknowledgement());
+			transport.write(transport.encode(new CompressedClientUpdate[] { update }));
+			transport.flush();
+		} catch (IOException e) {
+		}
+		connected = false;
+		try {
+			transport.close();
+		} catch (IOException e) {
+		}
+	}
+
+	public boolean isConnected()
+	{
+		return connected;
+	}
+
+	public String getBotName()
+	{
+		return botName;
+	}
+
+	/**
+	 * Gets how many bytes the server has sent this bot.
+	 * @return the bytes received, or 0 if the connection does not count them
+	 */
+	public long getBytesIn()
+	{
+		return (bytesIn != null) ? bytesIn.getCount() : 0;
+	}
+
+	/**
+	 * Gets how many bytes this bot has sent the server.
+	 * @return the bytes sent, or 0 if the connection does not count them
+	 */
+	public long getBytesOut()
+	{
+		return (bytesOut != null) ? bytesOut.getCount() : 0;
+	}
+}
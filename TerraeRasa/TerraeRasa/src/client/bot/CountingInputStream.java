@@ -0,0 +1,61 @@
+package client.bot;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * CountingInputStream counts the bytes read through it, so a bot can report how much the server sent it.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class CountingInputStream extends FilterInputStream
+{
+	private volatile long count;
+	
+	public CountingInputStream(InputStream in)
+	{
+		super(in);
+	}
+	
+	public int read()
+			throws IOException
+	{
+		int value = super.read();
+		if(value != -1)
+		{
+			count++;
+		}
+		return value;
+	}
+	
+	public int read(byte[] b, int off, int len)
+			throws IOException
+	{
+		int read = super.read(b, off, len);
+		if(read > 0)
+		{
+			count += read;
+		}
+		return read;
+	}
+	
+	public long skip(long n)
+			throws IOException
+	{
+		long skipped = super.skip(n);
+		count += skipped;
+		return skipped;
+	}
+	
+	/**
+	 * Gets how many bytes have been read.
+	 * @return the number of bytes read
+	 */
+	public long getCount()
+	{
+		return count;
+	}
+}
@@ -0,0 +1,45 @@
+package client.bot;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * CountingOutputStream counts the bytes written through it, so a bot can report how much it sent the server.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class CountingOutputStream extends FilterOutputStream
+{
+	private volatile long count;
+	
+	public CountingOutputStream(OutputStream out)
+	{
+		super(out);
+	}
+	
+	public void write(int b)
+			throws IOException
+	{
+		out.write(b);
+		count++;
+	}
+	
+	public void write(byte[] b, int off, int len)
+			throws IOException
+	{
+		out.write(b, off, len);
+		count += len;
+	}
+	
+	/**
+	 * Gets how many bytes have been written.
+	 * @return the number of bytes written
+	 */
+	public long getCount()
+	{
+		return count;
+	}
+}
@@ -0,0 +1,188 @@
+package client.bot;
+
+import java.util.Vector;
+
+import server.ServerSettings;
+import utils.PercentileRecorder;
+import entry.MPGameEngine;
+import entry.MPGameLoop;
+import entry.TerraeRasa;
+
+/**
+ * LoadHarness starts a server in this JVM and connects a number of {@link BotClient}s to it, so the cost of a fixed
+ * scenario can be measured before and after a networking or simulation change. Once every bot has joined and the
+ * warmup has passed, the harness plays the scenario for a fixed time and then reports:
+ * <ul>
+ * <li>Server tick time percentiles, from {@link MPGameLoop#getTickTimes()}</li>
+ * <li>Bytes received and sent per bot per second</li>
+ * <li>Chunk delivery latency percentiles (see {@link BotClient})</li>
+ * </ul>
+ * Usage: <code>java client.bot.LoadHarness &lt;base path&gt; &lt;universe&gt; [bots] [seconds] [-loopback]</code>. The
+ * universe is loaded from, or generated in, the base path. Bots connect over localhost sockets on the port in the
+ * server's settings, unless <code>-loopback</code> is given, in which case they connect in-process and bytes are not
+ * counted. The bots share the JVM with the server, so tick times include some of their decoding work.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class LoadHarness
+{
+	private static final int DEFAULT_BOTS = 100;
+	private static final int DEFAULT_SECONDS = 60;
+	private static final int WARMUP_SECONDS = 10;
+	private static final long SEED = 20130501;
+
+	public static void main(String[] args)
+			throws Exception
+	{
+		if(args.length < 2)
+		{
+			System.out.println("Usage: java client.bot.LoadHarness <base path> <universe> [bots] [seconds] [-loopback]");
+			return;
+		}
+		int totalBots = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_BOTS;
+		int seconds = (args.length > 3) ? Integer.parseInt(args[3]) : DEFAULT_SECONDS;
+		boolean loopback = args.length > 4 && args[4].equals("-loopback");
+
+		ServerSettings settings = startServer(args[0], args[1]);
+		int maxPlayers = settings.maxPlayers;
+		settings.maxPlayers = Math.max(maxPlayers, totalBots);
+
+		PercentileRecorder chunkLatencies = new PercentileRecorder(totalBots * 64);
+		Vector<BotClient> bots = new Vector<BotClient>();
+		for(int i = 0; i < totalBots; i++)
+		{
+			BotClient bot = new BotClient("bot" + i, SEED + i, chunkLatencies);
+			try {
+				if(loopback)
+				{
+					bot.connect(MPGameEngine.terraeRasa.connectLocalPlayer());
+				}
+				else
+				{
+					bot.connect("localhost", settings.port, "");
+				}
+				bots.add(bot);
+			} catch (Exception e) {
+				System.out.println("bot" + i + " could not connect: " + e.getMessage());
+			}
+		}
+		System.out.println(bots.size() + "/" + totalBots + " bots connected");
+
+		runBots(bots, WARMUP_SECONDS);
+		MPGameEngine.terraeRasa.gameEngine.getTickTimes().clear();
+		chunkLatencies.clear();
+		long[] bytesInBefore = new long[bots.size()];
+		long[] bytesOutBefore = new long[bots.size()];
+		for(int i = 0; i < bots.size(); i++)
+		{
+			bytesInBefore[i] = bots.get(i).getBytesIn();
+			bytesOutBefore[i] = bots.get(i).getBytesOut();
+		}
+
+		runBots(bots, seconds);
+
+		PercentileRecorder bytesIn = new PercentileRecorder(Math.max(1, bots.size()));
+		PercentileRecorder bytesOut = new PercentileRecorder(Math.max(1, bots.size()));
+		int stillConnected = 0;
+		for(int i = 0; i < bots.size(); i++)
+		{
+			BotClient bot = bots.get(i);
+			bytesIn.record((bot.getBytesIn() - bytesInBefore[i]) / seconds);
+			bytesOut.record((bot.getBytesOut() - bytesOutBefore[i]) / seconds);
+			if(bot.isConnected())
+			{
+				stillConnected++;
+			}
+		}
+
+		System.out.println();
+		System.out.println("Scenario: " + bots.size() + " bots for " + seconds + "s" + ((loopback) ? " (loopback)" : "") +
+				", " + stillConnected + " still connected at the end");
+		System.out.println(String.format("%-28s %10s %10s %10s %10s %10s", "", "mean", "p50", "p95", "p99", "max"));
+		PercentileRecorder tickTimes = MPGameEngine.terraeRasa.gameEngine.getTickTimes();
+		report("tick time (ms)", tickTimes, 1000000.0);
+		report("bytes in per bot (B/s)", bytesIn, 1);
+		report("bytes out per bot (B/s)", bytesOut, 1);
+		report("chunk latency (ms)", chunkLatencies, 1);
+		if(tickTimes.getSize() == tickTimes.getCapacity())
+		{
+			System.out.println("(tick times are for the last " + tickTimes.getCapacity() + " ticks only)");
+		}
+
+		for(BotClient bot : bots)
+		{
+			bot.disconnect();
+		}
+		settings.maxPlayers = maxPlayers;
+		MPGameEngine.kill();
+		System.exit(0);
+	}
+
+	/**
+	 * Starts a server in this JVM, and waits until it accepts connections.
+	 * @param basePath the directory holding the server's settings and universes
+	 * @param universeName the universe to load or generate
+	 * @return the server's settings
+	 * @throws InterruptedException indicates the wait was interrupted
+	 */
+	private static ServerSettings startServer(String basePath, String universeName)
+			throws InterruptedException
+	{
+		TerraeRasa.IS_MP_LAUNCH = true;
+		TerraeRasa.setBasePath(basePath);
+		MPGameEngine.terraeRasa = new MPGameEngine(universeName);
+		MPGameEngine.terraeRasa.start();
+		while(!TerraeRasa.isMPServerRunning)
+		{
+			Thread.sleep(500);
+		}
+		return MPGameEngine.terraeRasa.getSettings();
+	}
+
+	/**
+	 * Ticks every connected bot at the game's tick rate for a while.
+	 * @param bots the bots to run
+	 * @param seconds how long to run them for
+	 * @throws InterruptedException indicates the harness was interrupted
+	 */
+	private static void runBots(Vector<BotClient> bots, int seconds)
+			throws InterruptedException
+	{
+		final long tickNanos = 1000000000L / MPGameLoop.TICKS_PER_SECOND;
+		long nextTick = System.nanoTime();
+		for(int tick = 0; tick < seconds * MPGameLoop.TICKS_PER_SECOND; tick++)
+		{
+			for(BotClient bot : bots)
+			{
+				if(!bot.isConnected())
+				{
+					continue;
+				}
+				try {
+					bot.tick();
+				} catch (Exception e) {
+					System.out.println(bot.getBotName() + " could not send: " + e.getMessage());
+					bot.disconnect();
+				}
+			}
+			nextTick += tickNanos;
+			long wait = nextTick - System.nanoTime();
+			if(wait > 0)
+			{
+				Thread.sleep(wait / 1000000, (int)(wait % 1000000));
+			}
+		}
+	}
+
+	private static void report(String name, PercentileRecorder recorder, double divisor)
+	{
+		System.out.println(String.format("%-28s %10.2f %10.2f %10.2f %10.2f %10.2f", name,
+				recorder.getMean() / divisor,
+				recorder.getPercentile(50) / divisor,
+				recorder.getPercentile(95) / divisor,
+				recorder.getPercentile(99) / divisor,
+				recorder.getPercentile(100) / divisor));
+	}
+}
@@ -12,7 +12,7 @@ import statuseffects.StatusEffect;
 import transmission.ClientUpdate;
 import transmission.StatUpdate;
 import transmission.TransmittablePlayer;
-import transmission.UpdateWithObject;
+import utils.ChangedInventorySlots;
 import utils.Cooldown;
 import utils.CraftingManager;
 import utils.InventoryPlayer;
@@ -82,7 +82,6 @@ public class EntityPlayer extends EntityPlayerBase
 	public double respawnYPos;	
 	public int selectedRecipe;
 	public int selectedSlot;
-	public boolean isFacingRight;
 	public boolean isInventoryOpen;	
 	public InventoryPlayer inventory;
 	/** A flag indicating if the player has been forever defeated. If they have, they will not be saved to disk.*/
@@ -159,39 +158,16 @@ public class EntityPlayer extends EntityPlayerBase
 		verifyChestRange();
 		updateCooldowns();
 		
-		String[] changes = new String[changedInventorySlots.size()];
-		changedInventorySlots.copyInto(changes);
-		changedInventorySlots.clear();
+		ChangedInventorySlots changes = changedInventorySlots.drain();
 		
+		//Close the socket window if the item in it has changed
 		if(UIBase.getIsSocketWindowOpen())
 		{
-			for(String change : changes)
+			int inventoryID = UIBase.getInventoryID();
+			if((inventoryID == ChangedInventorySlots.MAIN || inventoryID == ChangedInventorySlots.ARMOR || inventoryID == ChangedInventorySlots.QUIVER) &&
+				changes.getSlots(inventoryID).get(UIBase.getInventoryIndex()))
 			{
-				UpdateWithObject objUpdate = new UpdateWithObject();
-				
-				String[] split = change.split(" ");
-				if(split[0].equals("a"))
-				{
-					if(UIBase.getInventoryID() == 2 && UIBase.getInventoryIndex() == Integer.parseInt(split[1]))
-					{						
-						UIBase.clearSocketVariables();						
-					}
-				}
-				else if(split[0].equals("q"))
-				{
-					if(UIBase.getInventoryID() == 3 && UIBase.getInventoryIndex() == Integer.parseInt(split[1]))
-					{
-						UIBase.clearSocketVariables();
-					}
-				}
-				else if(split[0].equals("i") || split[0].equals("m"))
-				{
-					if(UIBase.getInventoryID() == 1 && UIBase.getInventoryIndex() == Integer.parseInt(split[1]))
-					{
-						UIBase.clearSocketVariables();						
-					}
-				}	
-				update.addObjectUpdate(objUpdate);
+				UIBase.clearSocketVariables();
 			}
 		}
 	}
@@ -609,6 +585,31 @@ public class EntityPlayer extends EntityPlayerBase
 		this.y = y;
 	}
 	
+	/**
+	 * Applies gravity or a jump upward while predicting movement. This is the same as the server's gravity, except that
+	 * fall damage is left to the server.
+	 * @param world the world the player is currently in
+	 */
+	public void applyGravity(World world) 
+	{
+		if(isOnGround(world)) //Is the entity on the ground? If so they can jump again
+		{
+			ticksFallen = 0;
+			canJumpAgain = true;
+			distanceFallen = 0;
+		}
+		
+		if(isJumping) //If the entity is jumping upwards, move them up
+		{
+			moveEntityUp(world, jumpSpeed * getMovementSpeedModifier());			
+		}
+		else if(!isOnGround(world) && isAffectedByGravity) //otherwise, if the entity is in the air, make them fall
+		{
+			moveEntityDown(world, MathHelper.getFallSpeed(jumpSpeed, world.getG(), ticksFallen));
+			ticksFallen++;
+		}	
+	}
+	
 	@Override
 	public int getEntityType() {
 		return DisplayableEntity.TYPE_PLAYER;
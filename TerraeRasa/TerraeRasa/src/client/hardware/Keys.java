@@ -5,6 +5,7 @@ import java.util.Vector;
 import org.lwjgl.input.Keyboard;
 import org.lwjgl.opengl.Display;
 
+import transmission.ClientCommand;
 import transmission.ClientUpdate;
 import world.World;
 import client.Keybinds;
@@ -146,10 +147,10 @@ public class Keys
         		player.selectedSlot = i;
         		if(selectedSlot != player.selectedSlot)
         		{
-		        	update.addCommand("/player " + player.entityID + " setactionbarslot " + player.selectedSlot);
+		        	update.addCommand(ClientCommand.setActionbarSlot(player.entityID, player.selectedSlot));
         		}
         		player.clearSwing();
-	        	update.addCommand("/player " + player.entityID + " cancelswing");
+	        	update.addCommand(ClientCommand.cancelSwing(player.entityID));
         	}
         	if(!Keyboard.isKeyDown(Keyboard.KEY_EQUALS))
         	{
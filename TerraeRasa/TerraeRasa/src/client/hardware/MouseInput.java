@@ -9,6 +9,8 @@ import math.MathHelper;
 
 import org.lwjgl.input.Mouse;
 
+import transmission.ClientCommand;
+
 import utils.ActionbarItem;
 import world.World;
 import blocks.Block;
@@ -23,7 +25,7 @@ public class MouseInput
 {	
 	private static boolean mouseLock = false;
 	
-	public static void mouse(World world, EntityPlayer player, Vector<String> clientCommands, Vector<EnumHardwareInput> hardwareInput)
+	public static void mouse(World world, EntityPlayer player, Vector<ClientCommand> clientCommands, Vector<EnumHardwareInput> hardwareInput)
 	{
 		try {
 			int active = player.selectedSlot;
@@ -31,8 +33,7 @@ public class MouseInput
 			int mouseBY = ((Render.getCameraY() + MathHelper.getCorrectMouseYPosition()) / 6);
 				
 			if (!Mouse.isButtonDown(0) && !Mouse.isButtonDown(1) && player.getIsMining()){
-				String command = "/mine stop " + player.entityID;
-				clientCommands.add(command);
+				clientCommands.add(ClientCommand.mineStop(player.entityID));
 			}
 			if(Mouse.isButtonDown(0) && player.inventory.getMainInventoryStack(active) != null) //Left Mouse Down && Actionbar slot isnt empty
 			{			
@@ -43,14 +44,12 @@ public class MouseInput
 					{
 						Item item = Item.itemsList[selectedItemID];
 						//Try to mine a block
-						String command = "/mine frontcontinue " + player.entityID + " " + mouseBX + " " + mouseBY + " " + active;
-						clientCommands.add(command);
+						clientCommands.add(ClientCommand.mineFront(player.entityID, mouseBX, mouseBY, active));
 						
 						if(!player.isSwingingTool() && item instanceof ItemTool) //If the player isn't swinging a tool, start swinging
 						{
 							ItemTool tool = (ItemTool) item;
-							command = "/player " + player.entityID + " startswing " + player.selectedSlot;
-							clientCommands.add(command);
+							clientCommands.add(ClientCommand.startSwing(player.entityID, player.selectedSlot));
 							if (player.getIsMining()){
 								SoundEngine.playSoundEffect(tool.hitSound);
 							}				
@@ -60,8 +59,7 @@ public class MouseInput
 						{
 							double xPos = Render.getCameraX() + MathHelper.getCorrectMouseXPosition(); 
 							double yPos = Render.getCameraY() + MathHelper.getCorrectMouseYPosition();
-							command = "/projectile launch " + player.entityID + " " + active + " " + xPos + " " + yPos;
-							clientCommands.add(command);							
+							clientCommands.add(ClientCommand.launchProjectile(player.entityID, active, xPos, yPos));							
 						}
 					}
 				}
@@ -98,12 +96,10 @@ public class MouseInput
 						//if the click was close enough to place a block, try to place one
 						if(d <= player.getMaximumBlockPlaceDistance()) {
 							if (Block.blocksList[selectedItemID] instanceof BlockBackWall) {
-								String command = "/placebackblock " + mouseBX + " " + mouseBY + " " + player.entityID + " " + player.inventory.getMainInventoryStack(active).getItemID() + " " + active;
-								clientCommands.add(command);
+								clientCommands.add(ClientCommand.placeBackBlock(player.entityID, mouseBX, mouseBY, player.inventory.getMainInventoryStack(active).getItemID(), active));
 							}
 							else {
-								String command = "/placefrontblock " + mouseBX + " " + mouseBY + " " + player.entityID + " " + player.inventory.getMainInventoryStack(active).getItemID() + " " + active;
-								clientCommands.add(command);
+								clientCommands.add(ClientCommand.placeFrontBlock(player.entityID, mouseBX, mouseBY, player.inventory.getMainInventoryStack(active).getItemID(), active));
 							}
 						}
 					}
@@ -114,7 +110,7 @@ public class MouseInput
 					{
 						if(!mouseLock)
 						{
-							clientCommands.add("/player " + player.entityID + " use " + active);
+							clientCommands.add(ClientCommand.useItem(player.entityID, active));
 							//Item.itemsList[player.inventory.getMainInventoryStack(active).getItemID()].onRightClick(world, player);
 							mouseLock = true;
 						}
@@ -131,15 +127,13 @@ public class MouseInput
 						Item item = Item.itemsList[selectedItemID];
 						
 						//Mine the backwall
-						String command = "/mine backcontinue " + player.entityID + " " + mouseBX + " " + mouseBY + " " + active;
-						clientCommands.add(command);
+						clientCommands.add(ClientCommand.mineBack(player.entityID, mouseBX, mouseBY, active));
 						
 						if(!player.isSwingingTool() && item instanceof ItemTool) //If the player isn't swinging a tool, start swinging
 						{
 							ItemTool tool = (ItemTool) item;
 							
-							command = "/player " + player.entityID + " startswing " + player.selectedSlot;
-							clientCommands.add(command);
+							clientCommands.add(ClientCommand.startSwing(player.entityID, player.selectedSlot));
 							
 						//	player.startSwingingTool(player.isFacingRight);
 							if (player.getIsMining()){
@@ -162,16 +156,16 @@ public class MouseInput
 		        if (wheelMovement > 0) //If mouse scrolled up
 		        {
 		        	player.selectedSlot--; //Decrease selected slot (actionbar)
-		        	clientCommands.add("/player " + player.entityID + " setactionbarslot " + ((player.selectedSlot > 0) ? player.selectedSlot : 0));
+		        	clientCommands.add(ClientCommand.setActionbarSlot(player.entityID, (player.selectedSlot > 0) ? player.selectedSlot : 0));
 		        	player.clearSwing();
-		        	clientCommands.add("/player " + player.entityID + " cancelswing");
+		        	clientCommands.add(ClientCommand.cancelSwing(player.entityID));
 		        }
 		        else if(wheelMovement < 0) //If mouse scrolled down
 		        {
 		        	player.selectedSlot++; //Increase selected slot (actionbar)
-		        	clientCommands.add("/player " + player.entityID + " setactionbarslot " + ((player.selectedSlot > 0) ? player.selectedSlot : 0));
+		        	clientCommands.add(ClientCommand.setActionbarSlot(player.entityID, (player.selectedSlot > 0) ? player.selectedSlot : 0));
 		        	player.clearSwing();
-		        	clientCommands.add("/player " + player.entityID + " cancelswing");
+		        	clientCommands.add(ClientCommand.cancelSwing(player.entityID));
 		        }
 		        
 		        //Bounds checking
@@ -1,5 +1,6 @@
 package client.io;
 
+import java.util.List;
 import java.util.concurrent.Callable;
 
 import blocks.ChunkClient;
@@ -10,14 +11,42 @@ import transmission.SuperCompressedChunk;
 public class CallableReconstructChunk implements Callable<ChunkClient>
 {
 	private SuperCompressedChunk compressedChunk;
+	private ClientChunkCache cache;
+	private int x;
+	private long hash;
+	private List<Integer> cacheMisses;
 	
 	public CallableReconstructChunk(SuperCompressedChunk chunk)
 	{
 		this.compressedChunk = chunk;
 	}
 	
+	/**
+	 * Creates a callable that loads the chunk from the client's cache before expanding it.
+	 * @param cache the cache to load from
+	 * @param x the x position of the chunk, in chunks
+	 * @param hash the content hash the cached chunk must have
+	 * @param cacheMisses the list to add x to if the chunk cannot be loaded
+	 */
+	public CallableReconstructChunk(ClientChunkCache cache, int x, long hash, List<Integer> cacheMisses)
+	{
+		this.cache = cache;
+		this.x = x;
+		this.hash = hash;
+		this.cacheMisses = cacheMisses;
+	}
+	
 	public ChunkClient call() throws Exception
 	{
+		if(compressedChunk == null)
+		{
+			compressedChunk = cache.load(x, hash);
+			if(compressedChunk == null)
+			{
+				cacheMisses.add(x);
+				return null;
+			}
+		}
 		ChunkClient chunk = ChunkExpander.expandChunk(this.compressedChunk);
 		return chunk;
 	}
@@ -0,0 +1,231 @@
+package client.io;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import transmission.ChunkCompressor;
+import transmission.SuperCompressedChunk;
+import entry.TerraeRasa;
+
+/**
+ * ClientChunkCache keeps a copy on disk of every chunk the client receives from one world on one server, so that
+ * rejoining or walking back to an area does not download the same chunks again. Chunks are stored under
+ * <code>BASE_PATH/Chunk Cache/&lt;server&gt;/&lt;world&gt;/</code>, along with a manifest of the content hash of
+ * each stored chunk (see {@link ChunkCompressor#hashChunk(SuperCompressedChunk)}).
+ * <br><br>
+ * The manifest is sent to the server when joining. When a stored chunk is still identical to the server's, the server
+ * only sends a notice and the chunk is loaded with {@link #load(int, long)}. Writes happen on a single background
+ * thread, so the game loop never waits on the disk. Joining a world stores chunks in quick succession, so the manifest is
+ * only rewritten once every chunk waiting to be written has been; a chunk whose file is written but is not yet in the
+ * manifest on disk is simply downloaded again.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class ClientChunkCache
+{
+	private static final String MANIFEST_NAME = "manifest.txt";
+	private final String directory;
+	private final Hashtable<Integer, Long> manifest;
+	private final ExecutorService writeThread;
+	/** The number of chunks waiting to be written */
+	private final AtomicInteger pendingWrites;
+	/** Whether the manifest has changed since it was last saved. Only used by the write thread */
+	private boolean manifestChanged;
+
+	/**
+	 * Opens the cache for one world on one server, creating its directory if it does not exist yet.
+	 * @param serverAddress the address of the server
+	 * @param worldName the name of the world being played on the server
+	 */
+	public ClientChunkCache(String serverAddress, String worldName)
+	{
+		directory = TerraeRasa.getBasePath() + "/Chunk Cache/" + toFileName(serverAddress) + "/" + toFileName(worldName);
+		File file = new File(directory);
+		if(!file.exists())
+		{
+			file.mkdirs();
+		}
+		manifest = new Hashtable<Integer, Long>();
+		writeThread = Executors.newSingleThreadExecutor();
+		pendingWrites = new AtomicInteger();
+		loadManifest();
+	}
+
+	/**
+	 * Gets the content hash of every cached chunk, for sending to the server.
+	 * @param totalChunks the number of chunks in the world
+	 * @return the content hash of each cached chunk, indexed by chunk x position, with 0 for chunks that are not cached
+	 */
+	public long[] getManifest(int totalChunks)
+	{
+		long[] hashes = new long[totalChunks];
+		Enumeration<Integer> keys = manifest.keys();
+		while(keys.hasMoreElements())
+		{
+			int x = keys.nextElement();
+			if(x >= 0 && x < totalChunks)
+			{
+				hashes[x] = manifest.get(x);
+			}
+		}
+		return hashes;
+	}
+
+	/**
+	 * Schedules a chunk received from the server to be written to the cache, replacing any older copy.
+	 * @param chunk the chunk to cache
+	 */
+	public void store(final SuperCompressedChunk chunk)
+	{
+		pendingWrites.incrementAndGet();
+		writeThread.submit(new Runnable()
+		{
+			public void run()
+			{
+				long hash = ChunkCompressor.hashChunk(chunk);
+				try {
+					ObjectOutputStream os = new ObjectOutputStream(new GZIPOutputStream(new FileOutputStream(getChunkPath(chunk.x))));
+					try {
+						os.writeLong(hash);
+						os.writeObject(chunk);
+					} finally {
+						os.close();
+					}
+					manifest.put(chunk.x, hash);
+					manifestChanged = true;
+				} catch (IOException e) {
+					System.err.println("Failed to cache chunk " + chunk.x);
+					e.printStackTrace();
+				}
+				if(pendingWrites.decrementAndGet() == 0 && manifestChanged)
+				{
+					//Nothing else is waiting to be written, so save the manifest for this whole batch of chunks
+					try {
+						saveManifest();
+						manifestChanged = false;
+					} catch (IOException e) {
+						System.err.println("Failed to save the chunk cache manifest");
+						e.printStackTrace();
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Loads a chunk from the cache. This reads from the disk, so it should not be called from the game loop.
+	 * @param x the x position of the chunk, in chunks
+	 * @param hash the content hash the cached chunk must have
+	 * @return the cached chunk, or null if it is missing, damaged, or does not have the given hash
+	 */
+	public SuperCompressedChunk load(int x, long hash)
+	{
+		File file = new File(getChunkPath(x));
+		if(!file.exists())
+		{
+			return null;
+		}
+		try {
+			ObjectInputStream is = new ObjectInputStream(new GZIPInputStream(new FileInputStream(file)));
+			try {
+				if(is.readLong() != hash)
+				{
+					return null;
+				}
+				SuperCompressedChunk chunk = (SuperCompressedChunk)(is.readObject());
+				return (chunk.x == x) ? chunk : null;
+			} finally {
+				is.close();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (ClassNotFoundException e) {
+			e.printStackTrace();
+		} catch (ClassCastException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	/**
+	 * Stops the write thread once any chunks still waiting have been written.
+	 */
+	public void close()
+	{
+		writeThread.shutdown();
+	}
+
+	private String getChunkPath(int x)
+	{
+		return directory + "/" + x + ".dat";
+	}
+
+	private void loadManifest()
+	{
+		File file = new File(directory + "/" + MANIFEST_NAME);
+		if(!file.exists())
+		{
+			return;
+		}
+		try {
+			BufferedReader reader = new BufferedReader(new FileReader(file));
+			try {
+				String line;
+				while((line = reader.readLine()) != null)
+				{
+					String[] split = line.split(" ");
+					if(split.length == 2)
+					{
+						manifest.put(Integer.parseInt(split[0]), Long.parseLong(split[1]));
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (NumberFormatException e) {
+			//A damaged manifest only means chunks are downloaded again
+			manifest.clear();
+		}
+	}
+
+	private void saveManifest()
+			throws IOException
+	{
+		BufferedWriter writer = new BufferedWriter(new FileWriter(directory + "/" + MANIFEST_NAME));
+		try {
+			Enumeration<Integer> keys = manifest.keys();
+			while(keys.hasMoreElements())
+			{
+				int x = keys.nextElement();
+				writer.write(x + " " + manifest.get(x));
+				writer.newLine();
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	private static String toFileName(String name)
+	{
+		return name.replaceAll("[^A-Za-z0-9._ -]", "_");
+	}
+}
@@ -2,6 +2,7 @@ package client.io;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Vector;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -26,6 +27,8 @@ public class ThreadedChunkExpander
 	private final List<Integer> loadRequests;
 	private final ExecutorService threadPool;
 	private final ArrayList<Future<ChunkClient>> scheduledExpandOperations;
+	private final List<Integer> cacheMisses;
+	private ClientChunkCache cache;
 
 	/**
 	 * Constructs a new instance of ChunkManager, bound to the specific world. 4 Threads are created to help perform timely chunk operations. Additionally,
@@ -39,6 +42,21 @@ public class ThreadedChunkExpander
 		threadPool = Executors.newFixedThreadPool(3);
 		scheduledExpandOperations = new ArrayList<Future<ChunkClient>>(3);
 		loadRequests = new ArrayList<Integer>(8);
+		cacheMisses = new Vector<Integer>();
+	}
+	
+	/**
+	 * Sets the disk cache that received chunks are written to and cached chunks are loaded from. 
+	 * @param cache the cache for the current server and world, or null if chunks should not be cached
+	 */
+	public void setCache(ClientChunkCache cache)
+	{
+		if(this.cache != null)
+		{
+			this.cache.close();
+		}
+		this.cache = cache;
+		cacheMisses.clear();
 	}
 	
 	/**
@@ -59,8 +77,44 @@ public class ThreadedChunkExpander
 		}
 		
 		submitExpandOperation(compressedChunk);
+		if(cache != null)
+		{
+			cache.store(compressedChunk);
+		}
 		return true;
 	}
+	
+	/**
+	 * Issues a request to the threadpool to load a chunk from the disk cache and expand it. If the chunk cannot be loaded
+	 * it is reported by {@link #yieldCacheMisses()}, so it can be requested from the server instead.
+	 * @param x the x position of the chunk in the chunk grid
+	 * @param hash the content hash of the chunk, according to the server
+	 */
+	public void loadCachedChunk(int x, long hash)
+	{
+		if(cache == null)
+		{
+			cacheMisses.add(x);
+			return;
+		}
+		Future<ChunkClient> event = threadPool.submit(new CallableReconstructChunk(cache, x, hash, cacheMisses));
+		scheduledExpandOperations.add(event);
+	}
+	
+	/**
+	 * Gets and clears the chunks that could not be loaded from the disk cache since this was last called.
+	 * @return the x positions of the chunks that could not be loaded
+	 */
+	public Integer[] yieldCacheMisses()
+	{
+		synchronized(cacheMisses)
+		{
+			Integer[] misses = new Integer[cacheMisses.size()];
+			cacheMisses.toArray(misses);
+			cacheMisses.clear();
+			return misses;
+		}
+	}
 		
 	private void submitExpandOperation(SuperCompressedChunk compressedChunk)
 	{
@@ -105,6 +159,13 @@ public class ThreadedChunkExpander
 				} catch (ExecutionException e) {
 					e.printStackTrace();
 				}
+				if(chunk == null)
+				{
+					//A chunk that could not be loaded from the cache; it is requested again through yieldCacheMisses()
+					scheduledExpandOperations.remove(i);
+					i--;
+					continue;
+				}
 				chunk.setRequiresAmbientLightingUpdate(true);
 				
 				String key = ""+chunk.getX();
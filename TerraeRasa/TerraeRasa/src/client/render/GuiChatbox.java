@@ -13,6 +13,7 @@ import org.lwjgl.input.Keyboard;
 import org.lwjgl.opengl.Display;
 import org.lwjgl.opengl.GL11;
 
+import transmission.ClientCommand;
 import transmission.ClientUpdate;
 import utils.ColoredText;
 import client.ClientsideCommands;
@@ -289,8 +290,7 @@ public class GuiChatbox extends GuiComponent
 				text = ClientsideCommands.fillOutChatCommand(player, text);
 			}
 			this.temporaryValue = "";
-			String command = "/player " + playerID + " say " + EnumColor.WHITE.toString() + " " + text;
-			update.addCommand(command);
+			update.addCommand(ClientCommand.say(playerID, EnumColor.WHITE.toString() + " " + text));
 			
 			isChatOpen = false;
 			temporaryValue = "";
@@ -22,6 +22,8 @@ import org.lwjgl.opengl.GL11;
 import server.io.ChunkManager;
 import server.world.WorldGenEarth;
 import server.world.WorldServerEarth;
+import transmission.GameTransport;
+import transmission.SocketTransport;
 import utils.Particle;
 import client.ClientConnectionThread;
 import client.ServerInfo;
@@ -29,6 +31,7 @@ import client.ServerInformationHelper;
 import client.Settings;
 import client.utils.FileManager;
 import client.utils.MainMenuHelper;
+import entry.MPGameEngine;
 import entry.SPGameEngine;
 import entry.TerraeRasa;
 import enums.EnumColor;
@@ -948,8 +951,9 @@ public class MainMenu extends Render
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
-			connect.requestGameConnection(selectedServer.getPassword(), message, socket, os, is);
-			ClientConnectionThread thread = new ClientConnectionThread(socket, SPGameEngine.terraeRasa.gameEngine.getEngineLock(), os, is);
+			GameTransport transport = new SocketTransport(socket, os, is);
+			connect.requestGameConnection(selectedServer.getPassword(), message, transport);
+			ClientConnectionThread thread = new ClientConnectionThread(transport, SPGameEngine.terraeRasa.gameEngine.getEngineLock());
 			thread.start();
 			SPGameEngine.registerClientThread(thread);
 			startMPGame();
@@ -1218,30 +1222,10 @@ public class MainMenu extends Render
 				e.printStackTrace();
 			}
 		}
-		///------- connect to the localhost
+		///------- connect to the local server in-process
 		SPGameEngine.terraeRasa.gameEngine.setActivePlayerName(selectedPlayerName);
-		int port = 48615;
-		String[] message = { "" };
-		
-		Socket socket = null;
-		//TODO: REMOVE THIS "SAFETY"
-		try{
-			socket = new Socket("localhost", port);
-		} catch(Exception e) {
-			return;
-		}
-		
-		ObjectOutputStream os = null;
-		ObjectInputStream is = null;
-		try {
-			 os = new ObjectOutputStream(socket.getOutputStream());
-			 is = new ObjectInputStream(socket.getInputStream());
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-		ServerInformationHelper connect = new ServerInformationHelper();
-		connect.requestGameConnection("", message, socket, os, is);
-		ClientConnectionThread thread = new ClientConnectionThread(socket, SPGameEngine.terraeRasa.gameEngine.getEngineLock(), os, is);
+		GameTransport transport = MPGameEngine.terraeRasa.connectLocalPlayer();
+		ClientConnectionThread thread = new ClientConnectionThread(transport, SPGameEngine.terraeRasa.gameEngine.getEngineLock());
 		thread.start();
 		SPGameEngine.registerClientThread(thread);
 		startMPGame();
@@ -5,6 +5,7 @@ import math.MathHelper;
 import org.lwjgl.opengl.Display;
 import org.lwjgl.opengl.GL11;
 
+import transmission.ClientCommand;
 import transmission.ClientUpdate;
 import client.Settings;
 import client.entities.EntityPlayer;
@@ -153,8 +154,7 @@ public class UI extends UIBase
 		{
 		 	return; //There are no recipes
 		}
-		String command = "/player " + player.entityID + " craft " + player.getAllPossibleRecipes()[index].getID();
-		update.addCommand(command);
+		update.addCommand(ClientCommand.craft(player.entityID, player.getAllPossibleRecipes()[index].getID()));
 	}
 		
 	/**
@@ -3,6 +3,7 @@ package client.ui;
 import org.lwjgl.opengl.Display;
 import org.lwjgl.opengl.GL11;
 
+import transmission.ClientCommand;
 import transmission.ClientUpdate;
 import utils.ItemStack;
 import utils.MetaDataHelper;
@@ -636,8 +637,7 @@ public class UIInventory extends UIBase
 	protected static void placeOneItemIntoInventory(ClientUpdate update, WorldClientEarth world, EntityPlayer player, int whichInventory, int index)
 	{
 		shouldDropItem = false;
-		String command = "/player " + player.entityID + " mouseplace " + whichInventory + " " + index + " 1";
-		update.addCommand(command);
+		update.addCommand(ClientCommand.mousePlace(player.entityID, whichInventory, index, "1"));
 	}
 	
 	/**
@@ -648,8 +648,7 @@ public class UIInventory extends UIBase
 	protected static void placeItemIntoInventory(ClientUpdate update, WorldClientEarth world, EntityPlayer player, int whichInventory, int index)
 	{
 		shouldDropItem = false;
-		String command = "/player " + player.entityID + " mouseplace " + whichInventory + " " + index + " all";
-		update.addCommand(command);
+		update.addCommand(ClientCommand.mousePlace(player.entityID, whichInventory, index, "all"));
 		
 	}
 	
@@ -8,6 +8,7 @@ import org.lwjgl.LWJGLException;
 import org.lwjgl.input.Mouse;
 import org.lwjgl.opengl.Display;
 
+import transmission.ClientCommand;
 import transmission.ClientUpdate;
 import utils.ActionbarItem;
 import utils.ItemStack;
@@ -418,9 +419,7 @@ public class UIMouse extends UIBase
 						double xOffset = frameX + offsetByTotal + (i * (size + 7.5));
 						if(y > yOffset && y < yOffset + size && x > xOffset && x < xOffset + size)
 						{	
-	//						/player <id> socketgem <inventory_id> <index> <gem_socket_index>
-							String command = "/player " + player.entityID + " socketgem " + inventoryID + " " + inventoryIndex + " " + i;
-							update.addCommand(command);
+							update.addCommand(ClientCommand.socketGem(player.entityID, inventoryID, inventoryIndex, i));
 							shouldDropItem = false;
 						}
 					}
@@ -460,8 +459,7 @@ public class UIMouse extends UIBase
 		mouseXOffset = xOffset;
 		mouseYOffset = yOffset;
 		
-		String command = "/player " + player.entityID + " mousepickup " + whichInventory + " " + index + " all";
-		update.addCommand(command);
+		update.addCommand(ClientCommand.mousePickup(player.entityID, whichInventory, index, "all"));
 	}
 	
 	/**
@@ -481,8 +479,7 @@ public class UIMouse extends UIBase
 		mouseXOffset = xOffset;
 		mouseYOffset = yOffset;
 		
-		String command = "/player " + player.entityID + " mousepickup " + whichInventory + " " + index + " 1/2";
-		update.addCommand(command);
+		update.addCommand(ClientCommand.mousePickup(player.entityID, whichInventory, index, "1/2"));
 	}
 	
 	/**
@@ -501,8 +498,7 @@ public class UIMouse extends UIBase
 			int y1 = (int) ((Display.getHeight() * 0.5f) - ((i / 12) * (size)) - (size + 22f));
 			if(x >= x1 && x <= x1 + size && y >= y1 && y <= y1 + size) //Is the click in bounds?
 			{
-				String command = "/player " + player.entityID + " shiftclick 1 " + i;
-				update.addCommand(command);
+				update.addCommand(ClientCommand.shiftClick(player.entityID, 1, i));
 			}		
 		}
 		
@@ -514,8 +510,7 @@ public class UIMouse extends UIBase
 			int y1 = (int) ((Display.getHeight() * 0.5f) - (i * (size)) - (size + 22f));
 			if(x >= x1 && x <= x1 + size && y >= y1 && y <= y1 + size) 
 			{
-				String command = "/player " + player.entityID + " shiftclick 3 " + i;
-				update.addCommand(command);
+				update.addCommand(ClientCommand.shiftClick(player.entityID, 3, i));
 			}		
 		}
 		
@@ -532,8 +527,7 @@ public class UIMouse extends UIBase
 			int y1 = armorOffset + ((i % 5) * (size + 2));	
 			if(x >= x1 && x <= x1 + size && y >= y1 && y <= y1 + size) 
 			{
-				String command = "/player " + player.entityID + " shiftclick 2 " + i;
-				update.addCommand(command);
+				update.addCommand(ClientCommand.shiftClick(player.entityID, 2, i));
 			}			
 		}
 		
@@ -542,8 +536,7 @@ public class UIMouse extends UIBase
 		int y1 = (int)(Display.getHeight() * 0.5f) - (6 * 20);
 		if(x >= x1 && x <= x1 + 20 && y >= y1 && y <= y1 + 20) 
 		{
-			String command = "/player " + player.entityID + " shiftclick 4 0";
-			update.addCommand(command);
+			update.addCommand(ClientCommand.shiftClick(player.entityID, 4, 0));
 		}			
 		
 		//Recipe Slots:
@@ -655,8 +648,7 @@ public class UIMouse extends UIBase
 				{
 //					/player <id> chestevent <x> <y> <index> <qty>
 					pickUpMouseItemChest(i, mouseX - x1 - 2, mouseY - y1 - 2, 16);
-					String command = "/player " + player.entityID + " chestevent " + (player.viewedChestX - xOffset) + " " + (player.viewedChestY - yOffset) + " " + i + " all";
-					update.addCommand(command);
+					update.addCommand(ClientCommand.chestEvent(player.entityID, player.viewedChestX - xOffset, player.viewedChestY - yOffset, i, ClientCommand.QUANTITY_ALL));
 					shouldDropItem = false;
 				}		
 			}
@@ -713,8 +705,7 @@ public class UIMouse extends UIBase
 				{
 //					/player <id> chestevent <x> <y> <index> <qty>
 					pickUpHalfMouseItemChest(i, mouseX - x1 - 2, mouseY - y1 - 2, 16);
-					String command = "/player " + player.entityID + " chestevent " + (player.viewedChestX - xOffset) + " " + (player.viewedChestY - yOffset) + " " + i + " 1/2";
-					update.addCommand(command);
+					update.addCommand(ClientCommand.chestEvent(player.entityID, player.viewedChestX - xOffset, player.viewedChestY - yOffset, i, ClientCommand.QUANTITY_HALF));
 				}		
 			}	
 		}
@@ -755,8 +746,7 @@ public class UIMouse extends UIBase
 	 */
 	protected static void dropMouseItem(ClientUpdate update, WorldClientEarth world, EntityPlayer player)
 	{
-		String command = "/player " + player.entityID + " mousethrow " + " all";
-		update.addCommand(command);
+		update.addCommand(ClientCommand.mouseThrow(player.entityID, "all"));
 	}
 
 	/**
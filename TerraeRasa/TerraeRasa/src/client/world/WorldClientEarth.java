@@ -11,6 +11,7 @@ import math.MathHelper;
 import transmission.ClientUpdate;
 import transmission.TransmittablePlayer;
 import transmission.WorldData;
+import utils.EntityList;
 import utils.Position;
 import world.Biome;
 import blocks.Block;
@@ -65,10 +66,10 @@ import enums.EnumWorldDifficulty;
 public class WorldClientEarth extends WorldClient
 {
 	
-	public List<DisplayableEntity> itemsList;
-	public List<DisplayableEntity> enemyList;
-	public List<DisplayableEntity> npcList;
-	public List<DisplayableEntity> projectileList;
+	public EntityList<DisplayableEntity> itemsList;
+	public EntityList<DisplayableEntity> enemyList;
+	public EntityList<DisplayableEntity> npcList;
+	public EntityList<DisplayableEntity> projectileList;
 	
 
 	public ThreadedChunkExpander chunkManager;
@@ -76,13 +77,12 @@ public class WorldClientEarth extends WorldClient
 	private double previousLightLevel;
 	private LightUtils utils;
 	private boolean lightingUpdateRequired;
-	private List<String> pendingChunkClientRequests = new ArrayList<String>();
-	public List<EntityPlayer> otherPlayers = new ArrayList<EntityPlayer>();
+	public EntityList<EntityPlayer> otherPlayers = new EntityList<EntityPlayer>();
 	
 	public Object getEntityByID(int id)
 	{
 		try {
-			return entitiesByID.get(""+id);
+			return entitiesByID.get(id);
 		} catch(NullPointerException e) {
 			e.printStackTrace();
 		}
@@ -91,59 +91,61 @@ public class WorldClientEarth extends WorldClient
 		
 	public void overwriteEntityByID(int id, Object newEntity)
 	{
-		IEntityTransmitBase entity = (IEntityTransmitBase) entitiesByID.get(""+id);
+		IEntityTransmitBase entity = (IEntityTransmitBase) entitiesByID.get(id);
+		if(entity == null)
+		{
+			return;
+		}
 		if(entity.getEntityType() == DisplayableEntity.TYPE_ITEMSTACK)
 		{
-			itemsList.remove(entity);
-			itemsList.add((DisplayableEntity) newEntity);
+			itemsList.addEntity(id, (DisplayableEntity) newEntity);
 		}
 		else if(entity.getEntityType() == DisplayableEntity.TYPE_PROJECTILE)
 		{
-			projectileList.remove(entity);
-			projectileList.add((DisplayableEntity) newEntity);
+			projectileList.addEntity(id, (DisplayableEntity) newEntity);
 		}
 		else if(entity.getEntityType() == DisplayableEntity.TYPE_ENEMY)
 		{
-			enemyList.remove(entity);
-			enemyList.add((DisplayableEntity) newEntity);
+			enemyList.addEntity(id, (DisplayableEntity) newEntity);
 		}
 		else if(entity.getEntityType() == DisplayableEntity.TYPE_FRIENDLY) //Friendly?
 		{
-			npcList.remove(entity);
-			npcList.add((DisplayableEntity) newEntity);
+			npcList.addEntity(id, (DisplayableEntity) newEntity);
 		}
-		else if(entity.getEntityType() == DisplayableEntity.TYPE_PLAYER)
+		else if(entity.getEntityType() == DisplayableEntity.TYPE_PLAYER && otherPlayers.containsID(id))
 		{
-			otherPlayers.remove(entity);
-			otherPlayers.add((EntityPlayer) newEntity);
+			otherPlayers.addEntity(id, (EntityPlayer) newEntity);
 		}
-		entitiesByID.put(""+id, newEntity);		
+		entitiesByID.put(id, newEntity);		
 	}
 	
 	public void removeEntityByID(int id)
 	{
-		IEntityTransmitBase entity = (IEntityTransmitBase) entitiesByID.get(""+id);
+		IEntityTransmitBase entity = (IEntityTransmitBase) entitiesByID.remove(id);
+		if(entity == null)
+		{
+			return;
+		}
 		if(entity.getEntityType() == DisplayableEntity.TYPE_ITEMSTACK)
 		{
-			itemsList.remove(entity);
+			itemsList.removeByID(id);
 		}
 		else if(entity.getEntityType() == DisplayableEntity.TYPE_PROJECTILE)
 		{
-			projectileList.remove(entity);
+			projectileList.removeByID(id);
 		}
 		else if(entity.getEntityType() == DisplayableEntity.TYPE_ENEMY)
 		{
-			enemyList.remove(entity);
+			enemyList.removeByID(id);
 		}
 		else if(entity.getEntityType() == DisplayableEntity.TYPE_FRIENDLY) //Friendly?
 		{
-			npcList.remove(entity);
+			npcList.removeByID(id);
 		}
 		else if(entity.getEntityType() == DisplayableEntity.TYPE_PLAYER)
 		{
-			otherPlayers.remove(entity);
+			otherPlayers.removeByID(id);
 		}
-		entitiesByID.remove(""+id);
 	}
 	
 	public WorldClientEarth(WorldData data, ChunkClient[] chunks)
@@ -162,20 +164,28 @@ public class WorldClientEarth extends WorldClient
 		this.difficulty = data.difficulty;
 		
 		
-		this.enemyList = new ArrayList<DisplayableEntity>();
+		this.enemyList = new EntityList<DisplayableEntity>();
 		for(DisplayableEntity enemy : data.enemyList)
 		{
 //			enemy.setTexture(EntityNPCEnemy.enemyList[enemy.getNPCID()].getTexture());
 			addEntityToEnemyList(enemy);
 		}
-		this.npcList = new ArrayList<DisplayableEntity>();
+		this.npcList = new EntityList<DisplayableEntity>();
 		for(DisplayableEntity friendly : data.npcList)
 		{
 //			friendly.setTexture(EntityNPCFriendly.npcList[friendly.getNPCID()].getTexture());
 			addEntityToNPCList(friendly);
 		}		
-		this.itemsList = data.itemsList;
-		this.projectileList = data.projectileList;
+		this.itemsList = new EntityList<DisplayableEntity>();
+		for(DisplayableEntity stack : data.itemsList)
+		{
+			addItemStackToItemList(stack);
+		}
+		this.projectileList = new EntityList<DisplayableEntity>();
+		for(DisplayableEntity projectile : data.projectileList)
+		{
+			addEntityToProjectileList(projectile);
+		}
 		
 		this.worldName = data.worldName;
 		this.setWorldTime(data.worldTime);
@@ -249,23 +259,23 @@ public class WorldClientEarth extends WorldClient
 		}
 		if(entity.getEntityType() == DisplayableEntity.TYPE_ENEMY)
 		{
-			enemyList.add((DisplayableEntity) entity);
-			entitiesByID.put(""+entity.getEntityID(), entity);
+			enemyList.addEntity(entity.getEntityID(), (DisplayableEntity) entity);
+			entitiesByID.put(entity.getEntityID(), entity);
 		}
 		else if(entity.getEntityType() == DisplayableEntity.TYPE_FRIENDLY)
 		{
-			npcList.add((DisplayableEntity) entity);
-			entitiesByID.put(""+entity.getEntityID(), entity);
+			npcList.addEntity(entity.getEntityID(), (DisplayableEntity) entity);
+			entitiesByID.put(entity.getEntityID(), entity);
 		}
 		else if(entity.getEntityType() == DisplayableEntity.TYPE_ITEMSTACK)
 		{
-			itemsList.add((DisplayableEntity) entity);
-			entitiesByID.put(""+entity.getEntityID(), entity);
+			itemsList.addEntity(entity.getEntityID(), (DisplayableEntity) entity);
+			entitiesByID.put(entity.getEntityID(), entity);
 		}
 		else if(entity.getEntityType() == DisplayableEntity.TYPE_PROJECTILE)
 		{
-			projectileList.add((DisplayableEntity) entity);
-			entitiesByID.put(""+entity.getEntityID(), entity);
+			projectileList.addEntity(entity.getEntityID(), (DisplayableEntity) entity);
+			entitiesByID.put(entity.getEntityID(), entity);
 		}
 		
 	}
@@ -276,8 +286,8 @@ public class WorldClientEarth extends WorldClient
 	 */
 	public void addEntityToEnemyList(DisplayableEntity enemy)
 	{
-		enemyList.add(enemy);
-		entitiesByID.put(""+enemy.entityID, enemy);
+		enemyList.addEntity(enemy.entityID, enemy);
+		entitiesByID.put(enemy.entityID, enemy);
 	}
 	
 	/**
@@ -286,8 +296,8 @@ public class WorldClientEarth extends WorldClient
 	 */
 	public void addEntityToNPCList(DisplayableEntity npc)
 	{
-		npcList.add(npc);
-		entitiesByID.put(""+npc.entityID, npc);
+		npcList.addEntity(npc.entityID, npc);
+		entitiesByID.put(npc.entityID, npc);
 	}
 	
 	/**
@@ -296,8 +306,8 @@ public class WorldClientEarth extends WorldClient
 	 */
 	public void addEntityToProjectileList(DisplayableEntity projectile)
 	{
-		projectileList.add(projectile);
-		entitiesByID.put(""+projectile.entityID, projectile);
+		projectileList.addEntity(projectile.entityID, projectile);
+		entitiesByID.put(projectile.entityID, projectile);
 	}
 
 	/**
@@ -306,22 +316,19 @@ public class WorldClientEarth extends WorldClient
 	 */
 	public void addItemStackToItemList(DisplayableEntity stack)
 	{
-		itemsList.add(stack);
-		entitiesByID.put(""+stack.entityID, stack);
+		itemsList.addEntity(stack.entityID, stack);
+		entitiesByID.put(stack.entityID, stack);
 	}
 	
 	public void addPlayer(TransmittablePlayer transmittablePlayer)
 	{
-		for(EntityPlayer p : otherPlayers)
+		if(otherPlayers.containsID(transmittablePlayer.entityID))
 		{
-			if(transmittablePlayer.entityID == p.entityID)
-			{
-				return;
-			}
+			return;
 		}
 		EntityPlayer player = new EntityPlayer(transmittablePlayer);
-		otherPlayers.add(player);
-		entitiesByID.put(""+player.entityID, player);
+		otherPlayers.addEntity(player.entityID, player);
+		entitiesByID.put(player.entityID, player);
 	}
 	
 	/**
@@ -668,11 +675,6 @@ public class WorldClientEarth extends WorldClient
 		chunks.put(""+x, chunk);
 	}
 	
-	public void removePendingChunkClientRequest(String command)
-	{
-		pendingChunkClientRequests.remove(command);
-	}
-	
 	/**
 	 * Sets the block at the specified (x,y). This method is safe, as all Exceptions are handled in this method. Additionally,
 	 * the (modular) division is performed automatically. The primary intention is that this method is used to generate the world, 
@@ -813,17 +815,6 @@ public class WorldClientEarth extends WorldClient
 			{
 				chunksLoaded.put(""+i, false);
 			}
-			if(chunksLoaded.get(""+i) != null && !chunksLoaded.get(""+i)) //If a needed chunk isnt loaded, request it.
-			{
-				String command = "/player " + player.entityID + " chunkrequest " + i;
-				if(!pendingChunkClientRequests.contains(command))
-				{
-//					System.out.println("Request: " + i);
-					pendingChunkClientRequests.add(command);
-					update.addCommand(command);
-				}
-				//chunkManager.requestChunkClient(worldName, this, chunks, i);
-			}
 		}
 	}
 		
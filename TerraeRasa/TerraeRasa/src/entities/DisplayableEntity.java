@@ -2,6 +2,7 @@ package entities;
 
 import java.io.Serializable;
 
+import server.EntitySnapshotTracker;
 import server.entities.EntityItemStack;
 import server.entities.EntityNPC;
 import server.entities.EntityNPCEnemy;
@@ -33,6 +34,11 @@ public class DisplayableEntity
 	public int textureHeight;
 	public double width;
 	public double height;	
+	//These change while the entity is alive, and are kept up to date by EntitySnapshots
+	public double health;
+	public int maxHealth;
+	public boolean facingRight;
+	public long[] statusEffects;
 	
 	public DisplayableEntity(EntityProjectile entity)
 	{
@@ -50,6 +56,7 @@ public class DisplayableEntity
 		textureHeight = (int) entity.getTextureHeight();
 		width = entity.width;
 		height = entity.height;
+		EntitySnapshotTracker.capture(entity).applyTo(this);
 	}
 	
 	public DisplayableEntity(EntityNPCEnemy entity)
@@ -69,6 +76,7 @@ public class DisplayableEntity
 		textureHeight = (int) entity.getTextureHeight();
 		width = entity.width;
 		height = entity.height;
+		EntitySnapshotTracker.capture(entity).applyTo(this);
 	}
 	
 	public DisplayableEntity(EntityNPC entity)
@@ -88,6 +96,7 @@ public class DisplayableEntity
 		textureHeight = (int) entity.getTextureHeight();
 		width = entity.width;
 		height = entity.height;
+		EntitySnapshotTracker.capture(entity).applyTo(this);
 	}
 	
 	public DisplayableEntity(EntityItemStack entity)
@@ -107,6 +116,7 @@ public class DisplayableEntity
 		textureHeight = (int) entity.getTextureHeight();
 		width = entity.width;
 		height = entity.height;
+		EntitySnapshotTracker.capture(entity).applyTo(this);
 	}
 	
 	public double getX()
@@ -2,15 +2,18 @@ package entities;
 
 import items.ItemArmor;
 
-import java.util.Vector;
-
 import server.entities.EntityLiving;
+import transmission.MovementState;
+import utils.ChangedInventorySlots;
 import utils.ItemStack;
+import world.World;
+import enums.EnumHardwareInput;
 
 public abstract class EntityPlayerBase extends EntityLiving
 {
 	private static final long serialVersionUID = 1L;
-	public Vector<String> changedInventorySlots = new Vector<String>();
+	public ChangedInventorySlots changedInventorySlots = new ChangedInventorySlots();
+	public boolean isFacingRight;
 
 	public abstract void onArmorChange();
 
@@ -19,4 +22,77 @@ public abstract class EntityPlayerBase extends EntityLiving
 	public abstract void removeSingleArmorItem(ItemArmor itemArmor, ItemStack oldStack, int index);
 
 	public abstract void applySingleArmorItem(ItemArmor itemArmor, ItemStack newStack, int index);
+	
+	/**
+	 * Moves the player through one input frame: walking and jumping as the input says, followed by gravity. This is the
+	 * whole of a player's movement for a frame, and is run by both the server and the client predicting its own player,
+	 * so the two arrive at the same place given the same frames.
+	 * @param world the world the player is in
+	 * @param inputFlags the EnumHardwareInput flags held during the frame
+	 */
+	public void applyMovementInput(World world, int inputFlags)
+	{
+		if(EnumHardwareInput.MOVE_LEFT.isIn(inputFlags))
+		{
+			moveEntityLeft(world);
+			isFacingRight = false;
+		}
+		if(EnumHardwareInput.MOVE_RIGHT.isIn(inputFlags))
+		{
+			moveEntityRight(world);
+			isFacingRight = true;
+		}
+		if(EnumHardwareInput.JUMP.isIn(inputFlags))
+		{
+			tryToJumpAgain(world);
+		}
+		applyGravity(world);
+	}
+	
+	/**
+	 * Indicates if the player is at rest: standing on the ground with nothing held, not jumping and not recovering from
+	 * a fall. An input frame does not move a player at rest at all.
+	 * @param world the world the player is in
+	 * @param inputFlags the EnumHardwareInput flags of the input frame
+	 * @return true if the frame would leave the player exactly as it is; otherwise false
+	 */
+	public boolean isAtRest(World world, int inputFlags)
+	{
+		return inputFlags == 0 && !isJumping && canJumpAgain && ticksFallen == 0 && distanceFallen == 0 && isOnGround(world);
+	}
+	
+	/**
+	 * Gets the player's current movement, so another copy of the player can continue from it.
+	 * @param inputSequence the sequence number of the last input frame applied
+	 * @return the player's movement state
+	 */
+	public MovementState getMovementState(int inputSequence)
+	{
+		MovementState state = new MovementState();
+		state.entityID = entityID;
+		state.inputSequence = inputSequence;
+		state.x = x;
+		state.y = y;
+		state.isJumping = isJumping;
+		state.canJumpAgain = canJumpAgain;
+		state.upwardJumpCounter = upwardJumpCounter;
+		state.ticksFallen = ticksFallen;
+		state.distanceFallen = distanceFallen;
+		return state;
+	}
+	
+	/**
+	 * Resets the player's movement to a state from {@link #getMovementState(int)}.
+	 * @param state the movement state to continue from
+	 */
+	public void setMovementState(MovementState state)
+	{
+		x = state.x;
+		y = state.y;
+		isJumping = state.isJumping;
+		canJumpAgain = state.canJumpAgain;
+		upwardJumpCounter = state.upwardJumpCounter;
+		ticksFallen = state.ticksFallen;
+		distanceFallen = state.distanceFallen;
+	}
 }
@@ -8,15 +8,27 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.Iterator;
 import java.util.Vector;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import server.ConsoleInputThread;
+import server.EncodedChunkCache;
 import server.Log;
+import server.PendingJoin;
 import server.ServerConnectionThread;
 import server.ServerSettings;
 import server.SettingsIO;
 import server.WorldLock;
 import server.entities.EntityPlayer;
+import server.world.WorldServerEarth;
 import transmission.CloseRequest;
+import transmission.GameTransport;
+import transmission.LoopbackTransport;
+import transmission.PayloadCompressor;
+import transmission.SocketTransport;
 import transmission.ServerUpdate;
 import enums.EnumColor;
 
@@ -26,10 +38,27 @@ public class MPGameEngine extends Thread
 	private static final Object connectionsLock = new Object();
 	private static final Object settingsLock = new Object();
 	private static final Object closeRequestsLock = new Object();
+	/** The number of threads handshaking with, and authenticating, connecting clients */
+	private static final int LOGIN_THREADS = 4;
+	/** The most accepted sockets that may wait for a login thread; any more are closed straight away */
+	private static final int MAX_PENDING_LOGINS = 64;
+	/** The longest any read of the handshake may block, in milliseconds */
+	public static final int HANDSHAKE_TIMEOUT_MILLIS = 10000;
+	/** 
+	 * Handshakes, password checks and parsing of player saves all happen here, so the accept thread only ever accepts 
+	 * and a slow or malicious client cannot hold up anyone else's connection.
+	 */
+	private static final ExecutorService loginPool = new ThreadPoolExecutor(LOGIN_THREADS, LOGIN_THREADS, 0L, 
+			TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(MAX_PENDING_LOGINS));
 	//http://stackoverflow.com/questions/2914375/getting-file-path-in-java
 	public volatile static boolean done = false;
 	private ServerSettings settings;
 	private Vector<ServerConnectionThread> connections = new Vector<ServerConnectionThread>();
+	/** 
+	 * A copy of the connections, replaced whenever one is added or removed, so the game loop can hand out each tick
+	 * without taking connectionsLock.
+	 */
+	private volatile ServerConnectionThread[] connectionSnapshot = new ServerConnectionThread[0];
 	public MPGameLoop gameEngine;
 	public volatile static MPGameEngine terraeRasa;
 	private ServerSocket serverSocket;
@@ -37,6 +66,8 @@ public class MPGameEngine extends Thread
 	private static Object gameEngineLock = new Object();
 	public volatile static boolean canAcceptConnections = false;
 	private static Vector<CloseRequest> closeRequests = new Vector<CloseRequest>();
+	/** Player slots held by clients that have been accepted but have not sent their player yet */
+	private int reservedSlots = 0;
 	/**Note:This parameter is null unless initiated in SP Mode.*/
 	private String universeName = null;
 	
@@ -64,6 +95,7 @@ public class MPGameEngine extends Thread
 		{
 			settings = new ServerSettings();
 		}
+		PayloadCompressor.configure(settings.networkCodec, settings.compressionThreshold);
 		//TODO: [mild-lazy] The line of code below here indicates a bit of laziness. Settings are wierd in SP.
 		this.gameEngine = new MPGameLoop((universeName != null) ? this.universeName : settings.universeName);
 		gameEngine.start();
@@ -103,27 +135,56 @@ public class MPGameEngine extends Thread
 //				e.printStackTrace();
 			}
 			
-			if(!done) 
+			if(!done && socket != null) 
 			{
-				try {
-					handleSocketConnection(socket);
-				} catch (IOException e) {
-					e.printStackTrace();
-				}
+				scheduleLogin(socket);
 			}
 		}
 	}
 	
-	private void handleSocketConnection(Socket socket) throws IOException
+	/**
+	 * Hands an accepted socket to the login pool. If too many clients are already waiting to log in, the socket is 
+	 * closed instead.
+	 * @param socket the socket that was accepted
+	 */
+	private void scheduleLogin(final Socket socket)
 	{
-		ObjectOutputStream os = null;
-		ObjectInputStream is = null;
 		try {
-			 os = new ObjectOutputStream(socket.getOutputStream());
-			 is = new ObjectInputStream(socket.getInputStream());
-		} catch (IOException e) {
-			e.printStackTrace();
+			loginPool.execute(new Runnable() {
+				public void run() 
+				{
+					try {
+						socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+						handleSocketConnection(socket);
+					} catch (IOException e) {
+						Log.log("[" + socket.getInetAddress() + "] : handshake failed: " + e.getMessage());
+						try {
+							socket.close();
+						} catch (IOException e1) {
+						}
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			Log.log("[" + socket.getInetAddress() + "] : " + "connection dropped: too many clients logging in");
+			try {
+				socket.close();
+			} catch (IOException e1) {
+				e1.printStackTrace();
+			}
 		}
+	}
+	
+	/**
+	 * Performs the handshake with a newly accepted socket. Called on a login thread, with the socket's read timeout set.
+	 * @param socket the socket that was accepted
+	 * @throws IOException indicates the connection failed or timed out
+	 */
+	private void handleSocketConnection(Socket socket) throws IOException
+	{
+		ObjectOutputStream os = new ObjectOutputStream(socket.getOutputStream());
+		os.flush();
+		ObjectInputStream is = new ObjectInputStream(socket.getInputStream());
 		
 		String val = is.readUTF();
 		
@@ -133,6 +194,7 @@ public class MPGameEngine extends Thread
 		{
 			os.writeObject(new String[] { TerraeRasa.getVersion(), connections.size() + "/" + settings.maxPlayers + " Players", settings.serverMessage, "You connected with: " + socket.getInetAddress() });
 			os.flush();
+			socket.close();
 		}
 		else if(val.startsWith("/connect"))
 		{
@@ -148,37 +210,135 @@ public class MPGameEngine extends Thread
 				Log.log("[" + socket.getInetAddress() + "] : " + password + " matches= " + passwordMatches);
 			}
 			
-			if(passwordMatches && allowed && connections.size() < settings.maxPlayers)
+			if(passwordMatches && allowed && reserveSlot())
 			{
 				os.writeUTF("connection accepted");
 				os.flush();
 				Log.log("[" + socket.getInetAddress() + "] : " + "connection accepted");
-				registerGameConnectionThread(socket, os, is);
+				try {
+					login(new SocketTransport(socket, os, is));
+				} finally {
+					releaseSlot();
+				}
 			}
-			else if(connections.size() >= settings.maxPlayers)
+			else if(passwordMatches && allowed)
 			{
 				Log.log("[" + socket.getInetAddress() + "] : " + "connection denied: too many players");
 				os.writeUTF("connection denied : too many players.");
 				os.flush();
+				socket.close();
 			}
 			else
 			{
 				Log.log("[" + socket.getInetAddress() + "] : " + "connection denied");
 				os.writeUTF("connection not allowed");
 				os.flush();
+				socket.close();
 			}
-		}		
+		}
+		else
+		{
+			socket.close();
+		}
+	}
+	
+	/**
+	 * Receives the player of a client that has been allowed to connect, and parses its save, then starts the client's
+	 * connection. The connection waits for the game loop to add the player to the world.
+	 * @param transport the connection to the client
+	 * @throws IOException indicates the connection failed, timed out, or did not send a player
+	 */
+	private void login(GameTransport transport) throws IOException
+	{
+		String message = transport.readUTF();
+		if(!message.equals("/sendplayer"))
+		{
+			throw new IOException("Expected /sendplayer but received " + message);
+		}
+		String savableXML = transport.readUTF();
+		PendingJoin join;
+		try {
+			join = new PendingJoin(savableXML, transport.getRemoteAddress());
+		} catch (Exception e) {
+			//XStream throws unchecked exceptions for a damaged save
+			transport.close();
+			throw new IOException("The player sent could not be parsed: " + e.getMessage());
+		}
+		registerGameConnectionThread(transport, join);
+	}
+	
+	/**
+	 * Gets whether any client is connected or logging in.
+	 * @return true if there is a client, otherwise false
+	 */
+	public boolean hasClients()
+	{
+		synchronized(connectionsLock)
+		{
+			return !connections.isEmpty() || reservedSlots > 0;
+		}
+	}
+	
+	/**
+	 * Holds a player slot for a client that is logging in, if one is free.
+	 * @return true if a slot was reserved; false if the server is full
+	 */
+	private boolean reserveSlot()
+	{
+		synchronized(connectionsLock)
+		{
+			if(connections.size() + reservedSlots < settings.maxPlayers)
+			{
+				reservedSlots++;
+				return true;
+			}
+			return false;
+		}
+	}
+	
+	private void releaseSlot()
+	{
+		synchronized(connectionsLock)
+		{
+			reservedSlots--;
+		}
 	}
 	
-	private void registerGameConnectionThread(Socket socket, ObjectOutputStream os, ObjectInputStream is)
+	private void registerGameConnectionThread(GameTransport transport, PendingJoin join)
 	{
 		synchronized(connectionsLock)
 		{
-			ServerConnectionThread thread = new ServerConnectionThread(new WorldLock(gameEngine), socket, os, is);
+			ServerConnectionThread thread = new ServerConnectionThread(new WorldLock(gameEngine), transport, join);
 			connections.add(thread);
+			updateConnectionSnapshot();
 			thread.start();	
 		}
 	}
+	
+	/**
+	 * Connects the single player client to this server in-process, using a {@link LoopbackTransport} instead of a 
+	 * localhost socket. The local player skips the connection checks a remote player would go through, but still logs
+	 * in on the login pool.
+	 * @return the client's end of the connection
+	 */
+	public GameTransport connectLocalPlayer()
+	{
+		final LoopbackTransport[] pair = LoopbackTransport.createPair();
+		Log.log("[local] : connection accepted");
+		pair[1].setReadTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+		loginPool.execute(new Runnable() {
+			public void run() 
+			{
+				try {
+					login(pair[1]);
+				} catch (IOException e) {
+					Log.log("[local] : handshake failed: " + e.getMessage());
+					pair[1].close();
+				}
+			}
+		});
+		return pair[0];
+	}
 			
 	public Vector<ServerConnectionThread> getConnections()
 	{
@@ -188,6 +348,16 @@ public class MPGameEngine extends Thread
 		}
 	}
 	
+	/**
+	 * Copies the connections for the game loop. Must be called holding connectionsLock after any change to them.
+	 */
+	private void updateConnectionSnapshot()
+	{
+		ServerConnectionThread[] snapshot = new ServerConnectionThread[connections.size()];
+		connections.copyInto(snapshot);
+		connectionSnapshot = snapshot;
+	}
+	
 	private void closeSocketAndConnections()
 	{
 		synchronized(connectionsLock)
@@ -216,6 +386,7 @@ public class MPGameEngine extends Thread
 						it.remove();
 					}
 				}	
+				updateConnectionSnapshot();
 				try {
 					Thread.sleep(50);
 				} catch (InterruptedException e) {
@@ -225,16 +396,30 @@ public class MPGameEngine extends Thread
 		}
 	}
 	
+	/**
+	 * Pushes the chunks each connected client needs next. Called by the game loop each tick.
+	 * @param world the world being played
+	 */
+	public static void streamChunks(WorldServerEarth world)
+	{
+		ServerConnectionThread[] connections = terraeRasa.connectionSnapshot;
+		for(int i = 0; i < connections.length; i++)
+		{
+			connections[i].streamChunks(world);
+		}
+	}
+	
+	/**
+	 * Hands a tick's update to every connection. Called by the game loop each tick, this works from the snapshot of the
+	 * connections and so never waits on a client connecting or leaving.
+	 * @param update the update for this tick
+	 */
 	public static void addWorldUpdate(ServerUpdate update)
 	{
-		synchronized(connectionsLock)
+		ServerConnectionThread[] connections = terraeRasa.connectionSnapshot;
+		for(int i = 0; i < connections.length; i++)
 		{
-			Iterator<ServerConnectionThread> it = terraeRasa.getConnections().iterator();
-			while(it.hasNext())
-			{
-				ServerConnectionThread thread = it.next();
-				thread.registerWorldUpdate(update);
-			}
+			connections[i].registerWorldUpdate(update);
 		}
 	}
 	
@@ -247,6 +432,7 @@ public class MPGameEngine extends Thread
 		done = true;
 		SettingsIO.saveSettings(terraeRasa.settings);
 		terraeRasa.closeSocketAndConnections();
+		EncodedChunkCache.clear();
 		Log.writeWithTimestamp();
 		terraeRasa.gameEngine.getChunkManager().killThreadpool();
 		//---program should be terminated by this point. If it is not then a 
@@ -261,6 +447,19 @@ public class MPGameEngine extends Thread
 		}
 	}
 	
+	/**
+	 * Replaces the server's settings. Normally the settings are loaded when the server starts; this is for running a 
+	 * world without a server, such as in a benchmark.
+	 * @param settings the new settings
+	 */
+	public void setSettings(ServerSettings settings)
+	{
+		synchronized(settingsLock)
+		{
+			this.settings = settings;
+		}
+	}
+	
 	/**
 	 * Adds a command that was issued to the server to the game engine to process.
 	 * @param command the command to issue
@@ -301,11 +500,41 @@ public class MPGameEngine extends Thread
 		}
 	}
 	
+	/**
+	 * Tells the connection of the given player that its client could not load a chunk from its cache.
+	 * @param id the player ID of the connection
+	 * @param x the x position of the chunk, in chunks
+	 */
+	public static void chunkCacheMissed(int id, int x)
+	{
+		synchronized(connectionsLock)
+		{
+			Iterator<ServerConnectionThread> it = terraeRasa.getConnections().iterator();
+			while(it.hasNext())
+			{
+				ServerConnectionThread thread = it.next();
+				if(thread.getAssociatedPlayerID() == id)
+				{
+					thread.cacheMissed(x);
+				}
+			}
+		}
+	}
+	
 	private static void closeClientThread(ServerConnectionThread connection, EntityPlayer player)
 	{
 		synchronized(closeRequestsLock)
 		{
-			terraeRasa.connections.remove(connection);
+			synchronized(connectionsLock)
+			{
+				terraeRasa.connections.remove(connection);
+				terraeRasa.updateConnectionSnapshot();
+			}
+			if(player == null)
+			{
+				//The connection closed before its player joined the world
+				return;
+			}
 			synchronized(gameEngineLock) 
 			{
 				terraeRasa.gameEngine.removePlayer(player);
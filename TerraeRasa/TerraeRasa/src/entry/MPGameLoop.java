@@ -4,24 +4,27 @@ package entry;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Vector;
 
 import server.Commands;
 import server.Log;
+import server.PendingJoin;
 import server.ServerSettings;
+import server.TickProfiler;
 import server.entities.EntityPlayer;
 import server.io.ChunkManager;
 import server.utils.FileManager;
+import server.world.RegionTicker;
 import server.world.WorldServerEarth;
-import transmission.ChunkCompressor;
+import transmission.ClientCommand;
 import transmission.CompressedClientUpdate;
 import transmission.EntityUpdate;
 import transmission.ServerUpdate;
 import transmission.UpdateWithObject;
 import utils.ErrorUtils;
+import utils.PercentileRecorder;
+import utils.TickScheduler;
 import world.World;
 import blocks.Chunk;
 
@@ -53,13 +56,29 @@ public class MPGameLoop extends Thread
 	private final Object playersLock = new Object();
 	private final Object chunkLock = new Object();
 	private final Object extraTextUpdateLock = new Object();
+	private final Object joinLock = new Object();
+	/** The most players added to the world each tick; the rest wait in the join queue for a later tick */
+	private static final int MAX_JOINS_PER_TICK = 2;
 	/** The number of game ticks per second - this will always be 20 */
 	public static final int TICKS_PER_SECOND = 20;
+	/** The most ticks run back to back when the game loop falls behind */
+	public static final int MAX_CATCH_UP_TICKS = 5;
+	/** How far behind the game loop may fall, in milliseconds, before the ticks it missed are skipped */
+	public static final long MAX_TICK_LAG_MILLIS = 1000;
+	/** Paces the game loop at 20 ticks per second, parking the thread between ticks */
+	private final TickScheduler scheduler = new TickScheduler(TICKS_PER_SECOND, MAX_CATCH_UP_TICKS, MAX_TICK_LAG_MILLIS);
+	/** Whether the world is asleep because nobody is connected */
+	private boolean hibernating = false;
+	/** How many ticks in a row nobody has been connected for */
+	private long idleTicks = 0;
+	/** How many ticks have passed since the world began hibernating */
+	private long hibernatedTicks = 0;
+	/** Measures each phase of every tick, logging ticks that run over their 1/20th of a second */
+	private final TickProfiler profiler = new TickProfiler(1000 / TICKS_PER_SECOND);
 	private WorldServerEarth world;
 	private Vector<EntityPlayer> players = new Vector<EntityPlayer>(10);
 	private ChunkManager chunkManager;
 	private String universeName;
-	private List<String> pendingChunkRequests = new ArrayList<String>();
 	private Vector<UpdateWithObject> extraObjectUpdates = new Vector<UpdateWithObject>();
 	private Vector<EntityUpdate> extraEntityUpdates = new Vector<EntityUpdate>();
 	/**Updates provided by a client that are not yet processed.*/
@@ -67,6 +86,8 @@ public class MPGameLoop extends Thread
 	private Vector<String> extraTextUpdates = new Vector<String>();
 	/**Commands that are generated by the server and need processed. IE console commands. */
 	private Vector<String> serverCommands = new Vector<String>();
+	/**Players that have logged in and are waiting to be added to the world, in the order they logged in.*/
+	private Vector<PendingJoin> pendingJoins = new Vector<PendingJoin>();
 	/**Clients which have requested a connection be terminated.*/
 	
 	/**
@@ -85,21 +106,13 @@ public class MPGameLoop extends Thread
 	{
 		try {
 			loadWorld();			
-			//Variables for the gameloop cap (20 times / second)	
-			final int SKIP_TICKS = 1000 / TICKS_PER_SECOND;
-			final int MAX_FRAMESKIP = 5;
-			long next_game_tick = System.currentTimeMillis();
-			long start;
-			long end;
-			int loops;
-			start = System.currentTimeMillis();
 			
 			MPGameEngine.canAcceptConnections = true;
+			scheduler.start();
 			
 		    while(!MPGameEngine.done) //Main Game Loop
 		    {
-		        loops = 0;
-		        while(System.currentTimeMillis() > next_game_tick && loops < MAX_FRAMESKIP) //Update the game 20 times/second 
+		        while(scheduler.isTickDue()) //Update the game 20 times/second 
 		        {
 //		        	if(player != null && player.defeated)
 //		        	{
@@ -107,13 +120,20 @@ public class MPGameLoop extends Thread
 //		        	}	
 		        	//TODO: hardcore
 		        
-		        	
+		        	if(updateHibernation())
+		        	{
+		        		continue;
+		        	}
+		        	profiler.startTick();
 		        	ServerUpdate update = new ServerUpdate();
 		        	MPGameEngine.processCloseRequests();
+		        	processJoins();
+		        	profiler.mark(TickProfiler.JOINS);
 		        	CompressedClientUpdate[] updates = yieldClientUpdates();
 		        	processClientUpdates(update, updates);
+		        	profiler.mark(TickProfiler.CLIENT_UPDATES);
 		        	
-		        	world.onWorldTick(update, players);
+		        	world.onWorldTick(update, players, profiler);
 		        	for(EntityUpdate up : extraEntityUpdates)
 		        	{
 		        		update.addEntityUpdate(up);
@@ -137,46 +157,16 @@ public class MPGameLoop extends Thread
 		        	{
 		        		Commands.processConsoleCommand(MPGameEngine.terraeRasa.getSettings(), update, players, world, this, val);
 		        	}
+		        	profiler.mark(TickProfiler.COMMANDS);
 		        	
-		        	Iterator<String> it = pendingChunkRequests.iterator();
-		        	while(it.hasNext())
-		        	{
-		        		String request = it.next();
-		        		String[] split = request.split(" ");
-		        		
-		        		if(world.chunksLoaded.get(split[3]))
-						{
-		        			ServerUpdate chunkServerUpdate = new ServerUpdate();
-		        			chunkServerUpdate.deferCompression = true;
-		        			UpdateWithObject objUpdate = new UpdateWithObject();
-		        			objUpdate.command = "/chunk " + split[1]; 
-		        			objUpdate.object = ChunkCompressor.compressChunk(world.getChunk(Integer.parseInt(split[3])));
-							chunkServerUpdate.addObjectUpdate(objUpdate);
-							MPGameEngine.addWorldUpdate(chunkServerUpdate);
-//		        			> TODO: ?Create a new update object and defer the compression of that object?
-							it.remove();
-						}
-		        	}
+		        	MPGameEngine.streamChunks(world);
+		        	profiler.mark(TickProfiler.CHUNK_REQUESTS);
 		        	
 		        	MPGameEngine.addWorldUpdate(update);
-		        	
-		        	next_game_tick += SKIP_TICKS;
- 		            loops++;
-		        }
-		        
-		        //Make sure the game loop doesn't fall very far behind and have to accelerate the 
-		        //game for an extended period of time
-		        if(System.currentTimeMillis() - next_game_tick > 1000)
-		        {
-		        	next_game_tick = System.currentTimeMillis();
+		        	profiler.mark(TickProfiler.FAN_OUT);
+		        	profiler.endTick();
 		        }
-		        if(System.currentTimeMillis() - start >= 5000)
-		        {
-		        	start = System.currentTimeMillis();
-	        		end = System.currentTimeMillis();     
-//	        		System.out.println(start - end);
-		    	}
-//	        	System.out.println(end - start);
+		        scheduler.waitForNextTick();
 		    }     
 		} catch(Exception e) {
 			//Fatal error catching
@@ -190,33 +180,113 @@ public class MPGameLoop extends Thread
 			t.printStackTrace();
 			System.out.println(">>>>> Fatal Error broke the MP Game Loop<<<<<");
 		} finally {
+			if(hibernating)
+			{
+				world.advanceWorldTime(hibernatedTicks);
+			}
 			world.saveRemainingWorld();
 			MPGameEngine.done = true;
 			MPGameEngine.kill();
 		}
 	}	
 	
+	/**
+	 * Puts the world to sleep once nobody has been connected for the configured time, and wakes it up as soon as a
+	 * client starts logging in. While hibernating, only close requests and console commands are handled each tick.
+	 * @return true if the world is hibernating and should not be ticked, otherwise false
+	 */
+	private boolean updateHibernation()
+	{
+		boolean idle = !MPGameEngine.terraeRasa.hasClients() && players.isEmpty() && pendingJoins.isEmpty();
+		if(!idle)
+		{
+			idleTicks = 0;
+			if(hibernating)
+			{
+				long start = System.currentTimeMillis();
+				world.wake(hibernatedTicks);
+				hibernating = false;
+				Log.log("Woke from hibernation after " + (hibernatedTicks / TICKS_PER_SECOND) + " seconds; took " + 
+						(System.currentTimeMillis() - start) + "ms");
+			}
+			return false;
+		}
+		if(!hibernating)
+		{
+			int hibernateAfter = MPGameEngine.terraeRasa.getSettings().hibernateAfter;
+			if(hibernateAfter <= 0 || ++idleTicks < hibernateAfter * TICKS_PER_SECOND)
+			{
+				return false;
+			}
+			Log.log("Nobody has connected for " + hibernateAfter + " seconds; hibernating until someone does");
+			world.hibernate();
+			hibernating = true;
+			hibernatedTicks = 0;
+		}
+		hibernatedTicks++;
+		MPGameEngine.processCloseRequests();
+		ServerUpdate update = new ServerUpdate();
+		for(String val : yieldServerCommands())
+		{
+			Commands.processConsoleCommand(MPGameEngine.terraeRasa.getSettings(), update, players, world, this, val);
+		}
+		return true;
+	}
+	
+	public boolean isHibernating()
+	{
+		return hibernating;
+	}
+	
 	private void processClientUpdates(ServerUpdate serverUpdate, CompressedClientUpdate[] updates)
 	{
 		for(CompressedClientUpdate update : updates)
 		{
-			for(String command : update.commands)
+			for(ClientCommand command : update.commands)
 			{
-				String result = Commands.processClientCommand(serverUpdate, null, world, this, players, command, pendingChunkRequests);
-				if(!result.equals(""))
-				{
-					addCommandUpdate(result);
-				}
+				Commands.processClientCommand(serverUpdate, world, this, command);
 			}
-			for(UpdateWithObject objUpdate : update.objectUpdates)
+		}
+	}
+	
+	/**
+	 * Adds the players at the front of the join queue to the world, at most {@link #MAX_JOINS_PER_TICK} of them, so a
+	 * flood of players logging in at once is spread over several ticks.
+	 */
+	private void processJoins()
+	{
+		PendingJoin[] joins;
+		synchronized(joinLock)
+		{
+			joins = new PendingJoin[Math.min(MAX_JOINS_PER_TICK, pendingJoins.size())];
+			for(int i = 0; i < joins.length; i++)
 			{
-				String result = Commands.processClientCommand(serverUpdate, objUpdate.object, world, this, players, objUpdate.command, pendingChunkRequests);
-				if(!result.equals(""))
-				{
-					addCommandUpdate(result);
-				}
+				joins[i] = pendingJoins.remove(0);
 			}
 		}
+		for(PendingJoin join : joins)
+		{
+			try {
+				join.apply(this);
+			} catch (Exception e) {
+				//A damaged save must not take down the game loop
+				Log.log("Player " + join.getPlayerID() + " from " + join.getAssociatedIP() + " could not join: " + e.getMessage());
+				e.printStackTrace();
+				join.cancel();
+			}
+		}
+	}
+	
+	/**
+	 * Queues a player that has logged in to be added to the world by the game loop.
+	 * @param join the player waiting to join
+	 */
+	public void registerJoin(PendingJoin join)
+	{
+		synchronized(joinLock)
+		{
+			pendingJoins.add(join);
+		}
 	}
 	
 	/**
@@ -309,8 +379,20 @@ public class MPGameLoop extends Thread
 		}
 	}
 	
-	public void addCommandUpdate(String command)
+	public void addCommandUpdate(final String command)
 	{
+		if(RegionTicker.isTickingRegion())
+		{
+			//Keep commands from monsters ticked on other threads, such as death sounds, in the order of the entity list
+			RegionTicker.defer(new Runnable()
+			{
+				public void run()
+				{
+					addCommandUpdate(command);
+				}
+			});
+			return;
+		}
 		synchronized(extraTextUpdateLock)
 		{
 			extraTextUpdates.add(command);
@@ -353,7 +435,7 @@ public class MPGameLoop extends Thread
 			players.add(player);
 			EntityUpdate update = new EntityUpdate();
 			update.entityID = player.entityID;
-			update.updatedEntity = player.getTransmittable();
+			update.updatedEntity = player.getVisibleTransmittable();
 			update.action = 'a';
 			update.type = 5;
 			extraEntityUpdates.add(update);
@@ -385,7 +467,7 @@ public class MPGameLoop extends Thread
 			update.action = 'r';
 			update.type = 5;
 			extraEntityUpdates.add(update);
-			world.entitiesByID.remove(""+player.entityID);
+			world.entitiesByID.remove(player.entityID);
 			player = null;
 		}
 	}
@@ -515,6 +597,25 @@ public class MPGameLoop extends Thread
 		}
 	}
 
+	/**
+	 * Gets the time taken by each of the most recent ticks, in nanoseconds.
+	 * @return the recent tick times
+	 */
+	public PercentileRecorder getTickTimes()
+	{
+		return profiler.getTickTimes();
+	}
+	
+	public TickProfiler getProfiler()
+	{
+		return profiler;
+	}
+	
+	public TickScheduler getScheduler()
+	{
+		return scheduler;
+	}
+
 	public ChunkManager getChunkManager() {
 		return chunkManager;
 	}
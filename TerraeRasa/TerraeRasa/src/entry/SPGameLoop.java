@@ -12,25 +12,32 @@ import org.lwjgl.opengl.GL11;
 
 import statuseffects.StatusEffect;
 import transmission.BlockUpdate;
+import transmission.ClientCommand;
 import transmission.ClientUpdate;
 import transmission.CompressedClientUpdate;
 import transmission.CompressedServerUpdate;
+import transmission.EntitySnapshot;
 import transmission.EntityUpdate;
+import transmission.InventorySlotUpdate;
+import transmission.MovementState;
 import transmission.PositionUpdate;
 import transmission.StatUpdate;
 import transmission.SuperCompressedChunk;
 import transmission.TransmittablePlayer;
 import transmission.UpdateWithObject;
+import utils.ChangedInventorySlots;
 import utils.ColoredText;
 import utils.Cooldown;
 import utils.ErrorUtils;
 import utils.ItemStack;
+import utils.TickScheduler;
 import world.Weather;
 import world.World;
 import blocks.Block;
 import blocks.Chunk;
 import blocks.ClientMinimalBlock;
 import client.EngineLock;
+import client.MovementPredictor;
 import client.Settings;
 import client.audio.SoundEngine;
 import client.entities.EntityPlayer;
@@ -45,6 +52,7 @@ import client.render.RenderWorld;
 import client.ui.UIBase;
 import client.utils.FileManager;
 import client.world.WorldClientEarth;
+import entities.DisplayableEntity;
 import entities.IEntityTransmitBase;
 import enums.EnumColor;
 import enums.EnumEventType;
@@ -98,6 +106,7 @@ public class SPGameLoop
 	private int activePlayerID = -1;
 	private GuiChatbox chatbox;
 	private boolean closeRequested;
+	private MovementPredictor movementPredictor = new MovementPredictor();
 	//----
 	//TODO: 
 //	---Figure out where SP starts and start the MP server there
@@ -131,33 +140,30 @@ public class SPGameLoop
 	public void run()
 	{
 		try {
-			//Variables for the gameloop cap (20 times / second)	        
-			final int SKIP_TICKS = 1000 / TICKS_PER_SECOND;
-			final int MAX_FRAMESKIP = 5;
-			long next_game_tick = System.currentTimeMillis();
+			//Ticks are capped at 20 times / second; frames are rendered as often as the display allows
+			TickScheduler scheduler = new TickScheduler(TICKS_PER_SECOND, MPGameLoop.MAX_CATCH_UP_TICKS, MPGameLoop.MAX_TICK_LAG_MILLIS);
 			long start;
 			long end;
 			long fps = 0;
-			int loops;
 			start = System.currentTimeMillis();
 			
 			Vector<EnumHardwareInput> hardwareInput = new Vector<EnumHardwareInput>(10);
-			Vector<String> clientCommands = new Vector<String>();
+			Vector<ClientCommand> clientCommands = new Vector<ClientCommand>();
 			ClientUpdate update = new ClientUpdate();
 			
 		    while(!SPGameEngine.done) //Main Game Loop
 		    {
 		    	EntityPlayer player = null;
 		    	try {
-			    	if(activePlayerID != -1 && world.entitiesByID.get(""+activePlayerID) != null)
+			    	if(activePlayerID != -1 && world.entitiesByID.get(activePlayerID) != null)
 			    	{
 			    		player = (EntityPlayer) world.getEntityByID(activePlayerID);
 			    	}
 			    	//TODO: make more elegant
-		        	if(activePlayerID != -1 && world.entitiesByID.get(""+activePlayerID) == null)
+		        	if(activePlayerID != -1 && world.entitiesByID.get(activePlayerID) == null)
 		        	{
 		        		activePlayer.entityID = activePlayerID;
-		        		world.entitiesByID.put(""+activePlayerID, activePlayer);
+		        		world.entitiesByID.put(activePlayerID, activePlayer);
 		        	}
 		    	} catch(NullPointerException e) {		    		
 		    	}
@@ -169,8 +175,7 @@ public class SPGameLoop
 		    	}
 		    	
 		    	
-		    	loops = 0;
-		        while(System.currentTimeMillis() > next_game_tick && loops < MAX_FRAMESKIP) //Update the game 20 times/second 
+		        while(scheduler.isTickDue()) //Update the game 20 times/second 
 		        {
 //		        	if(getPlayer() != null && getPlayer().defeated)
 //		        	{
@@ -214,6 +219,14 @@ public class SPGameLoop
 		        			MouseInput.mouse(world, player, clientCommands, hardwareInput);
 		        		}
 		        		
+		        		//Move the player straight away, and send the input frame for the server to confirm
+		        		int inputFlags = 0;
+		        		for(EnumHardwareInput input : hardwareInput)
+		        		{
+		        			inputFlags |= input.getFlag();
+		        		}
+		        		int inputSequence = movementPredictor.predict(world, player, inputFlags);
+		        		
 		        		//Client player tick
 		        		world.onClientWorldTick(update, player);
 		        		
@@ -223,16 +236,19 @@ public class SPGameLoop
 		        		CompressedClientUpdate compUpdate = new CompressedClientUpdate();
 		        		compUpdate.playerID = activePlayerID;
 		        		//Hardware IO
-		        		EnumHardwareInput[] inputsArray = new EnumHardwareInput[hardwareInput.size()];
-		        		hardwareInput.copyInto(inputsArray);
-		        		compUpdate.clientInput = inputsArray;
+		        		compUpdate.inputSequence = inputSequence;
+		        		compUpdate.inputFlags = (short) inputFlags;
 		        		hardwareInput.clear();
 		        		//Client Updates (String stuff)
 		        		clientCommands.addAll(update.getCommandsVector());
+		        		for(Integer x : chunkManager.yieldCacheMisses())
+		        		{
+		        			clientCommands.add(ClientCommand.chunkMiss(activePlayerID, x));
+		        		}
 		        		if(closeRequested) {
-		        			clientCommands.add("/quit " + activePlayerID);
+		        			clientCommands.add(ClientCommand.quit(activePlayerID));
 		        		}
-		        		String[] clientUpdates = new String[clientCommands.size()];
+		        		ClientCommand[] clientUpdates = new ClientCommand[clientCommands.size()];
 		        		clientCommands.copyInto(clientUpdates);
 		        		compUpdate.commands = clientUpdates;
 		        		clientCommands.clear();
@@ -257,15 +273,6 @@ public class SPGameLoop
 		        	}
 		        	
 		        	SPGameEngine.terraeRasa.checkWindowSize();		        	 
-		        	next_game_tick += SKIP_TICKS;
- 		            loops++;
-		        }
-		        
-		        //Make sure the game loop doesn't fall very far behind and have to accelerate the 
-		        //game for an extended period of time
-		        if(System.currentTimeMillis() - next_game_tick > 1000)
-		        {
-		        	next_game_tick = System.currentTimeMillis();
 		        }
 		        
 		        Display.update();
@@ -312,6 +319,11 @@ public class SPGameLoop
 		        GL11.glPopMatrix();		        
 		        Display.swapBuffers(); //allows the display to update when using VBO's, probably
 		        Display.update(); //updates the display
+		        if(!Display.isVisible())
+		        {
+		        	//Nothing can be seen while minimised, so only wake up to tick
+		        	scheduler.waitForNextTick();
+		        }
 				
 		        if(System.currentTimeMillis() - start >= 5000)
 		        {
@@ -361,6 +373,76 @@ public class SPGameLoop
 		localServerThread = null;
 	}
 	
+	/**
+	 * Puts the contents of one inventory slot, sent by the server, into the inventory of the player owning it.
+	 * @param update the new contents of the slot
+	 */
+	private void applyInventoryUpdate(InventorySlotUpdate update)
+	{
+		EntityPlayer player = (EntityPlayer)(world.getEntityByID(update.entityID));
+		if(player == null)
+		{
+			return;
+		}
+		ItemStack stack = update.toItemStack();
+		if(update.inventoryID == ChangedInventorySlots.MOUSE)
+		{
+			player.heldMouseItem = stack;
+			UIBase.forceHeldItemSize(16);
+		}
+		else if(update.inventoryID == ChangedInventorySlots.MAIN)
+		{
+			player.inventoryChanged = true;
+			player.inventory.putItemStackInSlot(player, stack, update.index);
+		}
+		else if(update.inventoryID == ChangedInventorySlots.ARMOR)
+		{
+			player.inventoryChanged = true;
+			player.inventory.setArmorInventoryStack(player, stack, player.inventory.getArmorInventoryStack(update.index), update.index);
+			player.forceDownHMS();
+		}
+		else if(update.inventoryID == ChangedInventorySlots.QUIVER)
+		{
+			player.inventoryChanged = true;
+			player.inventory.setQuiverStack(player, stack, update.index);
+		}
+		else if(update.inventoryID == ChangedInventorySlots.TRASH)
+		{
+			player.inventoryChanged = true;
+			player.inventory.setTrashStack(player, stack, update.index);
+		}
+	}
+	
+	/**
+	 * Copies the state held by a snapshot onto the entity it describes. This client's own player is skipped, as its
+	 * state is sent in full by StatUpdates and its facing comes from this client's input.
+	 * @param snapshot the snapshot to apply
+	 */
+	private void applyEntitySnapshot(EntitySnapshot snapshot)
+	{
+		Object entity = world.getEntityByID(snapshot.entityID);
+		if(entity instanceof DisplayableEntity)
+		{
+			snapshot.applyTo((DisplayableEntity) entity);
+		}
+		else if(entity instanceof EntityPlayer && snapshot.entityID != activePlayerID)
+		{
+			EntityPlayer player = (EntityPlayer) entity;
+			if(snapshot.hasField(EntitySnapshot.FIELD_HEALTH))
+			{
+				player.setHealth(snapshot.health);
+			}
+			if(snapshot.hasField(EntitySnapshot.FIELD_MAX_HEALTH))
+			{
+				player.maxHealth = snapshot.maxHealth;
+			}
+			if(snapshot.hasField(EntitySnapshot.FIELD_FACING))
+			{
+				player.isFacingRight = snapshot.facingRight;
+			}
+		}
+	}
+	
 	private void processUpdates(EntityPlayer clientPlayer, CompressedServerUpdate[] updates)
 	{
 		for(CompressedServerUpdate serverupdate : updates)
@@ -377,57 +459,11 @@ public class SPGameLoop
 				if(update.command.startsWith("/player"))
 				{
 					String[] split = update.command.split(" ");
-					if(split[2].equals("inv_and_action_update"))
-					{
-						EntityPlayer player = ((EntityPlayer)(world.getEntityByID(Integer.parseInt(split[1]))));
-						player.selectedSlot = Integer.parseInt(split[3]);
-						player.inventory.putItemStackInSlot(player, (ItemStack)(update.object), Integer.parseInt(split[3]));
-					}
-					else if(split[2].equals("statuseffectadd"))
+					if(split[2].equals("statuseffectadd"))
 					{
 						EntityPlayer player = ((EntityPlayer)(world.getEntityByID(Integer.parseInt(split[1]))));
 						player.registerStatusEffect(world, (StatusEffect)(update.object));
 					}
-					else if(split[2].equals("mouseitemset"))
-					{
-						///player <id> mouseitemset ---> Includes ItemStack Object
-						((EntityPlayer)(world.getEntityByID(Integer.parseInt(split[1])))).heldMouseItem = (ItemStack)(update.object);
-						UIBase.forceHeldItemSize(16);
-					}
-					else if(split[2].equals("inventoryset"))
-					{
-//						/player <id> inventoryset <inventory_id> <inventory_slot_index> ---> Includes ItemStack Object
-//						1- Main
-//						2- Armor
-//						3- Quiver
-//						4- Trash
-
-						EntityPlayer player = ((EntityPlayer)(world.getEntityByID(Integer.parseInt(split[1]))));
-						int inventoryID = Integer.parseInt(split[3]);
-						int index = Integer.parseInt(split[4]);
-						
-						if(inventoryID == 1) //Main
-						{
-							player.inventoryChanged = true;
-							player.inventory.putItemStackInSlot(player, (ItemStack)(update.object), index);
-						}
-						else if(inventoryID == 2) //Armor
-						{
-							player.inventoryChanged = true;
-							player.inventory.setArmorInventoryStack(player, (ItemStack)(update.object), player.inventory.getArmorInventoryStack(index), index);
-							player.forceDownHMS();
-						}
-						else if(inventoryID == 3) //Quiver
-						{
-							player.inventoryChanged = true;
-							player.inventory.setQuiverStack(player, (ItemStack)(update.object), index);
-						}
-						else if(inventoryID == 4) //Trash
-						{
-							player.inventoryChanged = true;
-							player.inventory.setTrashStack(player, (ItemStack)(update.object), index);
-						}
-					}	
 					else if(split[2].equals("putoncooldown"))
 					{
 						EntityPlayer player = ((EntityPlayer)(world.getEntityByID(Integer.parseInt(split[1]))));
@@ -472,17 +508,24 @@ public class SPGameLoop
 				else if(update.command.startsWith("/chunk"))
 				{
 					SuperCompressedChunk chunk = (SuperCompressedChunk)(update.object);
-					String command = "/player " + activePlayerID + " chunkrequest " + chunk.x;
-					world.removePendingChunkClientRequest(command);
 					chunkManager.expandChunk(chunk);
 				}
 			}
+			for(InventorySlotUpdate update : serverupdate.inventoryUpdates)
+			{
+				applyInventoryUpdate(update);
+			}
 			for(String command : serverupdate.values)
 			{
 				processCommand(clientPlayer, command);
 			}
 			for(BlockUpdate update : serverupdate.blockUpdates)
 			{
+				if(world.getChunkClient_Division(update.x) == null)
+				{
+					//The chunk has not arrived yet. The server pushes it again if it changed while it was being sent
+					continue;
+				}
 				try {
 					if(update.type == 0)
 					{
@@ -510,6 +553,7 @@ public class SPGameLoop
 						world.setBackBlock(new ClientMinimalBlock(update.block), update.x, update.y);
 					}
 				} catch (NullPointerException e) {
+					e.printStackTrace();
 				}
            	}
 			for(EntityUpdate update : serverupdate.entityUpdates)
@@ -544,12 +588,28 @@ public class SPGameLoop
 			}
 			for(PositionUpdate position : serverupdate.positionUpdates)
 			{
+				if(position.entityID == activePlayerID)
+				{
+					//The active player's position is predicted, and corrected by its movement state instead
+					continue;
+				}
 				try {
 					((IEntityTransmitBase) world.getEntityByID(position.entityID)).setPosition(position.x, position.y);			
 				} catch (NullPointerException e) {
 					e.printStackTrace();
 				}
 			}
+			for(EntitySnapshot snapshot : serverupdate.entitySnapshots)
+			{
+				applyEntitySnapshot(snapshot);
+			}
+			for(MovementState state : serverupdate.movementStates)
+			{
+				if(state.entityID == activePlayerID && clientPlayer != null)
+				{
+					movementPredictor.reconcile(world, clientPlayer, state);
+				}
+			}
 		}		
 	}
 	
@@ -645,6 +705,12 @@ public class SPGameLoop
 			System.out.println("Playing effect : " + effectName);
 			SoundEngine.playSoundEffect(effectName);
 		}
+		else if(command.startsWith("/chunkcached"))
+		{
+//			/chunkcached <chunk_x> <content_hash>
+			String[] split = command.split(" ");
+			chunkManager.loadCachedChunk(Integer.parseInt(split[1]), Long.parseLong(split[2]));
+		}
 		else if(command.startsWith("/worldtimeset"))
 		{
 //			/worldtimeset <time_in_ticks>
@@ -975,6 +1041,7 @@ public class SPGameLoop
 
 	public void setActivePlayer(EntityPlayer player) {
 		this.activePlayer = player;
+		this.movementPredictor = new MovementPredictor();
 	}
 	
 	public void setActivePlayerName(String name)
@@ -18,4 +18,23 @@ public enum EnumHardwareInput
 	LEFT_CLICK,
 	RIGHT_CLICK,
 	NO_CLICK;
+	
+	/**
+	 * Gets the bit that stands for this input in an input frame's flags.
+	 * @return a flag with only this input's bit set
+	 */
+	public int getFlag()
+	{
+		return 1 << ordinal();
+	}
+	
+	/**
+	 * Indicates if this input is held in an input frame.
+	 * @param inputFlags the flags of the input frame
+	 * @return true if this input's bit is set; otherwise false
+	 */
+	public boolean isIn(int inputFlags)
+	{
+		return (inputFlags & getFlag()) != 0;
+	}
 }
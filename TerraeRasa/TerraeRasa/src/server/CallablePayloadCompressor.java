@@ -0,0 +1,21 @@
+package server;
+import java.util.concurrent.Callable;
+
+import transmission.PayloadCompressor;
+
+public class CallablePayloadCompressor implements Callable<byte[]>
+{
+	private Object uncompressedObect;
+	
+	public CallablePayloadCompressor(Object objectToCompress)
+	{
+		this.uncompressedObect = objectToCompress;
+	}
+	
+	public byte[] call() throws Exception 
+	{
+		PayloadCompressor payloadCompressor = new PayloadCompressor();
+		byte[] result = payloadCompressor.compress(uncompressedObect);
+		return result;
+	}	
+}
@@ -0,0 +1,186 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import server.entities.EntityPlayer;
+import server.world.WorldServerEarth;
+import blocks.Chunk;
+
+/**
+ * ChunkStreamer decides which chunks one client needs and pushes them to it, rather than waiting for the client to ask.
+ * Each tick the chunks within the client's load range that it has not yet been sent are pushed nearest-first, limited to
+ * {@link #CHUNKS_PER_TICK} per tick and {@link #MAX_IN_FLIGHT} waiting to be written. When the player moves away, chunks
+ * still waiting to be written are cancelled, and chunks the client will have unloaded are forgotten so they are sent
+ * again if the player returns.
+ * <br><br>
+ * The load range mirrors the client's (2 chunk widths either side of the player). Chunks are forgotten a little inside
+ * the client's unload range (3 chunk widths), so the server never believes the client still has a chunk it dropped.
+ * <br><br>
+ * A client that keeps a disk cache of chunks sends a manifest of what it holds when it joins (see 
+ * {@link #setClientManifest(long[])}). When the content hash of a chunk matches the client's copy, only a short 
+ * "/chunkcached" notice is pushed and the client loads the chunk from disk. Every chunk sent in full is added to the 
+ * manifest, since the client caches it too. 
+ * <br><br>
+ * Pushed chunks are written on the bulk channel a fragment at a time, so block changes made after a chunk was captured
+ * can reach the client before the chunk does, and are dropped by the client. The version each chunk was captured at is
+ * kept, and a chunk is only trusted once it has been completely written without the chunk having changed since; any
+ * change seen before then means the chunk is pushed again. Changes after that are queued behind the chunk, so they 
+ * always reach the client after it.
+ * All methods must be called from the game loop thread.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class ChunkStreamer
+{
+	/** The most chunks pushed to one client each tick */
+	public static final int CHUNKS_PER_TICK = 2;
+	/** The most chunks that may be waiting to be compressed or written for one client */
+	public static final int MAX_IN_FLIGHT = 4;
+	/** The version of the chunk sent for each chunk x position */
+	private final Map<Integer, Long> sentChunks;
+	/** The chunks sent that may not yet have reached the client, so may still need to be pushed again */
+	private final Set<Integer> unconfirmedChunks;
+	/** The content hash of each chunk the client has cached, indexed by chunk x position. 0 means not cached */
+	private long[] clientManifest;
+
+	public ChunkStreamer()
+	{
+		sentChunks = new HashMap<Integer, Long>();
+		unconfirmedChunks = new HashSet<Integer>();
+		clientManifest = new long[0];
+	}
+	
+	/**
+	 * Sets the chunks the client already has cached on disk.
+	 * @param manifest the content hash of each chunk the client has cached, indexed by chunk x position, with 0 for 
+	 * chunks that are not cached. A client without a cache sends an empty manifest
+	 */
+	public void setClientManifest(long[] manifest)
+	{
+		this.clientManifest = manifest;
+	}
+	
+	/**
+	 * Called when the client could not load a chunk it was told to load from its cache, so the chunk is sent in full
+	 * on a later tick.
+	 * @param x the x position of the chunk, in chunks
+	 */
+	public void cacheMissed(int x)
+	{
+		if(x >= 0 && x < clientManifest.length)
+		{
+			clientManifest[x] = 0;
+		}
+		sentChunks.remove(x);
+		unconfirmedChunks.remove(x);
+	}
+
+	/**
+	 * Pushes the most urgent chunks the client is missing, and cancels or forgets those it no longer needs.
+	 * @param connection the connection to push chunks to
+	 * @param player the connection's player
+	 * @param world the world the player is in
+	 */
+	public void update(ServerConnectionThread connection, EntityPlayer player, WorldServerEarth world)
+	{
+		final int width = Chunk.getChunkWidth();
+		final int x = (int) (player.x / 6);
+		final int playerChunk = x / width;
+		final int lastChunk = world.getWidth() / width;
+
+		//Forget anything the client will have unloaded, cancelling it if it has not been written yet
+		int leftKeep = (x - (5 * width / 2)) / width;
+		int rightKeep = (x + (5 * width / 2)) / width;
+		Iterator<Integer> it = sentChunks.keySet().iterator();
+		while(it.hasNext())
+		{
+			int cx = it.next();
+			if(cx < leftKeep || cx > rightKeep)
+			{
+				connection.cancelChunk(cx);
+				unconfirmedChunks.remove(cx);
+				it.remove();
+			}
+		}
+		confirmWrittenChunks(connection, world);
+
+		int budget = Math.min(CHUNKS_PER_TICK, MAX_IN_FLIGHT - connection.getChunksInFlight());
+		if(budget <= 0)
+		{
+			return;
+		}
+
+		int leftLoad = Math.max(0, (x - 2 * width) / width);
+		int rightLoad = Math.min(lastChunk, (x + 2 * width) / width);
+		List<Integer> missing = new ArrayList<Integer>();
+		for(int i = leftLoad; i <= rightLoad; i++)
+		{
+			//Chunks still loading on the server are picked up on a later tick
+			if(!sentChunks.containsKey(i) && Boolean.TRUE.equals(world.chunksLoaded.get(""+i)))
+			{
+				missing.add(i);
+			}
+		}
+
+		while(budget > 0 && missing.size() > 0)
+		{
+			int nearest = 0;
+			for(int i = 1; i < missing.size(); i++)
+			{
+				if(Math.abs(missing.get(i) - playerChunk) < Math.abs(missing.get(nearest) - playerChunk))
+				{
+					nearest = i;
+				}
+			}
+			int cx = missing.remove(nearest);
+			EncodedChunk chunk = EncodedChunkCache.getEncodedChunk(world.getChunk(cx));
+			if(cx < clientManifest.length && clientManifest[cx] == chunk.getContentHash())
+			{
+				connection.pushCachedChunk(cx, chunk.getContentHash());
+			}
+			else
+			{
+				connection.pushChunk(cx, chunk);
+				if(cx < clientManifest.length)
+				{
+					clientManifest[cx] = chunk.getContentHash();
+				}
+			}
+			sentChunks.put(cx, chunk.getVersion());
+			unconfirmedChunks.add(cx);
+			budget--;
+		}
+	}
+	
+	/**
+	 * Trusts the chunks that have been completely written without changing since they were captured, and forgets those
+	 * that changed, so they are pushed again.
+	 */
+	private void confirmWrittenChunks(ServerConnectionThread connection, WorldServerEarth world)
+	{
+		Iterator<Integer> it = unconfirmedChunks.iterator();
+		while(it.hasNext())
+		{
+			int cx = it.next();
+			if(connection.isChunkInFlight(cx))
+			{
+				continue;
+			}
+			Long version = sentChunks.get(cx);
+			if(version != null && version != world.getChunk(cx).getVersion())
+			{
+				//A change may have reached the client before the chunk, and been dropped
+				sentChunks.remove(cx);
+			}
+			it.remove();
+		}
+	}
+}
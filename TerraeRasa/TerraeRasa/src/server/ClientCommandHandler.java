@@ -0,0 +1,28 @@
+package server;
+
+import server.entities.EntityPlayer;
+import server.world.WorldServerEarth;
+import transmission.ClientCommand;
+import transmission.ServerUpdate;
+import entry.MPGameLoop;
+
+/**
+ * ClientCommandHandler carries out one kind of {@link ClientCommand}. Handlers are registered by opcode with a 
+ * {@link ClientCommandRegistry}, and are only ever called from the game loop thread.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public interface ClientCommandHandler
+{
+	/**
+	 * Carries out a command.
+	 * @param update the update for this tick, which any resulting changes are added to
+	 * @param world the world the player is in
+	 * @param engine the game loop
+	 * @param player the player who issued the command
+	 * @param command the command
+	 */
+	public void handle(ServerUpdate update, WorldServerEarth world, MPGameLoop engine, EntityPlayer player, ClientCommand command);
+}
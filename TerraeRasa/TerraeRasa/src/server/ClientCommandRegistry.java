@@ -0,0 +1,75 @@
+package server;
+
+import server.entities.Entity;
+import server.entities.EntityPlayer;
+import server.world.WorldServerEarth;
+import transmission.ClientCommand;
+import transmission.ServerUpdate;
+import entry.MPGameLoop;
+
+/**
+ * ClientCommandRegistry dispatches each {@link ClientCommand} to the handler registered for its opcode, through a 
+ * table indexed by opcode. The registry looks up the issuing player, and refuses commands with an unknown opcode, for
+ * a player who is not in the world, or (for handlers registered as such) for a player who is stunned.
+ * <br><br>
+ * The registry holds no state that changes after the handlers are registered, and commands are only dispatched from
+ * the game loop thread, so no locking is needed.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class ClientCommandRegistry
+{
+	private final ClientCommandHandler[] handlers;
+	private final boolean[] blockedWhileStunned;
+	
+	public ClientCommandRegistry()
+	{
+		handlers = new ClientCommandHandler[ClientCommand.TOTAL_OPCODES];
+		blockedWhileStunned = new boolean[ClientCommand.TOTAL_OPCODES];
+	}
+	
+	/**
+	 * Registers the handler for an opcode, replacing any handler already registered for it.
+	 * @param opcode the opcode, from {@link ClientCommand}
+	 * @param blockedWhileStunned true if the command should be ignored while the player is stunned
+	 * @param handler the handler to call for commands with that opcode
+	 */
+	public void register(int opcode, boolean blockedWhileStunned, ClientCommandHandler handler)
+	{
+		this.handlers[opcode] = handler;
+		this.blockedWhileStunned[opcode] = blockedWhileStunned;
+	}
+	
+	/**
+	 * Carries out a command, if it has a handler and its player may issue it. 
+	 * @param update the update for this tick
+	 * @param world the world being played
+	 * @param engine the game loop
+	 * @param command the command, which may be null if it was filtered out
+	 */
+	public void dispatch(ServerUpdate update, WorldServerEarth world, MPGameLoop engine, ClientCommand command)
+	{
+		if(command == null || command.opcode < 0 || command.opcode >= handlers.length || handlers[command.opcode] == null)
+		{
+			return;
+		}
+		Entity entity = world.getEntityByID(command.playerID);
+		if(!(entity instanceof EntityPlayer))
+		{
+			return;
+		}
+		EntityPlayer player = (EntityPlayer) entity;
+		if(blockedWhileStunned[command.opcode] && player.isStunned())
+		{
+			return;
+		}
+		try {
+			handlers[command.opcode].handle(update, world, engine, player, command);
+		} catch (Exception e) {
+			System.err.println("Command failed: opcode " + command.opcode + " from player " + command.playerID);
+			e.printStackTrace();
+		}
+	}
+}
@@ -7,12 +7,12 @@ import items.ItemThrown;
 import items.ItemTool;
 
 import java.text.DecimalFormat;
-import java.util.List;
 import java.util.Vector;
 
 import math.MathHelper;
 import server.entities.EntityPlayer;
 import server.utils.MouseItemHelper;
+import server.world.ActivationRange;
 import server.world.WorldServerEarth;
 import statuseffects.StatusEffectAbsorb;
 import statuseffects.StatusEffectAttackSpeedBuff;
@@ -32,14 +32,14 @@ import statuseffects.StatusEffectSteelSkin;
 import statuseffects.StatusEffectStun;
 import statuseffects.StatusEffectSwiftness;
 import transmission.BlockUpdate;
-import transmission.ChunkCompressor;
+import transmission.ClientCommand;
 import transmission.PositionUpdate;
 import transmission.ServerUpdate;
 import transmission.SuperCompressedBlock;
-import transmission.UpdateWithObject;
 import utils.ActionbarItem;
 import utils.ItemStack;
 import utils.MetaDataHelper;
+import utils.TickScheduler;
 import world.WeatherSnow;
 import world.World;
 import blocks.Block;
@@ -53,7 +53,7 @@ import enums.EnumColor;
 public class Commands 
 {
 	private static final Object processConsoleCommandLock = new Object();
-	private static final Object processClientCommandLock = new Object();
+	private static final ClientCommandRegistry clientCommands = createClientCommandRegistry();
 	
 	public static final int PERMISSION_ALL = 1,
 			PERMISSION_MOD = 2,
@@ -259,6 +259,10 @@ public class Commands
 		{
 			return PERMISSION_ADMIN;
 		}
+		if(command.startsWith("/tps"))
+		{
+			return PERMISSION_ADMIN;
+		}
 		if(command.startsWith("/say"))
 		{
 			return PERMISSION_CONSOLE;
@@ -337,6 +341,38 @@ public class Commands
 					String clientCommand = "/servermessage " + EnumColor.YELLOW.toString() + " " + logMessage;
 					update.addValue(clientCommand);					
 				}
+				if(command.startsWith("/inputbudget"))
+				{
+					String logMessage = InputBudget.getSummary();
+					Log.log(logMessage);
+					String clientCommand = "/servermessage " + EnumColor.YELLOW.toString() + " " + logMessage;
+					update.addValue(clientCommand);
+				}
+				if(command.startsWith("/tps"))
+				{
+					for(String logMessage : engine.getProfiler().getReport())
+					{
+						Log.log(logMessage);
+						update.addValue("/servermessage " + EnumColor.YELLOW.toString() + " " + logMessage);
+					}
+					TickScheduler scheduler = engine.getScheduler();
+					DecimalFormat format = new DecimalFormat("0.00");
+					String lagMessage = "Tick lag: p50=" + format.format(scheduler.getLag().getPercentile(50) / 1E6) + 
+							"ms p99=" + format.format(scheduler.getLag().getPercentile(99) / 1E6) + 
+							"ms; " + scheduler.getSkippedTicks() + " ticks skipped";
+					Log.log(lagMessage);
+					update.addValue("/servermessage " + EnumColor.YELLOW.toString() + " " + lagMessage);
+					ActivationRange activationRange = world.getActivationRange();
+					if(activationRange != null)
+					{
+						String logMessage = "Monsters and npcs: " + activationRange.getCount(ActivationRange.ACTIVE) + " active, " + 
+								activationRange.getCount(ActivationRange.REDUCED) + " reduced, " + 
+								activationRange.getCount(ActivationRange.DORMANT) + " dormant";
+						Log.log(logMessage);
+						String clientCommand = "/servermessage " + EnumColor.YELLOW.toString() + " " + logMessage;
+						update.addValue(clientCommand);
+					}
+				}
 				if(command.trim().equals("/motd"))
 				{
 					String logMessage = settings.serverMessage;
@@ -622,6 +658,7 @@ public class Commands
 							WeatherSnow snow = new WeatherSnow(world.getChunk(x), timeSeconds);
 							snow.setTicksLeft(timeSeconds * MPGameLoop.TICKS_PER_SECOND);
 							world.getChunk(x).weather = snow;
+							world.getChunk(x).markChanged();
 						}
 					}
 				}
@@ -651,385 +688,355 @@ public class Commands
 		}
 	}
 		
-	public static String processClientCommand(ServerUpdate update, Object associatedObject, WorldServerEarth world, 
-			MPGameLoop engine, Vector<EntityPlayer> players, String command, List<String> pendingChunkRequests)
+	/**
+	 * Carries out a command issued by a client. Commands arrive already parsed and are dispatched by opcode, so this
+	 * does no string handling for the common commands (mining, placing blocks, and so on). Must be called from the game 
+	 * loop thread.
+	 * @param update the update for this tick
+	 * @param world the world being played
+	 * @param engine the game loop
+	 * @param command the command, or null if it was filtered out
+	 */
+	public static void processClientCommand(ServerUpdate update, WorldServerEarth world, MPGameLoop engine, ClientCommand command)
+	{
+		clientCommands.dispatch(update, world, engine, command);
+	}
+	
+	private static ClientCommandRegistry createClientCommandRegistry()
 	{
-		synchronized(processClientCommandLock)
+		ClientCommandRegistry registry = new ClientCommandRegistry();
+		registry.register(ClientCommand.PLACE_FRONT_BLOCK, true, new ClientCommandHandler()
 		{
-			if(command == null || command.trim().equals(""))
+			public void handle(ServerUpdate update, WorldServerEarth world, MPGameLoop engine, EntityPlayer player, ClientCommand command)
 			{
-				return "";
+				boolean success = world.placeBlock(update,
+						player, 
+						command.x, 
+						command.y, 
+						Block.blocksList[command.id]);
+				if(success)
+				{
+					player.inventory.removeItemsFromInventoryStack(player, 1, command.slot);
+				}
 			}
-			try {
-				if(command.startsWith("/placefrontblock"))
+		});
+		registry.register(ClientCommand.PLACE_BACK_BLOCK, true, new ClientCommandHandler()
+		{
+			public void handle(ServerUpdate update, WorldServerEarth world, MPGameLoop engine, EntityPlayer player, ClientCommand command)
+			{
+				boolean success = world.placeBackWall(player, 
+						command.x, 
+						command.y, 
+						Block.blocksList[command.id]);
+				if(success)
 				{
-					///placefrontblock <block-x> <block-y> <player-id> <blockID> <player's selected slot> 
-					String[] split = command.split(" ");
-					//Check if the player is stunned. If so, block this action.
-					if(((EntityPlayer)(world.getEntityByID(Integer.parseInt(split[3])))).isStunned())
-					{
-						return "";
-					}
-					EntityPlayer player = (EntityPlayer)(world.getEntityByID(Integer.parseInt(split[3])));
-					boolean success = world.placeBlock(update,
-							player, 
-							Integer.parseInt(split[1]), 
-							Integer.parseInt(split[2]), 
-							Block.blocksList[Integer.parseInt(split[4])]);
-					if(success)
-					{
-						player.inventory.removeItemsFromInventoryStack(player, 1, Integer.parseInt(split[5]));
-					}
-					return command + " " + success;
+					BlockUpdate blockUpdate = new BlockUpdate();
+					blockUpdate.x = command.x;
+					blockUpdate.y = (short) command.y;
+					blockUpdate.block = new SuperCompressedBlock(world.getBackBlock(blockUpdate.x, blockUpdate.y));
+					update.addBlockUpdate(blockUpdate);
+					player.inventory.removeItemsFromInventoryStack(player, 1, command.slot);
 				}
-				else if(command.startsWith("/placebackblock"))
+			}
+		});
+		registry.register(ClientCommand.MINE_FRONT, true, new ClientCommandHandler()
+		{
+			public void handle(ServerUpdate update, WorldServerEarth world, MPGameLoop engine, EntityPlayer player, ClientCommand command)
+			{
+				ItemStack stack = player.inventory.getMainInventoryStack(command.slot);
+				if(stack != null)
 				{
-					///placebackblock <block-x> <block-y> <player-id> <blockID> <player's selected slot> 
-					String[] split = command.split(" ");
-					//Check if the player is stunned. If so, block this action.
-					if(((EntityPlayer)(world.getEntityByID(Integer.parseInt(split[3])))).isStunned())
-					{
-						return "";
-					}
-					EntityPlayer player = (EntityPlayer)(world.getEntityByID(Integer.parseInt(split[3])));
-					boolean success = world.placeBackWall(player, 
-							Integer.parseInt(split[1]), 
-							Integer.parseInt(split[2]), 
-							Block.blocksList[Integer.parseInt(split[4])]);
-					if(success)
-					{
-						BlockUpdate blockUpdate = new BlockUpdate();
-						blockUpdate.x = Integer.parseInt(split[1]);
-						blockUpdate.y = Short.parseShort(split[2]);
-						blockUpdate.block = new SuperCompressedBlock(world.getBackBlock(blockUpdate.x, blockUpdate.y));
-						update.addBlockUpdate(blockUpdate);
-						player.inventory.removeItemsFromInventoryStack(player, 1, Integer.parseInt(split[5]));
-					}
-					return command + " " + success;
+					player.breakBlock(update, world, command.x, command.y, Item.itemsList[stack.getItemID()]);
 				}
-				else if(command.startsWith("/mine"))
+			}
+		});
+		registry.register(ClientCommand.MINE_BACK, true, new ClientCommandHandler()
+		{
+			public void handle(ServerUpdate update, WorldServerEarth world, MPGameLoop engine, EntityPlayer player, ClientCommand command)
+			{
+				ItemStack stack = player.inventory.getMainInventoryStack(command.slot);
+				if(stack != null)
 				{
-					String[] split = command.split(" ");
-					//Check if the player is stunned. If so, block this action.
-					if(((EntityPlayer)(world.getEntityByID(Integer.parseInt(split[2])))).isStunned())
-					{
-						return "";
-					}
-					EntityPlayer player = ((EntityPlayer)(world.getEntityByID(Integer.parseInt(split[2]))));
-					if(split[1].equals("frontcontinue"))
-					{
-						if(player.inventory.getMainInventoryStack(Integer.parseInt(split[5])) != null)
-						{
-							player.breakBlock(update,
-									world, 
-									Integer.parseInt(split[3]), 
-									Integer.parseInt(split[4]),
-									Item.itemsList[player.inventory.getMainInventoryStack(Integer.parseInt(split[5])).getItemID()]);
-						}
-					}
-					else if(split[1].equals("backcontinue"))
-					{
-						if(player.inventory.getMainInventoryStack(Integer.parseInt(split[5])) != null)
-						{
-							player.breakBackBlock(update,
-									world, 
-									Integer.parseInt(split[3]), 
-									Integer.parseInt(split[4]),
-									Item.itemsList[player.inventory.getMainInventoryStack(Integer.parseInt(split[5])).getItemID()]);
-						}
-					}
-					else if(split[1].equals("stop"))
-					{
-						player.setIsMining(false);
-					}
+					player.breakBackBlock(update, world, command.x, command.y, Item.itemsList[stack.getItemID()]);
 				}
-				else if(command.startsWith("/projectile"))
+			}
+		});
+		registry.register(ClientCommand.MINE_STOP, true, new ClientCommandHandler()
+		{
+			public void handle(ServerUpdate update, WorldServerEarth world, MPGameLoop engine, EntityPlayer player, ClientCommand command)
+			{
+				player.setIsMining(false);
+			}
+		});
+		registry.register(ClientCommand.LAUNCH_PROJECTILE, true, new ClientCommandHandler()
+		{
+			public void handle(ServerUpdate update, WorldServerEarth world, MPGameLoop engine, EntityPlayer player, ClientCommand command)
+			{
+				ItemStack stack = player.inventory.getMainInventoryStack(command.slot);
+				if(stack == null)
+				{
+					return;
+				}
+				Item item = Item.itemsList[stack.getItemID()];
+				if (item instanceof ItemMagic)
+				{
+					player.launchProjectileMagic(update, world, command.targetX, command.targetY, (ItemMagic) item);
+				}
+				else if (item instanceof ItemRanged)
+				{
+					player.launchProjectileWeapon(update, world, command.targetX, command.targetY, (ItemRanged) item);
+				}	
+				else if(item instanceof ItemThrown)
+				{
+					player.launchProjectileThrown(update, world, command.targetX, command.targetY, (ItemThrown) item, command.slot);								
+				}
+			}
+		});
+		registry.register(ClientCommand.START_SWING, true, new ClientCommandHandler()
+		{
+			public void handle(ServerUpdate update, WorldServerEarth world, MPGameLoop engine, EntityPlayer player, ClientCommand command)
+			{
+				if(!player.isSwingingTool()) 
 				{
-					String[] split = command.split(" ");
-					//Check if the player is stunned. If so, block this action.
-					if(((EntityPlayer)(world.getEntityByID(Integer.parseInt(split[2])))).isStunned())
+					//Other players are sent the swung item as a visible slot of the player's inventory
+					player.selectedSlot = command.slot;
+					player.changedInventorySlots.markMainSlot(command.slot);
+					update.addValue("/player " + player.entityID + " setactionbarslot " + command.slot);
+					player.startSwingingTool();
+					ItemTool tool = (ItemTool) Item.itemsList[player.inventory.getMainInventoryStack(command.slot).getItemID()];
+					update.addValue("/soundeffect " + tool.hitSound);
+				}
+			}
+		});
+		registry.register(ClientCommand.CANCEL_SWING, false, new ClientCommandHandler()
+		{
+			public void handle(ServerUpdate update, WorldServerEarth world, MPGameLoop engine, EntityPlayer player, ClientCommand command)
+			{
+				player.clearSwing();
+				//"/player <player_id> stopswing"
+				update.addValue("/player " + player.entityID + " stopswing");
+			}
+		});
+		registry.register(ClientCommand.SAY, false, new ClientCommandHandler()
+		{
+			public void handle(ServerUpdate update, WorldServerEarth world, MPGameLoop engine, EntityPlayer player, ClientCommand command)
+			{
+				//command.text is "<color> <message>"
+				String said = command.text.substring(command.text.indexOf(" ") + 1);
+				if(said.startsWith("/"))
+				{
+					//A server command that the player can issue
+					String[] remainingSplit = said.split(" ");
+					
+					//Put what the player said onto the console
+					String message = "";
+					if(remainingSplit.length == 1)
 					{
-						return "";
+						message = said;
 					}
-					EntityPlayer player = (EntityPlayer)(world.getEntityByID(Integer.parseInt(split[2])));
-					if(player.inventory.getMainInventoryStack(Integer.parseInt(split[3])) != null)
+					else
 					{
-						Item item = Item.itemsList[player.inventory.getMainInventoryStack(Integer.parseInt(split[3])).getItemID()];
-			
-			//			/projectile launch playerid selected_slot mx my
+						message = remainingSplit[1] + ": " + said.substring(said.indexOf(" ", 
+								said.indexOf(" ", 
+									said.indexOf(" ", 
+											said.indexOf(" ") + 1)) + 1) + 1);
 						
-						if (item instanceof ItemMagic)
-						{
-							ItemMagic spell = (ItemMagic) item;
-							player.launchProjectileMagic(update,
-									world, 
-									Double.parseDouble(split[4]), 
-									Double.parseDouble(split[5]), 
-									spell);
-						}
-						else if (item instanceof ItemRanged)
-						{
-							ItemRanged weapon = (ItemRanged) item;
-							player.launchProjectileWeapon(update, 
-									world, 
-									Double.parseDouble(split[4]), 
-									Double.parseDouble(split[5]), 
-									weapon);
-						}	
-						else if(item instanceof ItemThrown)
-						{
-							ItemThrown weapon = (ItemThrown) item;
-							player.launchProjectileThrown(update,
-									world, 
-									Double.parseDouble(split[4]), 
-									Double.parseDouble(split[5]), 
-									weapon,
-									Integer.parseInt(split[3]));								
-						}			
 					}
+					Log.log(message);
+					
+					engine.registerServerCommand(player, said, false);
 				}
-				else if(command.startsWith("/player"))
+				else
 				{
-					String[] split = command.split(" ");
-					EntityPlayer player = (EntityPlayer)world.getEntityByID(Integer.parseInt(split[1]));
-					if(split[2].equals("chunkrequest"))
-					{
-						if(world.chunksLoaded.get(split[3]))
-						{
-							ServerUpdate chunkServerUpdate = new ServerUpdate();
-		        			chunkServerUpdate.deferCompression = true;
-							UpdateWithObject objUpdate = new UpdateWithObject();
-		        			objUpdate.command = "/chunk " + split[1]; 
-		        			objUpdate.object = ChunkCompressor.compressChunk(world.getChunk(Integer.parseInt(split[3])));
-		        			chunkServerUpdate.addObjectUpdate(objUpdate);
-		        			MPGameEngine.addWorldUpdate(chunkServerUpdate);
-//							TODO: ?deferCompression here --> create + register new update object?
-						}		
-						else
-						{
-							System.out.println("Deferred : " + split[3]);
-							pendingChunkRequests.add(command);
-						}
-					}
-					else if(split[2].equals("startswing"))
-					{
-						///player <playerID> startswing <selected_slot>
-						//Check if the player is stunned. If so, block this action.
-						if(player.isStunned())
-						{
-							return "";
-						}
-						if(!player.isSwingingTool()) 
-						{
-							player.selectedSlot = Integer.parseInt(split[3]);
-							UpdateWithObject objUpdate = new UpdateWithObject();
-							objUpdate.command = "/player " + player.entityID + " inv_and_action_update " + player.selectedSlot;
-							objUpdate.object = new ItemStack(player.inventory.getMainInventoryStack(player.selectedSlot));
-							update.addObjectUpdate(objUpdate);
-							player.startSwingingTool();
-							ItemTool tool = (ItemTool) Item.itemsList[player.inventory.getMainInventoryStack(Integer.parseInt(split[3])).getItemID()];
-							update.addValue("/soundeffect " + tool.hitSound);
-						}
-					}
-					else if(split[2].equals("cancelswing"))
-					{
-						player.clearSwing();
-						//"/player <player_id> stopswing"
-						command = "/player " + player.entityID + " stopswing";
-						update.addValue(command);
-					}
-					else if(split[2].equals("say"))
-					{
-						if(split[4].startsWith("/"))
-						{
-							//A server command that the player can issue
-							String remaining = command.substring(command.indexOf(" ", command.indexOf("say") + 4) + 1);
-							
-							//Put what the player said onto the console
-							String[] remainingSplit = remaining.split(" ");
-							
-							String message = "";
-							if(remainingSplit.length == 1)
-							{
-								message = remaining;
-							}
-							else
-							{
-								message = remainingSplit[1] + ": " + remaining.substring(remaining.indexOf(" ", 
-										remaining.indexOf(" ", 
-											remaining.indexOf(" ", 
-													remaining.indexOf(" ") + 1)) + 1) + 1);
-								
-							}
-							Log.log(message);
-							
-							engine.registerServerCommand(player, remaining, false);
-						}
-						else
-						{
-							//Chat to everyone
-							//"/say <name> <color> <message>"
-							String chatmessage = "/say " + player.getName() + " " + command.substring(command.indexOf("say") + 4);
-		
-							//Put what the player said onto the console
-							String[] remainingSplit = chatmessage.split(" ");
-							String message = remainingSplit[1] + ": " + chatmessage.substring(chatmessage.indexOf(" ", 
+					//Chat to everyone
+					//"/say <name> <color> <message>"
+					String chatmessage = "/say " + player.getName() + " " + command.text;
+
+					//Put what the player said onto the console
+					String[] remainingSplit = chatmessage.split(" ");
+					String message = remainingSplit[1] + ": " + chatmessage.substring(chatmessage.indexOf(" ", 
+							chatmessage.indexOf(" ", 
 									chatmessage.indexOf(" ", 
-											chatmessage.indexOf(" ", 
-													chatmessage.indexOf(" ") + 1)) + 1) + 1);
-							Log.log(message);
-							
-							update.addValue(chatmessage);
-						}				
-					}
-					else if(split[2].equals("use")) //Uses the currently held item
-					{
-						//Check if the player is stunned. If so, block this action.
-						if(player.isStunned())
-						{
-							return "";
-						}
-						player.selectedSlot = Integer.parseInt(split[3]);
-						Item.itemsList[player.inventory.getMainInventoryStack(Integer.parseInt(split[3])).getItemID()].onRightClick(world, player);
-					}
-					else if(split[2].equals("mousepickup"))
-					{
-		//				/player <id> mousepickup <inventoryid> <index> <qty> #qty of 1, 1/2, all
-						MouseItemHelper.pickupItemInInventory(world, player, Integer.parseInt(split[3]), Integer.parseInt(split[4]), split[5]);
-					}
-					else if(split[2].equals("mouseplace"))
-					{
-		//				/player <id> mouseplace <inventoryid> <index> <qty> #qty of 1, 1/2, all
-						MouseItemHelper.placeItemInInventory(world, player, Integer.parseInt(split[3]), Integer.parseInt(split[4]), split[5]);
-					}
-					else if(split[2].equals("mousethrow"))
-					{
-		//				/player <id> mousethrow 
-						MouseItemHelper.throwMouseItem(update, world, player, split[3]);
-					}
-					else if(split[2].equals("craft"))
-					{
-		//				/player <id> craft <recipe_id>
-						MouseItemHelper.craftRecipe(world, player, Integer.parseInt(split[3]));
-					}
-					else if(split[2].equals("mouseremove"))
-					{
-						MouseItemHelper.removeMouseItem(world, player, split[3]);
-					}
-					else if(split[2].equals("shiftclick"))
-					{
-						MouseItemHelper.handleShiftClick(world, player, Integer.parseInt(split[3]), Integer.parseInt(split[4]));
-					}
-					else if(split[2].equals("socketgem"))
-					{
-						MouseItemHelper.socketGem(world, player, Integer.parseInt(split[3]), Integer.parseInt(split[4]), Integer.parseInt(split[5]));
-					}
-					else if(split[2].equals("setactionbarslot"))
-					{
-	//					/player <id> setactionbarslot <slot>
-						player.selectedSlot = Integer.parseInt(split[3]);
-						update.addValue(command);
-					}
-					else if(split[2].equals("chestevent"))
-					{
-	//					/player <id> chestpickup <x> <y> <index> <qty>
-						int x = Integer.parseInt(split[3]);
-						int y = Integer.parseInt(split[4]);
-						int index = Integer.parseInt(split[5]);
-						
-						//Get the metadata for the block's size
-						int[][] metadata = MetaDataHelper.getMetaDataArray((int)(Block.blocksList[world.getBlock(x, y).id].blockWidth / 6), 
-								(int)(Block.blocksList[world.getBlock(x, y).id].blockHeight / 6)); //metadata used by the block of size (x,y)
-						int metaWidth = metadata.length; 
-						int metaHeight = metadata[0].length;	
-						int xOffset = 0;
-						int yOffset = 0;					
-						BlockChest chest = (BlockChest)world.getAssociatedBlock(x, y);
-						MinimalBlock MinimalBlock = world.getBlock(x, y);
-						if(MinimalBlock.metaData != 1) //Make sure its metadata is 1 (otherwise it doesnt technically exist)
-						{
-							//Loop until a the current chest's metadata value is found
-							//This provides the offset to find the 'real' chest, with the actual items in it
-							for(int i = 0; i < metaWidth; i++) 
-							{
-								for(int j = 0; j < metaHeight; j++)
-								{
-									if(metadata[i][j] == world.getBlock(x - xOffset, y - yOffset).metaData)
-									{
-										xOffset = i; 
-										yOffset = j;
-										break;
-									}
-								}
-							}			
-							//Update the chest
-							MinimalBlock = world.getBlock(x - xOffset, y - yOffset);
-							chest = (BlockChest)(world.getAssociatedBlock(x - xOffset, y - yOffset));
-						}	
-						
-						if(chest.getItemStack(index) != null && player.getHeldMouseItem() == null) //The mouse doesn't have something picked up, so this is straightforward
-						{
-							if(split[6].equals("all"))
-							{
-								ItemStack mouseItem = new ItemStack(chest.getItemStack(index));
-								chest.removeItemStack(index);
-								player.setHeldMouseItem(mouseItem);
-							}
-							else if(split[6].equals("1/2"))
-							{
-								ItemStack mouseItem = new ItemStack(chest.getItemStack(index));
-								mouseItem.setStackSize((int)(MathHelper.floorOne(mouseItem.getStackSize() / 2)));
-								chest.removeItemsFromInventoryStack((mouseItem.getStackSize()), index);
-								player.setHeldMouseItem(mouseItem);
-							}
-							else
-							{
-								throw new RuntimeException("This will not work -- NYI");
-	//							int qty = Integer.parseInt(split[6]);
-	//							chest.removeItemsFromInventoryStack(qty, index);
-							}
-							
-							//Cause a block update for the chest
-							BlockUpdate blockUpdate = new BlockUpdate();
-							blockUpdate.x = x - xOffset;
-							blockUpdate.y = (short) (y - yOffset);
-							blockUpdate.block = new SuperCompressedBlock(chest);
-							update.addBlockUpdate(blockUpdate);
-							world.setBlock(chest, x - xOffset, y - yOffset);
-						}
-						else if(player.getHeldMouseItem() != null) //The mouse has something picked up, things need swapped
-						{
-							//Reference safe swap
-							ItemStack mouseItem = new ItemStack(player.getHeldMouseItem());
-							ItemStack chestItem = chest.takeItemStack(index);
-							chest.placeItemStack(mouseItem, index);
-							player.setHeldMouseItem(chestItem);
-	
-							//Cause a block update for the chest
-							BlockUpdate blockUpdate = new BlockUpdate();
-							blockUpdate.x = x - xOffset;
-							blockUpdate.y = (short) (y - yOffset);
-							blockUpdate.block = new SuperCompressedBlock(chest);
-							update.addBlockUpdate(blockUpdate);
-							world.setBlock(chest, x - xOffset, y - yOffset);
-						}
+											chatmessage.indexOf(" ") + 1)) + 1) + 1);
+					Log.log(message);
 					
-					}
-				}
-				else if(command.startsWith("/quit"))
+					update.addValue(chatmessage);
+				}				
+			}
+		});
+		registry.register(ClientCommand.USE_ITEM, true, new ClientCommandHandler()
+		{
+			public void handle(ServerUpdate update, WorldServerEarth world, MPGameLoop engine, EntityPlayer player, ClientCommand command)
+			{
+				player.selectedSlot = command.slot;
+				Item.itemsList[player.inventory.getMainInventoryStack(command.slot).getItemID()].onRightClick(world, player);
+			}
+		});
+		registry.register(ClientCommand.MOUSE_PICKUP, false, new ClientCommandHandler()
+		{
+			public void handle(ServerUpdate update, WorldServerEarth world, MPGameLoop engine, EntityPlayer player, ClientCommand command)
+			{
+				MouseItemHelper.pickupItemInInventory(world, player, command.inventoryID, command.index, command.text);
+			}
+		});
+		registry.register(ClientCommand.MOUSE_PLACE, false, new ClientCommandHandler()
+		{
+			public void handle(ServerUpdate update, WorldServerEarth world, MPGameLoop engine, EntityPlayer player, ClientCommand command)
+			{
+				MouseItemHelper.placeItemInInventory(world, player, command.inventoryID, command.index, command.text);
+			}
+		});
+		registry.register(ClientCommand.MOUSE_THROW, false, new ClientCommandHandler()
+		{
+			public void handle(ServerUpdate update, WorldServerEarth world, MPGameLoop engine, EntityPlayer player, ClientCommand command)
+			{
+				MouseItemHelper.throwMouseItem(update, world, player, command.text);
+			}
+		});
+		registry.register(ClientCommand.CRAFT, false, new ClientCommandHandler()
+		{
+			public void handle(ServerUpdate update, WorldServerEarth world, MPGameLoop engine, EntityPlayer player, ClientCommand command)
+			{
+				MouseItemHelper.craftRecipe(world, player, command.id);
+			}
+		});
+		registry.register(ClientCommand.MOUSE_REMOVE, false, new ClientCommandHandler()
+		{
+			public void handle(ServerUpdate update, WorldServerEarth world, MPGameLoop engine, EntityPlayer player, ClientCommand command)
+			{
+				MouseItemHelper.removeMouseItem(world, player, command.text);
+			}
+		});
+		registry.register(ClientCommand.SHIFT_CLICK, false, new ClientCommandHandler()
+		{
+			public void handle(ServerUpdate update, WorldServerEarth world, MPGameLoop engine, EntityPlayer player, ClientCommand command)
+			{
+				MouseItemHelper.handleShiftClick(world, player, command.inventoryID, command.index);
+			}
+		});
+		registry.register(ClientCommand.SOCKET_GEM, false, new ClientCommandHandler()
+		{
+			public void handle(ServerUpdate update, WorldServerEarth world, MPGameLoop engine, EntityPlayer player, ClientCommand command)
+			{
+				MouseItemHelper.socketGem(world, player, command.inventoryID, command.index, command.id);
+			}
+		});
+		registry.register(ClientCommand.SET_ACTIONBAR_SLOT, false, new ClientCommandHandler()
+		{
+			public void handle(ServerUpdate update, WorldServerEarth world, MPGameLoop engine, EntityPlayer player, ClientCommand command)
+			{
+				//"/player <id> setactionbarslot <slot>"
+				player.selectedSlot = command.slot;
+				player.changedInventorySlots.markMainSlot(command.slot);
+				update.addValue("/player " + player.entityID + " setactionbarslot " + command.slot);
+			}
+		});
+		registry.register(ClientCommand.CHEST_EVENT, false, new ClientCommandHandler()
+		{
+			public void handle(ServerUpdate update, WorldServerEarth world, MPGameLoop engine, EntityPlayer player, ClientCommand command)
+			{
+				chestEvent(update, world, player, command.x, command.y, command.index, command.quantity);
+			}
+		});
+		registry.register(ClientCommand.QUIT, false, new ClientCommandHandler()
+		{
+			public void handle(ServerUpdate update, WorldServerEarth world, MPGameLoop engine, EntityPlayer player, ClientCommand command)
+			{
+				MPGameEngine.requestThreadCloseByID(player.entityID);
+			}
+		});
+		registry.register(ClientCommand.CHUNK_MISS, false, new ClientCommandHandler()
+		{
+			public void handle(ServerUpdate update, WorldServerEarth world, MPGameLoop engine, EntityPlayer player, ClientCommand command)
+			{
+				MPGameEngine.chunkCacheMissed(player.entityID, command.x);
+			}
+		});
+		return registry;
+	}
+	
+	/**
+	 * Picks up from, or swaps the mouse item with, one slot of a chest.
+	 * @param update the update for this tick
+	 * @param world the world being played
+	 * @param player the player using the chest
+	 * @param x the x position of any block of the chest
+	 * @param y the y position of any block of the chest
+	 * @param index the slot of the chest
+	 * @param quantity how much to pick up, ClientCommand.QUANTITY_ALL or ClientCommand.QUANTITY_HALF
+	 */
+	private static void chestEvent(ServerUpdate update, WorldServerEarth world, EntityPlayer player, int x, int y, int index, byte quantity)
+	{
+		//Get the metadata for the block's size
+		int[][] metadata = MetaDataHelper.getMetaDataArray((int)(Block.blocksList[world.getBlock(x, y).id].blockWidth / 6), 
+				(int)(Block.blocksList[world.getBlock(x, y).id].blockHeight / 6)); //metadata used by the block of size (x,y)
+		int metaWidth = metadata.length; 
+		int metaHeight = metadata[0].length;	
+		int xOffset = 0;
+		int yOffset = 0;					
+		BlockChest chest = (BlockChest)world.getAssociatedBlock(x, y);
+		MinimalBlock MinimalBlock = world.getBlock(x, y);
+		if(MinimalBlock.metaData != 1) //Make sure its metadata is 1 (otherwise it doesnt technically exist)
+		{
+			//Loop until a the current chest's metadata value is found
+			//This provides the offset to find the 'real' chest, with the actual items in it
+			for(int i = 0; i < metaWidth; i++) 
+			{
+				for(int j = 0; j < metaHeight; j++)
 				{
-//					/quit <player_id>
-					String[] split = command.split(" ");
-					MPGameEngine.requestThreadCloseByID(Integer.parseInt(split[1]));
+					if(metadata[i][j] == world.getBlock(x - xOffset, y - yOffset).metaData)
+					{
+						xOffset = i; 
+						yOffset = j;
+						break;
+					}
 				}
-			
-			} catch (Exception e) {
-				System.err.println("Command failed: " + command);
-				e.printStackTrace();
+			}			
+			//Update the chest
+			MinimalBlock = world.getBlock(x - xOffset, y - yOffset);
+			chest = (BlockChest)(world.getAssociatedBlock(x - xOffset, y - yOffset));
+		}	
+		
+		if(chest.getItemStack(index) != null && player.getHeldMouseItem() == null) //The mouse doesn't have something picked up, so this is straightforward
+		{
+			if(quantity == ClientCommand.QUANTITY_ALL)
+			{
+				ItemStack mouseItem = new ItemStack(chest.getItemStack(index));
+				chest.removeItemStack(index);
+				player.setHeldMouseItem(mouseItem);
 			}
-			return "";
+			else //QUANTITY_HALF, the only other quantity a chest command can be read with
+			{
+				ItemStack mouseItem = new ItemStack(chest.getItemStack(index));
+				mouseItem.setStackSize((int)(MathHelper.floorOne(mouseItem.getStackSize() / 2)));
+				chest.removeItemsFromInventoryStack((mouseItem.getStackSize()), index);
+				player.setHeldMouseItem(mouseItem);
+			}
+			
+			//Cause a block update for the chest
+			BlockUpdate blockUpdate = new BlockUpdate();
+			blockUpdate.x = x - xOffset;
+			blockUpdate.y = (short) (y - yOffset);
+			blockUpdate.block = new SuperCompressedBlock(chest);
+			update.addBlockUpdate(blockUpdate);
+			world.setBlock(chest, x - xOffset, y - yOffset);
+		}
+		else if(player.getHeldMouseItem() != null) //The mouse has something picked up, things need swapped
+		{
+			//Reference safe swap
+			ItemStack mouseItem = new ItemStack(player.getHeldMouseItem());
+			ItemStack chestItem = chest.takeItemStack(index);
+			chest.placeItemStack(mouseItem, index);
+			player.setHeldMouseItem(chestItem);
+
+			//Cause a block update for the chest
+			BlockUpdate blockUpdate = new BlockUpdate();
+			blockUpdate.x = x - xOffset;
+			blockUpdate.y = (short) (y - yOffset);
+			blockUpdate.block = new SuperCompressedBlock(chest);
+			update.addBlockUpdate(blockUpdate);
+			world.setBlock(chest, x - xOffset, y - yOffset);
 		}
 	}
-	
-	
+
 }
@@ -0,0 +1,70 @@
+package server;
+
+import java.util.concurrent.Future;
+
+/**
+ * EncodedChunk is a snapshot of one version of a chunk, ready to be sent to any number of clients. The snapshot is
+ * taken once, on the game loop thread, and is never changed afterwards. It is compressed the first time a socket
+ * connection asks for it, on the {@link HeavyLoadCompressor} threadpool, and every later request for the same version
+ * is given the same compressed bytes.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class EncodedChunk
+{
+	private final long version;
+	private final long contentHash;
+	private final Object payload;
+	private Future<byte[]> encoded;
+	
+	public EncodedChunk(long version, long contentHash, Object payload)
+	{
+		this.version = version;
+		this.contentHash = contentHash;
+		this.payload = payload;
+	}
+	
+	/**
+	 * Gets the version of the chunk this snapshot was taken from.
+	 * @return the chunk's content version at the time of the snapshot
+	 */
+	public long getVersion()
+	{
+		return version;
+	}
+	
+	/**
+	 * Gets the hash of the chunk's contents, which a client uses to find its own cached copy of the chunk.
+	 * @return the content hash, from {@link transmission.ChunkCompressor#hashChunk(transmission.SuperCompressedChunk)}
+	 */
+	public long getContentHash()
+	{
+		return contentHash;
+	}
+	
+	/**
+	 * Gets the uncompressed payload, for connections that do not need it compressed. The payload is shared, so it 
+	 * must not be modified.
+	 * @return the uncompressed payload
+	 */
+	public Object getPayload()
+	{
+		return payload;
+	}
+	
+	/**
+	 * Gets the compressed payload, scheduling the compression if this is the first request for it. The returned 
+	 * Future is shared between connections, so it must never be cancelled.
+	 * @return a Future holding the compressed payload
+	 */
+	public synchronized Future<byte[]> getEncoded()
+	{
+		if(encoded == null)
+		{
+			encoded = HeavyLoadCompressor.scheduleRequest(payload);
+		}
+		return encoded;
+	}
+}
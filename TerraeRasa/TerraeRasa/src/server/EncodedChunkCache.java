@@ -0,0 +1,68 @@
+package server;
+
+import java.util.Hashtable;
+
+import transmission.ChunkCompressor;
+import transmission.CompressedServerUpdate;
+import transmission.SuperCompressedChunk;
+import transmission.UpdateWithObject;
+import blocks.Chunk;
+
+/**
+ * EncodedChunkCache keeps the most recent {@link EncodedChunk} of every loaded chunk, so that several clients needing
+ * the same chunk share one snapshot and one compression. An entry is reused for as long as the chunk's content version
+ * (see {@link Chunk#getVersion()}) is unchanged; once the chunk is modified, the next request takes a new snapshot.
+ * <br><br>
+ * Because the same bytes go to every client, the chunk payload is addressed with the plain command "/chunk" rather
+ * than "/chunk &lt;playerID&gt;". Pushed chunks are written to one connection only, so nothing else relies on the ID.
+ * {@link #getEncodedChunk(Chunk)} must be called from the game loop thread, so that the snapshot is consistent.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class EncodedChunkCache 
+{
+	private static final Hashtable<Integer, EncodedChunk> cache = new Hashtable<Integer, EncodedChunk>();
+	
+	/**
+	 * Gets an encoded copy of the chunk's current version, taking a new snapshot if the cached one is out of date.
+	 * @param chunk the chunk to encode
+	 * @return an EncodedChunk holding the chunk's current contents
+	 */
+	public static EncodedChunk getEncodedChunk(Chunk chunk)
+	{
+		long version = chunk.getVersion();
+		EncodedChunk entry = cache.get(chunk.getX());
+		if(entry != null && entry.getVersion() == version)
+		{
+			return entry;
+		}
+		CompressedServerUpdate update = new CompressedServerUpdate();
+		UpdateWithObject objUpdate = new UpdateWithObject();
+		objUpdate.command = "/chunk";
+		SuperCompressedChunk compressed = ChunkCompressor.compressChunk(chunk);
+		objUpdate.object = compressed;
+		update.objectUpdates = new UpdateWithObject[] { objUpdate };
+		entry = new EncodedChunk(version, ChunkCompressor.hashChunk(compressed), new CompressedServerUpdate[] { update });
+		cache.put(chunk.getX(), entry);
+		return entry;
+	}
+	
+	/**
+	 * Removes the cached copy of a chunk, for when the chunk is unloaded.
+	 * @param x the x position of the chunk, in chunks
+	 */
+	public static void evict(int x)
+	{
+		cache.remove(x);
+	}
+	
+	/**
+	 * Removes every cached chunk, for when the world is closed.
+	 */
+	public static void clear()
+	{
+		cache.clear();
+	}
+}
@@ -0,0 +1,170 @@
+package server;
+
+import java.util.List;
+
+import server.entities.Entity;
+import server.entities.EntityItemStack;
+import server.entities.EntityLiving;
+import server.entities.EntityNPC;
+import server.entities.EntityNPCEnemy;
+import server.entities.EntityPlayer;
+import server.entities.EntityProjectile;
+import statuseffects.StatusEffect;
+import transmission.EntitySnapshot;
+import transmission.ServerUpdate;
+import utils.IntHashMap;
+import entities.DisplayableEntity;
+
+/**
+ * EntitySnapshotTracker remembers the last snapshot sent for every entity in a world, so that each tick only the
+ * fields that changed are sent. An entity seen for the first time gets a baseline snapshot holding every field of its
+ * schema. Entities that are not tracked during a tick are assumed to be gone and are forgotten, so an ID that is reused
+ * starts again from a baseline.
+ * <br><br>
+ * Each tick, call {@link #track(ServerUpdate, Entity)} for every entity and then {@link #endTick()}. All methods must
+ * be called from the game loop thread.
+ * <br><br>
+ * Entities are captured into a single reused snapshot, and the snapshot kept for each entity is updated in place, so a
+ * tick in which nothing changes creates no snapshots at all. Only the snapshots added to the update are new; they are
+ * handed to the connection threads, and are never modified afterwards.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class EntitySnapshotTracker
+{
+	private IntHashMap<EntitySnapshot> lastSent;
+	private IntHashMap<EntitySnapshot> trackedThisTick;
+	/** Holds each entity's current state while it is compared to what was last sent */
+	private final EntitySnapshot current;
+
+	public EntitySnapshotTracker()
+	{
+		lastSent = new IntHashMap<EntitySnapshot>();
+		trackedThisTick = new IntHashMap<EntitySnapshot>();
+		current = new EntitySnapshot();
+	}
+
+	/**
+	 * Adds a snapshot of whatever has changed about an entity since it was last sent, or a baseline if it has never
+	 * been sent.
+	 * @param update the update to add the snapshot to
+	 * @param entity the entity
+	 */
+	public void track(ServerUpdate update, Entity entity)
+	{
+		if(!capture(entity, current))
+		{
+			return;
+		}
+		EntitySnapshot previous = lastSent.get(entity.entityID);
+		if(previous == null || previous.type != current.type)
+		{
+			//The baseline is sent as it is, so keep a copy of it to compare the next tick against
+			EntitySnapshot baseline = current.copy();
+			update.addEntitySnapshot(baseline);
+			trackedThisTick.put(entity.entityID, baseline.copy());
+			return;
+		}
+		EntitySnapshot changes = current.getChangesSince(previous);
+		if(changes != null)
+		{
+			update.addEntitySnapshot(changes);
+			previous.applyChanges(changes);
+		}
+		trackedThisTick.put(entity.entityID, previous);
+	}
+
+	/**
+	 * Tracks every entity in a list.
+	 * @param update the update to add snapshots to
+	 * @param entities the entities
+	 */
+	public void trackAll(ServerUpdate update, List<? extends Entity> entities)
+	{
+		for(int i = 0; i < entities.size(); i++)
+		{
+			track(update, entities.get(i));
+		}
+	}
+
+	/**
+	 * Finishes a tick, forgetting any entity that was not tracked during it.
+	 */
+	public void endTick()
+	{
+		IntHashMap<EntitySnapshot> swap = lastSent;
+		lastSent = trackedThisTick;
+		trackedThisTick = swap;
+		trackedThisTick.clear();
+	}
+
+	/**
+	 * Captures every field of an entity's schema.
+	 * @param entity the entity
+	 * @return a complete snapshot of the entity, or null if its type has no snapshot fields
+	 */
+	public static EntitySnapshot capture(Entity entity)
+	{
+		EntitySnapshot snapshot = new EntitySnapshot();
+		return capture(entity, snapshot) ? snapshot : null;
+	}
+
+	/**
+	 * Captures every field of an entity's schema into an existing snapshot, replacing whatever it held. The snapshot's
+	 * status effect array is reused if it is already the right length, so it must not be shared with another snapshot.
+	 * @param entity the entity
+	 * @param snapshot the snapshot to capture into
+	 * @return true if the entity was captured, or false if its type has no snapshot fields
+	 */
+	private static boolean capture(Entity entity, EntitySnapshot snapshot)
+	{
+		if(entity instanceof EntityPlayer)
+		{
+			snapshot.reset(entity.entityID, DisplayableEntity.TYPE_PLAYER);
+			snapshot.facingRight = ((EntityPlayer) entity).isFacingRight;
+		}
+		else if(entity instanceof EntityNPC)
+		{
+			EntityNPC npc = (EntityNPC) entity;
+			int type = (entity instanceof EntityNPCEnemy) ? DisplayableEntity.TYPE_ENEMY : DisplayableEntity.TYPE_FRIENDLY;
+			snapshot.reset(entity.entityID, type);
+			snapshot.iconX = (short) npc.getIconX();
+			snapshot.iconY = (short) npc.getIconY();
+		}
+		else if(entity instanceof EntityProjectile)
+		{
+			EntityProjectile projectile = (EntityProjectile) entity;
+			snapshot.reset(entity.entityID, DisplayableEntity.TYPE_PROJECTILE);
+			snapshot.facingRight = Math.cos(Math.toRadians(projectile.getDirection())) >= 0;
+			snapshot.iconX = (short) projectile.iconX;
+			snapshot.iconY = (short) projectile.iconY;
+		}
+		else if(entity instanceof EntityItemStack)
+		{
+			snapshot.reset(entity.entityID, DisplayableEntity.TYPE_ITEMSTACK);
+			snapshot.iconX = (short) ((EntityItemStack) entity).getStack().getItemID();
+		}
+		else
+		{
+			return false;
+		}
+		if(snapshot.hasField(EntitySnapshot.FIELD_HEALTH) && entity instanceof EntityLiving)
+		{
+			EntityLiving living = (EntityLiving) entity;
+			snapshot.health = living.getHealth();
+			snapshot.maxHealth = living.maxHealth;
+			if(snapshot.statusEffects.length != living.statusEffects.size())
+			{
+				snapshot.statusEffects = new long[living.statusEffects.size()];
+			}
+			for(int i = 0; i < snapshot.statusEffects.length; i++)
+			{
+				StatusEffect effect = living.statusEffects.get(i);
+				snapshot.statusEffects[i] = effect.getID();
+			}
+		}
+		return true;
+	}
+}
@@ -5,7 +5,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 /**
- * Things that will take a long time to GZIP Compress can be defered to this class's threadpool
+ * Things that will take a long time to compress can be defered to this class's threadpool
  * to compress and retrieved later via callable.
  * @author alec
  *
@@ -17,7 +17,7 @@ public class HeavyLoadCompressor
 	
 	public static Future<byte[]> scheduleRequest(Object object)
 	{
-		CallableGZIPCompressor compressor = new CallableGZIPCompressor(object);
+		CallablePayloadCompressor compressor = new CallablePayloadCompressor(object);
 		Future<byte[]> event = threadPool.submit(compressor);
 		return event;
 	}	
@@ -0,0 +1,241 @@
+package server;
+
+import transmission.ClientCommand;
+import transmission.CompressedClientUpdate;
+import entry.MPGameLoop;
+
+/**
+ * InputBudget limits how much work one connection can hand the game loop. Each class of client command has a token
+ * bucket: a command spends one token, and tokens refill at a steady rate up to a burst size. A command sent when its
+ * bucket is empty is dropped before it reaches the game loop, so a buggy or abusive client sending thousands of
+ * commands can never stretch a tick for everyone else. Input frames have a bucket of their own.
+ * <br><br>
+ * The command rates are well above what a real client sends - it sends at most one command of each kind per tick - so
+ * only clients that are misbehaving are limited. Input frames are different: each one moves the player a step, so any
+ * margin would let a client move faster than it should. They refill at exactly one per server tick, with a burst of
+ * {@link #INPUT_FRAME_BURST_TICKS} ticks for frames that arrive bunched together. Commands that end something the
+ * player started ({@link #CLASS_UNLIMITED}) are never dropped. Dropped commands are counted per connection, and for the
+ * server as a whole by {@link #getTotalDropped(int)}.
+ * <br><br>
+ * An InputBudget belongs to one connection, and must only be used by that connection's reader thread.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class InputBudget
+{
+	public static final int CLASS_BLOCK = 0,
+			CLASS_COMBAT = 1,
+			CLASS_INVENTORY = 2,
+			CLASS_CHAT = 3,
+			CLASS_CHUNK = 4,
+			CLASS_INPUT_FRAME = 5,
+			CLASS_UNLIMITED = 6;
+	private static final int TOTAL_BUDGETED_CLASSES = 6;
+	private static final String[] CLASS_NAMES = { "block", "combat", "inventory", "chat", "chunk", "input frame" };
+	/** How many ticks of input frames may arrive at once */
+	public static final int INPUT_FRAME_BURST_TICKS = 5;
+	/** Tokens added per second, by command class */
+	private static final double[] RATES = { 40, 40, 60, 3, 20, MPGameLoop.TICKS_PER_SECOND };
+	/** The most tokens a bucket holds, by command class */
+	private static final double[] BURSTS = { 80, 80, 120, 10, 64, INPUT_FRAME_BURST_TICKS };
+	/** The command class of each opcode */
+	private static final int[] OPCODE_CLASSES = new int[ClientCommand.TOTAL_OPCODES];
+	/** How often a connection that keeps exceeding its budget is logged again, in milliseconds */
+	private static final long LOG_INTERVAL_MILLIS = 5000;
+	private static final Object totalsLock = new Object();
+	private static long[] totalDropped = new long[TOTAL_BUDGETED_CLASSES];
+	private static int totalOffenders = 0;
+	private final int associatedPlayerID;
+	private final double[] tokens;
+	private long lastRefill;
+	private final long[] dropped;
+	private long lastLogged;
+	private boolean offender;
+
+	static
+	{
+		OPCODE_CLASSES[ClientCommand.PLACE_FRONT_BLOCK] = CLASS_BLOCK;
+		OPCODE_CLASSES[ClientCommand.PLACE_BACK_BLOCK] = CLASS_BLOCK;
+		OPCODE_CLASSES[ClientCommand.MINE_FRONT] = CLASS_BLOCK;
+		OPCODE_CLASSES[ClientCommand.MINE_BACK] = CLASS_BLOCK;
+		OPCODE_CLASSES[ClientCommand.MINE_STOP] = CLASS_UNLIMITED;
+		OPCODE_CLASSES[ClientCommand.LAUNCH_PROJECTILE] = CLASS_COMBAT;
+		OPCODE_CLASSES[ClientCommand.START_SWING] = CLASS_COMBAT;
+		OPCODE_CLASSES[ClientCommand.CANCEL_SWING] = CLASS_UNLIMITED;
+		OPCODE_CLASSES[ClientCommand.USE_ITEM] = CLASS_COMBAT;
+		OPCODE_CLASSES[ClientCommand.SAY] = CLASS_CHAT;
+		OPCODE_CLASSES[ClientCommand.MOUSE_PICKUP] = CLASS_INVENTORY;
+		OPCODE_CLASSES[ClientCommand.MOUSE_PLACE] = CLASS_INVENTORY;
+		OPCODE_CLASSES[ClientCommand.MOUSE_THROW] = CLASS_INVENTORY;
+		OPCODE_CLASSES[ClientCommand.CRAFT] = CLASS_INVENTORY;
+		OPCODE_CLASSES[ClientCommand.MOUSE_REMOVE] = CLASS_INVENTORY;
+		OPCODE_CLASSES[ClientCommand.SHIFT_CLICK] = CLASS_INVENTORY;
+		OPCODE_CLASSES[ClientCommand.SOCKET_GEM] = CLASS_INVENTORY;
+		OPCODE_CLASSES[ClientCommand.SET_ACTIONBAR_SLOT] = CLASS_INVENTORY;
+		OPCODE_CLASSES[ClientCommand.CHEST_EVENT] = CLASS_INVENTORY;
+		OPCODE_CLASSES[ClientCommand.QUIT] = CLASS_UNLIMITED;
+		OPCODE_CLASSES[ClientCommand.CHUNK_MISS] = CLASS_CHUNK;
+	}
+
+	/**
+	 * Creates a budget with every bucket full.
+	 * @param associatedPlayerID the ID of the connection's player, for logging
+	 */
+	public InputBudget(int associatedPlayerID)
+	{
+		this.associatedPlayerID = associatedPlayerID;
+		tokens = new double[TOTAL_BUDGETED_CLASSES];
+		dropped = new long[TOTAL_BUDGETED_CLASSES];
+		for(int i = 0; i < tokens.length; i++)
+		{
+			tokens[i] = BURSTS[i];
+		}
+		lastRefill = System.nanoTime();
+	}
+
+	/**
+	 * Spends tokens for every command and input frame in a packet, dropping whichever cannot be paid for. A dropped
+	 * command is set to null, and a dropped input frame has its inputSequence set to 0, so the game loop skips them.
+	 * @param updates the updates read from the client, which are changed in place
+	 * @return the updates
+	 */
+	public CompressedClientUpdate[] apply(CompressedClientUpdate[] updates)
+	{
+		refill();
+		int droppedThisPacket = 0;
+		for(CompressedClientUpdate update : updates)
+		{
+			if(update.inputSequence != 0 && !spend(CLASS_INPUT_FRAME))
+			{
+				update.inputSequence = 0;
+				droppedThisPacket++;
+			}
+			for(int i = 0; i < update.commands.length; i++)
+			{
+				ClientCommand command = update.commands[i];
+				if(command == null || command.opcode < 0 || command.opcode >= OPCODE_CLASSES.length)
+				{
+					continue;
+				}
+				int commandClass = OPCODE_CLASSES[command.opcode];
+				if(commandClass != CLASS_UNLIMITED && !spend(commandClass))
+				{
+					update.commands[i] = null;
+					droppedThisPacket++;
+				}
+			}
+		}
+		if(droppedThisPacket > 0)
+		{
+			logOffence();
+		}
+		return updates;
+	}
+
+	private void refill()
+	{
+		long now = System.nanoTime();
+		double elapsedSeconds = (now - lastRefill) / 1000000000.0;
+		lastRefill = now;
+		for(int i = 0; i < tokens.length; i++)
+		{
+			tokens[i] = Math.min(BURSTS[i], tokens[i] + elapsedSeconds * RATES[i]);
+		}
+	}
+
+	private boolean spend(int commandClass)
+	{
+		if(tokens[commandClass] >= 1)
+		{
+			tokens[commandClass]--;
+			return true;
+		}
+		dropped[commandClass]++;
+		synchronized(totalsLock)
+		{
+			totalDropped[commandClass]++;
+		}
+		return false;
+	}
+
+	private void logOffence()
+	{
+		if(!offender)
+		{
+			offender = true;
+			synchronized(totalsLock)
+			{
+				totalOffenders++;
+			}
+		}
+		long now = System.currentTimeMillis();
+		if(now - lastLogged < LOG_INTERVAL_MILLIS)
+		{
+			return;
+		}
+		lastLogged = now;
+		StringBuilder builder = new StringBuilder("Player " + associatedPlayerID + " is exceeding its input budget; dropped so far:");
+		for(int i = 0; i < dropped.length; i++)
+		{
+			if(dropped[i] > 0)
+			{
+				builder.append(" ").append(CLASS_NAMES[i]).append("=").append(dropped[i]);
+			}
+		}
+		Log.log(builder.toString());
+	}
+
+	/**
+	 * Gets how many commands of a class this connection has had dropped.
+	 * @param commandClass one of the CLASS_ constants, other than CLASS_UNLIMITED
+	 * @return the number of commands dropped
+	 */
+	public long getDropped(int commandClass)
+	{
+		return dropped[commandClass];
+	}
+
+	/**
+	 * Gets how many commands of a class have been dropped, across every connection since the server started.
+	 * @param commandClass one of the CLASS_ constants, other than CLASS_UNLIMITED
+	 * @return the number of commands dropped
+	 */
+	public static long getTotalDropped(int commandClass)
+	{
+		synchronized(totalsLock)
+		{
+			return totalDropped[commandClass];
+		}
+	}
+
+	/**
+	 * Gets how many connections have exceeded their budget at least once since the server started.
+	 * @return the number of offending connections
+	 */
+	public static int getTotalOffenders()
+	{
+		synchronized(totalsLock)
+		{
+			return totalOffenders;
+		}
+	}
+
+	/**
+	 * Gets a summary of every command dropped since the server started, for the console.
+	 * @return the summary
+	 */
+	public static String getSummary()
+	{
+		synchronized(totalsLock)
+		{
+			StringBuilder builder = new StringBuilder("Input budget: " + totalOffenders + " offending connections; dropped");
+			for(int i = 0; i < totalDropped.length; i++)
+			{
+				builder.append(" ").append(CLASS_NAMES[i]).append("=").append(totalDropped[i]);
+			}
+			return builder.toString();
+		}
+	}
+}
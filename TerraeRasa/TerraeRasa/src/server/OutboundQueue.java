@@ -0,0 +1,381 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+import transmission.BlockUpdate;
+import transmission.EntitySnapshot;
+import transmission.EntityUpdate;
+import transmission.InventorySlotUpdate;
+import transmission.MovementState;
+import transmission.PositionUpdate;
+import transmission.ServerUpdate;
+import transmission.StatUpdate;
+import transmission.UpdateWithObject;
+import utils.SpscRing;
+
+/**
+ * OutboundQueue holds the ServerUpdates waiting to be written to one client. The game loop adds an update each tick and
+ * the connection's writer takes everything waiting at once; the two hand updates over through an {@link SpscRing}, so
+ * neither ever waits on a lock held by the other. Once more than {@link #COALESCE_THRESHOLD} ticks are waiting the
+ * client has fallen behind, and everything taken is merged into a single update. Superseded state is dropped while
+ * merging (only the latest position and stat update per entity, the latest contents of each inventory slot, the latest
+ * movement state per player, and only the latest <code>sethms</code> line per player are kept). The entity
+ * snapshots of each entity are merged into one. Reliable events such as block changes, entity updates,
+ * object updates and other commands are always kept, in order.
+ * <br><br>
+ * Merging is done by the writer as it takes the updates, off the game loop. If the writer is stuck, such as on a client
+ * that has stopped reading, the ring fills up; the game loop then merges the updates that did not fit itself, so a
+ * stuck client never holds more than the ring and one merged update.
+ * <br><br>
+ * Reliable events can still pile up for a client that stops reading entirely, so the queue also enforces a lag budget.
+ * If too many reliable events are waiting, or the oldest queued tick is older than {@link #LAG_BUDGET_MILLIS},
+ * {@link #add(ServerUpdate)} reports that the budget is exceeded and the connection should be dropped.
+ * <br><br>
+ * ServerUpdates are shared between every connection, so merging always builds a new ServerUpdate and never modifies
+ * the ones given to the queue. Only the game loop may call {@link #add(ServerUpdate)}, and only the writer may call
+ * {@link #yield()} and {@link #await(long)}; {@link #wake()} may be called from any thread.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class OutboundQueue
+{
+	/** More ticks than this waiting to be written means the client is behind, and the queue is coalesced */
+	public static final int COALESCE_THRESHOLD = 4;
+	/** The most reliable events (blocks, entities, objects, commands) that may wait for one client */
+	public static final int MAX_RELIABLE_EVENTS = 20000;
+	/** The longest a tick may wait to be written before the client is considered lost */
+	public static final long LAG_BUDGET_MILLIS = 15000;
+	/** The most ticks handed to the writer without being merged, a little over 3 seconds of play */
+	private static final int RING_CAPACITY = 64;
+	private final SpscRing<ServerUpdate> ring;
+	//Only used by the game loop
+	/** When each update in the ring was queued, by the number of updates added before it */
+	private final long[] queuedTimes;
+	private long added;
+	private long reliableAdded;
+	/** The updates that did not fit in the ring, merged once there are more than a few */
+	private List<ServerUpdate> spilled;
+	private int spilledReliable;
+	private long spilledTime;
+	//Only written by the writer
+	private final List<ServerUpdate> taken;
+	private volatile long yielded;
+	private volatile long reliableYielded;
+	private volatile Thread waiter;
+
+	public OutboundQueue()
+	{
+		ring = new SpscRing<ServerUpdate>(RING_CAPACITY);
+		queuedTimes = new long[ring.getCapacity()];
+		spilled = new ArrayList<ServerUpdate>(COALESCE_THRESHOLD + 1);
+		taken = new ArrayList<ServerUpdate>(ring.getCapacity());
+	}
+
+	/**
+	 * Queues an update to be written to the client, waking the writer. Must only be called by the game loop.
+	 * @param update the update to queue, which may be shared with other connections
+	 * @return true if the queue is within its lag budget, false if the client should be disconnected
+	 */
+	public boolean add(ServerUpdate update)
+	{
+		long now = System.currentTimeMillis();
+		if(!spilled.isEmpty() && ring.remainingCapacity() > 0)
+		{
+			//Updates that did not fit last time go first, to keep everything in order
+			ServerUpdate merged = (spilled.size() == 1) ? spilled.get(0) : coalesce(spilled);
+			if(offer(merged, spilledReliable, spilledTime))
+			{
+				spilled.clear();
+				spilledReliable = 0;
+			}
+		}
+		int reliable = countReliableEvents(update);
+		if(!spilled.isEmpty() || !offer(update, reliable, now))
+		{
+			spill(update, reliable, now);
+		}
+		wake();
+
+		long pendingReliable = reliableAdded - reliableYielded + spilledReliable;
+		long written = yielded;
+		long oldest = now;
+		if(written < added)
+		{
+			oldest = queuedTimes[(int)(written % queuedTimes.length)];
+		}
+		else if(!spilled.isEmpty())
+		{
+			oldest = spilledTime;
+		}
+		return pendingReliable <= MAX_RELIABLE_EVENTS && now - oldest <= LAG_BUDGET_MILLIS;
+	}
+
+	/**
+	 * Hands an update to the writer, if the ring has room for it.
+	 */
+	private boolean offer(ServerUpdate update, int reliable, long time)
+	{
+		if(ring.remainingCapacity() == 0)
+		{
+			return false;
+		}
+		queuedTimes[(int)(added % queuedTimes.length)] = time;
+		ring.offer(update);
+		added++;
+		reliableAdded += reliable;
+		return true;
+	}
+
+	/**
+	 * Keeps an update that did not fit in the ring until the next tick, merging it with any others kept.
+	 */
+	private void spill(ServerUpdate update, int reliable, long time)
+	{
+		if(spilled.isEmpty())
+		{
+			spilledTime = time;
+		}
+		spilled.add(update);
+		spilledReliable += reliable;
+		if(spilled.size() > COALESCE_THRESHOLD)
+		{
+			ServerUpdate merged = coalesce(spilled);
+			spilled.clear();
+			spilled.add(merged);
+			spilledReliable = countReliableEvents(merged);
+		}
+	}
+
+	/**
+	 * Removes and returns everything queued, merged into one update if the client has fallen behind. Must only be
+	 * called by the writer.
+	 * @return every queued update, in order
+	 */
+	public ServerUpdate[] yield()
+	{
+		int total = ring.drainTo(taken);
+		if(total == 0)
+		{
+			return new ServerUpdate[0];
+		}
+		int reliable = 0;
+		for(int i = 0; i < total; i++)
+		{
+			reliable += countReliableEvents(taken.get(i));
+		}
+		ServerUpdate[] values;
+		if(total > COALESCE_THRESHOLD)
+		{
+			values = new ServerUpdate[] { coalesce(taken) };
+		}
+		else
+		{
+			values = new ServerUpdate[total];
+			taken.toArray(values);
+		}
+		taken.clear();
+		reliableYielded += reliable;
+		yielded += total;
+		return values;
+	}
+
+	/**
+	 * Parks the writer until an update is queued, {@link #wake()} is called, or the timeout passes. Returns immediately
+	 * if updates are already waiting. Must only be called by the writer.
+	 * @param timeoutMillis the longest time to wait, in milliseconds
+	 */
+	public void await(long timeoutMillis)
+	{
+		waiter = Thread.currentThread();
+		//Checked after waiter is set, so an update added in between always unparks this thread
+		if(ring.isEmpty())
+		{
+			LockSupport.parkNanos(this, timeoutMillis * 1000000L);
+		}
+		waiter = null;
+	}
+
+	/**
+	 * Wakes the writer if it is parked in {@link #await(long)}.
+	 */
+	public void wake()
+	{
+		Thread thread = waiter;
+		if(thread != null)
+		{
+			LockSupport.unpark(thread);
+		}
+	}
+
+	private static int countReliableEvents(ServerUpdate update)
+	{
+		return update.getCommandLength() + update.getUpdateObjectLength() + update.getEntityUpdateLength() + update.getBlockUpdateLength();
+	}
+
+	/**
+	 * Merges several ticks worth of updates into one, dropping state that a later tick supersedes.
+	 * @param queued the updates to merge, oldest first
+	 * @return a new ServerUpdate equivalent to applying every queued update in order
+	 */
+	private static ServerUpdate coalesce(List<ServerUpdate> queued)
+	{
+		ServerUpdate merged = new ServerUpdate();
+		Hashtable<Integer, PositionUpdate> positions = new Hashtable<Integer, PositionUpdate>();
+		List<Integer> positionOrder = new ArrayList<Integer>();
+		Hashtable<Integer, StatUpdate> stats = new Hashtable<Integer, StatUpdate>();
+		List<Integer> statOrder = new ArrayList<Integer>();
+		Hashtable<String, Integer> lastHMSIndex = new Hashtable<String, Integer>();
+		List<String> commands = new ArrayList<String>();
+		Hashtable<String, InventorySlotUpdate> slots = new Hashtable<String, InventorySlotUpdate>();
+		List<String> slotOrder = new ArrayList<String>();
+		Hashtable<Integer, EntitySnapshot> snapshots = new Hashtable<Integer, EntitySnapshot>();
+		List<Integer> snapshotOrder = new ArrayList<Integer>();
+		Hashtable<Integer, MovementState> movementStates = new Hashtable<Integer, MovementState>();
+		List<Integer> movementOrder = new ArrayList<Integer>();
+
+		for(ServerUpdate update : queued)
+		{
+			for(String command : update.getValues())
+			{
+				String hmsKey = getSetHMSKey(command);
+				if(hmsKey != null)
+				{
+					//Only the newest health/mana/special line for each player matters
+					Integer previous = lastHMSIndex.get(hmsKey);
+					if(previous != null)
+					{
+						commands.set(previous, null);
+					}
+					lastHMSIndex.put(hmsKey, commands.size());
+				}
+				commands.add(command);
+			}
+			for(UpdateWithObject objectUpdate : update.getObjectUpdates())
+			{
+				merged.addObjectUpdate(objectUpdate);
+			}
+			for(BlockUpdate blockUpdate : update.getBlockUpdates())
+			{
+				merged.addBlockUpdate(blockUpdate);
+			}
+			for(EntityUpdate entityUpdate : update.getEntityUpdates())
+			{
+				merged.addEntityUpdate(entityUpdate);
+				if(entityUpdate.action == 'r')
+				{
+					//A removed entity has no position or state worth sending
+					positions.remove(entityUpdate.entityID);
+					snapshots.remove(entityUpdate.entityID);
+				}
+			}
+			for(PositionUpdate position : update.getPositionUpdates())
+			{
+				if(!positions.containsKey(position.entityID))
+				{
+					positionOrder.add(position.entityID);
+				}
+				positions.put(position.entityID, position);
+			}
+			for(StatUpdate stat : update.getStatUpdates())
+			{
+				if(!stats.containsKey(stat.entityID))
+				{
+					statOrder.add(stat.entityID);
+				}
+				stats.put(stat.entityID, stat);
+			}
+			for(InventorySlotUpdate slot : update.getInventoryUpdates())
+			{
+				String key = slot.entityID + " " + slot.inventoryID + " " + slot.index;
+				if(!slots.containsKey(key))
+				{
+					slotOrder.add(key);
+				}
+				slots.put(key, slot);
+			}
+			for(EntitySnapshot snapshot : update.getEntitySnapshots())
+			{
+				EntitySnapshot previous = snapshots.get(snapshot.entityID);
+				if(previous == null)
+				{
+					snapshotOrder.add(snapshot.entityID);
+					snapshots.put(snapshot.entityID, snapshot);
+				}
+				else
+				{
+					snapshots.put(snapshot.entityID, previous.merge(snapshot));
+				}
+			}
+			for(MovementState state : update.getMovementStates())
+			{
+				if(!movementStates.containsKey(state.entityID))
+				{
+					movementOrder.add(state.entityID);
+				}
+				movementStates.put(state.entityID, state);
+			}
+		}
+
+		for(String command : commands)
+		{
+			if(command != null)
+			{
+				merged.addValue(command);
+			}
+		}
+		for(Integer id : positionOrder)
+		{
+			PositionUpdate position = positions.get(id);
+			if(position != null)
+			{
+				merged.addPositionUpdate(position);
+			}
+		}
+		for(Integer id : statOrder)
+		{
+			merged.addStatUpdate(stats.get(id));
+		}
+		for(String key : slotOrder)
+		{
+			merged.addInventoryUpdate(slots.get(key));
+		}
+		for(Integer id : snapshotOrder)
+		{
+			EntitySnapshot snapshot = snapshots.get(id);
+			if(snapshot != null)
+			{
+				merged.addEntitySnapshot(snapshot);
+			}
+		}
+		for(Integer id : movementOrder)
+		{
+			merged.addMovementState(movementStates.get(id));
+		}
+		return merged;
+	}
+
+	/**
+	 * Gets the player ID of a <code>/player &lt;id&gt; sethms ...</code> command, which is superseded by any later
+	 * sethms for the same player.
+	 * @param command the command to check
+	 * @return the player ID as a String, or null if this is not a sethms command
+	 */
+	private static String getSetHMSKey(String command)
+	{
+		if(!command.startsWith("/player "))
+		{
+			return null;
+		}
+		int idEnd = command.indexOf(' ', 8);
+		if(idEnd == -1 || !command.startsWith(" sethms ", idEnd))
+		{
+			return null;
+		}
+		return command.substring(8, idEnd);
+	}
+}
@@ -0,0 +1,117 @@
+package server;
+
+import savable.SavablePlayer;
+import server.entities.EntityPlayer;
+import server.utils.SaveHelper;
+import entry.MPGameEngine;
+import entry.MPGameLoop;
+import enums.EnumPlayerDifficulty;
+
+/**
+ * PendingJoin is a player that has finished logging in but has not been added to the world yet. The player's save is
+ * parsed by a login worker when the PendingJoin is created, but the player is only created and added to the world on
+ * the game loop thread, by {@link #apply(MPGameLoop)}, so a joining player never touches the world while it is being
+ * ticked. The connection waits for that with {@link #await(long)}.
+ * <br><br>
+ * A join that is not applied in time is cancelled, and will be skipped by the game loop if it is reached later.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class PendingJoin
+{
+	private final int playerID;
+	private final String associatedIP;
+	/** The parsed save of a returning player, or null for a new player */
+	private SavablePlayer savable;
+	private String newPlayerName;
+	private EnumPlayerDifficulty newPlayerDifficulty;
+	private EntityPlayer player;
+	private boolean cancelled;
+
+	/**
+	 * Parses the player a client sent when logging in. A new player is sent as just the String
+	 * "type=newplayer;name=NAME;difficulty=DIFFICULTY;"; anything else is the XML of a saved player.
+	 * @param savableXML the player the client sent
+	 * @param associatedIP the IP address of the client
+	 */
+	public PendingJoin(String savableXML, String associatedIP)
+	{
+		this.playerID = ServerSettings.getEntityID();
+		this.associatedIP = associatedIP;
+		if(savableXML.startsWith("type="))
+		{
+			String[] split = savableXML.split(";");
+			newPlayerName = split[1].split("=")[1];
+			newPlayerDifficulty = EnumPlayerDifficulty.getDifficulty(split[2].split("=")[1]);
+		}
+		else
+		{
+			savable = (SavablePlayer)new SaveHelper().xmlToObject(savableXML);
+		}
+	}
+
+	/**
+	 * Creates the player and adds it to the world, unless the join has been cancelled. Must be called from the game
+	 * loop thread.
+	 * @param engine the game loop the player joins
+	 */
+	public synchronized void apply(MPGameLoop engine)
+	{
+		if(cancelled)
+		{
+			return;
+		}
+		EntityPlayer player = (savable != null) ? new EntityPlayer(engine.getWorld(), savable, associatedIP) :
+			new EntityPlayer(newPlayerName, newPlayerDifficulty, associatedIP);
+		player.setEntityID(playerID);
+		player.verifyName();
+		engine.getWorld().addPlayerToWorld(MPGameEngine.terraeRasa.getSettings(), player);
+		engine.registerPlayer(player);
+		this.player = player;
+		notifyAll();
+	}
+
+	/**
+	 * Gives up on the join, waking the connection waiting for it. Used when the join could not be applied.
+	 */
+	public synchronized void cancel()
+	{
+		cancelled = true;
+		notifyAll();
+	}
+
+	/**
+	 * Waits for the game loop to add the player to the world. If that does not happen in time, the join is cancelled.
+	 * @param timeoutMillis the longest time to wait, in milliseconds
+	 * @return the player that joined, or null if the join was cancelled or timed out
+	 * @throws InterruptedException indicates the wait was interrupted
+	 */
+	public synchronized EntityPlayer await(long timeoutMillis)
+			throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		while(player == null && !cancelled)
+		{
+			long remaining = deadline - System.currentTimeMillis();
+			if(remaining <= 0)
+			{
+				cancelled = true;
+				break;
+			}
+			wait(remaining);
+		}
+		return player;
+	}
+
+	public int getPlayerID()
+	{
+		return playerID;
+	}
+
+	public String getAssociatedIP()
+	{
+		return associatedIP;
+	}
+}
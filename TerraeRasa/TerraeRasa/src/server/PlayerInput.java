@@ -2,57 +2,32 @@ package server;
 
 import server.entities.EntityPlayer;
 import world.World;
-import enums.EnumHardwareInput;
 
 public class PlayerInput {
 	private EntityPlayer associatedPlayer;
-	private EnumHardwareInput[] inputs;
-	private double newX;
-	private double newY;
+	private int sequence;
+	private int inputFlags;
 	
-	public PlayerInput(EntityPlayer player, EnumHardwareInput[] inputs)
+	/**
+	 * Creates one input frame received from a client.
+	 * @param player the player the input frame moves
+	 * @param sequence the frame's sequence number
+	 * @param inputFlags the EnumHardwareInput flags held during the frame
+	 */
+	public PlayerInput(EntityPlayer player, int sequence, int inputFlags)
 	{
 		this.associatedPlayer = player;
-		this.inputs = inputs;
+		this.sequence = sequence;
+		this.inputFlags = inputFlags;
 	}
 	
 	public void handle(World world)
 	{
-		for(EnumHardwareInput input : this.inputs)
-		{
-			if(input == EnumHardwareInput.MOVE_LEFT)
-			{
-				associatedPlayer.moveEntityLeft(world);
-				associatedPlayer.isFacingRight = false;
-				
-			}
-			else if(input == EnumHardwareInput.MOVE_RIGHT)
-			{
-				associatedPlayer.moveEntityRight(world);
-				associatedPlayer.isFacingRight = true;
-				
-			}
-			else if(input == EnumHardwareInput.JUMP)
-			{
-				associatedPlayer.tryToJumpAgain(world);
-			}			
-		}
-		newX = associatedPlayer.x;
-		newY = associatedPlayer.y;
+		associatedPlayer.queueInputFrame(sequence, inputFlags);
 	}
 	
 	public int getAssociatedID()
 	{
 		return associatedPlayer.entityID;
 	}
-	
-	public double newX()
-	{
-		return newX;
-	}
-	
-	public double newY()
-	{
-		return newY;
-	}
 }
@@ -0,0 +1,74 @@
+package server;
+
+import java.io.IOException;
+
+import transmission.CompressedClientUpdate;
+import transmission.ConnectionFilter;
+import transmission.GameTransport;
+import transmission.PacketSequencer;
+
+/**
+ * Reads client packets for a {@link ServerConnectionThread}. Reading happens independently of writing, so the server
+ * streams ticks at its own rate while the client sends input whenever it has some. Each packet is
+ * <code>sequence, acknowledgement, compressed CompressedClientUpdate[]</code>. Each packet is charged against the
+ * connection's {@link InputBudget} before it is handed to the game loop.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class ServerConnectionReaderThread extends Thread
+{
+	private ServerConnectionThread connection;
+	private WorldLock worldLock;
+	private GameTransport transport;
+	private PacketSequencer sequencer;
+	private ConnectionFilter filter;
+	private InputBudget budget;
+	private int associatedPlayerID;
+
+	public ServerConnectionReaderThread(ServerConnectionThread connection, WorldLock lock, GameTransport transport, PacketSequencer sequencer, int associatedPlayerID)
+	{
+		setName("Server_Connection_Reader_" + associatedPlayerID);
+		setDaemon(true);
+		this.connection = connection;
+		this.worldLock = lock;
+		this.transport = transport;
+		this.sequencer = sequencer;
+		this.associatedPlayerID = associatedPlayerID;
+		filter = new ConnectionFilter();
+		budget = new InputBudget(associatedPlayerID);
+	}
+
+	public void run()
+	{
+		try {
+			while(connection.getOpen())
+			{
+				int sequence = transport.readInt();
+				int acknowledged = transport.readInt();
+				CompressedClientUpdate[] clientUpdate = (CompressedClientUpdate[])(transport.read());
+				sequencer.received(sequence, acknowledged);
+				if(clientUpdate.length > 0)
+				{
+					//Commands over budget are dropped here, so they never reach the game loop
+					worldLock.registerPlayerUpdate(budget.apply(filter.filterIn(clientUpdate, associatedPlayerID)));
+				}
+			}
+		} catch (IOException e) {
+			if(connection.getOpen())
+			{
+				System.err.println("Fatal error to connection reader for player " + associatedPlayerID + " caused by: ");
+				e.printStackTrace();
+			}
+		} catch (ClassNotFoundException e) {
+			System.err.println("Fatal error to connection reader for player " + associatedPlayerID + " caused by: ");
+			e.printStackTrace();
+		} catch (Exception e) {
+			System.err.println("Fatal error to connection reader for player " + associatedPlayerID + " caused by: ");
+			e.printStackTrace();
+		} finally {
+			connection.readerFinished();
+		}
+	}
+}
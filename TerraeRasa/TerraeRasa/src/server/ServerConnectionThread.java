@@ -3,73 +3,114 @@ package server;
 
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.Socket;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Vector;
 import java.util.concurrent.Future;
 
-import blocks.Chunk;
-
-import savable.SavablePlayer;
 import server.entities.EntityPlayer;
-import server.utils.SaveHelper;
-import transmission.ChunkCompressor;
+import server.world.WorldServerEarth;
+import transmission.ChannelFrame;
 import transmission.CompressedClientUpdate;
 import transmission.CompressedServerUpdate;
 import transmission.ConnectionFilter;
-import transmission.GZIPHelper;
+import transmission.GameTransport;
+import transmission.PacketSequencer;
 import transmission.ServerUpdate;
-import transmission.SuperCompressedChunk;
 import transmission.UpdateWithObject;
 import transmission.WorldData;
 import entry.MPGameEngine;
-import enums.EnumPlayerDifficulty;
 
 public class ServerConnectionThread extends Thread
 {
-	private Socket socket;
+	private GameTransport transport;
 	private WorldLock worldLock;
 	private volatile boolean open;
-	private ObjectOutputStream os;
-	private ObjectInputStream is;
-	private GZIPHelper gzipHelper;
 	private final int connectionID;
 	private int associatedPlayerID;
 	private volatile boolean sendPlayerAndClose;
 	private ConnectionFilter filter;
-	private List<Future<byte[]>> deferredCompressions = new ArrayList<Future<byte[]>>();
+	/** Payloads compressed off the game loop, in the order they must be written */
+	private List<DeferredPayload> deferredPayloads = new Vector<DeferredPayload>();
+	private ChunkStreamer chunkStreamer;
 	private long sentData;
+	/** How long the writer sleeps without a new tick before checking on deferred compressions again */
+	private static final long DEFERRED_POLL_MILLIS = 50;
+	private PacketSequencer sequencer;
+	private ServerConnectionReaderThread reader;
+	private volatile boolean connectionLost;
+	private volatile long lastFlushTime;
+	private volatile boolean lagging;
+	/** The fragments of the bulk payload being written, or null if none is part way through. Used only by the writer */
+	private Object[] bulkFragments;
+	private int bulkIndex;
+	/** The x position of the chunk being written on the bulk channel, or -1 */
+	private volatile int bulkChunkX = -1;
+	/** The player that logged in on this connection, waiting to join the world */
+	private PendingJoin join;
+	/** The longest a connection waits in the join queue before giving up, in milliseconds */
+	private static final long JOIN_TIMEOUT_MILLIS = 30000;
 	
-	public ServerConnectionThread(WorldLock lock, Socket socket, ObjectOutputStream os, ObjectInputStream is)
+	/**
+	 * Creates the connection for a client that has logged in. The connection does nothing until it is started.
+	 * @param lock the connection's link to the game loop
+	 * @param transport the connection to the client, with the handshake timeout still set
+	 * @param join the player that logged in
+	 */
+	public ServerConnectionThread(WorldLock lock, GameTransport transport, PendingJoin join)
 	{
+		this.associatedPlayerID = join.getPlayerID();
 		setName("Server_Connection_Thread_" + associatedPlayerID);
-		this.socket = socket;
+		this.join = join;
+		this.transport = transport;
 		this.worldLock = lock;
 		setDaemon(true);
 		open = false;
 		sendPlayerAndClose = false;
-		this.is = is;
-		this.os = os;
-		gzipHelper = new GZIPHelper();
 		connectionID = ServerSettings.getConnectionID();
 		filter = new ConnectionFilter();
 		sentData = 0;
+		sequencer = new PacketSequencer();
+		connectionLost = false;
+		lastFlushTime = System.currentTimeMillis();
+		lagging = false;
+		chunkStreamer = new ChunkStreamer();
 	}
 	
 	public void registerWorldUpdate(ServerUpdate update)
 	{
-		if(open)
+		if(open && lagging)
 		{
-			if(update.deferCompression)
-			{
-				deferCompression(new CompressedServerUpdate[]{ filter.filterOutgoing(update, worldLock.getRelevantPlayer()) });
-			}
-			else
-			{
-				worldLock.addUpdate(update);
+			//Already closing; keep checking whether the writer is stuck on a client that stopped reading
+			disconnectLaggingClient();
+		}
+		else if(open && !worldLock.addUpdate(update))
+		{
+			disconnectLaggingClient();
+		}
+	}
+	
+	/**
+	 * Drops a client that has fallen too far behind the server. The player is sent back to the client ahead of any
+	 * queued updates if possible, but if the writer has been stuck on the connection for longer than the lag budget the
+	 * connection is closed outright.
+	 */
+	private void disconnectLaggingClient()
+	{
+		if(!lagging)
+		{
+			lagging = true;
+			Log.log("Disconnecting player " + associatedPlayerID + " for exceeding the lag budget.");
+			close();
+		}
+		if(!connectionLost && System.currentTimeMillis() - lastFlushTime > OutboundQueue.LAG_BUDGET_MILLIS)
+		{
+			connectionLost = true;
+			try {
+				transport.close();
+			} catch (IOException e) {
+				e.printStackTrace();
 			}
 		}
 	}
@@ -77,14 +118,20 @@ public class ServerConnectionThread extends Thread
 
 	public void run()
 	{	
+		boolean opened = false;
 		try {
-			handleInitialData();
-			while(open)
+			if(!handleInitialData())
+			{
+				//The join failed or timed out; the transport is closed below so the client is not left waiting
+				return;
+			}
+			opened = true;
+			//Reading client input happens on its own thread so ticks are streamed without waiting on the client
+			reader = new ServerConnectionReaderThread(this, worldLock, transport, sequencer, associatedPlayerID);
+			reader.start();
+			
+			while(open && !connectionLost)
 			{
-				CompressedClientUpdate[] clientUpdate = (CompressedClientUpdate[])(gzipHelper.expand((byte[])is.readObject()));
-				worldLock.registerPlayerUpdate(new ConnectionFilter().filterIn(clientUpdate, associatedPlayerID));
-				//TODO: Maybe? this may or may not be reckless.
-				
 				if(sendPlayerAndClose)
 				{
 					CompressedServerUpdate closingUpdate = new CompressedServerUpdate();
@@ -94,145 +141,349 @@ public class ServerConnectionThread extends Thread
 					closingUpdate.objectUpdates = new UpdateWithObject[1];
 					closingUpdate.objectUpdates[0] = playerUpdate;
 					CompressedServerUpdate[] updates = { closingUpdate };
-					os.writeByte(1);
-					byte[] result = gzipHelper.compress(updates);
-					sentData += result.length;
-					os.writeObject(result);
-		        	os.flush();
+					writePacketHeader(1);
+					writeFrame(ChannelFrame.RELIABLE, transport.encodeUnshared(updates), true);
+		        	transport.flush();
+		        	lastFlushTime = System.currentTimeMillis();
 		        	open = false;
 				}
 				else
 				{
-					Vector<Future<byte[]>> doneOperations = finishedCompressionOperations();
-					int totalUpdates = 1 + doneOperations.size();
-
-					os.writeByte(totalUpdates);
+					//Block until the game loop produces a tick, a deferred compression has had time to finish, or the connection closes
+					worldLock.awaitServerUpdates(DEFERRED_POLL_MILLIS);
+					if(sendPlayerAndClose || connectionLost)
+					{
+						continue;
+					}
 					
-					//"i = 0" version of this might be another way to state it -- it's for the 100% chance of server updates.
+					List<Frame> frames = new ArrayList<Frame>();
 					ServerUpdate[] updates = worldLock.yieldServerUpdates();
-					CompressedServerUpdate[] compressedUpdates = new CompressedServerUpdate[updates.length];
-					for(int i = 0; i < updates.length; i++)
+					if(updates.length > 0)
 					{
-						compressedUpdates[i] = filter.filterOutgoing(updates[i], worldLock.getRelevantPlayer());
-					}			
-					byte[] result = gzipHelper.compress(compressedUpdates);
-					sentData += result.length + 1;
-		        	os.writeObject(result);
-		        	os.flush();
+						//Per-tick state goes on its own channel, one entry per tick, written ahead of the events it belongs
+						//to. The client applies each tick's events and then its state, so ticks are never reordered
+						CompressedServerUpdate[] events = new CompressedServerUpdate[updates.length];
+						CompressedServerUpdate[] state = new CompressedServerUpdate[updates.length];
+						boolean hasState = false;
+						for(int i = 0; i < updates.length; i++)
+						{
+							events[i] = filter.filterOutgoing(updates[i], worldLock.getRelevantPlayer());
+							state[i] = events[i].removeRealtimeState();
+							hasState = hasState || !state[i].isEmpty();
+						}
+						if(hasState)
+						{
+							frames.add(new Frame(ChannelFrame.REALTIME, transport.encode(state), true));
+						}
+						frames.add(new Frame(ChannelFrame.RELIABLE, transport.encode(events), true));
+					}
+					addBulkFrames(frames);
+					if(frames.isEmpty())
+					{
+						continue;
+					}
 					
-					for(int i = 1; i < totalUpdates; i++)
+					writePacketHeader(frames.size());
+					for(Frame frame : frames)
 					{
-						byte[] compressed = doneOperations.get(i - 1).get();
-						sentData += compressed.length;
-						os.writeObject(compressed);
-			        	os.flush();
+						writeFrame(frame.channel, frame.fragment, frame.lastFragment);
 					}
+		        	transport.flush();
+		        	lastFlushTime = System.currentTimeMillis();
 				}
 			}			
 		} catch (IOException e) {
 			System.err.println("Fatal error to connection thread with ID " + connectionID + " caused by: ");
 			e.printStackTrace();
-		} catch (ClassNotFoundException e) {
-			System.err.println("Fatal error to connection thread with ID " + connectionID + " caused by: ");
-			e.printStackTrace();
 		} catch (Exception e) { //This is likely an IOException, but in the event it isnt, account for everything
 			System.err.println("Fatal error to connection thread with ID " + connectionID + " caused by: ");
 			e.printStackTrace();
 		} finally {
+			boolean closedCleanly = opened && !open && !connectionLost;
+			open = false;
+			if(!closedCleanly)
+			{
+				//Unblock the reader thread; a clean close waits for the client to hang up instead
+				try {
+					transport.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
 			MPGameEngine.requestClientConnectionClosed(this, worldLock.getRelevantPlayer());
 			System.out.println("This thread " + connectionID + " sent a total of " + sentData + " bytes of data.");
 		}
 	}
 	
-	private void deferCompression(Object object)
+	/**
+	 * Writes the header that starts every packet sent to the client: this packet's sequence number, the most recent 
+	 * client sequence number received, and how many frames follow.
+	 * @param totalUpdates the number of frames that will follow the header
+	 * @throws IOException indicates the connection failed
+	 */
+	private void writePacketHeader(int totalUpdates)
+			throws IOException
+	{
+		transport.writeInt(sequencer.nextOutgoing());
+		transport.writeInt(sequencer.getAcknowledgement());
+		transport.writeInt(totalUpdates);
+		sentData += 12;
+	}
+	
+	/**
+	 * Writes one frame, counting its size towards the data sent if it was compressed.
+	 * @param channel the channel the frame belongs to
+	 * @param fragment a payload encoded by the transport or the HeavyLoadCompressor, or a fragment of one
+	 * @param lastFragment true if this frame completes its payload
+	 * @throws IOException indicates the connection failed
+	 */
+	private void writeFrame(int channel, Object fragment, boolean lastFragment)
+			throws IOException
 	{
-		Future<byte[]> future = HeavyLoadCompressor.scheduleRequest(object);
-		deferredCompressions.add(future);
+		transport.writeInt(ChannelFrame.getHeader(channel, lastFragment));
+		sentData += 4;
+		if(fragment instanceof byte[])
+		{
+			sentData += ((byte[])fragment).length;
+		}
+		transport.write(fragment);
 	}
 	
-	private Vector<Future<byte[]>> finishedCompressionOperations()
+	/**
+	 * Adds as many bulk fragments as the bulk budget allows for one packet. A bulk payload that does not fit is 
+	 * continued in the next packet, so ticks are interleaved with its fragments rather than waiting for all of it.
+	 * @param frames the frames of the packet being built
+	 * @throws Exception indicates a compression failed
+	 */
+	private void addBulkFrames(List<Frame> frames)
+			throws Exception
 	{
-		Vector<Future<byte[]>> done = new Vector<Future<byte[]>>();
-		for(int i = 0; i < deferredCompressions.size(); i++)
+		int budget = ChannelFrame.BULK_BYTES_PER_PACKET;
+		while(budget > 0)
 		{
-			if(deferredCompressions.get(i).isDone()) 
+			if(bulkFragments == null)
+			{
+				DeferredPayload payload = nextFinishedPayload();
+				if(payload == null)
+				{
+					return;
+				}
+				Object encoded = (payload.future != null) ? payload.future.get() : transport.encodeUnshared(payload.ready);
+				bulkFragments = transport.fragment(encoded, ChannelFrame.MAX_FRAGMENT_BYTES);
+				bulkIndex = 0;
+			}
+			Object fragment = bulkFragments[bulkIndex++];
+			boolean lastFragment = bulkIndex == bulkFragments.length;
+			frames.add(new Frame(ChannelFrame.BULK, fragment, lastFragment));
+			if(fragment instanceof byte[])
 			{
-				done.add(deferredCompressions.get(i));
-				deferredCompressions.remove(i);
+				budget -= ((byte[])fragment).length;
+			}
+			if(lastFragment)
+			{
+				bulkFragments = null;
+				bulkChunkX = -1;
 			}
 		}
-		return done;
 	}
 	
-	private void handleInitialData()
+	/**
+	 * Called by the reader thread when it stops, which means the client can no longer be heard from. The writer
+	 * is woken so it can shut the connection down.
+	 */
+	public void readerFinished()
 	{
-		try {
-			//Recieve the player and generate an ID for them
-			String message = is.readUTF();
-			int playerID = ServerSettings.getEntityID();
-			this.associatedPlayerID = playerID;
-			EntityPlayer player = null;
-			if(message.equals("/sendplayer"))
+		if(open)
+		{
+			connectionLost = true;
+			worldLock.wakeWriter();
+		}
+	}
+	
+	/**
+	 * Pushes the chunks this connection's client needs next. Called by the game loop each tick.
+	 * @param world the world the player is in
+	 */
+	public void streamChunks(WorldServerEarth world)
+	{
+		EntityPlayer player = worldLock.getRelevantPlayer();
+		if(open && !sendPlayerAndClose && player != null)
+		{
+			chunkStreamer.update(this, player, world);
+		}
+	}
+	
+	/**
+	 * Queues a chunk to be sent to this connection's client only. The chunk's compressed bytes are shared with any
+	 * other connection sent the same version of the chunk.
+	 * @param x the x position of the chunk, in chunks
+	 * @param chunk the encoded chunk, from the {@link EncodedChunkCache}
+	 */
+	public void pushChunk(int x, EncodedChunk chunk)
+	{
+		DeferredPayload payload = new DeferredPayload(x);
+		if(transport.isLoopback())
+		{
+			payload.ready = chunk.getPayload();
+		}
+		else
+		{
+			payload.future = chunk.getEncoded();
+		}
+		deferredPayloads.add(payload);
+		worldLock.wakeWriter();
+	}
+	
+	/**
+	 * Tells this connection's client to load a chunk from its own cache, because its cached copy is identical to the 
+	 * server's.
+	 * @param x the x position of the chunk, in chunks
+	 * @param contentHash the content hash of the chunk
+	 */
+	public void pushCachedChunk(int x, long contentHash)
+	{
+		CompressedServerUpdate update = new CompressedServerUpdate();
+		update.values = new String[] { "/chunkcached " + x + " " + contentHash };
+		DeferredPayload payload = new DeferredPayload(x);
+		payload.ready = new CompressedServerUpdate[] { update };
+		deferredPayloads.add(payload);
+		worldLock.wakeWriter();
+	}
+	
+	/**
+	 * Called when this connection's client could not load a chunk from its cache, so that it is sent in full instead.
+	 * Must be called from the game loop thread.
+	 * @param x the x position of the chunk, in chunks
+	 */
+	public void cacheMissed(int x)
+	{
+		chunkStreamer.cacheMissed(x);
+	}
+	
+	/**
+	 * Cancels a chunk pushed by {@link #pushChunk(int, EncodedChunk)}, if it has not been written yet. The compression 
+	 * itself is left running, since other connections may be waiting on it.
+	 * @param x the x position of the chunk, in chunks
+	 */
+	public void cancelChunk(int x)
+	{
+		synchronized(deferredPayloads)
+		{
+			Iterator<DeferredPayload> it = deferredPayloads.iterator();
+			while(it.hasNext())
 			{
-				String savableXML = is.readUTF();
-				//A new player is an XML file with just the following string of text in it:
-				//"type=newplayer;name=NAME;difficulty=DIFFICULTY;"
-				if(savableXML.startsWith("type="))
+				if(it.next().chunkX == x)
 				{
-					String[] split = savableXML.split(";");
-					String name = split[1].split("=")[1];
-					EnumPlayerDifficulty difficulty = EnumPlayerDifficulty.getDifficulty(split[2].split("=")[1]);
-					System.out.println(split[1].split("=")[1] + " " + split[2].split("=")[1]);
-					player = new EntityPlayer(name, difficulty, getIP());
+					it.remove();
 				}
-				else
+			}
+		}
+	}
+	
+	/**
+	 * Gets how many pushed chunks are still waiting to be compressed or written, including one that is part way through
+	 * being written.
+	 * @return the number of chunks in flight
+	 */
+	public int getChunksInFlight()
+	{
+		synchronized(deferredPayloads)
+		{
+			return deferredPayloads.size() + ((bulkChunkX >= 0) ? 1 : 0);
+		}
+	}
+	
+	/**
+	 * Gets whether a pushed chunk is still waiting to be compressed or written, or is part way through being written.
+	 * @param x the x position of the chunk, in chunks
+	 * @return true if the chunk has not been completely written yet, otherwise false
+	 */
+	public boolean isChunkInFlight(int x)
+	{
+		synchronized(deferredPayloads)
+		{
+			if(bulkChunkX == x)
+			{
+				return true;
+			}
+			for(DeferredPayload payload : deferredPayloads)
+			{
+				if(payload.chunkX == x)
 				{
-					//TODO this is dangerous (the world access)
-					player = new EntityPlayer(MPGameEngine.terraeRasa.gameEngine.getWorld(), (SavablePlayer)new SaveHelper().xmlToObject(savableXML), getIP());
+					return true;
 				}
-				player.setEntityID(playerID);
-				player.verifyName();
-				worldLock.addPlayerToWorld(player);
-
+			}
+			return false;
+		}
+	}
+	
+	/**
+	 * Removes the next deferred payload if it is ready to be written. Payloads are only taken from the front of the queue,
+	 * so they are always written in the order they were queued (nearest chunks first) rather than the order they finish.
+	 * @return the next payload, or null if it is not ready or none are queued
+	 */
+	private DeferredPayload nextFinishedPayload()
+	{
+		synchronized(deferredPayloads)
+		{
+			if(deferredPayloads.size() > 0 && deferredPayloads.get(0).isDone())
+			{
+				//Marked as being written while still locked, so a chunk being taken never looks as if it has been written
+				DeferredPayload payload = deferredPayloads.remove(0);
+				bulkChunkX = payload.chunkX;
+				return payload;
+			}
+			return null;
+		}
+	}
+	
+	/**
+	 * Finishes the login started by a login worker: waits for the player to be added to the world, then sends the client
+	 * its player ID and the world, and receives its chunk manifest. Reads time out after 
+	 * {@link MPGameEngine#HANDSHAKE_TIMEOUT_MILLIS}, so a client that stops part way through is dropped.
+	 * @return true if the connection is open, false if the join failed and the connection should be closed
+	 */
+	private boolean handleInitialData()
+	{
+		try {
+			EntityPlayer player = worldLock.joinWorld(join, JOIN_TIMEOUT_MILLIS);
+			if(player == null)
+			{
+				Log.log("Player " + associatedPlayerID + " could not be added to the world.");
+				return false;
 			}
 			
 			//Tell the client what their player's ID is
-			os.writeInt(playerID);
-			os.flush();
+			transport.writeInt(associatedPlayerID);
+			transport.flush();
+			
+			//Chunks are not sent here; they are streamed nearest-first once the connection opens
 			
-			//Decide what chunks need to be sent
-			message = is.readUTF();
-			if(message.equals("/requestinitChunks"))
-			{
-				
-				Chunk[] chunks = worldLock.getInitialChunks();
-				SuperCompressedChunk[] scc = new SuperCompressedChunk[chunks.length];
-				for(int i = 0; i < scc.length; i++)
-				{
-					scc[i] = ChunkCompressor.compressChunk(chunks[i]);
-				}				
-				os.writeObject(gzipHelper.compress(scc));
-				os.flush();
-			}
-						
 			//Send world data to the client
-			message = is.readUTF();
+			String message = transport.readUTF();
 			if(message.equals("/initialgamedata"))
 			{
 				WorldData data = worldLock.getWorldData();
-				data.otherplayers = worldLock.requestOtherPlayers();
-				os.writeObject(gzipHelper.compress(data));
-				os.flush();
+				data.otherplayers = worldLock.requestOtherPlayers(associatedPlayerID);
+				transport.write(transport.encode(data));
+				transport.flush();
 			}
 			
-			//Add the player to the world and mark this thread as being active.
-			if(player != null)
-			{
-			}
+			//The client replies with the content hashes of the chunks in its disk cache 
+			chunkStreamer.setClientManifest((long[])(transport.read()));
+			
+			//The client sends input every tick from now on, but may pause, so reads may block again
+			transport.setReadTimeout(0);
 			open = true;
+			return true;
 		} catch (IOException e) {
 			e.printStackTrace();
+		} catch (ClassNotFoundException e) {
+			e.printStackTrace();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
 		}
+		return false;
 	}
 	
 	
@@ -251,6 +502,7 @@ public class ServerConnectionThread extends Thread
 	public void close()
 	{
 		this.sendPlayerAndClose = true;
+		worldLock.wakeWriter();
 	}
 	
 	/**
@@ -264,6 +516,44 @@ public class ServerConnectionThread extends Thread
 	
 	public String getIP()
 	{
-		return (socket.getInetAddress().toString()).substring(1);
+		return transport.getRemoteAddress();
+	}
+	
+	/**
+	 * One frame of a packet: a whole payload, or one fragment of a bulk payload.
+	 */
+	private static class Frame
+	{
+		private final int channel;
+		private final Object fragment;
+		private final boolean lastFragment;
+		
+		public Frame(int channel, Object fragment, boolean lastFragment)
+		{
+			this.channel = channel;
+			this.fragment = fragment;
+			this.lastFragment = lastFragment;
+		}
+	}
+	
+	/**
+	 * A pushed chunk queued to be written after it has been compressed off the game loop.
+	 */
+	private static class DeferredPayload
+	{
+		/** The x position of the chunk this payload holds */
+		private final int chunkX;
+		private Future<byte[]> future;
+		private Object ready;
+		
+		public DeferredPayload(int chunkX)
+		{
+			this.chunkX = chunkX;
+		}
+		
+		public boolean isDone()
+		{
+			return ready != null || future.isDone();
+		}
 	}
-}
+}
\ No newline at end of file
@@ -24,6 +24,16 @@ public class ServerSettings
 	public boolean spawnMonsters;
 	public int loadDistance;
 	public String serverMessage;
+	public String networkCodec;
+	public int compressionThreshold;
+	/** How many threads tick the world's regions; 0 for one per processor */
+	public int tickThreads;
+	/** How far from a player, in blocks, monsters and npcs get their full AI every tick */
+	public int activationRange;
+	/** How far from a player, in blocks, monsters and npcs still tick at a reduced rate; past this they are frozen */
+	public int reducedActivationRange;
+	/** How long, in seconds, the server may have nobody connected before it hibernates; 0 to never hibernate */
+	public int hibernateAfter;
 	private Vector<String> banlist;
 	private Vector<String> mods;
 	private Vector<String> admins;
@@ -47,6 +57,12 @@ public class ServerSettings
 		spawnMonsters = true;
 		loadDistance = 4;
 		serverMessage = "Just your ordinary Terrae Rasa server...";
+		networkCodec = "deflate-dictionary";
+		compressionThreshold = 128;
+		tickThreads = 0;
+		activationRange = 64;
+		reducedActivationRange = 128;
+		hibernateAfter = 300;
 		banlist = new Vector<String>();
 		mods = new Vector<String>();
 		admins = new Vector<String>();
@@ -71,7 +87,13 @@ public class ServerSettings
 				"password=" + password,
 				"spawn_monsters=" + spawnMonsters,
 				"load_distance=" + loadDistance,
-				"message=" + serverMessage
+				"message=" + serverMessage,
+				"network_codec=" + networkCodec,
+				"compression_threshold=" + compressionThreshold,
+				"tick_threads=" + tickThreads,
+				"activation_range=" + activationRange,
+				"reduced_activation_range=" + reducedActivationRange,
+				"hibernate_after=" + hibernateAfter
 		};
 	}
 	
@@ -167,6 +167,30 @@ public class SettingsIO
 		{
 			settings.serverMessage = remainingLine;
 		}
+		else if(line.startsWith("network_codec="))
+		{
+			settings.networkCodec = remainingLine;
+		}
+		else if(line.startsWith("compression_threshold="))
+		{
+			settings.compressionThreshold = Integer.parseInt(remainingLine);
+		}
+		else if(line.startsWith("tick_threads="))
+		{
+			settings.tickThreads = Integer.parseInt(remainingLine);
+		}
+		else if(line.startsWith("activation_range="))
+		{
+			settings.activationRange = Integer.parseInt(remainingLine);
+		}
+		else if(line.startsWith("reduced_activation_range="))
+		{
+			settings.reducedActivationRange = Integer.parseInt(remainingLine);
+		}
+		else if(line.startsWith("hibernate_after="))
+		{
+			settings.hibernateAfter = Integer.parseInt(remainingLine);
+		}
 	}
 	
 	private static void createSettingsFile() 
@@ -193,6 +217,12 @@ public class SettingsIO
 			writer.write("spawn_monsters=true" + '\n');
 			writer.write("load_distance=4" + '\n');
 			writer.write("message=Just your ordinary Terrae Rasa server..." + '\n');
+			writer.write("network_codec=deflate-dictionary" + '\n');
+			writer.write("compression_threshold=128" + '\n');
+			writer.write("tick_threads=0" + '\n');
+			writer.write("activation_range=64" + '\n');
+			writer.write("reduced_activation_range=128" + '\n');
+			writer.write("hibernate_after=300" + '\n');
 			
 			writer.close();
 		}		
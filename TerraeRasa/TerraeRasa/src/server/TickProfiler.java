@@ -0,0 +1,289 @@
+package server;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.text.DecimalFormat;
+
+import utils.PercentileRecorder;
+
+/**
+ * TickProfiler measures where the time of each game tick goes. The tick is split into phases, such as the client
+ * updates, the monsters or the chunk requests; the game loop calls {@link #startTick()}, then {@link #mark(int)} as each
+ * phase ends, then {@link #endTick()}. Everything since the previous mark is put down to the phase marked, so the phases
+ * always add up to the whole tick. The time and the bytes allocated by each phase are kept for the last minute of ticks,
+ * and reported by {@link #getReport()} for the /tps command.
+ * <br><br>
+ * A tick that runs over its budget is logged with a breakdown of its slowest phases, at most once every
+ * {@link #SLOW_TICK_LOG_INTERVAL_MILLIS} milliseconds so a server that is lagging for a while does not flood the log.
+ * Allocations are only measured where the JVM can count the bytes allocated by a thread; elsewhere they are left out.
+ * <br><br>
+ * A TickProfiler must only be marked from the game loop's thread. The report may be read from any thread.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class TickProfiler
+{
+	public static final int JOINS = 0,
+			CLIENT_UPDATES = 1,
+			SPAWNING = 2,
+			WEATHER = 3,
+			CHUNK_LOADING = 4,
+			ITEMS = 5,
+			MONSTERS = 6,
+			NPCS = 7,
+			PROJECTILES = 8,
+			PLAYERS = 9,
+			SNAPSHOTS = 10,
+			COMMANDS = 11,
+			CHUNK_REQUESTS = 12,
+			FAN_OUT = 13;
+	private static final int TOTAL_PHASES = 14;
+	private static final String[] PHASE_NAMES = { "joins", "client updates", "spawning", "weather", "chunk loading",
+		"items", "monsters", "npcs", "projectiles", "players", "snapshots", "commands", "chunk requests", "fan-out" };
+	/** How many ticks are kept for reporting */
+	private static final int SAMPLES = 1200;
+	/** How many tick start times the ticks per second are worked out from */
+	private static final int TPS_SAMPLES = 100;
+	/** How often a slow tick is logged, at most, in milliseconds */
+	public static final long SLOW_TICK_LOG_INTERVAL_MILLIS = 1000;
+	/** Phases taking less than this share of a slow tick are left out of its breakdown */
+	private static final double SLOW_TICK_MIN_SHARE = 0.05;
+	private final long budgetNanos;
+	private final PercentileRecorder tickTimes;
+	private final PercentileRecorder[] phaseTimes;
+	private final PercentileRecorder[] phaseAllocations;
+	private final long[] currentTimes;
+	private final long[] currentAllocations;
+	private final long[] tickStarts;
+	private int nextTickStart;
+	private int totalTickStarts;
+	private long tickStart;
+	private long lastMark;
+	private long lastAllocated;
+	private long lastSlowTickLogged;
+	private int slowTicksNotLogged;
+	private final com.sun.management.ThreadMXBean allocationBean;
+
+	/**
+	 * Creates a TickProfiler.
+	 * @param budgetMillis how long a tick may take, in milliseconds, before it is logged as slow
+	 */
+	public TickProfiler(long budgetMillis)
+	{
+		this.budgetNanos = budgetMillis * 1000000L;
+		tickTimes = new PercentileRecorder(SAMPLES);
+		phaseTimes = new PercentileRecorder[TOTAL_PHASES];
+		phaseAllocations = new PercentileRecorder[TOTAL_PHASES];
+		for(int i = 0; i < TOTAL_PHASES; i++)
+		{
+			phaseTimes[i] = new PercentileRecorder(SAMPLES);
+			phaseAllocations[i] = new PercentileRecorder(SAMPLES);
+		}
+		currentTimes = new long[TOTAL_PHASES];
+		currentAllocations = new long[TOTAL_PHASES];
+		tickStarts = new long[TPS_SAMPLES];
+		allocationBean = createAllocationBean();
+	}
+
+	private static com.sun.management.ThreadMXBean createAllocationBean()
+	{
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if(!(bean instanceof com.sun.management.ThreadMXBean))
+		{
+			return null;
+		}
+		com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+		if(!allocationBean.isThreadAllocatedMemorySupported())
+		{
+			return null;
+		}
+		try {
+			allocationBean.setThreadAllocatedMemoryEnabled(true);
+		} catch (UnsupportedOperationException e) {
+			return null;
+		}
+		return allocationBean;
+	}
+
+	/**
+	 * Gets the bytes allocated by the current thread so far.
+	 * @return the bytes allocated, or 0 if the JVM cannot count them
+	 */
+	private long getAllocatedBytes()
+	{
+		return (allocationBean != null) ? allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+	}
+
+	/**
+	 * Starts measuring a tick.
+	 */
+	public void startTick()
+	{
+		for(int i = 0; i < TOTAL_PHASES; i++)
+		{
+			currentTimes[i] = 0;
+			currentAllocations[i] = 0;
+		}
+		tickStart = System.nanoTime();
+		lastMark = tickStart;
+		lastAllocated = getAllocatedBytes();
+		synchronized(tickStarts)
+		{
+			tickStarts[nextTickStart] = tickStart;
+			nextTickStart = (nextTickStart + 1) % TPS_SAMPLES;
+			totalTickStarts = Math.min(totalTickStarts + 1, TPS_SAMPLES);
+		}
+	}
+
+	/**
+	 * Ends a phase of the tick, putting everything since the previous mark down to it.
+	 * @param phase the phase that just ended
+	 */
+	public void mark(int phase)
+	{
+		long now = System.nanoTime();
+		long allocated = getAllocatedBytes();
+		currentTimes[phase] += now - lastMark;
+		currentAllocations[phase] += allocated - lastAllocated;
+		lastMark = now;
+		lastAllocated = allocated;
+	}
+
+	/**
+	 * Ends the tick, recording each phase and logging the tick if it went over budget.
+	 */
+	public void endTick()
+	{
+		long total = System.nanoTime() - tickStart;
+		tickTimes.record(total);
+		for(int i = 0; i < TOTAL_PHASES; i++)
+		{
+			phaseTimes[i].record(currentTimes[i]);
+			phaseAllocations[i].record(currentAllocations[i]);
+		}
+		if(total > budgetNanos)
+		{
+			long now = System.currentTimeMillis();
+			if(now - lastSlowTickLogged >= SLOW_TICK_LOG_INTERVAL_MILLIS)
+			{
+				Log.log(getSlowTickBreakdown(total));
+				lastSlowTickLogged = now;
+				slowTicksNotLogged = 0;
+			}
+			else
+			{
+				slowTicksNotLogged++;
+			}
+		}
+	}
+
+	private String getSlowTickBreakdown(long total)
+	{
+		StringBuilder builder = new StringBuilder("Slow tick: ")
+			.append(formatMillis(total)).append(" of ").append(formatMillis(budgetNanos)).append(";");
+		boolean[] listed = new boolean[TOTAL_PHASES];
+		while(true)
+		{
+			//Slowest phase first
+			int slowest = -1;
+			for(int i = 0; i < TOTAL_PHASES; i++)
+			{
+				if(!listed[i] && (slowest == -1 || currentTimes[i] > currentTimes[slowest]))
+				{
+					slowest = i;
+				}
+			}
+			if(slowest == -1 || currentTimes[slowest] < total * SLOW_TICK_MIN_SHARE)
+			{
+				break;
+			}
+			listed[slowest] = true;
+			builder.append(" ").append(PHASE_NAMES[slowest]).append("=").append(formatMillis(currentTimes[slowest]));
+			if(allocationBean != null)
+			{
+				builder.append("/").append(formatBytes(currentAllocations[slowest]));
+			}
+		}
+		if(slowTicksNotLogged > 0)
+		{
+			builder.append(" (").append(slowTicksNotLogged).append(" more slow ticks since the last report)");
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Gets how many ticks ran per second, over the last {@link #TPS_SAMPLES} ticks.
+	 * @return the ticks per second, or 0 if too few ticks have run to tell
+	 */
+	public double getTicksPerSecond()
+	{
+		synchronized(tickStarts)
+		{
+			if(totalTickStarts < 2)
+			{
+				return 0;
+			}
+			long newest = tickStarts[(nextTickStart + TPS_SAMPLES - 1) % TPS_SAMPLES];
+			long oldest = tickStarts[(nextTickStart + TPS_SAMPLES - totalTickStarts) % TPS_SAMPLES];
+			return (newest == oldest) ? 0 : (totalTickStarts - 1) * 1E9 / (newest - oldest);
+		}
+	}
+
+	/**
+	 * Gets the time taken by each of the most recent ticks, in nanoseconds.
+	 * @return the recent tick times
+	 */
+	public PercentileRecorder getTickTimes()
+	{
+		return tickTimes;
+	}
+
+	/**
+	 * Gets a report of the recent ticks for the console: the ticks per second and tick times, then the mean and 99th
+	 * percentile time and the mean bytes allocated of each phase.
+	 * @return the lines of the report
+	 */
+	public String[] getReport()
+	{
+		DecimalFormat format = new DecimalFormat("0.00");
+		String summary = "TPS: " + format.format(getTicksPerSecond()) +
+				"; tick mean=" + formatMillis((long)tickTimes.getMean()) +
+				" p50=" + formatMillis(tickTimes.getPercentile(50)) +
+				" p99=" + formatMillis(tickTimes.getPercentile(99)) +
+				" max=" + formatMillis(tickTimes.getPercentile(100)) +
+				" over " + tickTimes.getSize() + " ticks";
+		StringBuilder phases = new StringBuilder("Phases (mean/p99");
+		phases.append((allocationBean != null) ? "/allocated):" : "):");
+		for(int i = 0; i < TOTAL_PHASES; i++)
+		{
+			phases.append(" ").append(PHASE_NAMES[i]).append("=")
+				.append(formatMillis((long)phaseTimes[i].getMean())).append("/")
+				.append(formatMillis(phaseTimes[i].getPercentile(99)));
+			if(allocationBean != null)
+			{
+				phases.append("/").append(formatBytes((long)phaseAllocations[i].getMean()));
+			}
+		}
+		return new String[] { summary, phases.toString() };
+	}
+
+	private static String formatMillis(long nanos)
+	{
+		return new DecimalFormat("0.00").format(nanos / 1E6) + "ms";
+	}
+
+	private static String formatBytes(long bytes)
+	{
+		if(bytes < 1024)
+		{
+			return bytes + "B";
+		}
+		if(bytes < 1024 * 1024)
+		{
+			return new DecimalFormat("0.0").format(bytes / 1024.0) + "KB";
+		}
+		return new DecimalFormat("0.0").format(bytes / (1024.0 * 1024)) + "MB";
+	}
+}
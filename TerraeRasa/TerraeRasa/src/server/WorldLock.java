@@ -2,8 +2,6 @@ package server;
 
 
 
-import java.util.Vector;
-
 import blocks.Chunk;
 
 import server.entities.EntityPlayer;
@@ -11,13 +9,12 @@ import transmission.CompressedClientUpdate;
 import transmission.ServerUpdate;
 import transmission.TransmittablePlayer;
 import transmission.WorldData;
-import entry.MPGameEngine;
 import entry.MPGameLoop;
 
 public class WorldLock 
 {
 	private MPGameLoop engine;
-	private Vector<ServerUpdate> serverUpdates = new Vector<ServerUpdate>();
+	private OutboundQueue serverUpdates = new OutboundQueue();
 	private EntityPlayer relevantPlayer;
 
 	public WorldLock(MPGameLoop engine)
@@ -36,11 +33,19 @@ public class WorldLock
 		return engine.getWorld().getWorldData();
 	}
 	
-	public void addPlayerToWorld(EntityPlayer player)
-	{		
-		engine.getWorld().addPlayerToWorld(MPGameEngine.terraeRasa.getSettings(), player);
-		engine.registerPlayer(player);
-		relevantPlayer = player;
+	/**
+	 * Queues a player that has logged in to join the world, and waits for the game loop to add it.
+	 * @param join the player waiting to join
+	 * @param timeoutMillis the longest time to wait, in milliseconds
+	 * @return the player that joined, or null if the join failed or timed out
+	 * @throws InterruptedException indicates the wait was interrupted
+	 */
+	public EntityPlayer joinWorld(PendingJoin join, long timeoutMillis)
+			throws InterruptedException
+	{
+		engine.registerJoin(join);
+		relevantPlayer = join.await(timeoutMillis);
+		return relevantPlayer;
 	}
 	
 	public Chunk[] getChunks(int[] req)
@@ -53,41 +58,43 @@ public class WorldLock
 		return chunks;
 	}
 	
-	public Chunk[] getInitialChunks()
-	{
-		ServerSettings settings = MPGameEngine.terraeRasa.getSettings();
-		final int loadDistanceHorizontally = (settings.loadDistance * Chunk.getChunkWidth() >= 200) ? settings.loadDistance * Chunk.getChunkWidth() : 200;
-		
-		//Where to check, in the chunk map (based off loadDistance variables)
-		int leftOff = (engine.getWorld().getWorldCenterBlock() - loadDistanceHorizontally) / Chunk.getChunkWidth();
-		int rightOff = (engine.getWorld().getWorldCenterBlock() + loadDistanceHorizontally) / Chunk.getChunkWidth();
-		
-		Vector<Chunk> chunks = new Vector<Chunk>();
-		for(int i = leftOff; i <= rightOff; i++) //Check for chunks that need loaded
-		{
-			chunks.add(engine.requestChunk(i));
-		}
-		Chunk[] c = new Chunk[chunks.size()];
-		chunks.copyInto(c);
-		return c;
-	}
-
-	//This is from the server
-	public synchronized void addUpdate(ServerUpdate update)
+	/**
+	 * Queues an update from the server to be written to this connection's client. If the client has fallen behind, the
+	 * queued updates are coalesced; see {@link OutboundQueue}.
+	 * @param update the update to queue
+	 * @return true if the client is within its lag budget, false if it should be disconnected
+	 */
+	public boolean addUpdate(ServerUpdate update)
 	{
 		if(getRelevantPlayer() != null)
 		{
-			serverUpdates.add(update);
+			return serverUpdates.add(update);
 		}
+		return true;
 	}
 	
 	//Deletes too
 	public ServerUpdate[] yieldServerUpdates()
 	{
-		ServerUpdate[] updates = new ServerUpdate[serverUpdates.size()];
-		serverUpdates.copyInto(updates);
-		serverUpdates.clear();
-		return updates;
+		return serverUpdates.yield();
+	}
+	
+	/**
+	 * Blocks the connection's writer until the game loop adds an update, {@link #wakeWriter()} is called, or the timeout 
+	 * passes. Returns immediately if updates are already waiting.
+	 * @param timeoutMillis the longest time to wait, in milliseconds
+	 */
+	public void awaitServerUpdates(long timeoutMillis)
+	{
+		serverUpdates.await(timeoutMillis);
+	}
+	
+	/**
+	 * Wakes a writer blocked in {@link #awaitServerUpdates(long)}, so it can notice the connection is closing.
+	 */
+	public void wakeWriter()
+	{
+		serverUpdates.wake();
 	}
 	
 	public EntityPlayer getRelevantPlayer()
@@ -99,19 +106,28 @@ public class WorldLock
 	{
 		for(CompressedClientUpdate update : updates)
 		{
-			PlayerInput input = new PlayerInput(relevantPlayer, update.clientInput);
-			engine.getWorld().registerPlayerMovement(input);
+			if(update.inputSequence != 0)
+			{
+				PlayerInput input = new PlayerInput(relevantPlayer, update.inputSequence, update.inputFlags);
+				engine.getWorld().registerPlayerMovement(input);
+			}
 			engine.registerClientUpdate(update);
 		}
 	}
 
-	public TransmittablePlayer[] requestOtherPlayers()
+	/**
+	 * Gets every player in the world, for a joining client. Only the joining client's own player includes its full
+	 * inventories; the others only include the equipment that can be seen.
+	 * @param playerID the ID of the joining client's player
+	 * @return every player in the world
+	 */
+	public TransmittablePlayer[] requestOtherPlayers(int playerID)
 	{
 		EntityPlayer[] players = engine.getPlayersArray();
 		TransmittablePlayer[] compPlayers = new TransmittablePlayer[players.length];
 		for(int i = 0; i < compPlayers.length; i++)
 		{
-			compPlayers[i] = players[i].getTransmittable();
+			compPlayers[i] = (players[i].entityID == playerID) ? players[i].getTransmittable() : players[i].getVisibleTransmittable();
 		}		
 		return compPlayers;
 	}
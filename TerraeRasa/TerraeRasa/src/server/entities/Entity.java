@@ -560,17 +560,12 @@ public class Entity
 			return 6;
 		}
 		
-		MinimalBlock[] blocks = new MinimalBlock[(int) (blockWidth + ((x % 6 == 0) ? 0 : 1))]; //blocks to check	
+		int blocksToCheck = (int) (blockWidth + ((x % 6 == 0) ? 0 : 1)); //blocks to check
 		boolean flag = true;
 		
-		for(int i = 0; i < blocks.length; i++) //get blocks to check
+		for(int i = 0; i < blocksToCheck; i++)
 		{
-			blocks[i] = world.getBlock((x / 6) + i, ((y - jumpSpeed) / 6));
-		}
-		
-		for(int i = 0; i < blocks.length; i++)
-		{
-			if(blocks[i].isSolid()) //hittest has failed
+			if(world.getBlock((x / 6) + i, ((y - jumpSpeed) / 6)).isSolid()) //hittest has failed
 			{
 				flag = false;
 				break;
@@ -609,16 +604,11 @@ public class Entity
 		
 		boolean flag = false;
 		int offset = (int) ((x % 6 == 0) ? blockWidth : (blockWidth + 1)); //How far right are the blocks for the hit test, if the player is perfectly on a block 2, otherwise 3		
-		MinimalBlock[] blocks = new MinimalBlock[(int) (blockHeight + ((y % 6 == 0) ? 0 : 1))]; //blocks to check
-		
-		for(int i = 0; i < blocks.length; i++) //get the blocks to check against
-		{
-			blocks[i] = world.getBlock(MathHelper.returnIntegerInWorldMapBounds_X(world, (int)(x / 6) + offset), MathHelper.returnIntegerInWorldMapBounds_Y(world, (int)(y / 6) + i));
-		}
+		int blocksToCheck = (int) (blockHeight + ((y % 6 == 0) ? 0 : 1)); //blocks to check
 		
-		for(int i = 0; i < blocks.length; i++)
+		for(int i = 0; i < blocksToCheck; i++)
 		{
-			if(blocks[i].isSolid()) //the hittest has failed
+			if(world.getBlock(MathHelper.returnIntegerInWorldMapBounds_X(world, (int)(x / 6) + offset), MathHelper.returnIntegerInWorldMapBounds_Y(world, (int)(y / 6) + i)).isSolid()) //the hittest has failed
 			{
 				flag = false;
 				break;
@@ -643,16 +633,11 @@ public class Entity
 			return 6;
 		
 		boolean flag = false;				
-		MinimalBlock[] blocks = new MinimalBlock[(int) (blockHeight + ((y % 6 == 0) ? 0 : 1))]; //blocks to check
+		int blocksToCheck = (int) (blockHeight + ((y % 6 == 0) ? 0 : 1)); //blocks to check
 
-		for(int i = 0; i < blocks.length; i++) //get the blocks to check against
+		for(int i = 0; i < blocksToCheck; i++)
 		{
-			blocks[i] =  world.getBlock(MathHelper.returnIntegerInWorldMapBounds_X(world, (int)(x / 6) - 1), MathHelper.returnIntegerInWorldMapBounds_Y(world, ((int)(y / 6) + i)));
-		}
-		
-		for(int i = 0; i < blocks.length; i++)
-		{
-			if(blocks[i].isSolid()) //is the block isnt passable, the hittest has failed
+			if(world.getBlock(MathHelper.returnIntegerInWorldMapBounds_X(world, (int)(x / 6) - 1), MathHelper.returnIntegerInWorldMapBounds_Y(world, ((int)(y / 6) + i))).isSolid()) //is the block isnt passable, the hittest has failed
 			{
 				flag = false;
 				break;
@@ -679,17 +664,12 @@ public class Entity
 			return 0F;
 		}
 		
-		MinimalBlock[] blocks = new MinimalBlock[(int) (blockWidth + ((x % 6 == 0) ? 0 : 1))]; //blocks to check
+		int blocksToCheck = (int) (blockWidth + ((x % 6 == 0) ? 0 : 1)); //blocks to check
 		boolean flag = true;
 		
-		for(int i = 0; i < blocks.length; i++) //get blocks to check
-		{
-			blocks[i] = world.getBlock((x / 6) + i, (int)(y / 6) + offset); 
-		}		
-
-		for(int i = 0; i < blocks.length; i++)
+		for(int i = 0; i < blocksToCheck; i++)
 		{
-			if(blocks[i].isSolid()) //hittest has failed
+			if(world.getBlock((x / 6) + i, (int)(y / 6) + offset).isSolid()) //hittest has failed
 			{
 				flag = false;
 				break;
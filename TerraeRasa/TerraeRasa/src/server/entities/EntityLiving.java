@@ -12,7 +12,6 @@ import blocks.Block;
 import entry.MPGameEngine;
 import enums.EnumColor;
 import enums.EnumDamageSource;
-import enums.EnumDamageType;
 
 /**
  * It provides most of the features required for an Entity
@@ -301,6 +300,7 @@ public class EntityLiving extends Entity
 					removeAbsorb((StatusEffectAbsorb)statusEffects.get(i));
 				}
 				statusEffects.remove(i);
+				i--;
 			}
 		}
 	}
@@ -398,7 +398,7 @@ public class EntityLiving extends Entity
 				{
 					damage(world, 
 						new Damage(fallDamage, 
-								new EnumDamageType[] { EnumDamageType.FALL }, 
+								Damage.TYPE_FALL, 
 								EnumDamageSource.FALL).setIsDodgeable(false), 
 						true);
 				}
@@ -19,6 +19,8 @@ public class EntityNPC extends EntityLiving
 	public int wanderRight;
 	public boolean alert;	
 	public EntityLiving fixation;
+	/** How many ticks in a row the npc's AI has been skipped for being far from every player */
+	public int ticksSkipped;
 	
 	/**
 	 * Creates a new EntityNPC, assigning it an ID and name.
@@ -67,6 +69,21 @@ public class EntityNPC extends EntityLiving
 		this.wanderLeft = entity.wanderLeft;
 		this.wanderRight = entity.wanderRight;
 		this.alert = entity.alert;
+		this.ticksSkipped = entity.ticksSkipped;
+	}
+	
+	/**
+	 * Brings the npc's timers up to date for the ticks its AI was skipped, before the AI is applied again. The npc does 
+	 * not move for the ticks it missed; only its timers catch up.
+	 */
+	public void catchUpSkippedTicks()
+	{
+		if(ticksSkipped > 0)
+		{
+			ticksSinceLastWander += ticksSkipped;
+			ticksSinceLastProjectile += ticksSkipped;
+			ticksSkipped = 0;
+		}
 	}
 		
 	/**
@@ -94,6 +94,15 @@ public class EntityNPCEnemy extends EntityNPC
 		this.isBoss = entity.isBoss;
 		
 	}
+	
+	/**
+	 * Brings the monster's timers, including its invincibility, up to date for the ticks its AI was skipped.
+	 */
+	public void catchUpSkippedTicks()
+	{
+		invincibilityTicks -= ticksSkipped;
+		super.catchUpSkippedTicks();
+	}
 
 	protected EntityNPCEnemy setDamageType(EnumDamageSource type)
 	{
@@ -9,6 +9,7 @@ import items.ItemTool;
 import items.ItemToolAxe;
 import items.ItemToolPickaxe;
 
+import java.util.BitSet;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.Hashtable;
@@ -27,10 +28,13 @@ import server.world.WorldServerEarth;
 import statuseffects.StatusEffect;
 import statuseffects.StatusEffectAbsorb;
 import transmission.EntityUpdate;
+import transmission.InventorySlotUpdate;
+import transmission.PositionUpdate;
 import transmission.ServerUpdate;
 import transmission.StatUpdate;
 import transmission.TransmittablePlayer;
 import transmission.UpdateWithObject;
+import utils.ChangedInventorySlots;
 import utils.Cooldown;
 import utils.CraftingManager;
 import utils.Damage;
@@ -49,7 +53,6 @@ import entry.MPGameEngine;
 import entry.MPGameLoop;
 import enums.EnumColor;
 import enums.EnumDamageSource;
-import enums.EnumDamageType;
 import enums.EnumPlayerDifficulty;
 import enums.EnumToolMaterial;
 
@@ -97,6 +100,11 @@ public class EntityPlayer extends EntityPlayerBase
 	private static final double DAMAGE_BONUS_INTELLECT = 1.0 / 100;
 	private static final double DAMAGE_BONUS_DEXTERITY = 1.0 / 100;
 	private static final double DAMAGE_BONUS_STRENGTH = 1.0 / 100;
+	/** 
+	 * The most input frames waiting to be applied. One frame is applied each tick, so this only absorbs frames that
+	 * arrive bunched together; any more and the oldest is dropped, so a client sending extra frames never moves faster
+	 */
+	private static final int MAX_QUEUED_INPUT_FRAMES = 4;
 	private boolean isSwingingRight;
 	private boolean hasSwungTool;
 	private double rotateAngle;
@@ -120,6 +128,16 @@ public class EntityPlayer extends EntityPlayerBase
 	private Dictionary<String, Boolean> nearBlock;
 	private PassiveBonusContainer currentBonuses; 
 	private AuraTracker auraTracker;
+	private int lastInputSequence;
+	/** The sequence numbers and flags of the input frames waiting to be applied, oldest at queuedInputStart */
+	private int[] queuedInputSequences;
+	private int[] queuedInputFlags;
+	private int queuedInputStart;
+	private int queuedInputFrames;
+	private int lastQueuedInputSequence;
+	private boolean movementChanged;
+	private double reportedX;
+	private double reportedY;
 	
 	public int strength;
 	public int dexterity;
@@ -142,7 +160,6 @@ public class EntityPlayer extends EntityPlayerBase
 	
 	public int selectedRecipe;
 	public int selectedSlot;
-	public boolean isFacingRight;
 	public boolean isInventoryOpen;	
 	public InventoryPlayer inventory;
 	
@@ -410,7 +427,11 @@ public class EntityPlayer extends EntityPlayerBase
 		}		
 		checkForCombatStatus();
 		checkAndUpdateStatusEffects(world);
-		applyGravity(world); //Apply Gravity to the player (and jumping)
+		//Movement (and jumping) is applied by one input frame a tick, which includes gravity. Without one, just fall
+		if(!applyNextInputFrame(world))
+		{
+			applyGravity(world);
+		}
 		if(world.getWorldTime() % 20 == 0) {
 			applyHealthRegen(world);
 			applyManaRegen(world);
@@ -432,83 +453,123 @@ public class EntityPlayer extends EntityPlayerBase
 		}
 		
 		//Inventory updates
-		String[] changes = new String[changedInventorySlots.size()];
-		changedInventorySlots.copyInto(changes);
-		changedInventorySlots.clear();
-		
-		for(String change : changes)
+		if(!changedInventorySlots.isEmpty())
 		{
-			UpdateWithObject objUpdate = new UpdateWithObject();
-			
-			String[] split = change.split(" ");
-			if(split[0].equals("a"))
-			{
-				if(inventory.getArmorInventoryStack(Integer.parseInt(split[1])) != null)
-				{
-					objUpdate.command = "/player " + entityID + " inventoryset 2 " + split[1];
-					objUpdate.object = new ItemStack(inventory.getArmorInventoryStack(Integer.parseInt(split[1])));
-				}
-				else
-				{
-					objUpdate.command = "/player " + entityID + " inventoryset 2 " + split[1];
-					objUpdate.object = null;
-				}
-			}
-			else if(split[0].equals("q"))
-			{
-				if(inventory.getQuiverStack(Integer.parseInt(split[1])) != null)
-				{
-					objUpdate.command = "/player " + entityID + " inventoryset 3 " + split[1];
-					objUpdate.object = new ItemStack(inventory.getQuiverStack(Integer.parseInt(split[1])));
-				}
-				else
-				{
-					objUpdate.command = "/player " + entityID + " inventoryset 3 " + split[1];
-					objUpdate.object = null;
-				}
-			}
-			else if(split[0].equals("i") || split[0].equals("m"))
-			{
-				if(inventory.getMainInventoryStack(Integer.parseInt(split[1])) != null)
-				{
-					objUpdate.command = "/player " + entityID + " inventoryset 1 " + split[1];
-					objUpdate.object = new ItemStack(inventory.getMainInventoryStack(Integer.parseInt(split[1])));
-				}
-				else
-				{
-					objUpdate.command = "/player " + entityID + " inventoryset 1 " + split[1];
-					objUpdate.object = null;
-				}
-			}	
-			else if(split[0].equals("t"))
+			ChangedInventorySlots changes = changedInventorySlots.drain();
+			for(int inventoryID = 0; inventoryID < ChangedInventorySlots.TOTAL_INVENTORIES; inventoryID++)
 			{
-				if(inventory.getTrashStack(Integer.parseInt(split[1])) != null)
-				{
-					objUpdate.command = "/player " + entityID + " inventoryset 4 " + split[1];
-					objUpdate.object = new ItemStack(inventory.getTrashStack(Integer.parseInt(split[1])));
-				}	
-				else
+				BitSet slots = changes.getSlots(inventoryID);
+				for(int index = slots.nextSetBit(0); index >= 0; index = slots.nextSetBit(index + 1))
 				{
-					objUpdate.command = "/player " + entityID + " inventoryset 4 " + split[1];
-					objUpdate.object = null;
+					update.addInventoryUpdate(InventorySlotUpdate.create(entityID, inventoryID, index, 
+							getInventorySlot(inventoryID, index), isSlotVisibleToOthers(inventoryID, index)));
 				}
 			}
-			else if(split[0].equals("mouse"))
-			{
-				if(getHeldMouseItem() != null)
-				{
-					objUpdate.command = "/player " + entityID + " mouseitemset";
-					objUpdate.object = new ItemStack(getHeldMouseItem());
-				}
-				else
-				{
-					objUpdate.command = "/player " + entityID + " mouseitemset";
-					objUpdate.object = null;
-				}
-			}
-			update.addObjectUpdate(objUpdate);
-			
-		}	
+		}
+		
+		//Position for everyone; the full movement state lets the owning client correct its prediction
+		if(movementChanged || x != reportedX || y != reportedY)
+		{
+			update.addPositionUpdate(new PositionUpdate(entityID, x, y));
+			update.addMovementState(getMovementState(lastInputSequence));
+			reportedX = x;
+			reportedY = y;
+			movementChanged = false;
+		}
+	}
+	
+	/**
+	 * Queues one input frame from the player's client, to be applied on a later tick. Frames are applied in sequence
+	 * order, one per tick, and a frame that is not newer than the last one queued is ignored. If more than
+	 * {@link #MAX_QUEUED_INPUT_FRAMES} are waiting, the oldest is dropped. The client only skips sending a frame when its
+	 * player is standing still with no input, which would not move the player anyway, so gaps in the sequence need no
+	 * frames filling in.
+	 * @param sequence the frame's sequence number
+	 * @param inputFlags the EnumHardwareInput flags held during the frame
+	 */
+	public void queueInputFrame(int sequence, int inputFlags)
+	{
+		if(sequence <= lastQueuedInputSequence)
+		{
+			return;
+		}
+		if(queuedInputSequences == null)
+		{
+			queuedInputSequences = new int[MAX_QUEUED_INPUT_FRAMES];
+			queuedInputFlags = new int[MAX_QUEUED_INPUT_FRAMES];
+		}
+		if(queuedInputFrames == MAX_QUEUED_INPUT_FRAMES)
+		{
+			queuedInputStart = (queuedInputStart + 1) % MAX_QUEUED_INPUT_FRAMES;
+			queuedInputFrames--;
+		}
+		int index = (queuedInputStart + queuedInputFrames) % MAX_QUEUED_INPUT_FRAMES;
+		queuedInputSequences[index] = sequence;
+		queuedInputFlags[index] = inputFlags;
+		queuedInputFrames++;
+		lastQueuedInputSequence = sequence;
+	}
+	
+	/**
+	 * Moves the player through the oldest input frame waiting, if there is one.
+	 * @param world the world the player is in
+	 * @return true if a frame was applied, false if none were waiting
+	 */
+	private boolean applyNextInputFrame(World world)
+	{
+		if(queuedInputFrames == 0)
+		{
+			return false;
+		}
+		applyMovementInput(world, queuedInputFlags[queuedInputStart]);
+		lastInputSequence = queuedInputSequences[queuedInputStart];
+		queuedInputStart = (queuedInputStart + 1) % MAX_QUEUED_INPUT_FRAMES;
+		queuedInputFrames--;
+		movementChanged = true;
+		return true;
+	}
+	
+	/**
+	 * Gets the contents of an inventory slot.
+	 * @param inventoryID the ID of the inventory, from ChangedInventorySlots
+	 * @param index the index of the slot
+	 * @return the ItemStack in that slot, or null if it is empty
+	 */
+	private ItemStack getInventorySlot(int inventoryID, int index)
+	{
+		if(inventoryID == ChangedInventorySlots.MOUSE)
+		{
+			return getHeldMouseItem();
+		}
+		else if(inventoryID == ChangedInventorySlots.MAIN)
+		{
+			return inventory.getMainInventoryStack(index);
+		}
+		else if(inventoryID == ChangedInventorySlots.ARMOR)
+		{
+			return inventory.getArmorInventoryStack(index);
+		}
+		else if(inventoryID == ChangedInventorySlots.QUIVER)
+		{
+			return inventory.getQuiverStack(index);
+		}
+		else if(inventoryID == ChangedInventorySlots.TRASH)
+		{
+			return inventory.getTrashStack(index);
+		}
+		return null;
+	}
+	
+	/**
+	 * Indicates if other players can see a slot. Only the selected item and armor are drawn or used for other players,
+	 * so the rest of the inventory is only sent to this player.
+	 * @param inventoryID the ID of the inventory, from ChangedInventorySlots
+	 * @param index the index of the slot
+	 * @return true if other players can see the slot; otherwise false
+	 */
+	private boolean isSlotVisibleToOthers(int inventoryID, int index)
+	{
+		return (inventoryID == ChangedInventorySlots.MAIN && index == selectedSlot) || inventoryID == ChangedInventorySlots.ARMOR;
 	}
 	
 	/**
@@ -587,7 +648,7 @@ public class EntityPlayer extends EntityPlayerBase
 				{
 					damage(world, 
 							new Damage(fallDamage, 
-									new EnumDamageType[] { EnumDamageType.FALL }, 
+									Damage.TYPE_FALL, 
 									EnumDamageSource.FALL).setIsDodgeable(false)
 									.setPenetratesArmor(true), 
 							true);
@@ -1750,7 +1811,33 @@ public class EntityPlayer extends EntityPlayerBase
 		return true;
 	}
 	
+	/**
+	 * Gets a TransmittablePlayer with everything the client controlling this player needs, including its full
+	 * inventories.
+	 * @return a TransmittablePlayer for this player's own client
+	 */
 	public TransmittablePlayer getTransmittable()
+	{
+		TransmittablePlayer player = getTransmittableWithoutItems();
+		player.setHeldItem(this.getHeldMouseItem());
+		player.addInventories(this.inventory.getMainInventory(), this.inventory.getArmorInventory(), this.inventory.getQuiver());
+		return player;
+	}
+	
+	/**
+	 * Gets a TransmittablePlayer for other players' clients. Only the equipment other players can see (the selected
+	 * item and armor) is included; every other slot is left empty.
+	 * @return a TransmittablePlayer for other players' clients
+	 */
+	public TransmittablePlayer getVisibleTransmittable()
+	{
+		TransmittablePlayer player = getTransmittableWithoutItems();
+		player.addVisibleEquipment(this.inventory.getMainInventory(), this.selectedSlot, this.inventory.getArmorInventory(), 
+				this.inventory.getQuiver().length);
+		return player;
+	}
+	
+	private TransmittablePlayer getTransmittableWithoutItems()
 	{
 		TransmittablePlayer player = new TransmittablePlayer();
 		player.x = this.x;
@@ -1767,8 +1854,6 @@ public class EntityPlayer extends EntityPlayerBase
 		player.selectedSlot = this.selectedSlot;
 		player.addStatusEffects(this.statusEffects);
 		player.cooldowns = this.cooldowns;
-		player.setHeldItem(this.getHeldMouseItem());
-		player.addInventories(this.inventory.getMainInventory(), this.inventory.getArmorInventory(), this.inventory.getQuiver());
 		return player;
 	}
 	
@@ -1902,7 +1987,7 @@ public class EntityPlayer extends EntityPlayerBase
 	}
 
 	public void setHeldMouseItem(ItemStack heldMouseItem) {
-		this.changedInventorySlots.add("mouse");
+		this.changedInventorySlots.markMouseItem();
 		this.heldMouseItem = heldMouseItem;
 	}
 	
@@ -1911,7 +1996,7 @@ public class EntityPlayer extends EntityPlayerBase
 	 */
 	public void flagHeldItem()
 	{
-		this.changedInventorySlots.add("mouse");
+		this.changedInventorySlots.markMouseItem();
 	}
 	
 	/**
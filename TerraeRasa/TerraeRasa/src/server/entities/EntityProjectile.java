@@ -104,6 +104,15 @@ public class EntityProjectile extends EntityParticle
 		return this;
 	}
 	
+	/**
+	 * Gets the direction this projectile was launched in.
+	 * @return the direction, in degrees
+	 */
+	public int getDirection()
+	{
+		return direction;
+	}
+	
 	public EntityProjectile setProjectileSpriteIndex(int x, int y) {
 		iconX = x;
 		iconY = y;
@@ -0,0 +1,575 @@
+package server.entities;
+
+import java.util.List;
+
+import math.MathHelper;
+import server.world.WorldServerEarth;
+import blocks.Chunk;
+
+/**
+ * ParticlePhysics moves item stacks and projectiles in batches. Rather than calling each entity's own movement methods,
+ * which look up every block they test through the world's chunk map, a batch copies the fields movement needs into
+ * parallel arrays, moves every entity in a tight loop that tests blocks against the chunks' solid block bitsets
+ * (see {@link Chunk#getSolidBlocks()}), and then copies the results back.
+ * <br><br>
+ * The movement itself is the same as {@link EntityParticle#move(world.World)} for item stacks and
+ * {@link EntityProjectile#moveProjectile(world.World)} for projectiles, step for step, so a batch ends with the entities
+ * exactly where the object methods would have put them. The one difference is a block in a chunk that is not loaded,
+ * which the object methods fail on and a batch treats as solid.
+ * <br><br>
+ * {@link #prepare(WorldServerEarth)} must be called each tick before the first batch. A ParticlePhysics is not
+ * synchronized, and is meant to be reused by one world for every tick.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class ParticlePhysics
+{
+	private static final int FLAG_AFFECTED_BY_WALLS = 1,
+			FLAG_IMMOBILE = 2,
+			FLAG_JUMPING = 4,
+			FLAG_ACTIVE = 8,
+			FLAG_MOVED = 16;
+	private static final int CHUNK_WIDTH = Chunk.getChunkWidth();
+	private EntityParticle[] entities;
+	private double[] x;
+	private double[] y;
+	private double[] velocityX;
+	private double[] velocityY;
+	private double[] accelerationX;
+	private double[] accelerationY;
+	private double[] width;
+	private double[] height;
+	private double[] blockWidth;
+	private double[] blockHeight;
+	private double[] jumpSpeed;
+	private double[] upwardJumpCounter;
+	private double[] upwardJumpHeight;
+	private double[] distanceFallen;
+	private int[] ticksActive;
+	private int[] flags;
+	private int size;
+	/** The solid block bitset of each loaded chunk, by chunk x; null for a chunk that is not loaded */
+	private long[][] solidBlocks;
+	private int[] chunkHeights;
+	private int worldWidth;
+	private int worldHeight;
+	private double g;
+
+	public ParticlePhysics()
+	{
+		this(256);
+	}
+
+	/**
+	 * Creates a ParticlePhysics.
+	 * @param capacity how many entities a batch can hold before the arrays need to grow
+	 */
+	public ParticlePhysics(int capacity)
+	{
+		allocate(Math.max(capacity, 1));
+		solidBlocks = new long[0][];
+		chunkHeights = new int[0];
+	}
+
+	/**
+	 * Takes the world's size, gravity and loaded chunks for this tick's batches.
+	 * @param world the world the entities are in
+	 */
+	public void prepare(WorldServerEarth world)
+	{
+		worldWidth = world.getWidth();
+		worldHeight = world.getHeight();
+		g = world.getG();
+		int totalChunks = (worldWidth + CHUNK_WIDTH - 1) / CHUNK_WIDTH;
+		if(solidBlocks.length != totalChunks)
+		{
+			solidBlocks = new long[totalChunks][];
+			chunkHeights = new int[totalChunks];
+		}
+		for(int i = 0; i < totalChunks; i++)
+		{
+			Chunk chunk = world.getChunks().get(world.getChunkKey(i));
+			solidBlocks[i] = (chunk != null) ? chunk.getSolidBlocks() : null;
+			chunkHeights[i] = (chunk != null) ? chunk.getHeight() : 0;
+		}
+	}
+
+	/**
+	 * Moves every item stack in a list by one tick, as {@link EntityParticle#move(world.World)} would.
+	 * @param stacks the item stacks to move
+	 */
+	public void moveItemStacks(List<EntityItemStack> stacks)
+	{
+		load(stacks);
+		for(int i = 0; i < size; i++)
+		{
+			double oldX = x[i];
+			double oldY = y[i];
+			moveItemStack(i);
+			if(x[i] != oldX || y[i] != oldY)
+			{
+				flags[i] |= FLAG_MOVED;
+			}
+		}
+		for(int i = 0; i < size; i++)
+		{
+			EntityParticle entity = entities[i];
+			storePosition(i, entity);
+			entity.ticksActive = ticksActive[i];
+		}
+	}
+
+	/**
+	 * Moves every active projectile in a list by one tick, as {@link EntityProjectile#moveProjectile(world.World)} would.
+	 * Projectiles that hit something are made inactive. Inactive projectiles are left alone.
+	 * @param projectiles the projectiles to move
+	 */
+	public void moveProjectiles(List<EntityProjectile> projectiles)
+	{
+		load(projectiles);
+		for(int i = 0; i < size; i++)
+		{
+			if((flags[i] & FLAG_ACTIVE) == 0)
+			{
+				continue;
+			}
+			double oldX = x[i];
+			double oldY = y[i];
+			moveProjectile(i);
+			if(x[i] != oldX || y[i] != oldY)
+			{
+				flags[i] |= FLAG_MOVED;
+			}
+		}
+		for(int i = 0; i < size; i++)
+		{
+			EntityProjectile projectile = (EntityProjectile) entities[i];
+			if(!projectile.active)
+			{
+				continue;
+			}
+			storePosition(i, projectile);
+			projectile.ticksActive = ticksActive[i];
+			projectile.velocity.setX(velocityX[i]);
+			projectile.velocity.setY(velocityY[i]);
+			if((flags[i] & FLAG_ACTIVE) == 0)
+			{
+				projectile.active = false;
+				projectile.setIsFriendly(false);
+				projectile.setIsHostile(false);
+			}
+		}
+	}
+
+	/**
+	 * Gets whether an entity of the last batch changed position.
+	 * @param index the index of the entity in the list that was moved
+	 * @return true if the entity moved, otherwise false
+	 */
+	public boolean hasMoved(int index)
+	{
+		return (flags[index] & FLAG_MOVED) != 0;
+	}
+
+	private void load(List<? extends EntityParticle> particles)
+	{
+		size = particles.size();
+		if(size > entities.length)
+		{
+			allocate(Math.max(size, entities.length * 2));
+		}
+		for(int i = 0; i < size; i++)
+		{
+			EntityParticle entity = particles.get(i);
+			entities[i] = entity;
+			x[i] = entity.x;
+			y[i] = entity.y;
+			velocityX[i] = entity.velocity.getX();
+			velocityY[i] = entity.velocity.getY();
+			accelerationX[i] = entity.acceleration.getX();
+			accelerationY[i] = entity.acceleration.getY();
+			width[i] = entity.width;
+			height[i] = entity.height;
+			blockWidth[i] = entity.blockWidth;
+			blockHeight[i] = entity.blockHeight;
+			jumpSpeed[i] = entity.jumpSpeed;
+			upwardJumpCounter[i] = entity.upwardJumpCounter;
+			upwardJumpHeight[i] = entity.upwardJumpHeight;
+			distanceFallen[i] = entity.distanceFallen;
+			ticksActive[i] = entity.ticksActive;
+			int flag = 0;
+			if(entity.isAffectedByWalls)
+			{
+				flag |= FLAG_AFFECTED_BY_WALLS;
+			}
+			if(entity.isStunned || entity.isImmobile)
+			{
+				flag |= FLAG_IMMOBILE;
+			}
+			if(entity.isJumping)
+			{
+				flag |= FLAG_JUMPING;
+			}
+			if(entity.active)
+			{
+				flag |= FLAG_ACTIVE;
+			}
+			flags[i] = flag;
+		}
+		for(int i = size; i < entities.length && entities[i] != null; i++)
+		{
+			entities[i] = null;
+		}
+	}
+
+	private void storePosition(int i, EntityParticle entity)
+	{
+		entity.x = x[i];
+		entity.y = y[i];
+		entity.upwardJumpCounter = upwardJumpCounter[i];
+		entity.distanceFallen = distanceFallen[i];
+		entity.isJumping = (flags[i] & FLAG_JUMPING) != 0;
+	}
+
+	private void allocate(int capacity)
+	{
+		entities = new EntityParticle[capacity];
+		x = new double[capacity];
+		y = new double[capacity];
+		velocityX = new double[capacity];
+		velocityY = new double[capacity];
+		accelerationX = new double[capacity];
+		accelerationY = new double[capacity];
+		width = new double[capacity];
+		height = new double[capacity];
+		blockWidth = new double[capacity];
+		blockHeight = new double[capacity];
+		jumpSpeed = new double[capacity];
+		upwardJumpCounter = new double[capacity];
+		upwardJumpHeight = new double[capacity];
+		distanceFallen = new double[capacity];
+		ticksActive = new int[capacity];
+		flags = new int[capacity];
+	}
+
+	/**
+	 * See {@link EntityParticle#move(world.World)}
+	 */
+	private void moveItemStack(int i)
+	{
+		if(isOnGround(i))
+		{
+			return;
+		}
+		double verticalVelocity = MathHelper.getVf(velocityY[i], accelerationY[i] - g, ticksActive[i]);
+		double horizontalVelocity = MathHelper.getVf(velocityX[i], accelerationX[i], ticksActive[i]);
+		if(verticalVelocity > 0)
+		{
+			moveUp(i, verticalVelocity);
+		}
+		else
+		{
+			moveDown(i, Math.abs(verticalVelocity));
+		}
+		if(horizontalVelocity > 0)
+		{
+			moveRight(i, horizontalVelocity);
+		}
+		else
+		{
+			moveLeft(i, Math.abs(horizontalVelocity));
+		}
+		ticksActive[i]++;
+	}
+
+	/**
+	 * See {@link EntityProjectile#moveProjectile(world.World)}
+	 */
+	private void moveProjectile(int i)
+	{
+		velocityX[i] += accelerationX[i];
+		velocityY[i] += accelerationY[i];
+		x[i] += velocityX[i];
+		y[i] += velocityY[i];
+		ticksActive[i]++;
+		if(isOnGround(i) || (canMoveRight(i) == 0 && velocityX[i] > 0) || (canMoveLeft(i) == 0 && velocityX[i] < 0) || canMoveUp(i) == 0)
+		{
+			flags[i] &= ~FLAG_ACTIVE;
+		}
+	}
+
+	/**
+	 * Gets whether a block is solid. A block outside the world, or in a chunk that is not loaded, counts as solid.
+	 * @param blockX the x position of the block, in blocks
+	 * @param blockY the y position of the block, in blocks
+	 * @return true if the block is solid, otherwise false
+	 */
+	private boolean isSolid(int blockX, int blockY)
+	{
+		if(blockX < 0 || blockY < 0)
+		{
+			return true;
+		}
+		int chunkX = blockX / CHUNK_WIDTH;
+		if(chunkX >= solidBlocks.length || solidBlocks[chunkX] == null || blockY >= chunkHeights[chunkX])
+		{
+			return true;
+		}
+		int bit = (blockX - chunkX * CHUNK_WIDTH) * chunkHeights[chunkX] + blockY;
+		return (solidBlocks[chunkX][bit >> 6] & (1L << bit)) != 0;
+	}
+
+	private int clampX(int blockX)
+	{
+		return (blockX < 0) ? 0 : (blockX >= worldWidth) ? worldWidth - 1 : blockX;
+	}
+
+	private int clampY(int blockY)
+	{
+		return (blockY < 0) ? 0 : (blockY >= worldHeight) ? worldHeight - 1 : blockY;
+	}
+
+	/**
+	 * See {@link Entity#isOnGround(world.World)}
+	 */
+	private boolean isOnGround(int i)
+	{
+		int xOffset = (int) ((x[i] % 6 == 0) ? blockWidth[i] : (blockWidth[i] + 1));
+		int below = (int) ((y[i] / 6) + Math.ceil(blockHeight[i]));
+		for(int k = 0; k < xOffset; k++)
+		{
+			if(isSolid((int)(x[i] / 6) + k, below))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * See {@link Entity#moveEntityUp(world.World, double)}
+	 */
+	private void moveUp(int i, double movementValue)
+	{
+		int loops = (int) (movementValue / 6) + 1;
+		if((flags[i] & FLAG_IMMOBILE) != 0)
+		{
+			flags[i] &= ~FLAG_JUMPING;
+			return;
+		}
+		for(int k = 0; k < loops; k++)
+		{
+			double f = canMoveUp(i);
+			if(((y[i] - f) >= 0 && f >= movementValue) || f > 0)
+			{
+				upwardJumpCounter[i] += f;
+				y[i] -= f;
+			}
+			if(upwardJumpCounter[i] >= upwardJumpHeight[i])
+			{
+				if(upwardJumpCounter[i] > upwardJumpHeight[i])
+				{
+					y[i] += upwardJumpCounter[i] - upwardJumpHeight[i];
+				}
+				flags[i] &= ~FLAG_JUMPING;
+			}
+			if(y[i] < 0)
+			{
+				y[i] = 0;
+				flags[i] &= ~FLAG_JUMPING;
+				break;
+			}
+			if(y[i] > (worldHeight * 6) - height[i] - 6)
+			{
+				y[i] = (worldHeight * 6) - height[i] - 6;
+				break;
+			}
+			movementValue -= f;
+		}
+	}
+
+	/**
+	 * See {@link Entity#moveEntityDown(world.World, double)}
+	 */
+	private void moveDown(int i, double movementValue)
+	{
+		int loops = (int) (movementValue / 6) + 1;
+		for(int k = 0; k < loops; k++)
+		{
+			double f = canMoveDown(i);
+			if((y[i] + f < (worldHeight * 6) && f >= movementValue) || f > 0)
+			{
+				distanceFallen[i] += f;
+				y[i] += f;
+			}
+			if(y[i] > (worldHeight * 6) - height[i] - 6)
+			{
+				y[i] = (worldHeight * 6) - height[i] - 6;
+				break;
+			}
+			movementValue -= f;
+		}
+	}
+
+	/**
+	 * See {@link Entity#moveEntityRight(world.World, double)}
+	 */
+	private void moveRight(int i, double movementValue)
+	{
+		int loops = (int) (movementValue / 6) + 1;
+		if((flags[i] & FLAG_IMMOBILE) != 0)
+		{
+			return;
+		}
+		for(int k = 0; k < loops; k++)
+		{
+			double possibleMovement = canMoveRight(i);
+			double actualMovement = (movementValue > 6) ? 6 : movementValue;
+			if(actualMovement > possibleMovement)
+			{
+				actualMovement = possibleMovement;
+			}
+			x[i] += actualMovement;
+			if(x[i] > worldWidth * 6 - width[i] - 6)
+			{
+				x[i] = (worldWidth * 6) - width[i] - 6;
+			}
+			movementValue -= actualMovement;
+		}
+	}
+
+	/**
+	 * See {@link Entity#moveEntityLeft(world.World, double)}
+	 */
+	private void moveLeft(int i, double movementValue)
+	{
+		int loops = (int) (movementValue / 6) + 1;
+		if((flags[i] & FLAG_IMMOBILE) != 0)
+		{
+			return;
+		}
+		for(int k = 0; k < loops; k++)
+		{
+			double possibleMovement = canMoveLeft(i);
+			double actualMovement = (movementValue > 6) ? 6 : movementValue;
+			if(actualMovement > possibleMovement)
+			{
+				actualMovement = possibleMovement;
+			}
+			x[i] -= actualMovement;
+			if(x[i] < 0)
+			{
+				x[i] = 0;
+			}
+			movementValue -= actualMovement;
+		}
+	}
+
+	/**
+	 * See {@link Entity#canMoveUp(world.World)}
+	 */
+	private double canMoveUp(int i)
+	{
+		if((int)(y[i] / 6) <= 0)
+		{
+			flags[i] &= ~FLAG_JUMPING;
+			return 6;
+		}
+		int totalBlocks = (int) (blockWidth[i] + ((x[i] % 6 == 0) ? 0 : 1));
+		int above = (int) ((y[i] - jumpSpeed[i]) / 6);
+		boolean flag = true;
+		for(int k = 0; k < totalBlocks; k++)
+		{
+			if(isSolid((int)((x[i] / 6) + k), above))
+			{
+				flag = false;
+				break;
+			}
+		}
+		if(flag && y[i] - jumpSpeed[i] >= 0)
+		{
+			return jumpSpeed[i];
+		}
+		flags[i] &= ~FLAG_JUMPING;
+		return (y[i] % 6 != 0) ? y[i] % 6 : 0;
+	}
+
+	/**
+	 * See {@link Entity#canMoveDown(world.World)}
+	 */
+	private double canMoveDown(int i)
+	{
+		int offset = (int) ((y[i] % 6 == 0) ? blockHeight[i] : (blockHeight[i] + 1));
+		int below = (int)(y[i] / 6) + offset;
+		if(below > worldHeight - 2)
+		{
+			return 0;
+		}
+		int totalBlocks = (int) (blockWidth[i] + ((x[i] % 6 == 0) ? 0 : 1));
+		boolean flag = true;
+		for(int k = 0; k < totalBlocks; k++)
+		{
+			if(isSolid((int)((x[i] / 6) + k), below))
+			{
+				flag = false;
+				break;
+			}
+		}
+		if(flag && y[i] < worldHeight * 6)
+		{
+			return 6;
+		}
+		return (y[i] % 6 != 0) ? 6 - (y[i] % 6) : 0;
+	}
+
+	/**
+	 * See {@link Entity#canMoveRight(world.World)}
+	 */
+	private double canMoveRight(int i)
+	{
+		if((flags[i] & FLAG_AFFECTED_BY_WALLS) == 0)
+		{
+			return 6;
+		}
+		int offset = (int) ((x[i] % 6 == 0) ? blockWidth[i] : (blockWidth[i] + 1));
+		int totalBlocks = (int) (blockHeight[i] + ((y[i] % 6 == 0) ? 0 : 1));
+		int column = clampX((int)(x[i] / 6) + offset);
+		boolean flag = false;
+		for(int k = 0; k < totalBlocks; k++)
+		{
+			if(isSolid(column, clampY((int)(y[i] / 6) + k)))
+			{
+				flag = false;
+				break;
+			}
+			flag = true;
+		}
+		return (flag) ? 6 : (offset == blockWidth[i]) ? (x[i] % 6) : (6 - (x[i] % 6));
+	}
+
+	/**
+	 * See {@link Entity#canMoveLeft(world.World)}
+	 */
+	private double canMoveLeft(int i)
+	{
+		if((flags[i] & FLAG_AFFECTED_BY_WALLS) == 0)
+		{
+			return 6;
+		}
+		int totalBlocks = (int) (blockHeight[i] + ((y[i] % 6 == 0) ? 0 : 1));
+		int column = clampX((int)(x[i] / 6) - 1);
+		boolean flag = false;
+		for(int k = 0; k < totalBlocks; k++)
+		{
+			if(isSolid(column, clampY((int)(y[i] / 6) + k)))
+			{
+				flag = false;
+				break;
+			}
+			flag = true;
+		}
+		return (flag) ? 6 : (x[i] % 6);
+	}
+}
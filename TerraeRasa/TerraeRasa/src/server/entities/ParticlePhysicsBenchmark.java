@@ -0,0 +1,200 @@
+package server.entities;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import math.Vector2;
+import server.world.WorldServerEarth;
+import utils.ItemStack;
+import world.Biome;
+import blocks.Block;
+import blocks.Chunk;
+import enums.EnumWorldDifficulty;
+
+/**
+ * ParticlePhysicsBenchmark compares moving item stacks and projectiles one object at a time, through
+ * {@link EntityParticle#move(world.World)} and {@link EntityProjectile#moveProjectile(world.World)}, against moving them
+ * in batches with {@link ParticlePhysics}. Both are run on the same generated world and the same entities, reporting the
+ * time in nanoseconds per entity per tick, and the largest difference between where the two left any entity, which
+ * should be 0.
+ * <br><br>
+ * Usage: <code>java server.entities.ParticlePhysicsBenchmark [entity counts...]</code>. Each count is split evenly between
+ * item stacks and projectiles; without counts, 1000 and 10000 are run.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class ParticlePhysicsBenchmark
+{
+	private static final int WORLD_WIDTH = 800;
+	private static final int WORLD_HEIGHT = 600;
+	private static final int TICKS = 60;
+	private static final int WARMUP_ROUNDS = 3;
+	private static final int MEASURED_ROUNDS = 5;
+	private static final long SEED = 2012;
+
+	public static void main(String[] args)
+	{
+		int[] counts = { 1000, 10000 };
+		if(args.length > 0)
+		{
+			counts = new int[args.length];
+			for(int i = 0; i < args.length; i++)
+			{
+				counts[i] = Integer.parseInt(args[i]);
+			}
+		}
+		WorldServerEarth world = generateWorld();
+		System.out.println(String.format("%-10s %14s %14s %8s %12s", "entities", "object ns/e/t", "batch ns/e/t", "speedup", "max error"));
+		for(int count : counts)
+		{
+			benchmark(world, count);
+		}
+	}
+
+	private static void benchmark(WorldServerEarth world, int count)
+	{
+		ParticlePhysics physics = new ParticlePhysics();
+		long objectNanos = 0;
+		long batchNanos = 0;
+		double maxError = 0;
+		for(int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++)
+		{
+			List<EntityItemStack> objectStacks = new ArrayList<EntityItemStack>();
+			List<EntityProjectile> objectProjectiles = new ArrayList<EntityProjectile>();
+			List<EntityItemStack> batchStacks = new ArrayList<EntityItemStack>();
+			List<EntityProjectile> batchProjectiles = new ArrayList<EntityProjectile>();
+			spawn(world, count, SEED + round, objectStacks, objectProjectiles);
+			spawn(world, count, SEED + round, batchStacks, batchProjectiles);
+
+			long start = System.nanoTime();
+			for(int tick = 0; tick < TICKS; tick++)
+			{
+				for(int i = 0; i < objectStacks.size(); i++)
+				{
+					objectStacks.get(i).move(world);
+				}
+				for(int i = 0; i < objectProjectiles.size(); i++)
+				{
+					if(objectProjectiles.get(i).active)
+					{
+						objectProjectiles.get(i).moveProjectile(world);
+					}
+				}
+			}
+			long objectTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for(int tick = 0; tick < TICKS; tick++)
+			{
+				physics.prepare(world);
+				physics.moveItemStacks(batchStacks);
+				physics.moveProjectiles(batchProjectiles);
+			}
+			long batchTime = System.nanoTime() - start;
+
+			if(round >= WARMUP_ROUNDS)
+			{
+				objectNanos += objectTime;
+				batchNanos += batchTime;
+			}
+			maxError = Math.max(maxError, compare(objectStacks, batchStacks));
+			maxError = Math.max(maxError, compare(objectProjectiles, batchProjectiles));
+		}
+		double entityTicks = (double) count * TICKS * MEASURED_ROUNDS;
+		System.out.println(String.format("%-10d %14.1f %14.1f %7.2fx %12.3g",
+				count,
+				objectNanos / entityTicks,
+				batchNanos / entityTicks,
+				(double) objectNanos / batchNanos,
+				maxError));
+	}
+
+	/**
+	 * Gets the largest distance between the same entity in two lists, in either axis. An entity that is active in one
+	 * list but not the other counts as infinitely far apart.
+	 */
+	private static double compare(List<? extends EntityParticle> expected, List<? extends EntityParticle> actual)
+	{
+		double maxError = 0;
+		for(int i = 0; i < expected.size(); i++)
+		{
+			EntityParticle a = expected.get(i);
+			EntityParticle b = actual.get(i);
+			if(a.active != b.active)
+			{
+				return Double.POSITIVE_INFINITY;
+			}
+			maxError = Math.max(maxError, Math.max(Math.abs(a.x - b.x), Math.abs(a.y - b.y)));
+		}
+		return maxError;
+	}
+
+	/**
+	 * Generates rolling hills with floating ledges above them, so both falling and flying entities hit things.
+	 */
+	private static WorldServerEarth generateWorld()
+	{
+		WorldServerEarth world = new WorldServerEarth("benchmark", WORLD_WIDTH, WORLD_HEIGHT, EnumWorldDifficulty.NORMAL);
+		Random random = new Random(SEED);
+		int totalChunks = WORLD_WIDTH / Chunk.getChunkWidth();
+		for(int c = 0; c < totalChunks; c++)
+		{
+			Chunk chunk = new Chunk(Biome.forest, c, WORLD_HEIGHT);
+			for(int i = 0; i < Chunk.getChunkWidth(); i++)
+			{
+				int x = c * Chunk.getChunkWidth() + i;
+				int ground = 350 + (int)(20 * Math.sin(x / 15.0));
+				for(int j = ground; j < WORLD_HEIGHT; j++)
+				{
+					chunk.setBlock(Block.dirt, i, j);
+				}
+			}
+			for(int ledge = 0; ledge < 6; ledge++)
+			{
+				int left = random.nextInt(Chunk.getChunkWidth() - 12);
+				int y = 120 + random.nextInt(180);
+				for(int i = left; i < left + 12; i++)
+				{
+					chunk.setBlock(Block.stone, i, y);
+				}
+			}
+			world.registerChunk(chunk, c);
+		}
+		return world;
+	}
+
+	/**
+	 * Spawns half the count as item stacks, thrown like a player's dropped inventory, and half as projectiles fired
+	 * in every direction. The same seed always gives the same entities.
+	 */
+	private static void spawn(WorldServerEarth world, int count, long seed, List<EntityItemStack> stacks, List<EntityProjectile> projectiles)
+	{
+		Random random = new Random(seed);
+		double minX = 100 * 6;
+		double rangeX = (WORLD_WIDTH - 200) * 6;
+		double minY = 100 * 6;
+		double rangeY = 200 * 6;
+		for(int i = 0; i < count / 2; i++)
+		{
+			EntityItemStack stack = new EntityItemStack(0, 0, new ItemStack(Block.dirt));
+			stack.x = minX + random.nextDouble() * rangeX;
+			stack.y = minY + random.nextDouble() * rangeY;
+			stack.setVelocity(new Vector2((random.nextFloat() * 8) - 4, random.nextFloat() * 8));
+			stacks.add(stack);
+		}
+		for(int i = count / 2; i < count; i++)
+		{
+			EntityProjectile projectile = new EntityProjectile(5, 1, 1, 4 + random.nextInt(5));
+			projectile.setDirection(random.nextInt(360));
+			projectile.setXLocAndYLoc(minX + random.nextDouble() * rangeX, minY + random.nextDouble() * rangeY);
+			if(random.nextBoolean())
+			{
+				projectile.setAcceleration(new Vector2(0, 0.25));
+			}
+			projectiles.add(projectile);
+		}
+	}
+}
@@ -444,22 +444,22 @@ public class MouseItemHelper {
 				if(inventoryID == 1)
 				{
 					stack = player.inventory.getMainInventoryStack(index);
-					player.changedInventorySlots.add("i " + index);
+					player.changedInventorySlots.markMainSlot(index);
 				}
 				else if(inventoryID == 2)
 				{
 					stack = player.inventory.getArmorInventoryStack(index);
-					player.changedInventorySlots.add("a " + index);
+					player.changedInventorySlots.markArmorSlot(index);
 				}
 				else if(inventoryID == 3)
 				{
 					stack = player.inventory.getQuiverStack(index);
-					player.changedInventorySlots.add("q " + index);
+					player.changedInventorySlots.markQuiverSlot(index);
 				}
 				else if(inventoryID == 4)
 				{
 					stack = player.inventory.getTrashStack(index);
-					player.changedInventorySlots.add("t " + index);
+					player.changedInventorySlots.markTrashSlot(index);
 				}
 				
 				if(inventoryID == 2)
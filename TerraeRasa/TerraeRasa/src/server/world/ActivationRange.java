@@ -0,0 +1,143 @@
+package server.world;
+
+import java.util.Vector;
+
+import server.entities.Entity;
+import server.entities.EntityPlayer;
+import blocks.Chunk;
+
+/**
+ * ActivationRange decides how often an entity is ticked from how far it is from the nearest player, so the cost of a
+ * tick follows what the players can see rather than everything that happens to be loaded. Entities within the active
+ * range of a player are ticked every tick. Entities within the reduced range are ticked once every
+ * {@link #REDUCED_TICK_INTERVAL} ticks, staggered by their entityID so they do not all tick together. Anything further
+ * away, such as in the chunks kept loaded around spawn, is dormant and not ticked at all.
+ * <br><br>
+ * Distances are measured in blocks, along whichever axis is furthest, so each range is a square around the player.
+ * {@link #update(Vector)} must be called once a tick, before asking about any entity.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class ActivationRange
+{
+	public static final int ACTIVE = 0;
+	public static final int REDUCED = 1;
+	public static final int DORMANT = 2;
+	/** How many ticks apart an entity in the reduced range is ticked */
+	public static final int REDUCED_TICK_INTERVAL = 4;
+	private static final int CHUNK_WIDTH = Chunk.getChunkWidth();
+	private final int activeRange;
+	private final int reducedRange;
+	private double[] playerX;
+	private double[] playerY;
+	private int totalPlayers;
+	private long tickNumber;
+	/** How many entities were given each tier since the last update */
+	private int[] counts;
+
+	/**
+	 * Creates an ActivationRange.
+	 * @param activeRange how far from a player, in blocks, an entity is ticked every tick
+	 * @param reducedRange how far from a player, in blocks, an entity is ticked at a reduced rate; this is raised to the
+	 * active range if it is smaller
+	 */
+	public ActivationRange(int activeRange, int reducedRange)
+	{
+		this.activeRange = activeRange;
+		this.reducedRange = Math.max(activeRange, reducedRange);
+		playerX = new double[0];
+		playerY = new double[0];
+		counts = new int[3];
+	}
+
+	/**
+	 * Records where the players are for this tick, and resets the counts of each tier.
+	 * @param players every player in the world
+	 */
+	public void update(Vector<EntityPlayer> players)
+	{
+		totalPlayers = players.size();
+		if(playerX.length < totalPlayers)
+		{
+			playerX = new double[totalPlayers];
+			playerY = new double[totalPlayers];
+		}
+		for(int i = 0; i < totalPlayers; i++)
+		{
+			playerX[i] = players.get(i).x / 6;
+			playerY[i] = players.get(i).y / 6;
+		}
+		tickNumber++;
+		counts[ACTIVE] = 0;
+		counts[REDUCED] = 0;
+		counts[DORMANT] = 0;
+	}
+
+	/**
+	 * Gets an entity's tier from its distance to the nearest player.
+	 * @param entity the entity
+	 * @return {@link #ACTIVE}, {@link #REDUCED} or {@link #DORMANT}
+	 */
+	public int getTier(Entity entity)
+	{
+		double x = entity.x / 6;
+		double y = entity.y / 6;
+		double nearest = Double.MAX_VALUE;
+		for(int i = 0; i < totalPlayers; i++)
+		{
+			nearest = Math.min(nearest, Math.max(Math.abs(playerX[i] - x), Math.abs(playerY[i] - y)));
+		}
+		if(nearest <= activeRange)
+		{
+			return ACTIVE;
+		}
+		return (nearest <= reducedRange) ? REDUCED : DORMANT;
+	}
+
+	/**
+	 * Gets whether an entity should be ticked this tick, and counts it towards its tier.
+	 * @param entity the entity
+	 * @return true if the entity should be ticked, otherwise false
+	 */
+	public boolean shouldTick(Entity entity)
+	{
+		int tier = getTier(entity);
+		counts[tier]++;
+		if(tier == ACTIVE)
+		{
+			return true;
+		}
+		return tier == REDUCED && (tickNumber + entity.entityID) % REDUCED_TICK_INTERVAL == 0;
+	}
+
+	/**
+	 * Gets whether any player is within the active range of a chunk.
+	 * @param chunkX the chunk's x position
+	 * @return true if the chunk is active, otherwise false
+	 */
+	public boolean isChunkActive(int chunkX)
+	{
+		int left = chunkX * CHUNK_WIDTH - activeRange;
+		int right = (chunkX + 1) * CHUNK_WIDTH + activeRange;
+		for(int i = 0; i < totalPlayers; i++)
+		{
+			if(playerX[i] >= left && playerX[i] < right)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets how many entities were given a tier since the last {@link #update(Vector)}.
+	 * @param tier {@link #ACTIVE}, {@link #REDUCED} or {@link #DORMANT}
+	 * @return the number of entities
+	 */
+	public int getCount(int tier)
+	{
+		return counts[tier];
+	}
+}
@@ -0,0 +1,358 @@
+package server.world;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import server.entities.Entity;
+import server.entities.EntityPlayer;
+import blocks.Chunk;
+
+/**
+ * RegionTicker splits the world into regions by chunk x, one for each group of players near each other, and ticks the
+ * entities of each region on its own thread. A player's region reaches {@link #REGION_REACH_CHUNKS} chunks either side
+ * of the player's chunk, and players whose regions touch share one. Entities outside every region are ticked as one
+ * more region of their own.
+ * <br><br>
+ * Ticking an entity may only change that entity, and read the world's blocks and players. Anything else an entity does
+ * that reaches the rest of the world, such as adding temporary text or a command update, must check
+ * {@link #isTickingRegion()} and hand itself to {@link #defer(Runnable)} if so. Deferred actions are run on the calling
+ * thread once every region is done, in the order of the entity list, so the result does not depend on which region
+ * finished first. Whether each entity moved is kept for the same reason, see {@link #hasMoved(int)}.
+ * <br><br>
+ * With one thread, or too few entities to be worth handing out, the same regions are ticked in turn on the calling
+ * thread, and give the same result.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class RegionTicker
+{
+	/** How far a player's region reaches either side of the player's chunk, in chunks */
+	public static final int REGION_REACH_CHUNKS = 2;
+	/** With fewer entities than this, the regions are not worth handing to other threads */
+	private static final int MIN_PARALLEL_ENTITIES = 64;
+	private static final int CHUNK_WIDTH = Chunk.getChunkWidth();
+	private final int threads;
+	private ForkJoinPool pool;
+	/** The left and right chunk of each region, sorted left to right */
+	private int[] regionLefts;
+	private int[] regionRights;
+	private int totalRegions;
+	/** The entities of each region by their index in the entity list, plus one more list for those outside every region */
+	private List<Region> regions;
+	private double[] oldX;
+	private double[] oldY;
+	private boolean[] moved;
+	/** The region being ticked on each thread, if any */
+	private static final ThreadLocal<Region> currentRegion = new ThreadLocal<Region>();
+
+	/**
+	 * Creates a RegionTicker.
+	 * @param threads the most threads to tick regions on; 0 for one per processor, or 1 to tick every region on the
+	 * calling thread
+	 */
+	public RegionTicker(int threads)
+	{
+		this.threads = (threads <= 0) ? Runtime.getRuntime().availableProcessors() : threads;
+		regionLefts = new int[0];
+		regionRights = new int[0];
+		regions = new ArrayList<Region>();
+		oldX = new double[0];
+		oldY = new double[0];
+		moved = new boolean[0];
+	}
+
+	/**
+	 * Works out this tick's regions from where the players are.
+	 * @param players every player in the world
+	 */
+	public void partition(Vector<EntityPlayer> players)
+	{
+		int[] playerChunks = new int[players.size()];
+		for(int i = 0; i < playerChunks.length; i++)
+		{
+			playerChunks[i] = (int)(players.get(i).x / 6) / CHUNK_WIDTH;
+		}
+		Arrays.sort(playerChunks);
+		regionLefts = new int[playerChunks.length];
+		regionRights = new int[playerChunks.length];
+		totalRegions = 0;
+		for(int chunk : playerChunks)
+		{
+			int left = chunk - REGION_REACH_CHUNKS;
+			int right = chunk + REGION_REACH_CHUNKS;
+			if(totalRegions > 0 && left <= regionRights[totalRegions - 1] + 1)
+			{
+				regionRights[totalRegions - 1] = right;
+			}
+			else
+			{
+				regionLefts[totalRegions] = left;
+				regionRights[totalRegions] = right;
+				totalRegions++;
+			}
+		}
+	}
+
+	/**
+	 * Gets how many regions the last partition made, not counting the entities outside every region.
+	 * @return the number of regions
+	 */
+	public int getTotalRegions()
+	{
+		return totalRegions;
+	}
+
+	/**
+	 * Ticks every entity in a list, each region on its own thread, then runs what the entities deferred.
+	 * {@link #partition(Vector)} must be called first.
+	 * @param entities the entities to tick, which must not be added to or removed from until this returns
+	 * @param tick what to do to each entity
+	 */
+	public <T extends Entity> void tick(List<T> entities, EntityTick<T> tick)
+	{
+		int size = entities.size();
+		if(oldX.length < size)
+		{
+			oldX = new double[Math.max(size, oldX.length * 2)];
+			oldY = new double[oldX.length];
+			moved = new boolean[oldX.length];
+		}
+		while(regions.size() < totalRegions + 1)
+		{
+			regions.add(new Region());
+		}
+		for(Region region : regions)
+		{
+			region.clear();
+		}
+		for(int i = 0; i < size; i++)
+		{
+			Entity entity = entities.get(i);
+			oldX[i] = entity.x;
+			oldY[i] = entity.y;
+			regions.get(findRegion((int)(entity.x / 6) / CHUNK_WIDTH)).add(i);
+		}
+
+		int busyRegions = 0;
+		for(int i = 0; i <= totalRegions; i++)
+		{
+			if(regions.get(i).size > 0)
+			{
+				busyRegions++;
+			}
+		}
+		if(threads > 1 && busyRegions > 1 && size >= MIN_PARALLEL_ENTITIES)
+		{
+			tickInParallel(entities, tick);
+		}
+		else
+		{
+			for(int i = 0; i <= totalRegions; i++)
+			{
+				regions.get(i).tick(entities, tick);
+			}
+		}
+
+		for(int i = 0; i < size; i++)
+		{
+			Entity entity = entities.get(i);
+			moved[i] = entity.x != oldX[i] || entity.y != oldY[i];
+		}
+		runDeferred();
+	}
+
+	private <T extends Entity> void tickInParallel(final List<T> entities, final EntityTick<T> tick)
+	{
+		if(pool == null)
+		{
+			pool = new ForkJoinPool(threads);
+		}
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for(int i = 0; i <= totalRegions; i++)
+		{
+			final Region region = regions.get(i);
+			if(region.size > 0)
+			{
+				tasks.add(new Callable<Object>()
+				{
+					public Object call()
+					{
+						region.tick(entities, tick);
+						return null;
+					}
+				});
+			}
+		}
+		try
+		{
+			for(Future<Object> future : pool.invokeAll(tasks))
+			{
+				future.get();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Finds the region holding a chunk.
+	 * @param chunk the chunk's x position
+	 * @return the index of the region, or totalRegions if the chunk is outside every region
+	 */
+	private int findRegion(int chunk)
+	{
+		int low = 0;
+		int high = totalRegions - 1;
+		while(low <= high)
+		{
+			int middle = (low + high) >>> 1;
+			if(chunk < regionLefts[middle])
+			{
+				high = middle - 1;
+			}
+			else if(chunk > regionRights[middle])
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				return middle;
+			}
+		}
+		return totalRegions;
+	}
+
+	/**
+	 * Gets whether an entity moved during the last tick.
+	 * @param index the entity's index in the list that was ticked
+	 * @return true if the entity moved, otherwise false
+	 */
+	public boolean hasMoved(int index)
+	{
+		return moved[index];
+	}
+
+	/**
+	 * Gets whether this thread is ticking an entity for a region, in which case anything that reaches beyond the entity
+	 * must be deferred.
+	 * @return true if a region is being ticked on this thread, otherwise false
+	 */
+	public static boolean isTickingRegion()
+	{
+		return currentRegion.get() != null;
+	}
+
+	/**
+	 * Defers an action until every region has been ticked. Must only be called when {@link #isTickingRegion()}.
+	 * @param action the action, which is run on the thread that started the tick
+	 */
+	public static void defer(Runnable action)
+	{
+		Region region = currentRegion.get();
+		region.deferred.add(new DeferredAction(region.currentIndex, action));
+	}
+
+	private void runDeferred()
+	{
+		List<DeferredAction> deferred = new ArrayList<DeferredAction>();
+		for(Region region : regions)
+		{
+			deferred.addAll(region.deferred);
+			region.deferred.clear();
+		}
+		if(deferred.isEmpty())
+		{
+			return;
+		}
+		//Stable, so the actions of one entity stay in the order they were deferred
+		Collections.sort(deferred, new Comparator<DeferredAction>()
+		{
+			public int compare(DeferredAction a, DeferredAction b)
+			{
+				return (a.index < b.index) ? -1 : (a.index == b.index) ? 0 : 1;
+			}
+		});
+		for(DeferredAction action : deferred)
+		{
+			action.action.run();
+		}
+	}
+
+	/**
+	 * What ticking a region does to each of its entities.
+	 */
+	public static interface EntityTick<T>
+	{
+		public void tick(T entity);
+	}
+
+	/**
+	 * The indices of a region's entities in the entity list, in ascending order, and what they deferred.
+	 */
+	private class Region
+	{
+		private int[] indices = new int[16];
+		private int size;
+		private int currentIndex;
+		private List<DeferredAction> deferred = new ArrayList<DeferredAction>();
+
+		private void add(int index)
+		{
+			if(size == indices.length)
+			{
+				indices = Arrays.copyOf(indices, size * 2);
+			}
+			indices[size++] = index;
+		}
+
+		private void clear()
+		{
+			size = 0;
+		}
+
+		private <T extends Entity> void tick(List<T> entities, EntityTick<T> tick)
+		{
+			currentRegion.set(this);
+			try
+			{
+				for(int i = 0; i < size; i++)
+				{
+					currentIndex = indices[i];
+					tick.tick(entities.get(currentIndex));
+				}
+			}
+			finally
+			{
+				currentRegion.remove();
+			}
+		}
+	}
+
+	private static class DeferredAction
+	{
+		private final int index;
+		private final Runnable action;
+
+		private DeferredAction(int index, Runnable action)
+		{
+			this.index = index;
+			this.action = action;
+		}
+	}
+}
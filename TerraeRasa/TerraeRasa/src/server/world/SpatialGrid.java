@@ -0,0 +1,213 @@
+package server.world;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import server.entities.Entity;
+import utils.IntHashMap;
+
+/**
+ * SpatialGrid is a uniform grid over entities, used as the broadphase for hittests: instead of testing every entity
+ * in a list, a hittest asks the grid for the entities near an area with {@link #query(double, double, double, double, List)},
+ * and runs its exact test on those alone. The grid never decides a hit itself; it may return entities that turn out
+ * not to be touching the area, but never leaves out one that is.
+ * <br><br>
+ * Each entity is filed in the single cell holding its top left corner. A query reaches back by the widest and tallest
+ * entity in the grid, so entities that start in an earlier cell but overlap the area are still found. Only cells that
+ * have held an entity exist, so the grid costs nothing for the empty parts of the world. Cells are found by column and
+ * then by row, so finding one never creates a key object.
+ * <br><br>
+ * The grid is rebuilt each tick with {@link #clear()} and {@link #insert(Entity)}. An entity that moves or is removed
+ * during the rest of the tick must be passed to {@link #moved(Entity, double, double)} or {@link #remove(Entity)}.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class SpatialGrid<T extends Entity>
+{
+	/** 
+	 * Entity.inBounds(double, double, double, double) tests against a box this size at the entity's position, whatever
+	 * the entity's own size
+	 */
+	public static final double HITTEST_WIDTH = 12,
+			HITTEST_HEIGHT = 18;
+	/** When more cells than this exist, they are all discarded on the next clear, rather than kept for reuse */
+	private static final int MAX_RETAINED_CELLS = 4096;
+	private final int cellSize;
+	/** The cells of each column, by column and then by row */
+	private IntHashMap<IntHashMap<List<T>>> columns;
+	private int totalCells;
+	/** The cells holding at least one entity, so clearing does not visit every cell */
+	private List<List<T>> occupiedCells;
+	private double maxWidth;
+	private double maxHeight;
+
+	/**
+	 * Creates an empty grid.
+	 * @param cellSize the width and height of each cell, in the units entity positions are in
+	 */
+	public SpatialGrid(int cellSize)
+	{
+		this.cellSize = cellSize;
+		columns = new IntHashMap<IntHashMap<List<T>>>();
+		occupiedCells = new ArrayList<List<T>>();
+		maxWidth = HITTEST_WIDTH;
+		maxHeight = HITTEST_HEIGHT;
+	}
+
+	/**
+	 * Removes every entity from the grid.
+	 */
+	public void clear()
+	{
+		for(int i = 0; i < occupiedCells.size(); i++)
+		{
+			occupiedCells.get(i).clear();
+		}
+		occupiedCells.clear();
+		if(totalCells > MAX_RETAINED_CELLS)
+		{
+			columns.clear();
+			totalCells = 0;
+		}
+		maxWidth = HITTEST_WIDTH;
+		maxHeight = HITTEST_HEIGHT;
+	}
+
+	public void insert(T entity)
+	{
+		List<T> cell = getCell(entity.x, entity.y, true);
+		if(cell.isEmpty())
+		{
+			occupiedCells.add(cell);
+		}
+		cell.add(entity);
+		maxWidth = Math.max(maxWidth, entity.width);
+		maxHeight = Math.max(maxHeight, entity.height);
+	}
+
+	/**
+	 * Inserts every entity in a list.
+	 * @param entities the entities to insert
+	 */
+	public void insertAll(List<? extends T> entities)
+	{
+		for(int i = 0; i < entities.size(); i++)
+		{
+			insert(entities.get(i));
+		}
+	}
+
+	/**
+	 * Removes an entity from the grid. The entity must be where it was when it was inserted, or last moved.
+	 * @param entity the entity to remove
+	 */
+	public void remove(T entity)
+	{
+		List<T> cell = getCell(entity.x, entity.y, false);
+		if(cell != null)
+		{
+			cell.remove(entity);
+		}
+	}
+
+	/**
+	 * Files an entity under its new position after it has moved.
+	 * @param entity the entity, already at its new position
+	 * @param oldX the entity's x position before it moved
+	 * @param oldY the entity's y position before it moved
+	 */
+	public void moved(T entity, double oldX, double oldY)
+	{
+		List<T> oldCell = getCell(oldX, oldY, false);
+		List<T> newCell = getCell(entity.x, entity.y, true);
+		if(oldCell == newCell)
+		{
+			return;
+		}
+		if(oldCell != null)
+		{
+			oldCell.remove(entity);
+		}
+		if(newCell.isEmpty())
+		{
+			occupiedCells.add(newCell);
+		}
+		newCell.add(entity);
+	}
+
+	/**
+	 * Finds every entity that may overlap an area.
+	 * @param x the left edge of the area
+	 * @param y the top edge of the area
+	 * @param width the width of the area
+	 * @param height the height of the area
+	 * @param candidates the list the entities found are added to; it is not cleared first
+	 */
+	public void query(double x, double y, double width, double height, List<T> candidates)
+	{
+		int left = toCell(x - maxWidth);
+		int right = toCell(x + width);
+		int top = toCell(y - maxHeight);
+		int bottom = toCell(y + height);
+		for(int i = left; i <= right; i++)
+		{
+			IntHashMap<List<T>> column = columns.get(i);
+			if(column == null)
+			{
+				continue;
+			}
+			for(int j = top; j <= bottom; j++)
+			{
+				List<T> cell = column.get(j);
+				if(cell != null)
+				{
+					//Not addAll, which would copy the cell into a new array first
+					for(int k = 0; k < cell.size(); k++)
+					{
+						candidates.add(cell.get(k));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the width of the widest entity in the grid, or {@link #HITTEST_WIDTH} if that is wider.
+	 * @return the widest entity's width
+	 */
+	public double getMaxWidth()
+	{
+		return maxWidth;
+	}
+
+	private List<T> getCell(double x, double y, boolean create)
+	{
+		int cellX = toCell(x);
+		int cellY = toCell(y);
+		IntHashMap<List<T>> column = columns.get(cellX);
+		if(column == null)
+		{
+			if(!create)
+			{
+				return null;
+			}
+			column = new IntHashMap<List<T>>(8);
+			columns.put(cellX, column);
+		}
+		List<T> cell = column.get(cellY);
+		if(cell == null && create)
+		{
+			cell = new ArrayList<T>(4);
+			column.put(cellY, cell);
+			totalCells++;
+		}
+		return cell;
+	}
+
+	private int toCell(double position)
+	{
+		return (int) Math.floor(position / cellSize);
+	}
+}
@@ -0,0 +1,199 @@
+package server.world;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.Vector;
+
+import math.Vector2;
+import server.ServerSettings;
+import server.TickProfiler;
+import server.entities.EntityItemStack;
+import server.entities.EntityNPCEnemy;
+import server.entities.EntityPlayer;
+import server.entities.EntityProjectile;
+import transmission.ServerUpdate;
+import utils.ItemStack;
+import world.Biome;
+import blocks.Block;
+import blocks.Chunk;
+import entry.MPGameEngine;
+import entry.MPGameLoop;
+import entry.TerraeRasa;
+import enums.EnumPlayerDifficulty;
+import enums.EnumWorldDifficulty;
+
+/**
+ * TickAllocationBudget checks that a steady world tick stays within a budget of bytes allocated per tick. It ticks a
+ * generated world holding one player walking back and forth, with monsters chasing and hitting the player, item stacks
+ * lying nearby and projectiles flying past, through {@link WorldServerEarth#onWorldTick(ServerUpdate, Vector, TickProfiler)}
+ * exactly as the game loop does. After a warm up, the bytes the tick allocates are counted with the ThreadMXBean, and
+ * the check fails with an exit status of 1 if the mean per tick is over budget. The phases of the tick are printed as
+ * for /tps, to show where any allocation comes from.
+ * <br><br>
+ * Usage: <code>java server.world.TickAllocationBudget [entities] [bytes per tick]</code>. Without arguments, 500 entities
+ * are ticked; the default budget is {@link #DEFAULT_BASE_BYTES} bytes per tick, plus {@link #DEFAULT_BYTES_PER_ENTITY} bytes
+ * per entity.
+ * <br><br>
+ * The budget is not zero, as the records a tick sends, such as the position of each monster that moved, are handed to
+ * the connection threads and so must be new objects; the ServerUpdate holding them is created by the tick as well.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class TickAllocationBudget
+{
+	private static final int WORLD_WIDTH = 1200;
+	private static final int WORLD_HEIGHT = 600;
+	private static final int GROUND = 350;
+	/** How far the player walks either side of the centre of the world, in blocks */
+	private static final int WALK_DISTANCE = 25;
+	private static final int WARMUP_TICKS = 400;
+	private static final int MEASURED_TICKS = 400;
+	public static final long DEFAULT_BASE_BYTES = 8 * 1024;
+	/** Enough for the position of each monster that moves, but not for anything else to be created per entity */
+	public static final long DEFAULT_BYTES_PER_ENTITY = 24;
+	private static final long SEED = 2012;
+
+	public static void main(String[] args)
+	{
+		int entities = (args.length > 0) ? Integer.parseInt(args[0]) : 500;
+		long budget = (args.length > 1) ? Long.parseLong(args[1]) : DEFAULT_BASE_BYTES + entities * DEFAULT_BYTES_PER_ENTITY;
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if(!threads.isThreadAllocatedMemorySupported())
+		{
+			System.out.println("This JVM cannot count the bytes allocated by a thread");
+			System.exit(2);
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		MPGameLoop loop = startEngine();
+		WorldServerEarth world = generateWorld(loop);
+		Vector<EntityPlayer> players = new Vector<EntityPlayer>();
+		EntityPlayer player = new EntityPlayer("budget", EnumPlayerDifficulty.NORMAL, "127.0.0.1");
+		final double centre = (WORLD_WIDTH / 2) * 6;
+		player.x = centre;
+		player.y = (GROUND - 4) * 6;
+		players.add(player);
+		world.addPlayer(player);
+		spawn(world, player, entities);
+
+		TickProfiler profiler = new TickProfiler(Long.MAX_VALUE / 1000000);
+		long threadID = Thread.currentThread().getId();
+		long allocated = 0;
+		double direction = 1;
+		for(int tick = 0; tick < WARMUP_TICKS + MEASURED_TICKS; tick++)
+		{
+			//Keep the player alive and walking, so the monsters keep moving after them
+			player.invincibilityTicks = Integer.MAX_VALUE / 2;
+			if(Math.abs(player.x + direction - centre) > WALK_DISTANCE * 6)
+			{
+				direction = -direction;
+			}
+			player.x += direction;
+			long start = threads.getThreadAllocatedBytes(threadID);
+			profiler.startTick();
+			ServerUpdate update = new ServerUpdate();
+			world.onWorldTick(update, players, profiler);
+			profiler.endTick();
+			if(tick >= WARMUP_TICKS)
+			{
+				allocated += threads.getThreadAllocatedBytes(threadID) - start;
+			}
+			loop.yieldCommandUpdates();
+		}
+		loop.getChunkManager().killThreadpool();
+
+		long perTick = allocated / MEASURED_TICKS;
+		for(String line : profiler.getReport())
+		{
+			System.out.println(line);
+		}
+		System.out.println(String.format("%d entities: %d bytes per tick, budget %d bytes per tick", entities, perTick, budget));
+		if(perTick > budget)
+		{
+			System.out.println("FAIL: over the allocation budget");
+			System.exit(1);
+		}
+		System.out.println("OK");
+		System.exit(0);
+	}
+
+	/**
+	 * Sets up just enough of a server for a world to tick: settings, and a game loop to take command updates. The loop
+	 * is never started.
+	 */
+	private static MPGameLoop startEngine()
+	{
+		File basePath = new File(System.getProperty("java.io.tmpdir"), "terraerasa-budget");
+		basePath.mkdirs();
+		TerraeRasa.setBasePath(basePath.getPath());
+		ServerSettings settings = new ServerSettings();
+		settings.spawnMonsters = false;
+		settings.tickThreads = 1;
+		MPGameEngine engine = new MPGameEngine();
+		engine.setSettings(settings);
+		MPGameEngine.terraeRasa = engine;
+		engine.gameEngine = new MPGameLoop("budget");
+		return engine.gameEngine;
+	}
+
+	/**
+	 * Generates flat ground across a world small enough that every chunk stays loaded around spawn.
+	 */
+	private static WorldServerEarth generateWorld(MPGameLoop loop)
+	{
+		WorldServerEarth world = new WorldServerEarth("budget", WORLD_WIDTH, WORLD_HEIGHT, EnumWorldDifficulty.NORMAL);
+		world.chunkManager = loop.getChunkManager();
+		int totalChunks = WORLD_WIDTH / Chunk.getChunkWidth();
+		for(int c = 0; c < totalChunks; c++)
+		{
+			Chunk chunk = new Chunk(Biome.forest, c, WORLD_HEIGHT);
+			for(int i = 0; i < Chunk.getChunkWidth(); i++)
+			{
+				for(int j = GROUND; j < WORLD_HEIGHT; j++)
+				{
+					chunk.setBlock(Block.dirt, i, j);
+				}
+			}
+			world.registerChunk(chunk, c);
+		}
+		return world;
+	}
+
+	/**
+	 * Spawns half the entities as monsters fixated on the player, within the range monsters are kept in, and splits the
+	 * rest between item stacks beyond where the player walks and projectiles flying back and forth overhead.
+	 */
+	private static void spawn(WorldServerEarth world, EntityPlayer player, int entities)
+	{
+		Random random = new Random(SEED);
+		int monsters = entities / 2;
+		int stacks = (entities - monsters) / 2;
+		int projectiles = entities - monsters - stacks;
+		for(int i = 0; i < monsters; i++)
+		{
+			EntityNPCEnemy monster = new EntityNPCEnemy(EntityNPCEnemy.goblin);
+			monster.x = player.x + (random.nextInt(180) - 90) * 6;
+			monster.y = (GROUND - monster.blockHeight - 1) * 6;
+			monster.setFixation(player);
+			world.addEntityToEnemyList(monster);
+		}
+		for(int i = 0; i < stacks; i++)
+		{
+			double side = random.nextBoolean() ? 1 : -1;
+			EntityItemStack stack = new EntityItemStack(player.x + side * (WALK_DISTANCE + 15 + random.nextInt(50)) * 6, (GROUND - 2) * 6,
+					new ItemStack(Block.dirt));
+			stack.setVelocity(new Vector2(0, 0));
+			world.addItemStackToItemList(stack);
+		}
+		for(int i = 0; i < projectiles; i++)
+		{
+			EntityProjectile projectile = new EntityProjectile(5, 1, 1, 4);
+			projectile.setDirection(random.nextBoolean() ? 0 : 180);
+			projectile.setXLocAndYLoc(player.x + (random.nextInt(100) - 50) * 6, (GROUND - 60 - random.nextInt(40)) * 6);
+			world.addEntityToProjectileList(projectile);
+		}
+	}
+}
@@ -7,29 +7,30 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
-import java.util.Set;
-import java.util.TreeSet;
 import java.util.Vector;
 import java.util.concurrent.ConcurrentHashMap;
 
 import math.MathHelper;
 import math.Vector2;
 import savable.SavableWorld;
+import server.EncodedChunkCache;
+import server.EntitySnapshotTracker;
 import server.Log;
 import server.PlayerInput;
 import server.ServerSettings;
+import server.TickProfiler;
 import server.entities.Entity;
 import server.entities.EntityItemStack;
 import server.entities.EntityNPC;
 import server.entities.EntityNPCEnemy;
 import server.entities.EntityPlayer;
 import server.entities.EntityProjectile;
+import server.entities.ParticlePhysics;
 import server.io.ChunkManager;
 import server.utils.ChestLootGenerator;
 import server.utils.SaveHelper;
@@ -43,6 +44,8 @@ import transmission.SuperCompressedBlock;
 import transmission.WorldData;
 import utils.ActionbarItem;
 import utils.Damage;
+import utils.DamagePool;
+import utils.EntityList;
 import utils.ItemStack;
 import utils.MetaDataHelper;
 import utils.WorldText;
@@ -59,7 +62,7 @@ import entry.MPGameEngine;
 import entry.MPGameLoop;
 import entry.TerraeRasa;
 import enums.EnumDamageSource;
-import enums.EnumDamageType;
+import enums.EnumColor;
 import enums.EnumEventType;
 import enums.EnumWorldDifficulty;
 
@@ -101,11 +104,11 @@ import enums.EnumWorldDifficulty;
 public class WorldServerEarth extends WorldServer
 {
 	private final Object playerInputLock = new Object();
-	private List<EntityItemStack> itemsList;
-	private List<EntityNPCEnemy> entityList;
+	private EntityList<EntityItemStack> itemsList;
+	private EntityList<EntityNPCEnemy> entityList;
 	
-	private List<EntityNPC> npcList;
-	private List<EntityProjectile> projectileList;
+	private EntityList<EntityNPC> npcList;
+	private EntityList<EntityProjectile> projectileList;
 	public SpawnManager manager;
 	public ChestLootGenerator lootGenerator;
 	public ChunkManager chunkManager;
@@ -114,6 +117,61 @@ public class WorldServerEarth extends WorldServer
 	private double previousLightLevel;
 	private boolean lightingUpdateRequired;
 	private Vector<PlayerInput> playerInputs;
+	private EntitySnapshotTracker snapshotTracker;
+	/** The size of each cell of the hittest grids: 8 blocks */
+	private static final int GRID_CELL_SIZE = 48;
+	private SpatialGrid<EntityNPCEnemy> monsterGrid;
+	private SpatialGrid<EntityProjectile> projectileGrid;
+	private SpatialGrid<EntityItemStack> itemGrid;
+	/** Reused by each hittest to hold what the grids return */
+	private List<EntityNPCEnemy> monsterCandidates;
+	private List<EntityProjectile> projectileCandidates;
+	private List<EntityItemStack> itemCandidates;
+	/** Moves the itemstacks and projectiles each tick, in batches */
+	private final ParticlePhysics particlePhysics = new ParticlePhysics();
+	/** Ticks the monsters and npcs of each group of players on its own thread; created on the first tick */
+	private RegionTicker regionTicker;
+	/** Decides which monsters, npcs and weather are ticked, from how far they are from the players; created on the first tick */
+	private ActivationRange activationRange;
+	/** The monsters and npcs being ticked this tick, reused between ticks */
+	private List<EntityNPCEnemy> tickedMonsters = new ArrayList<EntityNPCEnemy>();
+	private List<EntityNPC> tickedNPCs = new ArrayList<EntityNPC>();
+	/** The Damage of every hit dealt by the tick's own hittests, reset at the start of each tick */
+	private final DamagePool damagePool = new DamagePool();
+	/** The key of each chunk in the chunk map, by chunk x position, so looking up a chunk does not build a String; created on first use */
+	private volatile String[] chunkKeys;
+	/** Which chunks updateChunks found to be needed, by chunk x position, reused between ticks */
+	private boolean[] requiredChunks;
+	/** Applies a monster's AI. Run by the region ticker, so it may only change the monster itself */
+	private final RegionTicker.EntityTick<EntityNPCEnemy> monsterTick = new RegionTicker.EntityTick<EntityNPCEnemy>()
+	{
+		public void tick(EntityNPCEnemy monster)
+		{
+			monster.catchUpSkippedTicks();
+			monster.invincibilityTicks--;
+			try {
+				monster.applyAI(WorldServerEarth.this); //otherwise apply AI
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	};
+	/** Applies an npc's AI. Run by the region ticker, so it may only change the npc itself */
+	private final RegionTicker.EntityTick<EntityNPC> npcTick = new RegionTicker.EntityTick<EntityNPC>()
+	{
+		public void tick(EntityNPC npc)
+		{
+			npc.catchUpSkippedTicks();
+			npc.applyAI(WorldServerEarth.this);
+			
+			//TODO re-enable onPlayerNear() for NPCs and possibly fixates for NPCS
+//			if(npcList.get(i).inBounds(player.x, player.y, player.width, player.height)){
+//				npcList.get(i).onPlayerNear();
+//			}
+			
+			npc.applyGravity(WorldServerEarth.this);
+		}
+	};
 	
 	/**
 	 * Reconstructs a world from a save file. This is the first step.
@@ -122,16 +180,18 @@ public class WorldServerEarth extends WorldServer
 	{
 		super("");
 		setChunks(new ConcurrentHashMap<String, Chunk>(10));
-		entityList = new ArrayList<EntityNPCEnemy>(255);
-		projectileList = new ArrayList<EntityProjectile>(255);
-		npcList = new ArrayList<EntityNPC>(255);
+		entityList = new EntityList<EntityNPCEnemy>(255);
+		projectileList = new EntityList<EntityProjectile>(255);
+		npcList = new EntityList<EntityNPC>(255);
 		temporaryText = new ArrayList<WorldText>(100);
-		itemsList = new ArrayList<EntityItemStack>(250);
+		itemsList = new EntityList<EntityItemStack>(250);
 		chunksLoaded= new Hashtable<String, Boolean>(25);
 		manager = new SpawnManager();
 		lootGenerator = new ChestLootGenerator();
 		lightingUpdateRequired = true;
 		playerInputs = new Vector<PlayerInput>();
+		snapshotTracker = new EntitySnapshotTracker();
+		createSpatialGrids();
 	}
 	
 	/**
@@ -149,11 +209,11 @@ public class WorldServerEarth extends WorldServer
 		setChunks(new ConcurrentHashMap<String, Chunk>(10));
 		this.width = width;
 		this.height = height; 
-		entityList = new ArrayList<EntityNPCEnemy>(255);
-		projectileList = new ArrayList<EntityProjectile>(255);
-		npcList = new ArrayList<EntityNPC>(255);
+		entityList = new EntityList<EntityNPCEnemy>(255);
+		projectileList = new EntityList<EntityProjectile>(255);
+		npcList = new EntityList<EntityNPC>(255);
 		temporaryText = new ArrayList<WorldText>(100);
-		itemsList = new ArrayList<EntityItemStack>(250);
+		itemsList = new EntityList<EntityItemStack>(250);
 		chunksLoaded= new Hashtable<String, Boolean>(25);
 		worldTime = (long) (6.5 * GAMETICKSPERHOUR);
 		worldName = "Earth";
@@ -165,6 +225,8 @@ public class WorldServerEarth extends WorldServer
 		chunkHeight = height / height;
 		lightingUpdateRequired = true;
 		playerInputs = new Vector<PlayerInput>();
+		snapshotTracker = new EntitySnapshotTracker();
+		createSpatialGrids();
 	}
 		
 	public WorldData getWorldData()
@@ -188,7 +250,7 @@ public class WorldServerEarth extends WorldServer
 	public Entity getEntityByID(int id)
 	{
 		try {
-			return (Entity) entitiesByID.get(""+id);
+			return (Entity) entitiesByID.get(id);
 		} catch(NullPointerException e) {
 			e.printStackTrace();
 		}
@@ -197,59 +259,55 @@ public class WorldServerEarth extends WorldServer
 		
 	public void overwriteEntityByID(Vector<EntityPlayer> players, int id, Entity newEntity)
 	{
-		Entity entity = (Entity) entitiesByID.get(""+id);
+		Entity entity = (Entity) entitiesByID.get(id);
 		if(entity instanceof EntityItemStack)
 		{
-			itemsList.remove(entity);
-			itemsList.add((EntityItemStack) newEntity);
+			itemsList.addEntity(id, (EntityItemStack) newEntity);
 		}
 		else if(entity instanceof EntityProjectile)
 		{
-			projectileList.remove(entity);
-			projectileList.add((EntityProjectile) newEntity);
+			projectileList.addEntity(id, (EntityProjectile) newEntity);
 		}
 		else if(entity instanceof EntityNPCEnemy)
 		{
-			entityList.remove(entity);
-			entityList.add((EntityNPCEnemy) newEntity);
+			entityList.addEntity(id, (EntityNPCEnemy) newEntity);
 		}
 		else if(entity instanceof EntityNPC) //Friendly?
 		{
-			npcList.remove(entity);
-			npcList.add((EntityNPC) newEntity);
+			npcList.addEntity(id, (EntityNPC) newEntity);
 		}
 		else if(entity instanceof EntityPlayer)
 		{
 			players.remove(entity);
 			players.add((EntityPlayer) newEntity);
 		}
-		entitiesByID.put(""+id, newEntity);		
+		entitiesByID.put(id, newEntity);		
 	}
 	
 	public void removeEntityByID(Vector<EntityPlayer> players, int id)
 	{
-		Entity entity = (Entity) entitiesByID.get(""+id);
+		Entity entity = (Entity) entitiesByID.get(id);
 		if(entity instanceof EntityItemStack)
 		{
-			itemsList.remove(entity);
+			itemsList.removeByID(id);
 		}
 		else if(entity instanceof EntityProjectile)
 		{
-			projectileList.remove(entity);
+			projectileList.removeByID(id);
 		}
 		else if(entity instanceof EntityNPCEnemy)
 		{
-			entityList.remove(entity);
+			entityList.removeByID(id);
 		}
 		else if(entity instanceof EntityNPC) //Friendly?
 		{
-			npcList.remove(entity);
+			npcList.removeByID(id);
 		}
 		else if(entity instanceof EntityPlayer)
 		{
 			players.remove(entity);
 		}
-		entitiesByID.remove(""+id);
+		entitiesByID.remove(id);
 	}
 	
 	/**
@@ -434,23 +492,23 @@ public class WorldServerEarth extends WorldServer
 		}
 		if(entity instanceof EntityNPCEnemy)
 		{
-			entityList.add((EntityNPCEnemy) entity);
-			entitiesByID.put(""+entity.entityID, entity);
+			entityList.addEntity(entity.entityID, (EntityNPCEnemy) entity);
+			entitiesByID.put(entity.entityID, entity);
 		}
 		else if(entity instanceof EntityNPC)
 		{
-			npcList.add((EntityNPC) entity);
-			entitiesByID.put(""+entity.entityID, entity);
+			npcList.addEntity(entity.entityID, (EntityNPC) entity);
+			entitiesByID.put(entity.entityID, entity);
 		}
 		else if(entity instanceof EntityItemStack)
 		{
-			itemsList.add((EntityItemStack) entity);
-			entitiesByID.put(""+entity.entityID, entity);
+			itemsList.addEntity(entity.entityID, (EntityItemStack) entity);
+			entitiesByID.put(entity.entityID, entity);
 		}
 		else if(entity instanceof EntityProjectile)
 		{
-			projectileList.add((EntityProjectile) entity);
-			entitiesByID.put(""+entity.entityID, entity);
+			projectileList.addEntity(entity.entityID, (EntityProjectile) entity);
+			entitiesByID.put(entity.entityID, entity);
 		}		
 	}
 	
@@ -460,8 +518,8 @@ public class WorldServerEarth extends WorldServer
 	 */
 	public void addEntityToEnemyList(EntityNPCEnemy enemy)
 	{
-		entityList.add(enemy);
-		entitiesByID.put(""+enemy.entityID, enemy);
+		entityList.addEntity(enemy.entityID, enemy);
+		entitiesByID.put(enemy.entityID, enemy);
 	}
 	
 	/**
@@ -470,8 +528,8 @@ public class WorldServerEarth extends WorldServer
 	 */
 	public void addEntityToNPCList(EntityNPC npc)
 	{
-		npcList.add(npc);
-		entitiesByID.put(""+npc.entityID, npc);
+		npcList.addEntity(npc.entityID, npc);
+		entitiesByID.put(npc.entityID, npc);
 	}
 	
 	/**
@@ -480,8 +538,8 @@ public class WorldServerEarth extends WorldServer
 	 */
 	public void addEntityToProjectileList(EntityProjectile projectile)
 	{
-		projectileList.add(projectile);
-		entitiesByID.put(""+projectile.entityID, projectile);
+		projectileList.addEntity(projectile.entityID, projectile);
+		entitiesByID.put(projectile.entityID, projectile);
 	}
 
 	/**
@@ -490,13 +548,13 @@ public class WorldServerEarth extends WorldServer
 	 */
 	public void addItemStackToItemList(EntityItemStack stack)
 	{
-		itemsList.add(stack);
-		entitiesByID.put(""+stack.entityID, stack);
+		itemsList.addEntity(stack.entityID, stack);
+		entitiesByID.put(stack.entityID, stack);
 	}
 	
 	public void addPlayer(EntityPlayer player)
 	{		
-		entitiesByID.put(""+player.entityID, player);
+		entitiesByID.put(player.entityID, player);
 	}
 	
 	
@@ -508,7 +566,6 @@ public class WorldServerEarth extends WorldServer
 			for(PlayerInput input : playerInputs)
 			{
 				input.handle(this);
-				update.addPositionUpdate(new PositionUpdate(input.getAssociatedID(), input.newX(), input.newY()));
 			}
 			playerInputs.clear();
 		}
@@ -524,42 +581,65 @@ public class WorldServerEarth extends WorldServer
 	
 	/**
 	 * Calls all the methods to update the world and its inhabitants
+	 * @param profiler the profiler marking the end of each phase of the tick
 	 */
-	public void onWorldTick(ServerUpdate update, Vector<EntityPlayer> players)
+	public void onWorldTick(ServerUpdate update, Vector<EntityPlayer> players, TickProfiler profiler)
 	{		
+		if(activationRange == null)
+		{
+			ServerSettings settings = MPGameEngine.terraeRasa.getSettings();
+			activationRange = new ActivationRange(settings.activationRange, settings.reducedActivationRange);
+		}
+		activationRange.update(players);
+		damagePool.reset();
 		spawnMonsters(update, players);				
+		profiler.mark(TickProfiler.SPAWNING);
 		updateWeather(update);		
+		profiler.mark(TickProfiler.WEATHER);
 		
 		updateChunks(players);
+		profiler.mark(TickProfiler.CHUNK_LOADING);
 		
 		//Not player based stuff -- do this once per game tick
 		updateMonsterStatusEffects();
+		particlePhysics.prepare(this);
 		updateEntityLivingItemStacks(update);
 		updateWorldTime();
+		profiler.mark(TickProfiler.ITEMS);
 
 		//Update Entities
 		if(worldTime % 20 == 0) {
 			checkForMonsterRemoval(update, players);
 		}
+		if(regionTicker == null)
+		{
+			regionTicker = new RegionTicker(MPGameEngine.terraeRasa.getSettings().tickThreads);
+		}
+		regionTicker.partition(players);
 		updateMonsters(update); 
+		profiler.mark(TickProfiler.MONSTERS);
 		updateNPCs(update);
+		profiler.mark(TickProfiler.NPCS);
 		updateProjectiles(update);
+		profiler.mark(TickProfiler.PROJECTILES);
 		
 		handlePlayerMovement(update);
 		
+		//Everything but the players has moved for this tick; the hittests below find what is near through the grids
+		rebuildSpatialGrids();
+		performProjectileMonsterHittests();
 		
 		//update the player
-		Iterator<EntityPlayer> it = players.iterator();
-		while(it.hasNext())
+		for(int i = 0; i < players.size(); i++)
 		{
-			EntityPlayer player = it.next();
+			EntityPlayer player = players.get(i);
 			double h = player.getHealth();
 			double m = player.mana;
 			double s = player.specialEnergy;
 			player.onWorldTick(update, this); 			
 			//Hittests
 			performPlayerMonsterHittests(update, player); 
-			performProjectileHittests(update, player);
+			performHostileProjectileHittests(update, player);
 			performPlayerItemHittests(update, player);
 			performEnemyToolHittests(update, player);
 			if(player.getHealth() != h || player.mana != m || player.specialEnergy != s)
@@ -568,9 +648,19 @@ public class WorldServerEarth extends WorldServer
 				update.addValue(command);
 			}
 		}
+		profiler.mark(TickProfiler.PLAYERS);
+		
+		//Send whatever changed about each entity this tick
+		snapshotTracker.trackAll(update, entityList);
+		snapshotTracker.trackAll(update, npcList);
+		snapshotTracker.trackAll(update, projectileList);
+		snapshotTracker.trackAll(update, itemsList);
+		snapshotTracker.trackAll(update, players);
+		snapshotTracker.endTick();
 		
-		for(WorldText text : temporaryText)
+		for(int i = 0; i < temporaryText.size(); i++)
 		{
+			WorldText text = temporaryText.get(i);
 			String command = "/worldtext " + text.x + " " + text.y + " " + text.message + " " + text.color.toString();
 			update.addValue(command);
 		}	
@@ -580,6 +670,39 @@ public class WorldServerEarth extends WorldServer
 		{
 			chunkManager.addAllLoadedChunks(this, getChunks());
 		}
+		profiler.mark(TickProfiler.SNAPSHOTS);
+	}
+	
+	/**
+	 * Gets how far each monster and npc is from the players, as last worked out.
+	 * @return the activation range, or null before the first tick
+	 */
+	public ActivationRange getActivationRange()
+	{
+		return activationRange;
+	}
+	
+	private void createSpatialGrids()
+	{
+		monsterGrid = new SpatialGrid<EntityNPCEnemy>(GRID_CELL_SIZE);
+		projectileGrid = new SpatialGrid<EntityProjectile>(GRID_CELL_SIZE);
+		itemGrid = new SpatialGrid<EntityItemStack>(GRID_CELL_SIZE);
+		monsterCandidates = new ArrayList<EntityNPCEnemy>();
+		projectileCandidates = new ArrayList<EntityProjectile>();
+		itemCandidates = new ArrayList<EntityItemStack>();
+	}
+	
+	/**
+	 * Files every monster, projectile and itemstack in the hittest grids, at their positions for this tick
+	 */
+	private void rebuildSpatialGrids()
+	{
+		monsterGrid.clear();
+		monsterGrid.insertAll(entityList);
+		projectileGrid.clear();
+		projectileGrid.insertAll(projectileList);
+		itemGrid.clear();
+		itemGrid.insertAll(itemsList);
 	}
 	
 	public void forceloadChunk(int x)
@@ -599,19 +722,31 @@ public class WorldServerEarth extends WorldServer
 	}	
 		
 	/**
-	 * Applies gravity to all itemstacks entities
+	 * Applies gravity to all itemstacks entities, and removes any that have been on the ground too long
 	 */
 	private void updateEntityLivingItemStacks(ServerUpdate update)
 	{		
 		for(int i = 0; i < itemsList.size(); i++)
 		{
-			double x = itemsList.get(i).x;
-			double y = itemsList.get(i).y;
-			itemsList.get(i).move(this);
-			PositionUpdate positionUpdate = new PositionUpdate(itemsList.get(i).entityID, itemsList.get(i).x, itemsList.get(i).y);
-			if(itemsList.get(i).x != x || itemsList.get(i).y != y)
+			itemsList.get(i).update();
+			if(itemsList.get(i).isDead())
 			{
-				update.addPositionUpdate(positionUpdate);			
+				EntityUpdate entityUpdate = new EntityUpdate();
+				entityUpdate.type = 3;
+				entityUpdate.action = 'r';
+				entityUpdate.entityID = itemsList.get(i).entityID;
+				entityUpdate.updatedEntity = null;
+				update.addEntityUpdate(entityUpdate);
+				entitiesByID.remove(itemsList.remove(i).entityID);
+				i--;
+			}
+		}
+		particlePhysics.moveItemStacks(itemsList);
+		for(int i = 0; i < itemsList.size(); i++)
+		{
+			if(particlePhysics.hasMoved(i))
+			{
+				update.addPositionUpdate(new PositionUpdate(itemsList.get(i).entityID, itemsList.get(i).x, itemsList.get(i).y));			
 			}
 		}		
 	}
@@ -623,11 +758,14 @@ public class WorldServerEarth extends WorldServer
 	{
 		final double PLAYER_X_CENTER = player.x + (player.width / 2);
 		final double PLAYER_Y_CENTER = player.y + (player.height / 2);
+		//No stack is wider than the grid's widest entity, so nothing further away than this can be picked up
+		final double RANGE = itemGrid.getMaxWidth() * 2 * player.pickupRangeModifier;
 		
-		Iterator<EntityItemStack> it = itemsList.iterator();
-		while(it.hasNext())
+		itemCandidates.clear();
+		itemGrid.query(PLAYER_X_CENTER - RANGE, PLAYER_Y_CENTER - RANGE, RANGE * 2, RANGE * 2, itemCandidates);
+		for(int i = 0; i < itemCandidates.size(); i++)
 		{
-			EntityItemStack stack = it.next();
+			EntityItemStack stack = itemCandidates.get(i);
 			double distance = MathHelper.distanceBetweenTwoPoints(stack.x + (stack.width / 2), 
 					stack.y + (stack.height / 2),
 					PLAYER_X_CENTER, 
@@ -635,7 +773,6 @@ public class WorldServerEarth extends WorldServer
 			//Check if the itemstack is near the player and able to be picked up
 			if(distance <= stack.width * 2 * player.pickupRangeModifier && stack.canBePickedUp()) 
 			{
-//				int originalSize = stack.getStack().getStackSize();
 				ItemStack remainingStack = player.inventory.pickUpItemStack(player, stack.getStack()); //if so try to pick it up
 				
 				if(remainingStack == null) //nothing's left, remove the null element
@@ -646,38 +783,15 @@ public class WorldServerEarth extends WorldServer
 					entityUpdate.entityID = stack.entityID;
 					entityUpdate.updatedEntity = null;
 					update.addEntityUpdate(entityUpdate);
-					
-//					String command = "/pickup " + player.entityID + " " + stack.entityID + " " + originalSize;
-
-//					player.inventory.pickUpItemStack(this, player, stack.getStack());
-					
-//					update.addValue(command);
-					it.remove();
+					itemsList.removeByID(stack.entityID);
+					entitiesByID.remove(stack.entityID);
+					itemGrid.remove(stack);
 				}
 				else //otherwise, put back what's left
 				{
-//					if(originalSize != stack.getStack().getStackSize())
-//					{
-//						String command = "/pickup " + player.entityID + " " + stack.entityID + " " + (originalSize - stack.getStack().getStackSize());
-//						update.addValue(command);
-//					}
 					stack.setStack(remainingStack);				
 				}
 			}
-			else
-			{
-				stack.update(); 
-				if(stack.isDead())
-				{
-					EntityUpdate entityUpdate = new EntityUpdate();
-					entityUpdate.type = 3;
-					entityUpdate.action = 'r';
-					entityUpdate.entityID = stack.entityID;
-					entityUpdate.updatedEntity = null;
-					update.addEntityUpdate(entityUpdate);
-					it.remove();
-				}
-			}	
 		}
 	}
 	
@@ -693,23 +807,29 @@ public class WorldServerEarth extends WorldServer
 				entityUpdate.type = 2; 
 				entityUpdate.updatedEntity = null;
 				update.addEntityUpdate(entityUpdate);
-				npcList.remove(i);
-				continue;
+				entitiesByID.remove(npcList.remove(i).entityID);
+				i--;
 			}
-								
-			double x = npcList.get(i).x;
-			double y = npcList.get(i).y;
-			npcList.get(i).applyAI(this);
-			
-			//TODO re-enable onPlayerNear() for NPCs and possibly fixates for NPCS
-//			if(npcList.get(i).inBounds(player.x, player.y, player.width, player.height)){
-//				npcList.get(i).onPlayerNear();
-//			}
-			
-			npcList.get(i).applyGravity(this);
-			if(npcList.get(i).x != x || npcList.get(i).y != y)
+		}
+		
+		tickedNPCs.clear();
+		for(int i = 0; i < npcList.size(); i++)
+		{
+			EntityNPC npc = npcList.get(i);
+			if(activationRange.shouldTick(npc))
 			{
-				update.addPositionUpdate(new PositionUpdate(npcList.get(i).entityID, npcList.get(i).x, npcList.get(i).y));
+				tickedNPCs.add(npc);
+			}
+			else
+			{
+				npc.ticksSkipped++;
+			}
+		}
+		regionTicker.tick(tickedNPCs, npcTick);
+		for (int i = 0; i < tickedNPCs.size(); i++){
+			if(regionTicker.hasMoved(i))
+			{
+				update.addPositionUpdate(new PositionUpdate(tickedNPCs.get(i).entityID, tickedNPCs.get(i).x, tickedNPCs.get(i).y));
 			}
 		}
 	}
@@ -721,12 +841,12 @@ public class WorldServerEarth extends WorldServer
 //		{
 //			entityList.clear();
 //		}
-		for(EntityPlayer player : players)
+		for(int i = 0; i < players.size(); i++)
 		{
-			Iterator<EntityNPCEnemy> it = entityList.iterator();			
-			while(it.hasNext())
+			EntityPlayer player = players.get(i);
+			for(int j = 0; j < entityList.size(); j++)
 			{
-				EntityNPCEnemy monster = it.next();
+				EntityNPCEnemy monster = entityList.get(j);
 				if(!monster.isBoss && (MathHelper.distanceBetweenTwoPoints(player.x, player.y, monster.x, monster.y) > OUT_OF_RANGE))
 				{ 
 					EntityUpdate entityUpdate = new EntityUpdate();
@@ -735,7 +855,10 @@ public class WorldServerEarth extends WorldServer
 					entityUpdate.type = 1; 
 					entityUpdate.updatedEntity = null;
 					update.addEntityUpdate(entityUpdate);
-					it.remove();
+					//The last monster is moved into this one's place, so look at the same index again
+					entityList.remove(j);
+					j--;
+					entitiesByID.remove(monster.entityID);
 					continue;
 				}
 			}
@@ -769,21 +892,30 @@ public class WorldServerEarth extends WorldServer
 				entityUpdate.type = 1; 
 				entityUpdate.updatedEntity = null;
 				update.addEntityUpdate(entityUpdate);
-				entityList.remove(i);
-				continue;
+				entitiesByID.remove(entityList.remove(i).entityID);
+				i--;
 			}
-			
-			double x = entityList.get(i).x;
-			double y = entityList.get(i).y;
-			entityList.get(i).invincibilityTicks--;
-			try {
-				entityList.get(i).applyAI(this); //otherwise apply AI
-			} catch (Exception e) {
-				e.printStackTrace();
-			}			
-			if(entityList.get(i).x != x || entityList.get(i).y != y)
+		}
+		
+		tickedMonsters.clear();
+		for(int i = 0; i < entityList.size(); i++)
+		{
+			EntityNPCEnemy monster = entityList.get(i);
+			if(activationRange.shouldTick(monster))
+			{
+				tickedMonsters.add(monster);
+			}
+			else
+			{
+				monster.ticksSkipped++;
+			}
+		}
+		regionTicker.tick(tickedMonsters, monsterTick);
+		for(int i = 0; i < tickedMonsters.size(); i++)
+		{
+			if(regionTicker.hasMoved(i))
 			{
-				update.addPositionUpdate(new PositionUpdate(entityList.get(i).entityID, entityList.get(i).x, entityList.get(i).y));
+				update.addPositionUpdate(new PositionUpdate(tickedMonsters.get(i).entityID, tickedMonsters.get(i).x, tickedMonsters.get(i).y));
 			}
 		}
 	}
@@ -881,25 +1013,16 @@ public class WorldServerEarth extends WorldServer
 		//final int OUT_OF_RANGE = 1200;//(int) ((Display.getHeight() > Display.getWidth()) ? Display.getHeight() * 0.75 : Display.getWidth() * 0.75);
 		for(int i = 0; i < projectileList.size(); i++)
 		{
-			boolean positionUpdateValid = true;
-			if (projectileList.get(i).active){
-				double x = projectileList.get(i).x;
-				double y = projectileList.get(i).y;
-				try {
-					projectileList.get(i).moveProjectile(this);
-				} catch(Exception e) {
-					e.printStackTrace();
-					projectileList.get(i).ticksNonActive += 200;
-				}
-				
-				if(projectileList.get(i).x != x || projectileList.get(i).y != y)
-				{
-					positionUpdateValid = false;
-				}
-			}
-			else if (!projectileList.get(i).active){
+			if (!projectileList.get(i).active){
 				projectileList.get(i).ticksNonActive++;
 			}
+		}
+		particlePhysics.moveProjectiles(projectileList);
+		
+		//Go backwards, so a removal only moves a projectile that has already been looked at
+		for(int i = projectileList.size() - 1; i >= 0; i--)
+		{
+			boolean positionUpdateValid = !particlePhysics.hasMoved(i);
 			
 			//If the projectile is too far away, remove it
 			if(projectileList.get(i).ticksNonActive > 80)
@@ -919,7 +1042,7 @@ public class WorldServerEarth extends WorldServer
 				entityUpdate.type = 4; 
 				entityUpdate.updatedEntity = null;
 				update.addEntityUpdate(entityUpdate);
-				projectileList.remove(i);
+				entitiesByID.remove(projectileList.remove(i).entityID);
 				continue;
 			}
 			else if (projectileList.get(i).ticksNonActive > 1) 
@@ -930,7 +1053,7 @@ public class WorldServerEarth extends WorldServer
 				entityUpdate.type = 4; 
 				entityUpdate.updatedEntity = null;
 				update.addEntityUpdate(entityUpdate);
-				projectileList.remove(i);
+				entitiesByID.remove(projectileList.remove(i).entityID);
 				continue;
 			}
 			if(positionUpdateValid)
@@ -946,49 +1069,73 @@ public class WorldServerEarth extends WorldServer
 	 */
 	private void performPlayerMonsterHittests(ServerUpdate update, EntityPlayer player)
 	{
-		for(int i = 0; i < entityList.size(); i++)
+		monsterCandidates.clear();
+		monsterGrid.query(player.x, player.y, SpatialGrid.HITTEST_WIDTH, SpatialGrid.HITTEST_HEIGHT, monsterCandidates);
+		for(int i = 0; i < monsterCandidates.size(); i++)
 		{
-			if(player.inBounds(entityList.get(i).x, entityList.get(i).y, entityList.get(i).width, entityList.get(i).height))
+			EntityNPCEnemy monster = monsterCandidates.get(i);
+			if(player.inBounds(monster.x, monster.y, monster.width, monster.height))
 			{ //If the player is in bounds of the monster, damage them
 				player.damage(this, 
-						new Damage(entityList.get(i).damageDone * difficulty.getDamageModifier(),
-								new EnumDamageType[] { EnumDamageType.NONE }, 
+						damagePool.obtain(monster.damageDone * difficulty.getDamageModifier(),
+								Damage.TYPE_NONE, 
 								EnumDamageSource.MELEE)
-								.setIsCrit(((Math.random() < entityList.get(i).criticalStrikeChance) ? true : false)), 
+								.setIsCrit(((Math.random() < monster.criticalStrikeChance) ? true : false)), 
 						true);
 			}
 		}
 	}
 	
 	/**
-	 * Sees if any projectiles have hit (are in range of) players or npcs
-	 * @param update 
+	 * Sees if any friendly projectiles have hit (are in range of) monsters. This does not depend on any player, so it
+	 * is done once per tick.
 	 */
-	private void performProjectileHittests(ServerUpdate update, EntityPlayer player)
+	private void performProjectileMonsterHittests()
 	{
-		for (int i = 0; i < projectileList.size(); i++){
-			if (projectileList.get(i).isFriendly){
-				for(int j = 0; j < entityList.size(); j++)
-				{
-					if(entityList.get(j).inBounds(projectileList.get(i).x, projectileList.get(i).y, projectileList.get(i).width, projectileList.get(i).height))
-					{ //If the projectile is in bounds of the monster, damage them
-						entityList.get(j).damage(this, 
-								new Damage(projectileList.get(i).damage, 
-										new EnumDamageType[] { EnumDamageType.NONE }, 
-										EnumDamageSource.RANGE)
-										.setIsCrit(((Math.random() < projectileList.get(i).criticalStrikeChance) ? true : false)), 
-								true);
-					}
+		for(int i = 0; i < projectileList.size(); i++)
+		{
+			EntityProjectile projectile = projectileList.get(i);
+			if(!projectile.isFriendly)
+			{
+				continue;
+			}
+			monsterCandidates.clear();
+			monsterGrid.query(projectile.x, projectile.y, projectile.width, projectile.height, monsterCandidates);
+			for(int j = 0; j < monsterCandidates.size(); j++)
+			{
+				EntityNPCEnemy monster = monsterCandidates.get(j);
+				if(monster.inBounds(projectile.x, projectile.y, projectile.width, projectile.height))
+				{ //If the projectile is in bounds of the monster, damage them
+					monster.damage(this, 
+							damagePool.obtain(projectile.damage, 
+									Damage.TYPE_NONE, 
+									EnumDamageSource.RANGE)
+									.setIsCrit(((Math.random() < projectile.criticalStrikeChance) ? true : false)), 
+							true);
 				}
 			}
-			if (projectileList.get(i).isHostile){
-				if(player.inBounds(projectileList.get(i).x, projectileList.get(i).y, projectileList.get(i).width, projectileList.get(i).height))
+		}
+	}
+	
+	/**
+	 * Sees if any hostile projectiles have hit (are in range of) the player
+	 * @param update 
+	 */
+	private void performHostileProjectileHittests(ServerUpdate update, EntityPlayer player)
+	{
+		projectileCandidates.clear();
+		projectileGrid.query(player.x, player.y, SpatialGrid.HITTEST_WIDTH, SpatialGrid.HITTEST_HEIGHT, projectileCandidates);
+		for(int i = 0; i < projectileCandidates.size(); i++)
+		{
+			EntityProjectile projectile = projectileCandidates.get(i);
+			if (projectile.isHostile){
+				if(player.inBounds(projectile.x, projectile.y, projectile.width, projectile.height))
 				{ //If the projectile is in bounds of the player, damage them
 					player.damage(this, 
-							new Damage(projectileList.get(i).damage * difficulty.getDamageModifier(), 
-									new EnumDamageType[] { EnumDamageType.NONE }, 
+							damagePool.obtain(projectile.damage * difficulty.getDamageModifier(), 
+									Damage.TYPE_NONE, 
 									EnumDamageSource.RANGE)
-									.setIsCrit(((Math.random() < projectileList.get(i).criticalStrikeChance) ? true : false)), 
+									.setIsCrit(((Math.random() < projectile.criticalStrikeChance) ? true : false)), 
 							true);
 				}
 			}
@@ -1005,8 +1152,9 @@ public class WorldServerEarth extends WorldServer
 		double spawnChance = 1.0 / 250;
 		
 		playerLoop:
-		for(EntityPlayer player : players)
+		for(int i = 0; i < players.size(); i++)
 		{
+			EntityPlayer player = players.get(i);
 			if(random.nextDouble() <= spawnChance) //Spawn at 0.5% chance per player
 			{
 				forcedSpawnLoop:
@@ -1133,10 +1281,16 @@ public class WorldServerEarth extends WorldServer
 
             if(chunk.weather != null)
             {
-            	chunk.weather.update(this, update);
+            	//Snow only falls where a player could see it, but the weather runs its course everywhere
+            	if(activationRange.isChunkActive(chunk.getX()))
+            	{
+            		chunk.weather.update(this, update);
+            	}
+            	chunk.weather.reduceTicksLeft(1);
             	if(chunk.weather.isFinished())
             	{
             		chunk.weather = null;
+            		chunk.markChanged();
             		String command = "/stopweather " + chunk.getX();
             		update.addValue(command);
             	}      
@@ -1150,6 +1304,7 @@ public class WorldServerEarth extends WorldServer
     				{
     					//cause weather!
 						chunk.weather = new WeatherSnow(chunk, averageSkyHeight); 
+						chunk.markChanged();
 	            		String command = "/causeweather " + chunk.getX() + " " + chunk.weather.getID();
 	            		update.addValue(command);
     				}
@@ -1224,37 +1379,53 @@ public class WorldServerEarth extends WorldServer
 						( scaled_points[i].getY() * Math.cos(angle));
 			}
 			
-			for(int i = 0; i < entityList.size(); i++)
+			//Only monsters near the tool's bounding box can be inside it
+			double left = x_points[0], right = x_points[0], top = y_points[0], bottom = y_points[0];
+			for(int i = 1; i < x_points.length; i++)
 			{
-				if(entityList.get(i).isImmuneToDamage())
+				left = Math.min(left, x_points[i]);
+				right = Math.max(right, x_points[i]);
+				top = Math.min(top, y_points[i]);
+				bottom = Math.max(bottom, y_points[i]);
+			}
+			monsterCandidates.clear();
+			monsterGrid.query(left, top, right - left, bottom - top, monsterCandidates);
+			
+			for(int i = 0; i < monsterCandidates.size(); i++)
+			{
+				EntityNPCEnemy monster = monsterCandidates.get(i);
+				if(monster.isImmuneToDamage())
 				{
 					continue;
 				}	
 				
 				if(pnpoly(scaled_points.length, 
 						x_points, y_points, 
-						entityList.get(i).x + entityList.get(i).width, 
-						entityList.get(i).y + entityList.get(i).height)
+						monster.x + monster.width, 
+						monster.y + monster.height)
 				){	
-					Damage damage = new Damage(heldItem.getDamageDone() * player.allDamageModifier * player.meleeDamageModifier, 
-							new EnumDamageType[] { EnumDamageType.NONE },
+					Damage damage = damagePool.obtain(heldItem.getDamageDone() * player.allDamageModifier * player.meleeDamageModifier, 
+							Damage.TYPE_NONE,
 							EnumDamageSource.MELEE)
 							.setIsCrit(((Math.random() < player.criticalStrikeChance) ? true : false));
 					player.inflictedDamageToMonster(this, damage);
-					entityList.get(i).damage(this, damage, true);
+					monster.damage(this, damage, true);
 					
 					int knockBackValue = (int) (player.knockbackModifier * 12);
-					String direction = player.getDirectionOfQuadRelativeToEntityPosition(entityList.get(i).x, entityList.get(i).y, entityList.get(i).width, entityList.get(i).height);
+					String direction = player.getDirectionOfQuadRelativeToEntityPosition(monster.x, monster.y, monster.width, monster.height);
 					
+					double oldX = monster.x;
+					double oldY = monster.y;
 					if(direction.equals("right"))
 					{
-						entityList.get(i).moveEntityRight(this, knockBackValue);	
+						monster.moveEntityRight(this, knockBackValue);	
 					}
 					else
 					{
-						entityList.get(i).moveEntityLeft(this, knockBackValue);
+						monster.moveEntityLeft(this, knockBackValue);
 					}
-					entityList.get(i).registerStatusEffect(this, new StatusEffectStun(0.45, 1, 1, 1));
+					monsterGrid.moved(monster, oldX, oldY);
+					monster.registerStatusEffect(this, new StatusEffectStun(0.45, 1, 1, 1));
 				}
 			}
 			
@@ -1791,7 +1962,7 @@ public class WorldServerEarth extends WorldServer
 	{
 		try
 		{
-			MinimalBlock block = getChunks().get(""+(x / Chunk.getChunkWidth())).getBackWall(x % Chunk.getChunkWidth(), (y));
+			MinimalBlock block = getChunks().get(getChunkKey(x / Chunk.getChunkWidth())).getBackWall(x % Chunk.getChunkWidth(), (y));
 			return Block.blocksList[block.id];
 		}
 		catch(Exception e)
@@ -1812,7 +1983,7 @@ public class WorldServerEarth extends WorldServer
 	{
 		try
 		{
-			return getChunks().get(""+(x / Chunk.getChunkWidth())).getBlock(x % Chunk.getChunkWidth(), (y));
+			return getChunks().get(getChunkKey(x / Chunk.getChunkWidth())).getBlock(x % Chunk.getChunkWidth(), (y));
 		}
 		catch(Exception e)
 		{
@@ -1833,7 +2004,7 @@ public class WorldServerEarth extends WorldServer
 	{
 		try
 		{
-			getChunks().get(""+x / Chunk.getChunkWidth()).setBackWall(block, x % Chunk.getChunkWidth(), y);
+			getChunks().get(getChunkKey(x / Chunk.getChunkWidth())).setBackWall(block, x % Chunk.getChunkWidth(), y);
 		}
 		catch(Exception e)
 		{
@@ -1853,7 +2024,7 @@ public class WorldServerEarth extends WorldServer
 	{
 		try
 		{
-			getChunks().get(""+x / Chunk.getChunkWidth()).setBlock(block, x % Chunk.getChunkWidth(), y);
+			getChunks().get(getChunkKey(x / Chunk.getChunkWidth())).setBlock(block, x % Chunk.getChunkWidth(), y);
 		}
 		catch(Exception e)
 		{
@@ -1870,7 +2041,7 @@ public class WorldServerEarth extends WorldServer
 	 */
 	public MinimalBlock getBlock(double x, double y)
 	{
-		return getChunks().get(""+(int)(x / Chunk.getChunkWidth())).getBlock((int)x % Chunk.getChunkWidth(), (int)y);
+		return getChunks().get(getChunkKey((int)(x / Chunk.getChunkWidth()))).getBlock((int)x % Chunk.getChunkWidth(), (int)y);
 	}
 	
 	/**
@@ -2009,7 +2180,7 @@ public class WorldServerEarth extends WorldServer
 	 */
 	public Chunk getChunk_Division(int x)
 	{
-		return getChunks().get(""+(int)(x / Chunk.getChunkWidth()));
+		return getChunks().get(getChunkKey((int)(x / Chunk.getChunkWidth())));
 	}
 	
 	/**
@@ -2020,7 +2191,8 @@ public class WorldServerEarth extends WorldServer
 	 */
 	public Chunk getChunk(int x)
 	{
-		return (getChunks().get(""+x) != null) ? getChunks().get(""+x) : new Chunk(Biome.forest, x, height);
+		Chunk chunk = getChunks().get(getChunkKey(x));
+		return (chunk != null) ? chunk : new Chunk(Biome.forest, x, height);
 	}
 	
 	/**
@@ -2049,7 +2221,7 @@ public class WorldServerEarth extends WorldServer
 	public Block getAssociatedBlock(int x, int y)
 	{
 		try {
-			MinimalBlock block = getChunks().get(""+(int)(x / Chunk.getChunkWidth())).getBlock((int)x % Chunk.getChunkWidth(), (int)y);
+			MinimalBlock block = getChunks().get(getChunkKey((int)(x / Chunk.getChunkWidth()))).getBlock((int)x % Chunk.getChunkWidth(), (int)y);
 			if(Block.blocksList[block.id] instanceof BlockChest)
 			{
 				return new BlockChest((BlockChest)(Block.blocksList[block.id])).mergeOnto(block);
@@ -2076,7 +2248,7 @@ public class WorldServerEarth extends WorldServer
 	public Block getAssociatedBlock(double x, double y)
 	{
 		try {
-			MinimalBlock block = getChunks().get(""+(int)(x / Chunk.getChunkWidth())).getBlock((int)x % Chunk.getChunkWidth(), (int)y);
+			MinimalBlock block = getChunks().get(getChunkKey((int)(x / Chunk.getChunkWidth()))).getBlock((int)x % Chunk.getChunkWidth(), (int)y);
 			if(Block.blocksList[block.id] instanceof BlockChest)
 			{
 				return new BlockChest((BlockChest)(Block.blocksList[block.id])).mergeOnto(block);
@@ -2102,7 +2274,7 @@ public class WorldServerEarth extends WorldServer
 	public void setBackWallGenerate(Block block, int x, int y)
 	{
 		try { //Ensure the chunk exists
-			if(getChunks().get(""+(x / Chunk.getChunkWidth())) == null)
+			if(getChunks().get(getChunkKey(x / Chunk.getChunkWidth())) == null)
 			{
 				registerChunk(new Chunk(Biome.forest, (int)(x / Chunk.getChunkWidth()), height), (int)(x / Chunk.getChunkWidth()));
 			}
@@ -2111,7 +2283,7 @@ public class WorldServerEarth extends WorldServer
 		}
 		
 		try  { //Set the block
-			chunks.get(""+(x / Chunk.getChunkWidth())).setBackWall(block, x % Chunk.getChunkWidth(), y);
+			chunks.get(getChunkKey(x / Chunk.getChunkWidth())).setBackWall(block, x % Chunk.getChunkWidth(), y);
 		} catch(Exception e) {
 			e.printStackTrace();
 		}
@@ -2129,7 +2301,7 @@ public class WorldServerEarth extends WorldServer
 	{
 		try
 		{
-			MinimalBlock block = getChunks().get(""+x / Chunk.getChunkWidth()).getBackWall(x % Chunk.getChunkWidth(), y);
+			MinimalBlock block = getChunks().get(getChunkKey(x / Chunk.getChunkWidth())).getBackWall(x % Chunk.getChunkWidth(), y);
 			return Block.blocksList[block.id];
 		}
 		catch (Exception e)
@@ -2151,7 +2323,7 @@ public class WorldServerEarth extends WorldServer
 	{
 		try
 		{ //Ensure the chunk exists
-			if(getChunks().get(""+(x / Chunk.getChunkWidth())) == null)
+			if(getChunks().get(getChunkKey(x / Chunk.getChunkWidth())) == null)
 			{
 				registerChunk(new Chunk(Biome.forest, (int)(x / Chunk.getChunkWidth()), height), (int)(x / Chunk.getChunkWidth()));
 			}
@@ -2163,7 +2335,7 @@ public class WorldServerEarth extends WorldServer
 		
 		try 
 		{ //Set the block
-			chunks.get(""+(x / Chunk.getChunkWidth())).setBlock(block, x % Chunk.getChunkWidth(), y);
+			chunks.get(getChunkKey(x / Chunk.getChunkWidth())).setBlock(block, x % Chunk.getChunkWidth(), y);
 		}
 		catch(Exception e) 
 		{
@@ -2177,123 +2349,97 @@ public class WorldServerEarth extends WorldServer
 	 */
 	private void updateChunks(Vector<EntityPlayer> players)
 	{
-//		long time = System.currentTimeMillis();
-		List<String> requiredChunks = new ArrayList<String>();
-		List<String> removedChunks = new ArrayList<String>();
 		//How far to check for chunks (in blocks)
 		final int loadDistanceHorizontally = ((2 * Chunk.getChunkWidth()) + MPGameEngine.terraeRasa.getSettings().loadDistance * Chunk.getChunkWidth()) - 1;
-		
-		// Force Chunks next to the original spawn to be loaded for speed
-		//Position to check from
-		int x = getWorldCenterBlock();
-		//Where to check, in the chunk map (based off loadDistance variables)
-		int leftOff = (x - loadDistanceHorizontally) / Chunk.getChunkWidth();
-		int rightOff = (x + loadDistanceHorizontally) / Chunk.getChunkWidth();
-		//Bounds checking
-		if(leftOff < 0) leftOff = 0;
-		if(rightOff > (width / Chunk.getChunkWidth())) rightOff = width / Chunk.getChunkWidth();
-		
-		Enumeration<String> keys = chunksLoaded.keys();
-        while (keys.hasMoreElements()) 
-        {
-            String key = (String) keys.nextElement();
-            int cx = Integer.parseInt(key);
-            if(chunksLoaded.get(key) && (cx < leftOff || cx > rightOff) && x != leftOff && x != rightOff)
-			{
-            	removedChunks.add(key);
-			}
+		final int lastChunk = width / Chunk.getChunkWidth();
+		if(requiredChunks == null || requiredChunks.length != lastChunk + 1)
+		{
+			requiredChunks = new boolean[lastChunk + 1];
 		}
-		for(int i = leftOff; i <= rightOff; i++) //Check for chunks that need loaded
+		else
 		{
-			requiredChunks.add(""+i);	
+			Arrays.fill(requiredChunks, false);
 		}
 		
+		// Force Chunks next to the original spawn to be loaded for speed
+		markRequiredChunks(getWorldCenterBlock(), loadDistanceHorizontally, lastChunk);
 		//Chunks for every player
-		Iterator<EntityPlayer> it = players.iterator();
-		while(it.hasNext())
+		for(int i = 0; i < players.size(); i++)
 		{
-			EntityPlayer player = it.next();
-			
-			//Position to check from
-			x = (int) (player.x / 6);
-			//Where to check, in the chunk map (based off loadDistance variables)
-			leftOff = (x - loadDistanceHorizontally) / Chunk.getChunkWidth();
-			rightOff = (x + loadDistanceHorizontally) / Chunk.getChunkWidth();
-			//Bounds checking
-			if(leftOff < 0) leftOff = 0;
-			if(rightOff > (width / Chunk.getChunkWidth())) rightOff = width / Chunk.getChunkWidth();
-			
-			//SSystem.out.println(leftOff + " " + rightOff + " " + x);
-			
-			keys = chunksLoaded.keys();
-	        while (keys.hasMoreElements()) 
-	        {
-	            String key = (String) keys.nextElement();
-	            int cx = Integer.parseInt(key);
-	            if(chunksLoaded.get(key) && (cx < leftOff || cx > rightOff) && x != leftOff && x != rightOff)
-				{
-	            	removedChunks.add(key);
-				}
-			}
-			for(int i = leftOff; i <= rightOff; i++) //Check for chunks that need loaded
-			{
-				requiredChunks.add(""+i);
-			}	
+			markRequiredChunks((int) (players.get(i).x / 6), loadDistanceHorizontally, lastChunk);
 		}
 		
-		String[] sortedChunkRequirement = removeDuplicates(requiredChunks);
-		String[] sortedRemoveRequirement = removeDuplicates(removedChunks);
-		List<String> list = Arrays.asList(sortedChunkRequirement);
-		
-        for(String str : sortedRemoveRequirement) 
-        {
-        	if(!list.contains(str))
-        	{
-        		//If a chunk isnt needed, request a save.
-    			chunkManager.saveChunk(worldName, chunks, Integer.parseInt(str));
-    			chunksLoaded.put(str, false);
-            }
-        }
+		Enumeration<String> keys = chunksLoaded.keys();
+		while (keys.hasMoreElements()) 
+		{
+			String key = keys.nextElement();
+			int cx = Integer.parseInt(key);
+			if(chunksLoaded.get(key) && (cx < 0 || cx > lastChunk || !requiredChunks[cx]))
+			{
+				//If a chunk isnt needed, request a save.
+				chunkManager.saveChunk(worldName, chunks, cx);
+				chunksLoaded.put(key, false);
+				EncodedChunkCache.evict(cx);
+			}
+		}
 	
-		for(String str : sortedChunkRequirement) //Check for chunks that need loaded
+		for(int i = 0; i <= lastChunk; i++) //Check for chunks that need loaded
 		{
-			if(Integer.parseInt(str) >= 0 && chunksLoaded.get(str) == null)
+			if(!requiredChunks[i])
 			{
-				chunksLoaded.put(str, false);
+				continue;
 			}
-			if(!chunksLoaded.get(str)) //If a needed chunk isnt loaded, request it.
+			String key = getChunkKey(i);
+			if(chunksLoaded.get(key) == null)
 			{
-				chunkManager.requestChunk(worldName, this, chunks, Integer.parseInt(str));
+				chunksLoaded.put(key, false);
+			}
+			if(!chunksLoaded.get(key)) //If a needed chunk isnt loaded, request it.
+			{
+				chunkManager.requestChunk(worldName, this, chunks, i);
 			}			
 		}
-//		System.out.println("Chunk_Check = " + (System.currentTimeMillis() - time));
-
 	}
 	
 	/**
-	 * Removes all the duplicates from a List<String> then returns a sorted String[] containing the non-duplicate values.
-	 * @param l the List<String> to remove duplicates from 
-	 * @return a sorted String[] containing all the non-duplicates in the given List<String>
+	 * Marks the chunks within the load distance of a position as required, for updateChunks.
+	 * @param x the position to load chunks around (in blocks)
+	 * @param loadDistanceHorizontally how far to load chunks (in blocks)
+	 * @param lastChunk the highest chunk position that may be marked
 	 */
-	public static String[] removeDuplicates(List<String> l) {
-	    Set<Object> s = new TreeSet<Object>(new Comparator<Object>() {
-	        @Override
-	        public int compare(Object o1, Object o2) {
-	        	if(o1.equals(o2)) {	
-	        		return 0;
-	        	}
-	        	return 1;
-	        }
-	    });
-	    
-	    s.addAll(l);
-	    List<Object> res = Arrays.asList(s.toArray());
-	    String[] objs = new String[res.size()];
-	    for(int i = 0; i < res.size(); i++) {
-	    	objs[i] = (String)res.get(i);
-	    }
-	    Arrays.sort(objs);
-	    return objs;
+	private void markRequiredChunks(int x, int loadDistanceHorizontally, int lastChunk)
+	{
+		//Where to check, in the chunk map (based off loadDistance variables)
+		int leftOff = (x - loadDistanceHorizontally) / Chunk.getChunkWidth();
+		int rightOff = (x + loadDistanceHorizontally) / Chunk.getChunkWidth();
+		//Bounds checking
+		if(leftOff < 0) leftOff = 0;
+		if(rightOff > lastChunk) rightOff = lastChunk;
+		for(int i = leftOff; i <= rightOff; i++)
+		{
+			requiredChunks[i] = true;
+		}
+	}
+	
+	/**
+	 * Gets the key of a chunk in the chunk map. The keys of every chunk in the world are made once and kept, as chunks 
+	 * are looked up by key many times a tick, from the region ticker's threads as well as the game loop.
+	 * @param chunkX the x position of the chunk, in the chunk map
+	 * @return the chunk's key
+	 */
+	public String getChunkKey(int chunkX)
+	{
+		String[] keys = chunkKeys;
+		if(keys == null || keys.length != (width / Chunk.getChunkWidth()) + 1)
+		{
+			keys = new String[(width / Chunk.getChunkWidth()) + 1];
+			for(int i = 0; i < keys.length; i++)
+			{
+				keys[i] = ""+i;
+			}
+			chunkKeys = keys;
+		}
+		return (chunkX >= 0 && chunkX < keys.length) ? keys[chunkX] : ""+chunkX;
 	}
 	
 	/**
@@ -2322,6 +2468,63 @@ public class WorldServerEarth extends WorldServer
 		chunkManager.saveWorldData(this);
 	}
 	
+	/**
+	 * Puts the world to sleep while nobody is connected. Every chunk is saved and unloaded, the monsters and projectiles
+	 * are removed, and the world data is saved. The world must not be ticked again until {@link #wake(long)} is called.
+	 */
+	public void hibernate()
+	{
+		Enumeration<String> keys = chunks.keys();
+		while(keys.hasMoreElements())
+		{
+			String key = keys.nextElement();
+			int x = Integer.parseInt(key);
+			//A chunk that is still being loaded or saved is dealt with when the world wakes
+			if(chunkManager.saveChunk(worldName, chunks, x))
+			{
+				chunksLoaded.put(key, false);
+				EncodedChunkCache.evict(x);
+			}
+		}
+		Iterator<EntityNPCEnemy> it = entityList.iterator();
+		while(it.hasNext())
+		{
+			EntityNPCEnemy monster = it.next();
+			if(!monster.isBoss)
+			{
+				it.remove();
+				entitiesByID.remove(monster.entityID);
+			}
+		}
+		while(!projectileList.isEmpty())
+		{
+			entitiesByID.remove(projectileList.remove(projectileList.size() - 1).entityID);
+		}
+		temporaryText.clear();
+		chunkManager.saveWorldData(this);
+	}
+	
+	/**
+	 * Wakes the world from {@link #hibernate()}. The time of day moves on by however long the world slept, and the chunks
+	 * around spawn are loaded before this returns, so the world is ready by the time the player waking it joins.
+	 * @param ticksSlept how many ticks passed while the world was hibernating
+	 */
+	public void wake(long ticksSlept)
+	{
+		advanceWorldTime(ticksSlept);
+		updateChunks(new Vector<EntityPlayer>());
+		chunkManager.addAllLoadedChunks_Wait(this, getChunks());
+	}
+	
+	/**
+	 * Moves the time of day on by some number of ticks at once, for ticks the world did not run.
+	 * @param ticks how many ticks to move the time on by
+	 */
+	public void advanceWorldTime(long ticks)
+	{
+		worldTime = (worldTime + ticks) % GAMETICKSPERDAY;
+	}
+	
 	/**
 	 * Returns true if there are one or more chunks left in the world, or false otherwise.
 	 * @return true if chunks are left, otherwise false
@@ -2356,6 +2559,26 @@ public class WorldServerEarth extends WorldServer
 		return difficulty;
 	}
 	
+	/**
+	 * Adds a piece of temporary text. Text added by a monster or npc while the region ticker runs is held back until
+	 * every region is done, and then added in the order of the entity lists.
+	 */
+	public void addTemporaryText(final String message, final int x, final int y, final int ticksLeft, final EnumColor color)
+	{
+		if(RegionTicker.isTickingRegion())
+		{
+			RegionTicker.defer(new Runnable()
+			{
+				public void run()
+				{
+					addTemporaryText(message, x, y, ticksLeft, color);
+				}
+			});
+			return;
+		}
+		super.addTemporaryText(message, x, y, ticksLeft, color);
+	}
+	
 	public ConcurrentHashMap<String, Chunk> getChunks() 
 	{
 		return chunks;
@@ -2380,7 +2603,7 @@ public class WorldServerEarth extends WorldServer
 	{
 		int x = (Integer.parseInt(pos)) / Chunk.getChunkWidth();
 	
-		Chunk chunk = getChunks().get(""+x);
+		Chunk chunk = getChunks().get(getChunkKey(x));
 		if(chunk != null)
 		{
 			return chunk.getBiome();
@@ -2410,7 +2633,7 @@ public class WorldServerEarth extends WorldServer
 	 */
 	public Block getBackBlock(double x, double y)
 	{
-		MinimalBlock block = getChunks().get(""+(int)(x / Chunk.getChunkWidth())).getBlock((int)x % Chunk.getChunkWidth(), (int)y);
+		MinimalBlock block = getChunks().get(getChunkKey((int)(x / Chunk.getChunkWidth()))).getBlock((int)x % Chunk.getChunkWidth(), (int)y);
 		return Block.blocksList[block.id];
 	}
 			
@@ -2440,8 +2663,10 @@ public class WorldServerEarth extends WorldServer
 	
 	public void setBitMap(int x, int y, int bitMap)
 	{
-		MinimalBlock block = getChunks().get(""+(x / Chunk.getChunkWidth())).getBlock(x % Chunk.getChunkWidth(), (y));
+		Chunk chunk = getChunks().get(getChunkKey(x / Chunk.getChunkWidth()));
+		MinimalBlock block = chunk.getBlock(x % Chunk.getChunkWidth(), (y));
 		block.setBitMap((byte)bitMap);
+		chunk.markChanged();
 	}
 	
 	
@@ -2455,6 +2680,7 @@ public class WorldServerEarth extends WorldServer
             if(chunk.weather != null)
             {
         		chunk.weather = null;
+        		chunk.markChanged();
         		String command = "/stopweather " + chunk.getX();
         		update.addValue(command);
             }
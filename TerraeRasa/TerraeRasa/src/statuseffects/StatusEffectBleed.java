@@ -4,7 +4,6 @@ import server.entities.EntityLiving;
 import utils.Damage;
 import world.World;
 import enums.EnumDamageSource;
-import enums.EnumDamageType;
 
 /**
  * StatusEffectBleed deals periodic damage to an entity. This damage is based on the power value, where 1 power is 1 damage 
@@ -33,7 +32,7 @@ public class StatusEffectBleed extends StatusEffect
 		{
 			entity.damage(world, 
 					new Damage(power, 
-							new EnumDamageType[] { EnumDamageType.BLEED }, 
+							Damage.TYPE_BLEED, 
 							EnumDamageSource.STATUS_EFFECT).setIsDodgeable(false).
 							setCausesCombatStatus(false).setIsPeriodic(true), 
 					false);
@@ -4,7 +4,6 @@ import server.entities.EntityLiving;
 import utils.Damage;
 import world.World;
 import enums.EnumDamageSource;
-import enums.EnumDamageType;
 
 /**
  * StatusEffectFatalWound is a brutal effect that will deal immense damage after a given amount of time. It is nerfed 
@@ -32,7 +31,7 @@ public class StatusEffectFatalWounds extends StatusEffect
 	{
 		entity.damage(world, 
 				new Damage(entity.maxHealth - 1, 
-						new EnumDamageType[] { EnumDamageType.BLEED }, 
+						Damage.TYPE_BLEED, 
 						EnumDamageSource.STATUS_EFFECT).setIsDodgeable(false)
 						.setPenetratesArmor(true).setPiercesAbsorbs(true), 
 				true);
@@ -5,7 +5,6 @@ import server.entities.EntityPlayer;
 import utils.Damage;
 import world.World;
 import enums.EnumDamageSource;
-import enums.EnumDamageType;
 
 
 /**
@@ -47,7 +46,7 @@ public class StatusEffectLastStand extends StatusEffect
 			((EntityPlayer) entity).recalculateStats();
 			entity.damage(world, 
 					new Damage(actualHealthIncrease, 
-							new EnumDamageType[] { EnumDamageType.NONE },
+							Damage.TYPE_NONE,
 							EnumDamageSource.STATUS_EFFECT)
 							.setCausesCombatStatus(false)
 							.setIsDodgeable(false)
@@ -4,7 +4,6 @@ import server.entities.EntityLiving;
 import utils.Damage;
 import world.World;
 import enums.EnumDamageSource;
-import enums.EnumDamageType;
 
 /**
  * StatusEffectPoison deals periodic damage to an entity. This damage is based on the power value, where 1 power is 1 damage 
@@ -33,7 +32,7 @@ public class StatusEffectPoison extends StatusEffect
 		{
 			entity.damage(world, 
 					new Damage(power, 
-							new EnumDamageType[] { EnumDamageType.POISON }, 
+							Damage.TYPE_POISON, 
 							EnumDamageSource.STATUS_EFFECT).setIsDodgeable(false).
 							setCausesCombatStatus(false).setIsPeriodic(true), 
 					false);
@@ -0,0 +1,59 @@
+package transmission;
+
+/**
+ * ChannelFrame describes the frames that server packets are made of. Traffic to the client is multiplexed over three
+ * channels, written in order of priority within each packet:
+ * <ul>
+ * <li>{@link #REALTIME}: per-tick state that a later tick supersedes (positions, stats, entity snapshots, inventory
+ * slots)</li>
+ * <li>{@link #RELIABLE}: events that must all arrive, in order (chat and server messages, commands, block changes,
+ * entities being added or removed)</li>
+ * <li>{@link #BULK}: large transfers, such as chunks</li>
+ * </ul>
+ * Realtime and reliable payloads are always sent whole, in one frame. A packet's realtime payload holds one entry for each
+ * tick in its reliable payload, and the receiver applies each tick's state straight after that tick's events. Bulk payloads are split into fragments of at most
+ * {@link #MAX_FRAGMENT_BYTES}, and only {@link #BULK_BYTES_PER_PACKET} of bulk fragments are written in each packet, so
+ * the state of the next tick never waits behind more than a few fragments of a chunk. Bulk payloads are sent one at a
+ * time, so the fragments of a payload are always contiguous on the bulk channel.
+ * <br><br>
+ * Each frame is written as an int header (see {@link #getHeader(int, boolean)}) followed by one fragment from
+ * {@link GameTransport#fragment(Object, int)}.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class ChannelFrame
+{
+	public static final int REALTIME = 0,
+			RELIABLE = 1,
+			BULK = 2;
+	/** The largest fragment a bulk payload is split into, in bytes */
+	public static final int MAX_FRAGMENT_BYTES = 4096;
+	/** The most bulk bytes written to one client in each packet */
+	public static final int BULK_BYTES_PER_PACKET = 24576;
+	/** Set in the header of the last frame of a payload */
+	private static final int LAST_FRAGMENT_FLAG = 0x100;
+	private static final int CHANNEL_MASK = 0xFF;
+
+	/**
+	 * Gets the header written before a frame.
+	 * @param channel the channel the frame belongs to
+	 * @param lastFragment true if this frame completes its payload
+	 * @return the frame header
+	 */
+	public static int getHeader(int channel, boolean lastFragment)
+	{
+		return channel | ((lastFragment) ? LAST_FRAGMENT_FLAG : 0);
+	}
+
+	public static int getChannel(int header)
+	{
+		return header & CHANNEL_MASK;
+	}
+
+	public static boolean isLastFragment(int header)
+	{
+		return (header & LAST_FRAGMENT_FLAG) != 0;
+	}
+}
@@ -2,9 +2,13 @@ package transmission;
 
 
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
 import utils.ItemStack;
+import utils.Position;
 import world.Biome;
 import blocks.Block;
 import blocks.Chunk;
@@ -14,6 +18,8 @@ public class ChunkCompressor
 		implements Serializable
 {
 	private static final long serialVersionUID = 1L;
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
 
 	public static SuperCompressedChunk compressChunk(Chunk chunk)
 	{
@@ -84,6 +90,88 @@ public class ChunkCompressor
 		return compressed;		
 	}
 	
+	/**
+	 * Computes a 64 bit hash of a chunk's contents. The hash depends only on what the chunk holds, so the server and a
+	 * client holding an identical chunk always compute the same value, even across restarts. This lets a chunk cached
+	 * by a client be recognised without sending it again. 0 is never returned, so it can be used to mean "no chunk".
+	 * <br><br>
+	 * Blocks are hashed field by field. The biome, weather and chest inventories are few and complex, so they are
+	 * hashed by their serialized form instead.
+	 * @param chunk the chunk to hash
+	 * @return a hash of the chunk's contents, which is never 0
+	 */
+	public static long hashChunk(SuperCompressedChunk chunk)
+	{
+		long hash = FNV_OFFSET;
+		hash = hash(hash, chunk.x);
+		hash = hash(hash, chunk.height);
+		hash = hashBlocks(hash, chunk.blocks);
+		hash = hashBlocks(hash, chunk.backWalls);
+		if(chunk.lightSources != null)
+		{
+			for(Position position : chunk.lightSources)
+			{
+				hash = hash(hash, position.x);
+				hash = hash(hash, position.y);
+			}
+		}
+		hash = hashObject(hash, chunk.biome);
+		hash = hashObject(hash, chunk.weatherData);
+		return (hash == 0) ? 1 : hash;
+	}
+	
+	private static long hashBlocks(long hash, SuperCompressedBlock[][] blocks)
+	{
+		for(int i = 0; i < blocks.length; i++)
+		{
+			for(int k = 0; k < blocks[i].length; k++)
+			{
+				SuperCompressedBlock block = blocks[i][k];
+				if(block == null)
+				{
+					hash = hash(hash, -1);
+				}
+				else
+				{
+					hash = hash(hash, (block.id << 16) | ((block.metaData & 0xFF) << 8) | (block.bitMap & 0xFF));
+					if(block.mainInventory != null && block.mainInventory.length > 0)
+					{
+						hash = hashObject(hash, block.mainInventory);
+					}
+				}
+			}
+		}
+		return hash;
+	}
+	
+	private static long hash(long hash, int value)
+	{
+		return (hash ^ value) * FNV_PRIME;
+	}
+	
+	private static long hashObject(long hash, Object object)
+	{
+		if(object == null)
+		{
+			return hash(hash, 0);
+		}
+		try {
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			ObjectOutputStream os = new ObjectOutputStream(baos);
+			os.writeObject(object);
+			os.close();
+			for(byte b : baos.toByteArray())
+			{
+				hash = hash(hash, b);
+			}
+			return hash;
+		} catch (IOException e) {
+			e.printStackTrace();
+			//Something that cannot be serialized can never be matched, so never give it a repeatable hash
+			return hash(hash, System.identityHashCode(object));
+		}
+	}
+	
 	public static ItemStack[] convert(ItemStack[] stacks)
 	{
 		ItemStack[] displayables = new ItemStack[stacks.length];
@@ -0,0 +1,288 @@
+package transmission;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+
+/**
+ * ClientCommand is one action requested by a client, such as placing a block or picking up an item. Commands are sent
+ * already parsed: an opcode saying what the command is, the ID of the player issuing it, and whichever of the primitive
+ * fields that opcode uses. The server dispatches a command straight to the handler registered for its opcode, so no
+ * command text is split or parsed on the server, and the issuing player can be checked without looking at the rest.
+ * <br><br>
+ * Commands should be created with the static factory methods, which document the fields each opcode uses. Fields an
+ * opcode does not use are left at 0 (or null). A received command whose fields are not valid for its opcode is
+ * rejected while it is read, rather than reaching a handler.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class ClientCommand
+		implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+	public static final int PLACE_FRONT_BLOCK = 0,
+			PLACE_BACK_BLOCK = 1,
+			MINE_FRONT = 2,
+			MINE_BACK = 3,
+			MINE_STOP = 4,
+			LAUNCH_PROJECTILE = 5,
+			START_SWING = 6,
+			CANCEL_SWING = 7,
+			SAY = 8,
+			USE_ITEM = 9,
+			MOUSE_PICKUP = 10,
+			MOUSE_PLACE = 11,
+			MOUSE_THROW = 12,
+			CRAFT = 13,
+			MOUSE_REMOVE = 14,
+			SHIFT_CLICK = 15,
+			SOCKET_GEM = 16,
+			SET_ACTIONBAR_SLOT = 17,
+			CHEST_EVENT = 18,
+			QUIT = 19,
+			CHUNK_MISS = 20;
+	/** The number of opcodes. Every opcode is below this */
+	public static final int TOTAL_OPCODES = 21;
+	/** Quantities a chest command can move */
+	public static final byte QUANTITY_ALL = 0,
+			QUANTITY_HALF = 1;
+
+	public final int opcode;
+	public final int playerID;
+	/** A block or chunk x position */
+	public int x;
+	/** A block y position */
+	public int y;
+	/** A block or recipe ID */
+	public int id;
+	/** Which inventory an inventory command applies to */
+	public int inventoryID;
+	/** An index into an inventory, chest or gem socket list */
+	public int index;
+	/** The player's selected actionbar slot */
+	public int slot;
+	/** The position aimed at, in world coordinates */
+	public double targetX;
+	public double targetY;
+	/** A chat message or item quantity ("1", "1/2" or "all") */
+	public String text;
+	/** How much of a chest slot to move, {@link #QUANTITY_ALL} or {@link #QUANTITY_HALF} */
+	public byte quantity;
+
+	public ClientCommand(int opcode, int playerID)
+	{
+		this.opcode = opcode;
+		this.playerID = playerID;
+	}
+
+	public static ClientCommand placeFrontBlock(int playerID, int x, int y, int blockID, int slot)
+	{
+		ClientCommand command = new ClientCommand(PLACE_FRONT_BLOCK, playerID);
+		command.x = x;
+		command.y = y;
+		command.id = blockID;
+		command.slot = slot;
+		return command;
+	}
+
+	public static ClientCommand placeBackBlock(int playerID, int x, int y, int blockID, int slot)
+	{
+		ClientCommand command = new ClientCommand(PLACE_BACK_BLOCK, playerID);
+		command.x = x;
+		command.y = y;
+		command.id = blockID;
+		command.slot = slot;
+		return command;
+	}
+
+	public static ClientCommand mineFront(int playerID, int x, int y, int slot)
+	{
+		ClientCommand command = new ClientCommand(MINE_FRONT, playerID);
+		command.x = x;
+		command.y = y;
+		command.slot = slot;
+		return command;
+	}
+
+	public static ClientCommand mineBack(int playerID, int x, int y, int slot)
+	{
+		ClientCommand command = new ClientCommand(MINE_BACK, playerID);
+		command.x = x;
+		command.y = y;
+		command.slot = slot;
+		return command;
+	}
+
+	public static ClientCommand mineStop(int playerID)
+	{
+		return new ClientCommand(MINE_STOP, playerID);
+	}
+
+	public static ClientCommand launchProjectile(int playerID, int slot, double targetX, double targetY)
+	{
+		ClientCommand command = new ClientCommand(LAUNCH_PROJECTILE, playerID);
+		command.slot = slot;
+		command.targetX = targetX;
+		command.targetY = targetY;
+		return command;
+	}
+
+	public static ClientCommand startSwing(int playerID, int slot)
+	{
+		ClientCommand command = new ClientCommand(START_SWING, playerID);
+		command.slot = slot;
+		return command;
+	}
+
+	public static ClientCommand cancelSwing(int playerID)
+	{
+		return new ClientCommand(CANCEL_SWING, playerID);
+	}
+
+	/**
+	 * Creates a chat message, or a server command if the message starts with '/'.
+	 * @param playerID the ID of the player speaking
+	 * @param text the message, in the form "&lt;color&gt; &lt;message&gt;"
+	 * @return the command
+	 */
+	public static ClientCommand say(int playerID, String text)
+	{
+		ClientCommand command = new ClientCommand(SAY, playerID);
+		command.text = text;
+		return command;
+	}
+
+	public static ClientCommand useItem(int playerID, int slot)
+	{
+		ClientCommand command = new ClientCommand(USE_ITEM, playerID);
+		command.slot = slot;
+		return command;
+	}
+
+	public static ClientCommand mousePickup(int playerID, int inventoryID, int index, String quantity)
+	{
+		ClientCommand command = new ClientCommand(MOUSE_PICKUP, playerID);
+		command.inventoryID = inventoryID;
+		command.index = index;
+		command.text = quantity;
+		return command;
+	}
+
+	public static ClientCommand mousePlace(int playerID, int inventoryID, int index, String quantity)
+	{
+		ClientCommand command = new ClientCommand(MOUSE_PLACE, playerID);
+		command.inventoryID = inventoryID;
+		command.index = index;
+		command.text = quantity;
+		return command;
+	}
+
+	public static ClientCommand mouseThrow(int playerID, String quantity)
+	{
+		ClientCommand command = new ClientCommand(MOUSE_THROW, playerID);
+		command.text = quantity;
+		return command;
+	}
+
+	public static ClientCommand craft(int playerID, int recipeID)
+	{
+		ClientCommand command = new ClientCommand(CRAFT, playerID);
+		command.id = recipeID;
+		return command;
+	}
+
+	public static ClientCommand mouseRemove(int playerID, String quantity)
+	{
+		ClientCommand command = new ClientCommand(MOUSE_REMOVE, playerID);
+		command.text = quantity;
+		return command;
+	}
+
+	public static ClientCommand shiftClick(int playerID, int inventoryID, int index)
+	{
+		ClientCommand command = new ClientCommand(SHIFT_CLICK, playerID);
+		command.inventoryID = inventoryID;
+		command.index = index;
+		return command;
+	}
+
+	/**
+	 * Creates a command to socket the gem held by the mouse into an item.
+	 * @param playerID the ID of the player
+	 * @param inventoryID the inventory holding the item
+	 * @param index the item's index in that inventory
+	 * @param gemSocketIndex the socket to place the gem in
+	 * @return the command
+	 */
+	public static ClientCommand socketGem(int playerID, int inventoryID, int index, int gemSocketIndex)
+	{
+		ClientCommand command = new ClientCommand(SOCKET_GEM, playerID);
+		command.inventoryID = inventoryID;
+		command.index = index;
+		command.id = gemSocketIndex;
+		return command;
+	}
+
+	public static ClientCommand setActionbarSlot(int playerID, int slot)
+	{
+		ClientCommand command = new ClientCommand(SET_ACTIONBAR_SLOT, playerID);
+		command.slot = slot;
+		return command;
+	}
+
+	/**
+	 * Creates a command to pick up from, or swap with, a slot of a chest.
+	 * @param playerID the ID of the player
+	 * @param x the x position of the chest, in blocks
+	 * @param y the y position of the chest, in blocks
+	 * @param index the slot of the chest
+	 * @param quantity how much to pick up, {@link #QUANTITY_ALL} or {@link #QUANTITY_HALF}
+	 * @return the command
+	 */
+	public static ClientCommand chestEvent(int playerID, int x, int y, int index, byte quantity)
+	{
+		ClientCommand command = new ClientCommand(CHEST_EVENT, playerID);
+		command.x = x;
+		command.y = y;
+		command.index = index;
+		command.quantity = quantity;
+		return command;
+	}
+
+	public static ClientCommand quit(int playerID)
+	{
+		return new ClientCommand(QUIT, playerID);
+	}
+
+	/**
+	 * Creates a command telling the server a chunk could not be loaded from the client's disk cache.
+	 * @param playerID the ID of the player
+	 * @param x the x position of the chunk, in chunks
+	 * @return the command
+	 */
+	public static ClientCommand chunkMiss(int playerID, int x)
+	{
+		ClientCommand command = new ClientCommand(CHUNK_MISS, playerID);
+		command.x = x;
+		return command;
+	}
+
+	/**
+	 * Reads a command sent by a client, rejecting it if a field holds a value its opcode does not allow.
+	 * @param in the stream the command is read from
+	 * @throws IOException if the command cannot be read or is not valid
+	 * @throws ClassNotFoundException if a class in the command cannot be found
+	 */
+	private void readObject(ObjectInputStream in)
+			throws IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+		if(opcode == CHEST_EVENT && quantity != QUANTITY_ALL && quantity != QUANTITY_HALF)
+		{
+			throw new InvalidObjectException("Invalid chest quantity: " + quantity);
+		}
+	}
+}
@@ -6,7 +6,7 @@ import enums.EnumHardwareInput;
 
 public class ClientUpdate 
 {
-	private Vector<String> commands = new Vector<String>();
+	private Vector<ClientCommand> commands = new Vector<ClientCommand>();
 	private Vector<EnumHardwareInput> clientInput = new Vector<EnumHardwareInput>();
 	private Vector<UpdateWithObject> objectUpdates = new Vector<UpdateWithObject>();
 	
@@ -14,23 +14,24 @@ public class ClientUpdate
 	{
 	}
 		
-	public void addCommand(String com)
+	public void addCommand(ClientCommand command)
 	{
-		if(com.equals(null) || com == null)
+		if(command == null)
 		{
 			System.out.println("Null command issued");
+			return;
 		}
-		this.commands.add(com);
+		this.commands.add(command);
 	}
 	
-	public String[] getCommands()
+	public ClientCommand[] getCommands()
 	{
-		String[] vals = new String[commands.size()];
+		ClientCommand[] vals = new ClientCommand[commands.size()];
 		commands.copyInto(vals);
 		return vals;
 	}
 	
-	public Vector<String> getCommandsVector()
+	public Vector<ClientCommand> getCommandsVector()
 	{
 		return commands;
 	}
@@ -0,0 +1,201 @@
+package transmission;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * CodecBenchmark compares every {@link PayloadCodec} on the same set of payloads, reporting the compression ratio and
+ * the encode and decode time in nanoseconds per input byte. Payloads are split into small (tick updates) and large
+ * (chunks), since the two behave very differently.
+ * <br><br>
+ * Usage: <code>java transmission.CodecBenchmark [recorded traffic file]</code>. The traffic file is produced by running
+ * the game with <code>-Dterraerasa.recordtraffic=file</code>; see {@link PayloadCompressor}. Without a file, a synthetic
+ * set of tick updates and chunks is generated instead.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class CodecBenchmark
+{
+	/** Payloads at or above this size are reported as large */
+	private static final int LARGE_PAYLOAD_SIZE = 8192;
+	private static final int WARMUP_ROUNDS = 5;
+	private static final int MEASURED_ROUNDS = 10;
+
+	public static void main(String[] args)
+			throws IOException
+	{
+		List<byte[]> payloads = (args.length > 0) ? loadRecordedTraffic(args[0]) : generateSyntheticTraffic();
+		List<byte[]> small = new ArrayList<byte[]>();
+		List<byte[]> large = new ArrayList<byte[]>();
+		for(byte[] payload : payloads)
+		{
+			if(payload.length >= LARGE_PAYLOAD_SIZE)
+			{
+				large.add(payload);
+			}
+			else
+			{
+				small.add(payload);
+			}
+		}
+
+		System.out.println("Payloads: " + small.size() + " small, " + large.size() + " large");
+		System.out.println(String.format("%-20s %-6s %12s %12s %8s %12s %12s",
+				"codec", "set", "in bytes", "out bytes", "ratio", "enc ns/B", "dec ns/B"));
+		for(PayloadCodec codec : PayloadCompressor.getCodecs())
+		{
+			benchmark(codec, "small", small);
+			benchmark(codec, "large", large);
+		}
+	}
+
+	private static void benchmark(PayloadCodec codec, String setName, List<byte[]> payloads)
+			throws IOException
+	{
+		if(payloads.isEmpty())
+		{
+			return;
+		}
+		long inBytes = 0;
+		long outBytes = 0;
+		byte[][] encoded = new byte[payloads.size()][];
+		for(int i = 0; i < payloads.size(); i++)
+		{
+			byte[] payload = payloads.get(i);
+			encoded[i] = codec.encode(payload, payload.length);
+			inBytes += payload.length;
+			outBytes += encoded[i].length;
+			if(!Arrays.equals(payload, codec.decode(encoded[i], 0, encoded[i].length, payload.length)))
+			{
+				throw new IOException(codec.getName() + " failed to round trip a payload of " + payload.length + " bytes");
+			}
+		}
+
+		for(int round = 0; round < WARMUP_ROUNDS; round++)
+		{
+			encodeAll(codec, payloads);
+			decodeAll(codec, payloads, encoded);
+		}
+		long encodeTime = 0;
+		long decodeTime = 0;
+		for(int round = 0; round < MEASURED_ROUNDS; round++)
+		{
+			long start = System.nanoTime();
+			encodeAll(codec, payloads);
+			encodeTime += System.nanoTime() - start;
+			start = System.nanoTime();
+			decodeAll(codec, payloads, encoded);
+			decodeTime += System.nanoTime() - start;
+		}
+
+		double totalBytes = (double) inBytes * MEASURED_ROUNDS;
+		System.out.println(String.format("%-20s %-6s %12d %12d %8.3f %12.2f %12.2f",
+				codec.getName(), setName, inBytes, outBytes, (double) outBytes / inBytes,
+				encodeTime / totalBytes, decodeTime / totalBytes));
+	}
+
+	private static void encodeAll(PayloadCodec codec, List<byte[]> payloads)
+			throws IOException
+	{
+		for(byte[] payload : payloads)
+		{
+			codec.encode(payload, payload.length);
+		}
+	}
+
+	private static void decodeAll(PayloadCodec codec, List<byte[]> payloads, byte[][] encoded)
+			throws IOException
+	{
+		for(int i = 0; i < encoded.length; i++)
+		{
+			codec.decode(encoded[i], 0, encoded[i].length, payloads.get(i).length);
+		}
+	}
+
+	private static List<byte[]> loadRecordedTraffic(String path)
+			throws IOException
+	{
+		List<byte[]> payloads = new ArrayList<byte[]>();
+		DataInputStream in = new DataInputStream(new FileInputStream(path));
+		try {
+			while(true)
+			{
+				byte[] payload = new byte[in.readInt()];
+				in.readFully(payload);
+				payloads.add(payload);
+			}
+		} catch (EOFException e) {
+		} finally {
+			in.close();
+		}
+		return payloads;
+	}
+
+	private static List<byte[]> generateSyntheticTraffic()
+			throws IOException
+	{
+		Random random = new Random(1);
+		List<byte[]> payloads = new ArrayList<byte[]>();
+		for(int tick = 0; tick < 400; tick++)
+		{
+			CompressedServerUpdate update = new CompressedServerUpdate();
+			update.positionUpdates = new PositionUpdate[1 + random.nextInt(30)];
+			for(int i = 0; i < update.positionUpdates.length; i++)
+			{
+				update.positionUpdates[i] = new PositionUpdate(i, random.nextInt(20000) / 6.0, random.nextInt(7200) / 6.0);
+			}
+			if(tick % 4 == 0)
+			{
+				update.values = new String[] { "/player 0 sethms " + random.nextInt(400) + " " + random.nextInt(200) + " 0" };
+			}
+			payloads.add(serialize(new CompressedServerUpdate[] { update }));
+		}
+		for(int chunk = 0; chunk < 8; chunk++)
+		{
+			SuperCompressedChunk compressed = new SuperCompressedChunk();
+			compressed.x = chunk;
+			compressed.height = 1200;
+			compressed.blocks = syntheticBlocks(random, compressed.height);
+			compressed.backWalls = syntheticBlocks(random, compressed.height);
+			payloads.add(serialize(new SuperCompressedChunk[] { compressed }));
+		}
+		return payloads;
+	}
+
+	private static SuperCompressedBlock[][] syntheticBlocks(Random random, int height)
+	{
+		SuperCompressedBlock[][] blocks = new SuperCompressedBlock[SuperCompressedChunk.CHUNK_WIDTH][height];
+		for(int i = 0; i < blocks.length; i++)
+		{
+			int surface = height / 3 + random.nextInt(10);
+			for(int k = surface; k < height; k++)
+			{
+				SuperCompressedBlock block = new SuperCompressedBlock();
+				block.id = (short) ((k - surface < 10) ? 2 : (random.nextInt(20) == 0) ? 40 + random.nextInt(5) : 1);
+				block.bitMap = (byte) random.nextInt(16);
+				blocks[i][k] = block;
+			}
+		}
+		return blocks;
+	}
+
+	private static byte[] serialize(Object object)
+			throws IOException
+	{
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ObjectOutputStream objectOut = new ObjectOutputStream(baos);
+		objectOut.writeObject(object);
+		objectOut.close();
+		return baos.toByteArray();
+	}
+}
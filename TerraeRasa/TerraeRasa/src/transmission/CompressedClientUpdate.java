@@ -2,14 +2,24 @@ package transmission;
 
 import java.io.Serializable;
 
-import enums.EnumHardwareInput;
-
 public class CompressedClientUpdate 
 		implements Serializable
 {
 	private static final long serialVersionUID = 1L;
 	public int playerID;
-	public String[] commands = { };
-	public EnumHardwareInput[] clientInput = { };
+	public ClientCommand[] commands = { };
+	/** The sequence number of the input frame this update carries, or 0 if it carries none */
+	public int inputSequence;
+	/** The EnumHardwareInput flags held during the input frame */
+	public short inputFlags;
 	public UpdateWithObject[] objectUpdates = { };
+	
+	/**
+	 * Determines if this update carries nothing for the server to act on.
+	 * @return true if there are no commands, input frame, or object updates
+	 */
+	public boolean isEmpty()
+	{
+		return commands.length == 0 && inputSequence == 0 && objectUpdates.length == 0;
+	}
 }
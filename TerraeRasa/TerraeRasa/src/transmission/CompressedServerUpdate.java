@@ -12,6 +12,9 @@ public class CompressedServerUpdate
 	public BlockUpdate[] blockUpdates;
 	public StatUpdate[] statUpdates;
 	public UpdateWithObject[] objectUpdates;
+	public InventorySlotUpdate[] inventoryUpdates;
+	public EntitySnapshot[] entitySnapshots;
+	public MovementState[] movementStates;
 
 	public CompressedServerUpdate()
 	{
@@ -22,5 +25,40 @@ public class CompressedServerUpdate
 		this.blockUpdates = new BlockUpdate[0];
 		this.statUpdates = new StatUpdate[0];
 		this.objectUpdates = new UpdateWithObject[0];
+		this.inventoryUpdates = new InventorySlotUpdate[0];
+		this.entitySnapshots = new EntitySnapshot[0];
+		this.movementStates = new MovementState[0];
+	}
+
+	/**
+	 * Moves the per-tick state (positions, stats, entity snapshots, inventory slots and movement states) out of this update, so it can be
+	 * sent on the realtime channel. This update is left holding only the reliable events.
+	 * @return a new update holding the state removed from this one
+	 */
+	public CompressedServerUpdate removeRealtimeState()
+	{
+		CompressedServerUpdate state = new CompressedServerUpdate();
+		state.positionUpdates = positionUpdates;
+		state.statUpdates = statUpdates;
+		state.inventoryUpdates = inventoryUpdates;
+		state.entitySnapshots = entitySnapshots;
+		state.movementStates = movementStates;
+		positionUpdates = new PositionUpdate[0];
+		statUpdates = new StatUpdate[0];
+		inventoryUpdates = new InventorySlotUpdate[0];
+		entitySnapshots = new EntitySnapshot[0];
+		movementStates = new MovementState[0];
+		return state;
+	}
+	
+	/**
+	 * Indicates if this update holds nothing at all.
+	 * @return true if every part of this update is empty; otherwise false
+	 */
+	public boolean isEmpty()
+	{
+		return values.length == 0 && entityUpdates.length == 0 && positionUpdates.length == 0 && blockUpdates.length == 0 && 
+				statUpdates.length == 0 && objectUpdates.length == 0 && inventoryUpdates.length == 0 && entitySnapshots.length == 0 && 
+				movementStates.length == 0;
 	}
 }
\ No newline at end of file
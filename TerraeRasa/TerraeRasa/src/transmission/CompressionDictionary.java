@@ -0,0 +1,126 @@
+package transmission;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+
+import statuseffects.StatusEffect;
+import utils.ItemStack;
+import utils.Position;
+import entities.DisplayableEntity;
+import enums.EnumHardwareInput;
+
+/**
+ * CompressionDictionary builds the preset dictionary used by {@link DeflateCodec}. Most of a small payload is Java
+ * serialization overhead: class descriptors, field names and common command strings that are identical in every tick.
+ * The dictionary is trained by serializing a typical example of each payload type, so those bytes compress down to
+ * back references. The most common payloads are serialized last, as deflate favours the end of its dictionary.
+ * <br><br>
+ * The dictionary is built the same way on the client and the server, so the two match as long as they run the same
+ * version of the game.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class CompressionDictionary
+{
+	/** Deflate can only refer back 32KB, so anything past this would be wasted */
+	private static final int MAX_DICTIONARY_SIZE = 32768;
+	private static byte[] dictionary;
+
+	/**
+	 * Gets the preset dictionary, building it the first time this is called.
+	 * @return the preset dictionary bytes
+	 */
+	public static synchronized byte[] getDictionary()
+	{
+		if(dictionary == null)
+		{
+			dictionary = buildDictionary();
+		}
+		return dictionary;
+	}
+
+	private static byte[] buildDictionary()
+	{
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try {
+			appendSample(baos, new SuperCompressedChunk[] { sampleChunk() });
+			appendSample(baos, sampleClientUpdate());
+			appendSample(baos, sampleServerUpdate());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		byte[] bytes = baos.toByteArray();
+		if(bytes.length <= MAX_DICTIONARY_SIZE)
+		{
+			return bytes;
+		}
+		byte[] trimmed = new byte[MAX_DICTIONARY_SIZE];
+		System.arraycopy(bytes, bytes.length - MAX_DICTIONARY_SIZE, trimmed, 0, MAX_DICTIONARY_SIZE);
+		return trimmed;
+	}
+
+	private static void appendSample(ByteArrayOutputStream baos, Object sample)
+			throws IOException
+	{
+		ObjectOutputStream objectOut = new ObjectOutputStream(baos);
+		objectOut.writeObject(sample);
+		objectOut.close();
+	}
+
+	private static SuperCompressedChunk sampleChunk()
+	{
+		SuperCompressedChunk chunk = new SuperCompressedChunk();
+		SuperCompressedBlock block = new SuperCompressedBlock();
+		block.id = 1;
+		block.mainInventory = new ItemStack[0];
+		chunk.blocks = new SuperCompressedBlock[][] { { block, null }, { null, block } };
+		chunk.backWalls = new SuperCompressedBlock[][] { { block, block }, { null, null } };
+		chunk.height = 1200;
+		chunk.lightSources = new Position[] { new Position(0, 0) };
+		return chunk;
+	}
+
+	private static CompressedClientUpdate[] sampleClientUpdate()
+	{
+		CompressedClientUpdate update = new CompressedClientUpdate();
+		update.commands = new ClientCommand[] { ClientCommand.mineFront(0, 0, 0, 0), ClientCommand.startSwing(0, 0), 
+				ClientCommand.say(0, "WHITE chat") };
+		update.inputSequence = 1;
+		update.inputFlags = (short) (EnumHardwareInput.MOVE_LEFT.getFlag() | EnumHardwareInput.JUMP.getFlag());
+		UpdateWithObject objectUpdate = new UpdateWithObject();
+		objectUpdate.command = "/player 0";
+		update.objectUpdates = new UpdateWithObject[] { objectUpdate };
+		return new CompressedClientUpdate[] { update };
+	}
+
+	private static CompressedServerUpdate[] sampleServerUpdate()
+	{
+		CompressedServerUpdate update = new CompressedServerUpdate();
+		update.values = new String[] { "/player 0 sethms 100 100 0", "/player 0 swingangle 0", "/player 0 stopswing", "/player 0 setactionbarslot 0" };
+		EntityUpdate entityUpdate = new EntityUpdate();
+		entityUpdate.action = 'a';
+		entityUpdate.type = 1;
+		update.entityUpdates = new EntityUpdate[] { entityUpdate };
+		update.positionUpdates = new PositionUpdate[] { new PositionUpdate(0, 0, 0), new PositionUpdate(1, 0, 0) };
+		BlockUpdate blockUpdate = new BlockUpdate();
+		blockUpdate.block = new SuperCompressedBlock();
+		update.blockUpdates = new BlockUpdate[] { blockUpdate };
+		StatUpdate statUpdate = new StatUpdate();
+		statUpdate.statusEffects = new ArrayList<StatusEffect>();
+		update.statUpdates = new StatUpdate[] { statUpdate };
+		UpdateWithObject objectUpdate = new UpdateWithObject();
+		objectUpdate.command = "/player 0 statuseffectupdate";
+		update.objectUpdates = new UpdateWithObject[] { objectUpdate };
+		update.inventoryUpdates = new InventorySlotUpdate[] { InventorySlotUpdate.create(0, 1, 0, null, true) };
+		EntitySnapshot snapshot = new EntitySnapshot(0, DisplayableEntity.TYPE_ENEMY);
+		snapshot.health = 50;
+		snapshot.maxHealth = 50;
+		update.entitySnapshots = new EntitySnapshot[] { snapshot };
+		update.movementStates = new MovementState[] { new MovementState() };
+		return new CompressedServerUpdate[] { update };
+	}
+}
@@ -124,74 +124,55 @@ public class ConnectionFilter
 		}		
 		
 		
+		if(update.getInventoryUpdateLength() > 0)
+		{
+			//A player's inventory is private, except for the equipment others can see
+			Vector<InventorySlotUpdate> inventoryUpdates = new Vector<InventorySlotUpdate>();
+			for(InventorySlotUpdate slotUpdate : update.getInventoryUpdates())
+			{
+				if(slotUpdate.entityID == player.entityID || slotUpdate.visibleToOthers)
+				{
+					inventoryUpdates.add(slotUpdate);
+				}
+			}
+			InventorySlotUpdate[] slots = new InventorySlotUpdate[inventoryUpdates.size()];
+			inventoryUpdates.copyInto(slots);
+			compressedUpdate.inventoryUpdates = slots;
+		}
+		
+		//Movement states are only used to correct the owning player's prediction
+		for(MovementState state : update.getMovementStates())
+		{
+			if(state.entityID == player.entityID)
+			{
+				compressedUpdate.movementStates = new MovementState[] { state };
+			}
+		}
+		
 		//These currently have no filter.
 		compressedUpdate.blockUpdates = update.getBlockUpdates();
 		compressedUpdate.entityUpdates = update.getEntityUpdates();
 		compressedUpdate.positionUpdates = update.getPositionUpdates();
+		compressedUpdate.entitySnapshots = update.getEntitySnapshots();
 		return compressedUpdate;
 	}
 
+	/**
+	 * Removes any command a client issued on behalf of a player other than its own. Removed commands are replaced with
+	 * null, which the server skips.
+	 * @param input the updates received from the client
+	 * @param legalPlayerID the ID of the client's player
+	 * @return the filtered updates
+	 */
 	public CompressedClientUpdate[] filterIn(CompressedClientUpdate[] input, int legalPlayerID)
 	{
 		for(CompressedClientUpdate update : input)
 		{
 			for(int i = 0; i < update.commands.length; i++)
 			{	
-				try {
-					if(update.commands[i].startsWith("/placefrontblock"))
-					{
-						///placefrontblock <block-x> <block-y> <player-id> <blockID> <player's selected slot> 
-						String[] split = update.commands[i].split(" ");
-						if(Integer.parseInt(split[3]) != legalPlayerID)
-						{
-							update.commands[i] = "";
-						}
-					}
-					else if(update.commands[i].startsWith("/placebackblock"))
-					{
-						///placebackblock <block-x> <block-y> <player-id> <blockID> <player's selected slot> 
-						String[] split = update.commands[i].split(" ");
-						if(Integer.parseInt(split[3]) != legalPlayerID)
-						{
-							update.commands[i] = "";
-						}
-					}
-					else if(update.commands[i].startsWith("/mine"))
-					{
-						String[] split = update.commands[i].split(" ");
-						if(Integer.parseInt(split[2]) != legalPlayerID)
-						{
-							update.commands[i] = "";
-						}
-					}
-					else if(update.commands[i].startsWith("/projectile"))
-					{
-//						/projectile launch playerid selected_slot mx my
-						String[] split = update.commands[i].split(" ");
-						if(Integer.parseInt(split[2]) != legalPlayerID)
-						{
-							update.commands[i] = "";
-						}
-					}
-					else if(update.commands[i].startsWith("/player"))
-					{
-						String[] split = update.commands[i].split(" ");
-						if(Integer.parseInt(split[1]) != legalPlayerID)
-						{
-							update.commands[i] = "";
-						}
-					}
-					else if(update.commands[i].startsWith("/quit"))
-					{
-						String[] split = update.commands[i].split(" ");
-						if(Integer.parseInt(split[1]) != legalPlayerID)
-						{
-							update.commands[i] = "";
-						}
-					}
-				} catch (Exception e) {
-					System.err.println("parse failed illegal command is: " + update.commands[i]);
-					e.printStackTrace();
+				if(update.commands[i] != null && update.commands[i].playerID != legalPlayerID)
+				{
+					update.commands[i] = null;
 				}
 			}			
 		}
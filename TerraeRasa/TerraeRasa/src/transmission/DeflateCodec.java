@@ -0,0 +1,182 @@
+package transmission;
+
+import java.io.IOException;
+import java.util.Vector;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * DeflateCodec compresses payloads with zlib deflate, optionally primed with a preset dictionary. Creating a Deflater
+ * allocates a large native buffer, so rather than building a new one per payload (as GZIP streams do) each codec
+ * keeps a small pool of Deflaters and Inflaters that are reset and reused.
+ * <br><br>
+ * With a dictionary, even a tiny tick update can refer back to the class descriptors and common strings that every
+ * payload repeats; see {@link CompressionDictionary}. Both ends of a connection must use the same dictionary.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class DeflateCodec
+		implements PayloadCodec
+{
+	public static final byte ID = 2;
+	public static final byte DICTIONARY_ID = 3;
+	/** The most idle Deflaters (and separately Inflaters) each codec will hold on to */
+	private static final int MAX_POOLED = 16;
+	private final Vector<Deflater> deflaters = new Vector<Deflater>();
+	private final Vector<Inflater> inflaters = new Vector<Inflater>();
+	private final int level;
+	private final byte[] dictionary;
+
+	/**
+	 * Creates a new DeflateCodec with no preset dictionary.
+	 * @param level the Deflater compression level, 0-9
+	 */
+	public DeflateCodec(int level)
+	{
+		this(level, null);
+	}
+
+	/**
+	 * Creates a new DeflateCodec.
+	 * @param level the Deflater compression level, 0-9
+	 * @param dictionary the preset dictionary to prime every Deflater and Inflater with, or null for none
+	 */
+	public DeflateCodec(int level, byte[] dictionary)
+	{
+		this.level = level;
+		this.dictionary = dictionary;
+	}
+
+	public byte getID()
+	{
+		return (dictionary == null) ? ID : DICTIONARY_ID;
+	}
+
+	public String getName()
+	{
+		return (dictionary == null) ? "deflate" : "deflate-dictionary";
+	}
+
+	public byte[] encode(byte[] data, int length)
+	{
+		Deflater deflater = acquireDeflater();
+		try {
+			if(dictionary != null)
+			{
+				deflater.setDictionary(dictionary);
+			}
+			deflater.setInput(data, 0, length);
+			deflater.finish();
+			byte[] buffer = new byte[length / 2 + 64];
+			int size = 0;
+			while(!deflater.finished())
+			{
+				if(size == buffer.length)
+				{
+					byte[] larger = new byte[buffer.length * 2];
+					System.arraycopy(buffer, 0, larger, 0, size);
+					buffer = larger;
+				}
+				size += deflater.deflate(buffer, size, buffer.length - size);
+			}
+			byte[] result = new byte[size];
+			System.arraycopy(buffer, 0, result, 0, size);
+			return result;
+		} finally {
+			releaseDeflater(deflater);
+		}
+	}
+
+	public byte[] decode(byte[] data, int offset, int length, int expandedLength)
+			throws IOException
+	{
+		Inflater inflater = acquireInflater();
+		try {
+			inflater.setInput(data, offset, length);
+			byte[] expanded = new byte[expandedLength];
+			int size = 0;
+			while(size < expandedLength)
+			{
+				int count = inflater.inflate(expanded, size, expandedLength - size);
+				if(count == 0)
+				{
+					if(inflater.needsDictionary())
+					{
+						if(dictionary == null)
+						{
+							throw new IOException("Deflate payload requires a preset dictionary");
+						}
+						inflater.setDictionary(dictionary);
+					}
+					else if(inflater.finished() || inflater.needsInput())
+					{
+						throw new IOException("Deflate payload ended after " + size + " of " + expandedLength + " bytes");
+					}
+				}
+				size += count;
+			}
+			return expanded;
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupt deflate payload", e);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Deflate payload was compressed with a different dictionary", e);
+		} finally {
+			releaseInflater(inflater);
+		}
+	}
+
+	private Deflater acquireDeflater()
+	{
+		synchronized(deflaters)
+		{
+			if(deflaters.size() > 0)
+			{
+				return deflaters.remove(deflaters.size() - 1);
+			}
+		}
+		return new Deflater(level);
+	}
+
+	private void releaseDeflater(Deflater deflater)
+	{
+		deflater.reset();
+		synchronized(deflaters)
+		{
+			if(deflaters.size() < MAX_POOLED)
+			{
+				deflaters.add(deflater);
+				return;
+			}
+		}
+		deflater.end();
+	}
+
+	private Inflater acquireInflater()
+	{
+		synchronized(inflaters)
+		{
+			if(inflaters.size() > 0)
+			{
+				return inflaters.remove(inflaters.size() - 1);
+			}
+		}
+		return new Inflater();
+	}
+
+	private void releaseInflater(Inflater inflater)
+	{
+		inflater.reset();
+		synchronized(inflaters)
+		{
+			if(inflaters.size() < MAX_POOLED)
+			{
+				inflaters.add(inflater);
+				return;
+			}
+		}
+		inflater.end();
+	}
+}
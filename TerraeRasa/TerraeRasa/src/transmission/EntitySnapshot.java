@@ -0,0 +1,325 @@
+package transmission;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Arrays;
+
+import entities.DisplayableEntity;
+
+/**
+ * EntitySnapshot holds some or all of the state of an entity that changes while it is alive: its health, status
+ * effects, facing and animation frame. Which fields an entity has is given by its type's schema (see
+ * {@link #getSchema(int)}); {@link #fields} says which of those the snapshot holds. Positions are not included, as
+ * they are already sent by PositionUpdate.
+ * <br><br>
+ * The first snapshot sent for an entity is a baseline holding every field of its schema. After that, only the fields
+ * that changed are sent, created by {@link #getChangesSince(EntitySnapshot)}. Snapshots are written by hand rather than
+ * with default serialization, so fields that are not held take no space at all.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class EntitySnapshot
+		implements Externalizable
+{
+	private static final long serialVersionUID = 1L;
+	public static final int FIELD_HEALTH = 1,
+			FIELD_MAX_HEALTH = 2,
+			FIELD_FACING = 4,
+			FIELD_ICON = 8,
+			FIELD_STATUS_EFFECTS = 16;
+	private static final long[] NO_STATUS_EFFECTS = new long[0];
+	public int entityID;
+	/** The entity's type, one of DisplayableEntity's TYPE_ constants */
+	public byte type;
+	/** The FIELD_ flags of the fields this snapshot holds */
+	public byte fields;
+	public double health;
+	public int maxHealth;
+	public boolean facingRight;
+	public short iconX;
+	public short iconY;
+	/** The IDs of the entity's status effects */
+	public long[] statusEffects;
+
+	public EntitySnapshot()
+	{
+		statusEffects = NO_STATUS_EFFECTS;
+	}
+
+	public EntitySnapshot(int entityID, int type)
+	{
+		this();
+		reset(entityID, type);
+	}
+
+	/**
+	 * Clears this snapshot for another entity, holding every field of its type's schema with default values. The status
+	 * effect array is left as it is, so it can be reused by whoever fills the snapshot in.
+	 * @param entityID the entity's ID
+	 * @param type the entity's type, one of DisplayableEntity's TYPE_ constants
+	 */
+	public void reset(int entityID, int type)
+	{
+		this.entityID = entityID;
+		this.type = (byte) type;
+		this.fields = (byte) getSchema(type);
+		health = 0;
+		maxHealth = 0;
+		facingRight = false;
+		iconX = 0;
+		iconY = 0;
+	}
+
+	/**
+	 * Creates a snapshot holding the same fields and values as this one, with its own status effect array.
+	 * @return a copy of this snapshot
+	 */
+	public EntitySnapshot copy()
+	{
+		EntitySnapshot copy = new EntitySnapshot();
+		copy.entityID = entityID;
+		copy.type = type;
+		copy.fields = fields;
+		copy.copyFields(this, fields);
+		if(copy.statusEffects.length > 0)
+		{
+			copy.statusEffects = copy.statusEffects.clone();
+		}
+		return copy;
+	}
+
+	/**
+	 * Gets the fields an entity type has.
+	 * @param type the entity type, one of DisplayableEntity's TYPE_ constants
+	 * @return the FIELD_ flags of every field entities of that type have
+	 */
+	public static int getSchema(int type)
+	{
+		if(type == DisplayableEntity.TYPE_PLAYER)
+		{
+			return FIELD_HEALTH | FIELD_MAX_HEALTH | FIELD_FACING | FIELD_STATUS_EFFECTS;
+		}
+		else if(type == DisplayableEntity.TYPE_ENEMY || type == DisplayableEntity.TYPE_FRIENDLY)
+		{
+			return FIELD_HEALTH | FIELD_MAX_HEALTH | FIELD_ICON | FIELD_STATUS_EFFECTS;
+		}
+		else if(type == DisplayableEntity.TYPE_PROJECTILE)
+		{
+			return FIELD_FACING | FIELD_ICON;
+		}
+		else if(type == DisplayableEntity.TYPE_ITEMSTACK)
+		{
+			return FIELD_ICON;
+		}
+		return 0;
+	}
+
+	/**
+	 * Indicates if this snapshot holds a field.
+	 * @param field one of the FIELD_ flags
+	 * @return true if the field is held; otherwise false
+	 */
+	public boolean hasField(int field)
+	{
+		return (fields & field) != 0;
+	}
+
+	/**
+	 * Creates a snapshot holding only the fields of this (complete) snapshot that differ from an earlier one. If there
+	 * is no earlier snapshot, this snapshot is the baseline and is returned as it is.
+	 * @param previous the last snapshot sent for the same entity, or null if none has been sent
+	 * @return a snapshot of the changed fields, or null if nothing has changed
+	 */
+	public EntitySnapshot getChangesSince(EntitySnapshot previous)
+	{
+		if(previous == null || previous.type != type)
+		{
+			return this;
+		}
+		int changed = 0;
+		if(hasField(FIELD_HEALTH) && health != previous.health)
+		{
+			changed |= FIELD_HEALTH;
+		}
+		if(hasField(FIELD_MAX_HEALTH) && maxHealth != previous.maxHealth)
+		{
+			changed |= FIELD_MAX_HEALTH;
+		}
+		if(hasField(FIELD_FACING) && facingRight != previous.facingRight)
+		{
+			changed |= FIELD_FACING;
+		}
+		if(hasField(FIELD_ICON) && (iconX != previous.iconX || iconY != previous.iconY))
+		{
+			changed |= FIELD_ICON;
+		}
+		if(hasField(FIELD_STATUS_EFFECTS) && !Arrays.equals(statusEffects, previous.statusEffects))
+		{
+			changed |= FIELD_STATUS_EFFECTS;
+		}
+		if(changed == 0)
+		{
+			return null;
+		}
+		EntitySnapshot delta = new EntitySnapshot();
+		delta.entityID = entityID;
+		delta.type = type;
+		delta.fields = (byte) changed;
+		delta.copyFields(this, changed);
+		if((changed & FIELD_STATUS_EFFECTS) != 0)
+		{
+			//This snapshot's array may be reused for the next capture, but the delta is sent as it is
+			delta.statusEffects = statusEffects.clone();
+		}
+		return delta;
+	}
+
+	/**
+	 * Creates a snapshot equivalent to applying this snapshot and then a later one for the same entity.
+	 * @param later the later snapshot
+	 * @return a new snapshot holding the fields of both, with the later values where both hold a field
+	 */
+	public EntitySnapshot merge(EntitySnapshot later)
+	{
+		EntitySnapshot merged = new EntitySnapshot();
+		merged.entityID = entityID;
+		merged.type = later.type;
+		merged.fields = (byte) (fields | later.fields);
+		merged.copyFields(this, fields);
+		merged.copyFields(later, later.fields);
+		return merged;
+	}
+
+	/**
+	 * Updates this (complete) snapshot with the fields held by a later one for the same entity.
+	 * @param changes the later snapshot, such as one created by {@link #getChangesSince(EntitySnapshot)}
+	 */
+	public void applyChanges(EntitySnapshot changes)
+	{
+		copyFields(changes, changes.fields);
+	}
+
+	/**
+	 * Copies the fields this snapshot holds onto a displayed entity.
+	 * @param entity the entity to update
+	 */
+	public void applyTo(DisplayableEntity entity)
+	{
+		if(hasField(FIELD_HEALTH))
+		{
+			entity.health = health;
+		}
+		if(hasField(FIELD_MAX_HEALTH))
+		{
+			entity.maxHealth = maxHealth;
+		}
+		if(hasField(FIELD_FACING))
+		{
+			entity.facingRight = facingRight;
+		}
+		if(hasField(FIELD_ICON))
+		{
+			entity.iconX = iconX;
+			entity.iconY = iconY;
+		}
+		if(hasField(FIELD_STATUS_EFFECTS))
+		{
+			entity.statusEffects = statusEffects;
+		}
+	}
+
+	private void copyFields(EntitySnapshot snapshot, int fields)
+	{
+		if((fields & FIELD_HEALTH) != 0)
+		{
+			health = snapshot.health;
+		}
+		if((fields & FIELD_MAX_HEALTH) != 0)
+		{
+			maxHealth = snapshot.maxHealth;
+		}
+		if((fields & FIELD_FACING) != 0)
+		{
+			facingRight = snapshot.facingRight;
+		}
+		if((fields & FIELD_ICON) != 0)
+		{
+			iconX = snapshot.iconX;
+			iconY = snapshot.iconY;
+		}
+		if((fields & FIELD_STATUS_EFFECTS) != 0)
+		{
+			statusEffects = snapshot.statusEffects;
+		}
+	}
+
+	public void writeExternal(ObjectOutput out)
+			throws IOException
+	{
+		out.writeInt(entityID);
+		out.writeByte(type);
+		out.writeByte(fields);
+		if(hasField(FIELD_HEALTH))
+		{
+			out.writeDouble(health);
+		}
+		if(hasField(FIELD_MAX_HEALTH))
+		{
+			out.writeInt(maxHealth);
+		}
+		if(hasField(FIELD_FACING))
+		{
+			out.writeBoolean(facingRight);
+		}
+		if(hasField(FIELD_ICON))
+		{
+			out.writeShort(iconX);
+			out.writeShort(iconY);
+		}
+		if(hasField(FIELD_STATUS_EFFECTS))
+		{
+			out.writeShort(statusEffects.length);
+			for(long id : statusEffects)
+			{
+				out.writeLong(id);
+			}
+		}
+	}
+
+	public void readExternal(ObjectInput in)
+			throws IOException, ClassNotFoundException
+	{
+		entityID = in.readInt();
+		type = in.readByte();
+		fields = in.readByte();
+		if(hasField(FIELD_HEALTH))
+		{
+			health = in.readDouble();
+		}
+		if(hasField(FIELD_MAX_HEALTH))
+		{
+			maxHealth = in.readInt();
+		}
+		if(hasField(FIELD_FACING))
+		{
+			facingRight = in.readBoolean();
+		}
+		if(hasField(FIELD_ICON))
+		{
+			iconX = in.readShort();
+			iconY = in.readShort();
+		}
+		if(hasField(FIELD_STATUS_EFFECTS))
+		{
+			statusEffects = new long[in.readShort()];
+			for(int i = 0; i < statusEffects.length; i++)
+			{
+				statusEffects[i] = in.readLong();
+			}
+		}
+	}
+}
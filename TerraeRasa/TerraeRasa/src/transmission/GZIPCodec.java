@@ -0,0 +1,60 @@
+package transmission;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * GZIPCodec is the original compression scheme: a new GZIP stream, and so a new native Deflater or Inflater, for every
+ * payload. It is kept so the old behaviour can be selected and benchmarked against the other codecs.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class GZIPCodec
+		implements PayloadCodec
+{
+	public static final byte ID = 1;
+
+	public byte getID()
+	{
+		return ID;
+	}
+
+	public String getName()
+	{
+		return "gzip";
+	}
+
+	public byte[] encode(byte[] data, int length)
+			throws IOException
+	{
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(length / 2 + 32);
+		GZIPOutputStream gzipOut = new GZIPOutputStream(baos);
+		gzipOut.write(data, 0, length);
+		gzipOut.close();
+		return baos.toByteArray();
+	}
+
+	public byte[] decode(byte[] data, int offset, int length, int expandedLength)
+			throws IOException
+	{
+		GZIPInputStream gzipIn = new GZIPInputStream(new ByteArrayInputStream(data, offset, length));
+		byte[] expanded = new byte[expandedLength];
+		int read = 0;
+		while(read < expandedLength)
+		{
+			int count = gzipIn.read(expanded, read, expandedLength - read);
+			if(count == -1)
+			{
+				throw new IOException("GZIP payload ended after " + read + " of " + expandedLength + " bytes");
+			}
+			read += count;
+		}
+		gzipIn.close();
+		return expanded;
+	}
+}
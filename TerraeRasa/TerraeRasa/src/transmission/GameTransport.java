@@ -0,0 +1,130 @@
+package transmission;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * GameTransport is one end of a game connection between a client and a server. Messages are handshake strings, ints
+ * (sequence numbers, IDs and counts) and payloads. A payload is encoded by the writing end with {@link #encode(Object)}
+ * or {@link #encodeUnshared(Object)}, written with {@link #write(Object)}, and comes out of {@link #read()} on the other
+ * end already decoded.
+ * <br><br>
+ * Encoding is separate from writing so that expensive encoding can happen ahead of time, or on another thread. The
+ * writer and reader of a transport may be different threads, but there must only be one of each.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public interface GameTransport
+{
+	public void writeUTF(String message)
+			throws IOException;
+
+	public String readUTF()
+			throws IOException;
+
+	public void writeInt(int value)
+			throws IOException;
+
+	public int readInt()
+			throws IOException;
+
+	/**
+	 * Encodes a payload for writing. The payload may share objects with live game state, so the other end must be given
+	 * its own copy.
+	 * @param payload the Serializable payload to encode
+	 * @return the encoded payload, ready for {@link #write(Object)}
+	 * @throws IOException indicates the payload could not be encoded
+	 */
+	public Object encode(Object payload)
+			throws IOException;
+
+	/**
+	 * Encodes a payload that was built just to be sent and will never be touched again by the sender, so a transport
+	 * within the same process may hand it over without copying.
+	 * @param payload the Serializable payload to encode
+	 * @return the encoded payload, ready for {@link #write(Object)}
+	 * @throws IOException indicates the payload could not be encoded
+	 */
+	public Object encodeUnshared(Object payload)
+			throws IOException;
+
+	/**
+	 * Writes a payload produced by {@link #encode(Object)} or {@link #encodeUnshared(Object)}.
+	 * @param encoded the encoded payload
+	 * @throws IOException indicates the connection failed
+	 */
+	public void write(Object encoded)
+			throws IOException;
+
+	/**
+	 * Reads the next payload and decodes it.
+	 * @return the decoded payload
+	 * @throws IOException indicates the connection failed or closed
+	 * @throws ClassNotFoundException indicates the payload holds a class that does not exist on this end
+	 */
+	public Object read()
+			throws IOException, ClassNotFoundException;
+
+	/**
+	 * Splits an encoded payload into fragments that can each be written with {@link #write(Object)}. The other end reads
+	 * the fragments with {@link #readFragment()} and joins them with {@link #decode(List)}. A transport with no wire to
+	 * hold up returns the payload whole, as a single fragment.
+	 * @param encoded a payload from {@link #encode(Object)} or {@link #encodeUnshared(Object)}
+	 * @param maxFragmentBytes the largest fragment to create, in bytes
+	 * @return the fragments of the payload, in order
+	 */
+	public Object[] fragment(Object encoded, int maxFragmentBytes);
+
+	/**
+	 * Reads the next fragment written, without decoding it.
+	 * @return the fragment
+	 * @throws IOException indicates the connection failed or closed
+	 * @throws ClassNotFoundException indicates the fragment is not of a known class
+	 */
+	public Object readFragment()
+			throws IOException, ClassNotFoundException;
+
+	/**
+	 * Joins every fragment of a payload and decodes it.
+	 * @param fragments the fragments read by {@link #readFragment()}, in order
+	 * @return the decoded payload
+	 * @throws IOException indicates the payload is damaged
+	 * @throws ClassNotFoundException indicates the payload holds a class that does not exist on this end
+	 */
+	public Object decode(List<Object> fragments)
+			throws IOException, ClassNotFoundException;
+
+	public void flush()
+			throws IOException;
+
+	/**
+	 * Closes the connection. Any thread blocked reading from either end will fail with an IOException.
+	 * @throws IOException indicates the connection could not be closed cleanly
+	 */
+	public void close()
+			throws IOException;
+
+	/**
+	 * Gets the IP address of the other end of this connection.
+	 * @return the remote IP address, without a leading slash
+	 */
+	public String getRemoteAddress();
+
+	/**
+	 * Gets whether this transport connects two ends within the same process, in which case payloads are never
+	 * compressed and there is no point deferring their encoding to another thread.
+	 * @return true if this is an in-process transport
+	 */
+	public boolean isLoopback();
+
+	/**
+	 * Sets how long a read may block before it fails with a SocketTimeoutException. Used to bound the handshake, so a
+	 * client that stops talking part way through cannot hold on to a login worker or a connection.
+	 * @param millis the longest a read may block, in milliseconds, or 0 to block indefinitely
+	 * @throws IOException indicates the timeout could not be set
+	 */
+	public void setReadTimeout(int millis)
+			throws IOException;
+}
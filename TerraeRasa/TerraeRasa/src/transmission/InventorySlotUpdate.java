@@ -0,0 +1,115 @@
+package transmission;
+
+import java.io.Serializable;
+
+import utils.ChangedInventorySlots;
+import utils.GemSocket;
+import utils.ItemStack;
+import affix.AffixData;
+
+/**
+ * InventorySlotUpdate sends the new contents of one inventory slot. Rather than a copy of the ItemStack, with its
+ * names, bonuses and auras, only what is needed to rebuild it is sent: the item ID, the stack size, the affix (its ID
+ * and rolled powers) and the ID of the gem in each socket. The client rebuilds everything else with
+ * {@link #toItemStack()}.
+ * <br><br>
+ * The inventory is identified by one of the IDs in {@link ChangedInventorySlots}. Slots are only sent to the player
+ * that owns them, unless {@link #visibleToOthers} is set because the slot is equipment other players can see.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class InventorySlotUpdate
+		implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+	public int entityID;
+	public byte inventoryID;
+	public short index;
+	/** The ID of the item in the slot, or -1 if the slot is empty */
+	public short itemID;
+	public int stackSize;
+	public int affixID;
+	/** The rolled powers of the item's affix, or null if it has none */
+	public double[] affixPower;
+	/** The item ID of the gem in each socket (-1 for an empty socket), or null if no gems are socketed */
+	public short[] gems;
+	/** True if the slot is the held item or armor, which every player can see */
+	public boolean visibleToOthers;
+
+	/**
+	 * Creates an update holding the contents of a slot.
+	 * @param entityID the ID of the player owning the slot
+	 * @param inventoryID the inventory holding the slot
+	 * @param index the slot's index in that inventory
+	 * @param stack the contents of the slot, which may be null
+	 * @param visibleToOthers true if players other than the owner should receive this update
+	 * @return the update
+	 */
+	public static InventorySlotUpdate create(int entityID, int inventoryID, int index, ItemStack stack, boolean visibleToOthers)
+	{
+		InventorySlotUpdate update = new InventorySlotUpdate();
+		update.entityID = entityID;
+		update.inventoryID = (byte) inventoryID;
+		update.index = (short) index;
+		update.visibleToOthers = visibleToOthers;
+		if(stack == null)
+		{
+			update.itemID = -1;
+			return update;
+		}
+		update.itemID = (short) stack.getItemID();
+		update.stackSize = stack.getStackSize();
+		if(stack.getAffix() != null)
+		{
+			update.affixID = stack.getAffix().getAffixID();
+			update.affixPower = stack.getAffix().getPower();
+		}
+		GemSocket[] sockets = stack.getGemSockets();
+		for(int i = 0; i < sockets.length; i++)
+		{
+			if(sockets[i].getGem() != null)
+			{
+				if(update.gems == null)
+				{
+					update.gems = new short[sockets.length];
+					for(int j = 0; j < sockets.length; j++)
+					{
+						update.gems[j] = -1;
+					}
+				}
+				update.gems[i] = (short) sockets[i].getGem().getItemID();
+			}
+		}
+		return update;
+	}
+
+	/**
+	 * Rebuilds the ItemStack held in the slot.
+	 * @return the ItemStack in the slot, or null if the slot is empty
+	 */
+	public ItemStack toItemStack()
+	{
+		if(itemID == -1)
+		{
+			return null;
+		}
+		ItemStack stack = new ItemStack(itemID, stackSize);
+		if(affixPower != null)
+		{
+			stack.applyAffix(new AffixData(affixID, affixPower));
+		}
+		if(gems != null)
+		{
+			for(int i = 0; i < gems.length && i < stack.getGemSockets().length; i++)
+			{
+				if(gems[i] != -1)
+				{
+					stack.socketGem(new ItemStack(gems[i]), i);
+				}
+			}
+		}
+		return stack;
+	}
+}
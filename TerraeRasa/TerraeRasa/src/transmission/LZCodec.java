@@ -0,0 +1,182 @@
+package transmission;
+
+import java.io.IOException;
+
+/**
+ * LZCodec is a small, fast LZ77 codec in the style of LZ4. It compresses worse than deflate but is many times faster
+ * in both directions, which suits the per tick updates that are compressed once for every connected client.
+ * <br><br>
+ * The output is a series of sequences. Each begins with a token byte whose high 4 bits are the literal count and low 4
+ * bits are the match length minus {@link #MIN_MATCH}; a nibble of 15 means further length bytes follow, each adding
+ * up to 255. Then come the literals, a 2 byte little-endian match offset, and any extra match length bytes. The final
+ * sequence holds only literals.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class LZCodec
+		implements PayloadCodec
+{
+	public static final byte ID = 4;
+	private static final int MIN_MATCH = 4;
+	/** The last bytes of the input are always stored as literals, so matching never reads past the end */
+	private static final int LAST_LITERALS = 5;
+	private static final int MAX_OFFSET = 65535;
+	private static final int HASH_BITS = 12;
+
+	public byte getID()
+	{
+		return ID;
+	}
+
+	public String getName()
+	{
+		return "lz";
+	}
+
+	public byte[] encode(byte[] data, int length)
+	{
+		byte[] out = new byte[length + length / 255 + 16];
+		int[] table = new int[1 << HASH_BITS];
+		int op = 0;
+		int anchor = 0;
+		int i = 0;
+		int matchLimit = length - LAST_LITERALS;
+
+		while(i + MIN_MATCH <= matchLimit)
+		{
+			int sequence = readInt(data, i);
+			int hash = (sequence * -1640531535) >>> (32 - HASH_BITS);
+			//Table entries are stored as position + 1, so 0 means empty
+			int candidate = table[hash] - 1;
+			table[hash] = i + 1;
+			if(candidate < 0 || i - candidate > MAX_OFFSET || readInt(data, candidate) != sequence)
+			{
+				i++;
+				continue;
+			}
+
+			int matchLength = MIN_MATCH;
+			while(i + matchLength < matchLimit && data[candidate + matchLength] == data[i + matchLength])
+			{
+				matchLength++;
+			}
+			op = writeSequence(data, anchor, i - anchor, out, op, i - candidate, matchLength);
+			i += matchLength;
+			anchor = i;
+		}
+
+		op = writeSequence(data, anchor, length - anchor, out, op, 0, 0);
+		byte[] result = new byte[op];
+		System.arraycopy(out, 0, result, 0, op);
+		return result;
+	}
+
+	public byte[] decode(byte[] data, int offset, int length, int expandedLength)
+			throws IOException
+	{
+		byte[] out = new byte[expandedLength];
+		int ip = offset;
+		int end = offset + length;
+		int op = 0;
+		try {
+			while(ip < end)
+			{
+				int token = data[ip++] & 0xFF;
+				int literals = token >>> 4;
+				if(literals == 15)
+				{
+					int extra;
+					do {
+						extra = data[ip++] & 0xFF;
+						literals += extra;
+					} while(extra == 255);
+				}
+				System.arraycopy(data, ip, out, op, literals);
+				ip += literals;
+				op += literals;
+				if(ip >= end)
+				{
+					break;
+				}
+
+				int matchOffset = (data[ip] & 0xFF) | ((data[ip + 1] & 0xFF) << 8);
+				ip += 2;
+				int matchLength = token & 0x0F;
+				if(matchLength == 15)
+				{
+					int extra;
+					do {
+						extra = data[ip++] & 0xFF;
+						matchLength += extra;
+					} while(extra == 255);
+				}
+				matchLength += MIN_MATCH;
+				int match = op - matchOffset;
+				if(matchOffset == 0 || match < 0)
+				{
+					throw new IOException("Corrupt LZ payload: bad match offset " + matchOffset);
+				}
+				//Matches may overlap the bytes being written, so copy one byte at a time
+				for(int k = 0; k < matchLength; k++)
+				{
+					out[op++] = out[match + k];
+				}
+			}
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new IOException("Corrupt LZ payload", e);
+		}
+		if(op != expandedLength)
+		{
+			throw new IOException("LZ payload expanded to " + op + " of " + expandedLength + " bytes");
+		}
+		return out;
+	}
+
+	private static int writeSequence(byte[] data, int literalStart, int literals, byte[] out, int op, int matchOffset, int matchLength)
+	{
+		int tokenIndex = op++;
+		int token = (literals >= 15) ? 0xF0 : literals << 4;
+		if(literals >= 15)
+		{
+			op = writeLength(out, op, literals - 15);
+		}
+		System.arraycopy(data, literalStart, out, op, literals);
+		op += literals;
+
+		if(matchLength > 0)
+		{
+			out[op++] = (byte) matchOffset;
+			out[op++] = (byte) (matchOffset >>> 8);
+			int length = matchLength - MIN_MATCH;
+			if(length >= 15)
+			{
+				token |= 0x0F;
+				op = writeLength(out, op, length - 15);
+			}
+			else
+			{
+				token |= length;
+			}
+		}
+		out[tokenIndex] = (byte) token;
+		return op;
+	}
+
+	private static int writeLength(byte[] out, int op, int length)
+	{
+		while(length >= 255)
+		{
+			out[op++] = (byte) 255;
+			length -= 255;
+		}
+		out[op++] = (byte) length;
+		return op;
+	}
+
+	private static int readInt(byte[] data, int i)
+	{
+		return (data[i] & 0xFF) | ((data[i + 1] & 0xFF) << 8) | ((data[i + 2] & 0xFF) << 16) | ((data[i + 3] & 0xFF) << 24);
+	}
+}
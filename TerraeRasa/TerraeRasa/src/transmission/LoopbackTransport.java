@@ -0,0 +1,231 @@
+package transmission;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * LoopbackTransport connects a client and server running in the same process, as in single player. Messages are
+ * handed directly to the other end through a lock-free queue rather than through a localhost socket, so nothing is
+ * compressed. Unshared payloads (such as freshly compressed chunks) are handed over as they are. Payloads that may share
+ * objects with live game state are still serialized, uncompressed, so that the client never holds a reference to
+ * anything the server is changing.
+ * <br><br>
+ * Transports are created in connected pairs by {@link #createPair()}. A reader waiting on an empty queue parks until
+ * the other end writes something.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class LoopbackTransport
+		implements GameTransport
+{
+	/** The longest a reader parks before checking its queue again, in case a wakeup is missed */
+	private static final long PARK_NANOS = 1000000;
+	private static final PayloadCodec rawCodec = new RawCodec();
+	private final ConcurrentLinkedQueue<Object> inbox = new ConcurrentLinkedQueue<Object>();
+	private LoopbackTransport peer;
+	private volatile Thread waitingReader;
+	private volatile boolean closed;
+	/** How long a read may block, in nanoseconds, or 0 to block indefinitely */
+	private volatile long readTimeoutNanos;
+	/** Used only by the writing thread */
+	private PayloadCompressor encoder;
+	/** Used only by the reading thread */
+	private PayloadCompressor decoder;
+
+	private LoopbackTransport()
+	{
+		closed = false;
+		encoder = new PayloadCompressor();
+		decoder = new PayloadCompressor();
+	}
+
+	/**
+	 * Creates a connected pair of transports.
+	 * @return an array holding the client end at index 0 and the server end at index 1
+	 */
+	public static LoopbackTransport[] createPair()
+	{
+		LoopbackTransport client = new LoopbackTransport();
+		LoopbackTransport server = new LoopbackTransport();
+		client.peer = server;
+		server.peer = client;
+		return new LoopbackTransport[] { client, server };
+	}
+
+	public void writeUTF(String message)
+			throws IOException
+	{
+		send(message);
+	}
+
+	public String readUTF()
+			throws IOException
+	{
+		return (String) receive(String.class);
+	}
+
+	public void writeInt(int value)
+			throws IOException
+	{
+		send(value);
+	}
+
+	public int readInt()
+			throws IOException
+	{
+		return (Integer) receive(Integer.class);
+	}
+
+	public Object encode(Object payload)
+			throws IOException
+	{
+		return new SerializedPayload(encoder.compress(payload, rawCodec));
+	}
+
+	public Object encodeUnshared(Object payload)
+	{
+		return payload;
+	}
+
+	public void write(Object encoded)
+			throws IOException
+	{
+		send(encoded);
+	}
+
+	public Object read()
+			throws IOException, ClassNotFoundException
+	{
+		return decode(receive(Object.class));
+	}
+
+	public Object[] fragment(Object encoded, int maxFragmentBytes)
+	{
+		return new Object[] { encoded };
+	}
+
+	public Object readFragment()
+			throws IOException
+	{
+		return receive(Object.class);
+	}
+
+	public Object decode(List<Object> fragments)
+			throws IOException, ClassNotFoundException
+	{
+		if(fragments.size() != 1)
+		{
+			throw new IOException("Loopback payloads are never fragmented");
+		}
+		return decode(fragments.get(0));
+	}
+
+	public void flush()
+	{
+	}
+
+	public void close()
+	{
+		closed = true;
+		peer.closed = true;
+		wake();
+		peer.wake();
+	}
+
+	public String getRemoteAddress()
+	{
+		return "127.0.0.1";
+	}
+
+	public boolean isLoopback()
+	{
+		return true;
+	}
+
+	public void setReadTimeout(int millis)
+	{
+		readTimeoutNanos = millis * 1000000L;
+	}
+
+	private Object decode(Object message)
+			throws IOException, ClassNotFoundException
+	{
+		if(message instanceof SerializedPayload)
+		{
+			return decoder.expand(((SerializedPayload) message).bytes);
+		}
+		return message;
+	}
+
+	private void send(Object message)
+			throws IOException
+	{
+		if(closed)
+		{
+			throw new EOFException("Loopback connection closed");
+		}
+		peer.inbox.offer(message);
+		peer.wake();
+	}
+
+	private Object receive(Class<?> expected)
+			throws IOException
+	{
+		long timeout = readTimeoutNanos;
+		long deadline = System.nanoTime() + timeout;
+		while(true)
+		{
+			Object message = inbox.poll();
+			if(message != null)
+			{
+				if(!expected.isInstance(message))
+				{
+					throw new IOException("Expected " + expected.getSimpleName() + " but received " + message.getClass().getSimpleName());
+				}
+				return message;
+			}
+			if(closed)
+			{
+				throw new EOFException("Loopback connection closed");
+			}
+			if(timeout > 0 && System.nanoTime() - deadline >= 0)
+			{
+				throw new SocketTimeoutException("Loopback read timed out");
+			}
+			waitingReader = Thread.currentThread();
+			if(inbox.isEmpty() && !closed)
+			{
+				LockSupport.parkNanos(this, PARK_NANOS);
+			}
+			waitingReader = null;
+		}
+	}
+
+	private void wake()
+	{
+		Thread reader = waitingReader;
+		if(reader != null)
+		{
+			LockSupport.unpark(reader);
+		}
+	}
+
+	/**
+	 * Marks serialized bytes, so they can be told apart from a payload that was handed over directly.
+	 */
+	private static class SerializedPayload
+	{
+		private final byte[] bytes;
+
+		public SerializedPayload(byte[] bytes)
+		{
+			this.bytes = bytes;
+		}
+	}
+}
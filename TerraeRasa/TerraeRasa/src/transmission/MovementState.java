@@ -0,0 +1,29 @@
+package transmission;
+
+import java.io.Serializable;
+
+/**
+ * MovementState is the authoritative movement of a player after the server has applied that player's input frames. It
+ * is only sent to the player it describes, which uses it to correct its own prediction: the client resets its player to
+ * this state and replays every input frame after {@link #inputSequence}. Besides the position, it holds everything the
+ * movement code needs to continue a jump or fall exactly where the server left off.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class MovementState 
+		implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+	public int entityID;
+	/** The sequence number of the last input frame the server applied, or 0 if none has been */
+	public int inputSequence;
+	public double x;
+	public double y;
+	public boolean isJumping;
+	public boolean canJumpAgain;
+	public double upwardJumpCounter;
+	public int ticksFallen;
+	public double distanceFallen;
+}
@@ -0,0 +1,75 @@
+package transmission;
+
+/**
+ * PacketSequencer tracks the sequence numbers for one end of a game connection. Each packet written is given the next
+ * outgoing sequence number, and carries the most recent sequence number received from the other end as an acknowledgement.
+ * The reader and writer of a connection run on separate threads, so every field is volatile and only one thread writes
+ * to each of them: the writer owns {@link #nextOutgoing()}, the reader owns {@link #received(int, int)}.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class PacketSequencer
+{
+	private volatile int outgoingSequence;
+	private volatile int lastReceivedSequence;
+	private volatile int lastAcknowledgedSequence;
+	private volatile long lastReceivedTime;
+
+	public PacketSequencer()
+	{
+		outgoingSequence = 0;
+		lastReceivedSequence = -1;
+		lastAcknowledgedSequence = -1;
+		lastReceivedTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Gets the sequence number for the next packet to be written. This should only be called by the writing thread.
+	 * @return the sequence number of the packet about to be written
+	 */
+	public int nextOutgoing()
+	{
+		return outgoingSequence++;
+	}
+
+	/**
+	 * Records a packet received from the other end of the connection. This should only be called by the reading thread.
+	 * @param sequence the sequence number of the packet received
+	 * @param acknowledged the latest of our sequence numbers the other end has received
+	 */
+	public void received(int sequence, int acknowledged)
+	{
+		lastReceivedSequence = sequence;
+		lastAcknowledgedSequence = acknowledged;
+		lastReceivedTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Gets the sequence number to acknowledge in the next outgoing packet.
+	 * @return the most recent sequence number received, or -1 if nothing has been received
+	 */
+	public int getAcknowledgement()
+	{
+		return lastReceivedSequence;
+	}
+
+	/**
+	 * Gets how many packets have been written that the other end has not yet acknowledged.
+	 * @return the number of unacknowledged packets in flight
+	 */
+	public int getUnacknowledged()
+	{
+		return (outgoingSequence - 1) - lastAcknowledgedSequence;
+	}
+
+	/**
+	 * Gets the time, in milliseconds, since a packet was last received from the other end.
+	 * @return the milliseconds since the last packet was received
+	 */
+	public long getTimeSinceLastReceived()
+	{
+		return System.currentTimeMillis() - lastReceivedTime;
+	}
+}
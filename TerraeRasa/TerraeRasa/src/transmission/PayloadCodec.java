@@ -0,0 +1,49 @@
+package transmission;
+
+import java.io.IOException;
+
+/**
+ * A PayloadCodec compresses and expands the serialized bytes of a network payload. Every codec has a unique ID which
+ * {@link PayloadCompressor} writes in front of each payload, so either end of a connection can expand a payload
+ * regardless of which codec the other end chose. Implementations must be safe to use from several threads at once.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public interface PayloadCodec
+{
+	/**
+	 * Gets the ID written in front of every payload encoded by this codec. IDs must never be reused.
+	 * @return this codec's unique ID
+	 */
+	public byte getID();
+
+	/**
+	 * Gets the name used to select this codec in the server settings.
+	 * @return this codec's name
+	 */
+	public String getName();
+
+	/**
+	 * Compresses the first <code>length</code> bytes of the given array.
+	 * @param data the bytes to compress
+	 * @param length how many bytes of data to compress
+	 * @return the compressed bytes
+	 * @throws IOException indicates the data could not be compressed
+	 */
+	public byte[] encode(byte[] data, int length)
+			throws IOException;
+
+	/**
+	 * Expands bytes produced by {@link #encode(byte[], int)}.
+	 * @param data the array holding the compressed bytes
+	 * @param offset where the compressed bytes start in data
+	 * @param length how many compressed bytes there are
+	 * @param expandedLength the length of the original, uncompressed data
+	 * @return the original bytes
+	 * @throws IOException indicates the data is corrupt
+	 */
+	public byte[] decode(byte[] data, int offset, int length, int expandedLength)
+			throws IOException;
+}
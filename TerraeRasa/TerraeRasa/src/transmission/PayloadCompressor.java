@@ -0,0 +1,227 @@
+package transmission;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.zip.Deflater;
+
+/**
+ * PayloadCompressor serializes objects for the network and compresses them with a {@link PayloadCodec}. Every
+ * payload starts with a 5 byte header: the ID of the codec used and the length of the serialized object. Payloads
+ * smaller than the compression threshold are sent raw, since compressing a handful of bytes costs more time than it
+ * saves and can even make them larger. Because the header names the codec, either end of a connection can expand
+ * anything the other end sends, whatever codec it has chosen.
+ * <br><br>
+ * The codec and threshold used for compressing are shared by every PayloadCompressor and are set from the server
+ * settings. A single PayloadCompressor reuses its serialization buffer and must only be used by one thread at a time.
+ * <br><br>
+ * Setting the system property <code>terraerasa.recordtraffic</code> to a file path records every serialized payload to
+ * that file, which {@link CodecBenchmark} can replay to compare the codecs on real traffic.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class PayloadCompressor
+{
+	private static final int HEADER_SIZE = 5;
+	/**
+	 * The largest serialized payload that will be expanded. The length comes from the peer, so without a limit a 5 byte
+	 * header could make this end allocate gigabytes. Chunks are the largest payload, at under 1.5MB
+	 */
+	public static final int MAX_PAYLOAD_BYTES = 8 * 1024 * 1024;
+	private static final PayloadCodec[] codecs = new PayloadCodec[] {
+		new RawCodec(),
+		new GZIPCodec(),
+		new DeflateCodec(Deflater.DEFAULT_COMPRESSION),
+		new DeflateCodec(Deflater.DEFAULT_COMPRESSION, CompressionDictionary.getDictionary()),
+		new LZCodec()
+	};
+	private static volatile PayloadCodec defaultCodec = codecs[DeflateCodec.DICTIONARY_ID];
+	private static volatile int compressionThreshold = 128;
+	private static final Object recordLock = new Object();
+	private static volatile DataOutputStream trafficRecorder = openTrafficRecorder();
+	private ExposedByteArrayOutputStream buffer;
+
+	public PayloadCompressor()
+	{
+		buffer = new ExposedByteArrayOutputStream();
+	}
+
+	/**
+	 * Serializes and compresses an object with the default codec.
+	 * @param object the object to compress, which must be Serializable
+	 * @return the compressed payload, including its header
+	 * @throws IOException indicates the object could not be serialized
+	 */
+	public byte[] compress(Object object)
+			throws IOException
+	{
+		return compress(object, defaultCodec);
+	}
+
+	/**
+	 * Serializes and compresses an object with the given codec, or raw if it is smaller than the compression threshold.
+	 * @param object the object to compress, which must be Serializable
+	 * @param codec the codec to compress with
+	 * @return the compressed payload, including its header
+	 * @throws IOException indicates the object could not be serialized
+	 */
+	public byte[] compress(Object object, PayloadCodec codec)
+			throws IOException
+	{
+		buffer.reset();
+		ObjectOutputStream objectOut = new ObjectOutputStream(buffer);
+		objectOut.writeObject(object);
+		objectOut.close();
+		byte[] serialized = buffer.getBuffer();
+		int length = buffer.size();
+		record(serialized, length);
+
+		if(length < compressionThreshold)
+		{
+			codec = codecs[RawCodec.ID];
+		}
+		byte[] encoded = codec.encode(serialized, length);
+		byte[] payload = new byte[HEADER_SIZE + encoded.length];
+		payload[0] = codec.getID();
+		payload[1] = (byte) (length >>> 24);
+		payload[2] = (byte) (length >>> 16);
+		payload[3] = (byte) (length >>> 8);
+		payload[4] = (byte) length;
+		System.arraycopy(encoded, 0, payload, HEADER_SIZE, encoded.length);
+		return payload;
+	}
+
+	/**
+	 * Expands and deserializes a payload produced by {@link #compress(Object)}, using whichever codec it names.
+	 * @param bytes the compressed payload, including its header
+	 * @return the deserialized object
+	 * @throws IOException indicates the payload is corrupt, names an unknown codec, or is larger than
+	 * {@link #MAX_PAYLOAD_BYTES} when expanded
+	 * @throws ClassNotFoundException indicates the payload holds a class that does not exist on this end
+	 */
+	public Object expand(byte[] bytes)
+			throws IOException, ClassNotFoundException
+	{
+		if(bytes.length < HEADER_SIZE || bytes[0] < 0 || bytes[0] >= codecs.length)
+		{
+			throw new IOException("Payload has an invalid codec header");
+		}
+		int length = ((bytes[1] & 0xFF) << 24) | ((bytes[2] & 0xFF) << 16) | ((bytes[3] & 0xFF) << 8) | (bytes[4] & 0xFF);
+		if(length < 0 || length > MAX_PAYLOAD_BYTES)
+		{
+			throw new IOException("Payload has an invalid length of " + length + " bytes");
+		}
+		byte[] serialized = codecs[bytes[0]].decode(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE, length);
+		ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(serialized));
+		Object object = objectIn.readObject();
+		objectIn.close();
+		return object;
+	}
+
+	/**
+	 * Sets the codec and compression threshold used for all outgoing payloads.
+	 * @param codecName the name of the codec to use; unknown names leave the current codec in place
+	 * @param threshold payloads smaller than this many bytes are sent uncompressed
+	 */
+	public static void configure(String codecName, int threshold)
+	{
+		PayloadCodec codec = getCodec(codecName);
+		if(codec != null)
+		{
+			defaultCodec = codec;
+		}
+		else
+		{
+			System.err.println("Unknown network codec '" + codecName + "', using " + defaultCodec.getName());
+		}
+		compressionThreshold = threshold;
+	}
+
+	/**
+	 * Gets a codec by the name used in the server settings.
+	 * @param name the codec's name
+	 * @return the codec with that name, or null if there is none
+	 */
+	public static PayloadCodec getCodec(String name)
+	{
+		for(PayloadCodec codec : codecs)
+		{
+			if(codec.getName().equalsIgnoreCase(name))
+			{
+				return codec;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets every available codec, indexed by ID.
+	 * @return a copy of the codec table
+	 */
+	public static PayloadCodec[] getCodecs()
+	{
+		PayloadCodec[] copy = new PayloadCodec[codecs.length];
+		System.arraycopy(codecs, 0, copy, 0, codecs.length);
+		return copy;
+	}
+
+	private static DataOutputStream openTrafficRecorder()
+	{
+		String path = System.getProperty("terraerasa.recordtraffic");
+		if(path == null)
+		{
+			return null;
+		}
+		try {
+			return new DataOutputStream(new FileOutputStream(path, true));
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	private static void record(byte[] serialized, int length)
+	{
+		if(trafficRecorder == null)
+		{
+			return;
+		}
+		synchronized(recordLock)
+		{
+			if(trafficRecorder == null)
+			{
+				return;
+			}
+			try {
+				trafficRecorder.writeInt(length);
+				trafficRecorder.write(serialized, 0, length);
+				trafficRecorder.flush();
+			} catch (IOException e) {
+				e.printStackTrace();
+				trafficRecorder = null;
+			}
+		}
+	}
+
+	/**
+	 * A ByteArrayOutputStream that gives access to its buffer, so payloads can be compressed without first copying them.
+	 */
+	private static class ExposedByteArrayOutputStream extends ByteArrayOutputStream
+	{
+		public ExposedByteArrayOutputStream()
+		{
+			super(1024);
+		}
+
+		public byte[] getBuffer()
+		{
+			return buf;
+		}
+	}
+}
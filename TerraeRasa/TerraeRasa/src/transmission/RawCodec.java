@@ -0,0 +1,39 @@
+package transmission;
+
+/**
+ * RawCodec stores payloads uncompressed. It is used for payloads below the compression threshold, where the cost of
+ * compressing outweighs the handful of bytes saved.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class RawCodec
+		implements PayloadCodec
+{
+	public static final byte ID = 0;
+
+	public byte getID()
+	{
+		return ID;
+	}
+
+	public String getName()
+	{
+		return "raw";
+	}
+
+	public byte[] encode(byte[] data, int length)
+	{
+		byte[] copy = new byte[length];
+		System.arraycopy(data, 0, copy, 0, length);
+		return copy;
+	}
+
+	public byte[] decode(byte[] data, int offset, int length, int expandedLength)
+	{
+		byte[] copy = new byte[length];
+		System.arraycopy(data, offset, copy, 0, length);
+		return copy;
+	}
+}
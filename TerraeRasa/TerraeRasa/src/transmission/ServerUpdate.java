@@ -4,13 +4,7 @@ import java.util.Vector;
 
 public class ServerUpdate
 {
-	private final Object commandLock = new Object();
-	private final Object entityUpdateLock = new Object();
-	private final Object positionUpdateLock = new Object();
-	private final Object blockUpdateLock = new Object();
-	private final Object statUpdateLock = new Object();
-//	private final Object chunkUpdateLock = new Object();
-	private final Object objectUpdateLock = new Object();
+	//Each Vector is its own lock, so a ServerUpdate - one of which is created every tick - needs no lock objects of its own
 	private Vector<String> commands; 
 	private Vector<EntityUpdate> entityUpdates;
 	private Vector<PositionUpdate> positionUpdates;
@@ -18,7 +12,9 @@ public class ServerUpdate
 	private Vector<StatUpdate> statUpdates;
 //	private Vector<Chunk> chunkUpdates;
 	private Vector<UpdateWithObject> objectUpdates;
-	public boolean deferCompression;
+	private Vector<InventorySlotUpdate> inventoryUpdates;
+	private Vector<EntitySnapshot> entitySnapshots;
+	private Vector<MovementState> movementStates;
 	
 	public ServerUpdate()
 	{
@@ -29,11 +25,14 @@ public class ServerUpdate
 		this.statUpdates = new Vector<StatUpdate>();
 //		this.chunkUpdates = new Vector<Chunk>();
 		this.setObjectUpdates(new Vector<UpdateWithObject>());
+		this.inventoryUpdates = new Vector<InventorySlotUpdate>();
+		this.entitySnapshots = new Vector<EntitySnapshot>();
+		this.movementStates = new Vector<MovementState>();
 	}
 	
 	public void addValue(String val)
 	{
-		synchronized(commandLock)
+		synchronized(commands)
 		{
 			this.commands.add(val);
 		}
@@ -41,7 +40,7 @@ public class ServerUpdate
 	
 	public String[] getValues()
 	{
-		synchronized(commandLock)
+		synchronized(commands)
 		{
 			String[] vals = new String[commands.size()];
 			commands.copyInto(vals);
@@ -51,7 +50,7 @@ public class ServerUpdate
 	
 	public void addEntityUpdate(EntityUpdate update)
 	{
-		synchronized(entityUpdateLock)
+		synchronized(entityUpdates)
 		{
 			entityUpdates.add(update);
 		}
@@ -59,7 +58,7 @@ public class ServerUpdate
 	
 	public EntityUpdate[] getEntityUpdates()
 	{
-		synchronized(entityUpdateLock)
+		synchronized(entityUpdates)
 		{
 			EntityUpdate[] updates = new EntityUpdate[entityUpdates.size()];
 			entityUpdates.copyInto(updates);
@@ -69,7 +68,7 @@ public class ServerUpdate
 	
 	public void addPositionUpdate(PositionUpdate update)
 	{
-		synchronized(positionUpdateLock)
+		synchronized(positionUpdates)
 		{
 			positionUpdates.add(update);
 		}
@@ -77,7 +76,7 @@ public class ServerUpdate
 	
 	public PositionUpdate[] getPositionUpdates()
 	{
-		synchronized(positionUpdateLock)
+		synchronized(positionUpdates)
 		{
 			PositionUpdate[] updates = new PositionUpdate[positionUpdates.size()];
 			positionUpdates.copyInto(updates);
@@ -87,7 +86,7 @@ public class ServerUpdate
 	
 	public void addBlockUpdate(BlockUpdate update)
 	{
-		synchronized(blockUpdateLock)
+		synchronized(blockUpdates)
 		{
 			this.blockUpdates.add(update);
 		}
@@ -95,7 +94,7 @@ public class ServerUpdate
 	
 	public BlockUpdate[] getBlockUpdates()
 	{
-		synchronized(blockUpdateLock)
+		synchronized(blockUpdates)
 		{
 			BlockUpdate[] vals = new BlockUpdate[blockUpdates.size()];
 			blockUpdates.copyInto(vals);
@@ -105,7 +104,7 @@ public class ServerUpdate
 	
 	public void addStatUpdate(StatUpdate update)
 	{
-		synchronized(statUpdateLock)
+		synchronized(statUpdates)
 		{
 			statUpdates.add(update);
 		}
@@ -113,7 +112,7 @@ public class ServerUpdate
 	
 	public StatUpdate[] getStatUpdates()
 	{
-		synchronized(statUpdateLock)
+		synchronized(statUpdates)
 		{
 			StatUpdate[] updates = new StatUpdate[statUpdates.size()];
 			statUpdates.copyInto(updates);
@@ -123,7 +122,7 @@ public class ServerUpdate
 //	
 //	public void addChunkUpdate(Chunk chunk)
 //	{
-//		synchronized(chunkUpdateLock)
+//		synchronized(chunkUpdates)
 //		{
 //			chunkUpdates.add(chunk);
 //		}
@@ -131,7 +130,7 @@ public class ServerUpdate
 //	
 //	public Chunk[] getChunks()
 //	{
-//		synchronized(chunkUpdateLock)
+//		synchronized(chunkUpdates)
 //		{
 //			Chunk[] updates = new Chunk[chunkUpdates.size()];
 //			chunkUpdates.copyInto(updates);
@@ -141,7 +140,7 @@ public class ServerUpdate
 	
 	public void addObjectUpdate(UpdateWithObject update)
 	{
-		synchronized(objectUpdateLock)
+		synchronized(objectUpdates)
 		{
 			objectUpdates.add(update);
 		}
@@ -149,7 +148,7 @@ public class ServerUpdate
 	
 	public UpdateWithObject[] getObjectUpdates()
 	{
-		synchronized(objectUpdateLock)
+		synchronized(objectUpdates)
 		{
 			UpdateWithObject[] updates = new UpdateWithObject[objectUpdates.size()];
 			objectUpdates.copyInto(updates);
@@ -157,6 +156,60 @@ public class ServerUpdate
 		}
 	}
 
+	public void addInventoryUpdate(InventorySlotUpdate update)
+	{
+		synchronized(inventoryUpdates)
+		{
+			inventoryUpdates.add(update);
+		}
+	}
+	
+	public InventorySlotUpdate[] getInventoryUpdates()
+	{
+		synchronized(inventoryUpdates)
+		{
+			InventorySlotUpdate[] updates = new InventorySlotUpdate[inventoryUpdates.size()];
+			inventoryUpdates.copyInto(updates);
+			return updates;
+		}
+	}
+
+	public void addEntitySnapshot(EntitySnapshot snapshot)
+	{
+		synchronized(entitySnapshots)
+		{
+			entitySnapshots.add(snapshot);
+		}
+	}
+	
+	public EntitySnapshot[] getEntitySnapshots()
+	{
+		synchronized(entitySnapshots)
+		{
+			EntitySnapshot[] snapshots = new EntitySnapshot[entitySnapshots.size()];
+			entitySnapshots.copyInto(snapshots);
+			return snapshots;
+		}
+	}
+
+	public void addMovementState(MovementState state)
+	{
+		synchronized(movementStates)
+		{
+			movementStates.add(state);
+		}
+	}
+	
+	public MovementState[] getMovementStates()
+	{
+		synchronized(movementStates)
+		{
+			MovementState[] states = new MovementState[movementStates.size()];
+			movementStates.copyInto(states);
+			return states;
+		}
+	}
+
 	public Vector<String> commands()
 	{
 		return commands;
@@ -187,6 +240,18 @@ public class ServerUpdate
 		return statUpdates.size();
 	}
 
+	public int getEntityUpdateLength() {
+		return entityUpdates.size();
+	}
+
+	public int getBlockUpdateLength() {
+		return blockUpdates.size();
+	}
+
+	public int getInventoryUpdateLength() {
+		return inventoryUpdates.size();
+	}
+
 	public Vector<String> values() {
 		return commands;
 	}
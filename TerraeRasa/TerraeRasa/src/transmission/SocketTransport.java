@@ -0,0 +1,159 @@
+package transmission;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.util.List;
+
+/**
+ * SocketTransport carries a game connection over a TCP socket. Payloads are serialized and compressed by a
+ * {@link PayloadCompressor} and written as byte arrays.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class SocketTransport
+		implements GameTransport
+{
+	private Socket socket;
+	private ObjectOutputStream os;
+	private ObjectInputStream is;
+	/** Used only by the writing thread */
+	private PayloadCompressor encoder;
+	/** Used only by the reading thread */
+	private PayloadCompressor decoder;
+
+	public SocketTransport(Socket socket, ObjectOutputStream os, ObjectInputStream is)
+	{
+		this.socket = socket;
+		this.os = os;
+		this.is = is;
+		encoder = new PayloadCompressor();
+		decoder = new PayloadCompressor();
+	}
+
+	public void writeUTF(String message)
+			throws IOException
+	{
+		os.writeUTF(message);
+	}
+
+	public String readUTF()
+			throws IOException
+	{
+		return is.readUTF();
+	}
+
+	public void writeInt(int value)
+			throws IOException
+	{
+		os.writeInt(value);
+	}
+
+	public int readInt()
+			throws IOException
+	{
+		return is.readInt();
+	}
+
+	public Object encode(Object payload)
+			throws IOException
+	{
+		return encoder.compress(payload);
+	}
+
+	public Object encodeUnshared(Object payload)
+			throws IOException
+	{
+		return encoder.compress(payload);
+	}
+
+	public void write(Object encoded)
+			throws IOException
+	{
+		os.writeObject(encoded);
+	}
+
+	public Object read()
+			throws IOException, ClassNotFoundException
+	{
+		return decoder.expand((byte[])is.readObject());
+	}
+
+	public Object[] fragment(Object encoded, int maxFragmentBytes)
+	{
+		byte[] bytes = (byte[]) encoded;
+		if(bytes.length <= maxFragmentBytes)
+		{
+			return new Object[] { bytes };
+		}
+		Object[] fragments = new Object[(bytes.length + maxFragmentBytes - 1) / maxFragmentBytes];
+		for(int i = 0; i < fragments.length; i++)
+		{
+			int start = i * maxFragmentBytes;
+			byte[] fragment = new byte[Math.min(maxFragmentBytes, bytes.length - start)];
+			System.arraycopy(bytes, start, fragment, 0, fragment.length);
+			fragments[i] = fragment;
+		}
+		return fragments;
+	}
+
+	public Object readFragment()
+			throws IOException, ClassNotFoundException
+	{
+		return is.readObject();
+	}
+
+	public Object decode(List<Object> fragments)
+			throws IOException, ClassNotFoundException
+	{
+		if(fragments.size() == 1)
+		{
+			return decoder.expand((byte[]) fragments.get(0));
+		}
+		int length = 0;
+		for(Object fragment : fragments)
+		{
+			length += ((byte[]) fragment).length;
+		}
+		byte[] bytes = new byte[length];
+		int offset = 0;
+		for(Object fragment : fragments)
+		{
+			byte[] part = (byte[]) fragment;
+			System.arraycopy(part, 0, bytes, offset, part.length);
+			offset += part.length;
+		}
+		return decoder.expand(bytes);
+	}
+
+	public void flush()
+			throws IOException
+	{
+		os.flush();
+	}
+
+	public void close()
+			throws IOException
+	{
+		socket.close();
+	}
+
+	public String getRemoteAddress()
+	{
+		return (socket.getInetAddress().toString()).substring(1);
+	}
+
+	public boolean isLoopback()
+	{
+		return false;
+	}
+
+	public void setReadTimeout(int millis)
+			throws IOException
+	{
+		socket.setSoTimeout(millis);
+	}
+}
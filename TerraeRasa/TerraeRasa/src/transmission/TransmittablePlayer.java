@@ -91,6 +91,23 @@ public class TransmittablePlayer
 		}
 	}
 
+	/**
+	 * Adds only the equipment other players can see: the selected item and the armor. The inventories keep their
+	 * sizes, with every other slot left empty.
+	 * @param mainInventory the player's main inventory
+	 * @param selectedSlot the player's selected actionbar slot
+	 * @param armorInventory the player's armor
+	 * @param quiverSize the size of the player's quiver
+	 */
+	public void addVisibleEquipment(ItemStack[] mainInventory, int selectedSlot, ItemStack[] armorInventory, int quiverSize)
+	{
+		addInventories(new ItemStack[mainInventory.length], armorInventory, new ItemStack[quiverSize]);
+		if(selectedSlot >= 0 && selectedSlot < mainInventory.length && mainInventory[selectedSlot] != null)
+		{
+			this.mainInventory[selectedSlot] = new ItemStack(mainInventory[selectedSlot]);
+		}
+	}
+
 	public void setHeldItem(ItemStack stack)
 	{
 		if(stack != null)
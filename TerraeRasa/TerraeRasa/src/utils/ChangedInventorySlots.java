@@ -0,0 +1,113 @@
+package utils;
+
+import java.io.Serializable;
+import java.util.BitSet;
+
+/**
+ * ChangedInventorySlots records which inventory slots of a player have changed since they were last sent. Each
+ * inventory has its own bitset, indexed by slot, and the item held by the mouse is treated as an inventory with a
+ * single slot. Marking a slot that is already marked does nothing, so a slot that changes several times in one tick
+ * is only sent once.
+ * <br><br>
+ * Inventories are identified by the same IDs used to send them to the client: {@link #MOUSE}, {@link #MAIN},
+ * {@link #ARMOR}, {@link #QUIVER} and {@link #TRASH}. All methods are synchronized.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class ChangedInventorySlots
+		implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+	public static final int MOUSE = 0,
+			MAIN = 1,
+			ARMOR = 2,
+			QUIVER = 3,
+			TRASH = 4;
+	/** The number of inventory IDs. Every inventory ID is below this */
+	public static final int TOTAL_INVENTORIES = 5;
+	private BitSet[] slots;
+
+	public ChangedInventorySlots()
+	{
+		slots = new BitSet[TOTAL_INVENTORIES];
+		for(int i = 0; i < slots.length; i++)
+		{
+			slots[i] = new BitSet();
+		}
+	}
+
+	public synchronized void markMainSlot(int index)
+	{
+		slots[MAIN].set(index);
+	}
+
+	public synchronized void markArmorSlot(int index)
+	{
+		slots[ARMOR].set(index);
+	}
+
+	public synchronized void markQuiverSlot(int index)
+	{
+		slots[QUIVER].set(index);
+	}
+
+	public synchronized void markTrashSlot(int index)
+	{
+		slots[TRASH].set(index);
+	}
+
+	public synchronized void markMouseItem()
+	{
+		slots[MOUSE].set(0);
+	}
+
+	/**
+	 * Gets the changed slots of one inventory. The returned bitset must not be modified.
+	 * @param inventoryID the ID of the inventory
+	 * @return a bitset with one bit set for each changed slot
+	 */
+	public synchronized BitSet getSlots(int inventoryID)
+	{
+		return slots[inventoryID];
+	}
+
+	/**
+	 * Indicates if any slot is marked as changed.
+	 * @return true if no slot has changed; otherwise false
+	 */
+	public synchronized boolean isEmpty()
+	{
+		for(BitSet inventory : slots)
+		{
+			if(!inventory.isEmpty())
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Removes every mark, returning them in a new ChangedInventorySlots. Slots marked after this call are kept for the
+	 * next drain.
+	 * @return the slots that were marked as changed
+	 */
+	public synchronized ChangedInventorySlots drain()
+	{
+		ChangedInventorySlots drained = new ChangedInventorySlots();
+		BitSet[] swap = drained.slots;
+		drained.slots = slots;
+		slots = swap;
+		return drained;
+	}
+
+	public synchronized void clear()
+	{
+		for(BitSet inventory : slots)
+		{
+			inventory.clear();
+		}
+	}
+}
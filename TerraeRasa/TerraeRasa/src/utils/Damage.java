@@ -15,6 +15,11 @@ import enums.EnumDamageType;
  */
 public class Damage 
 {
+	/** Damage types shared by every hit of a single type, so a hit need not create its own array. These must never be modified */
+	public static final EnumDamageType[] TYPE_NONE = { EnumDamageType.NONE },
+			TYPE_FALL = { EnumDamageType.FALL },
+			TYPE_BLEED = { EnumDamageType.BLEED },
+			TYPE_POISON = { EnumDamageType.POISON };
 	private double damageAmount;
 	private EnumDamageType[] types;
 	private EnumDamageSource source;
@@ -34,6 +39,19 @@ public class Damage
 	 * @param source the source of the damage, such as melee or the environment
 	 */
 	public Damage(double damageAmount, EnumDamageType[] types, EnumDamageSource source)
+	{
+		reset(damageAmount, types, source);
+	}
+	
+	/**
+	 * Sets this damage object back to the state of a newly constructed one, so that it may be reused for another hit 
+	 * once the previous hit has been dealt.
+	 * @param damageAmount the amount of damage to deal
+	 * @param types the types of the damage dealt (this only needs to be 1 element)
+	 * @param source the source of the damage, such as melee or the environment
+	 * @return a reference to this
+	 */
+	public Damage reset(double damageAmount, EnumDamageType[] types, EnumDamageSource source)
 	{
 		this.damageAmount = damageAmount;
 		this.types = types;
@@ -44,6 +62,7 @@ public class Damage
 		isCrit = false;
 		isPeriodic = false;
 		causesCombatStatus = true;
+		return this;
 	}
 	
 	public Damage setIsDodgeable(boolean flag)
@@ -0,0 +1,60 @@
+package utils;
+
+import enums.EnumDamageSource;
+import enums.EnumDamageType;
+
+/**
+ * DamagePool hands out the Damage objects for the hits of a single tick, so a tick full of hittests does not create a
+ * new Damage for every hit. Each call to {@link #obtain(double, EnumDamageType[], EnumDamageSource)} returns a Damage
+ * that has not been handed out since the last {@link #reset()}, so a hit dealt while another is still being dealt (such
+ * as by an aura) never shares its Damage. The pool grows to the most hits seen in a tick, and keeps that many.
+ * <br><br>
+ * A Damage from the pool is only valid until the next reset, so it must not be kept once the hit has been dealt.
+ * Nothing that deals with a Damage keeps it today. DamagePool is not synchronized; it must only be used by the thread
+ * that resets it.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class DamagePool
+{
+	private Damage[] pool;
+	private int used;
+
+	public DamagePool()
+	{
+		pool = new Damage[16];
+	}
+
+	/**
+	 * Gets a Damage in the same state as one newly constructed with the same arguments.
+	 * @param damageAmount the amount of damage to deal
+	 * @param types the types of the damage dealt (this only needs to be 1 element)
+	 * @param source the source of the damage, such as melee or the environment
+	 * @return a Damage that is not in use
+	 */
+	public Damage obtain(double damageAmount, EnumDamageType[] types, EnumDamageSource source)
+	{
+		if(used == pool.length)
+		{
+			Damage[] grown = new Damage[pool.length * 2];
+			System.arraycopy(pool, 0, grown, 0, pool.length);
+			pool = grown;
+		}
+		if(pool[used] == null)
+		{
+			pool[used] = new Damage(damageAmount, types, source);
+			return pool[used++];
+		}
+		return pool[used++].reset(damageAmount, types, source);
+	}
+
+	/**
+	 * Makes every Damage handed out available again. Should be called once a tick, before any hittests.
+	 */
+	public void reset()
+	{
+		used = 0;
+	}
+}
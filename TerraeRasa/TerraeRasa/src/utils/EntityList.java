@@ -0,0 +1,178 @@
+package utils;
+
+import java.util.AbstractList;
+
+/**
+ * EntityList is a list of entities that knows where each entity is, by ID, so an entity can be removed in constant
+ * time with {@link #removeByID(int)}. Removing an entity moves the last entity into its place rather than shifting
+ * everything after it down, so the order of the list changes as entities are removed. Anything iterating by index and
+ * removing as it goes must therefore look at the same index again after a removal; an Iterator already does.
+ * <br><br>
+ * Entities are added with {@link #addEntity(int, Object)}, which takes the entity's ID; the List methods that add
+ * without an ID are not supported. IDs must be unique within a list. EntityList is not synchronized.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class EntityList<T> extends AbstractList<T>
+{
+	private Object[] entities;
+	private int[] ids;
+	private int size;
+	/** The index of each entity in the list, by ID */
+	private IntHashMap<Slot> slots;
+
+	public EntityList()
+	{
+		this(16);
+	}
+
+	/**
+	 * Creates an empty list.
+	 * @param capacity how many entities the list should hold before it needs to grow
+	 */
+	public EntityList(int capacity)
+	{
+		entities = new Object[Math.max(capacity, 1)];
+		ids = new int[entities.length];
+		slots = new IntHashMap<Slot>(capacity);
+	}
+
+	/**
+	 * Adds an entity to the end of the list. If an entity with the same ID is already in the list, it is replaced.
+	 * @param id the entity's ID
+	 * @param entity the entity
+	 */
+	public void addEntity(int id, T entity)
+	{
+		Slot slot = slots.get(id);
+		if(slot != null)
+		{
+			entities[slot.index] = entity;
+			return;
+		}
+		if(size == entities.length)
+		{
+			Object[] grownEntities = new Object[size * 2];
+			int[] grownIDs = new int[size * 2];
+			System.arraycopy(entities, 0, grownEntities, 0, size);
+			System.arraycopy(ids, 0, grownIDs, 0, size);
+			entities = grownEntities;
+			ids = grownIDs;
+		}
+		entities[size] = entity;
+		ids[size] = id;
+		slots.put(id, new Slot(size));
+		size++;
+		modCount++;
+	}
+
+	@SuppressWarnings("unchecked")
+	public T get(int index)
+	{
+		if(index >= size)
+		{
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return (T) entities[index];
+	}
+
+	/**
+	 * Gets an entity by its ID.
+	 * @param id the entity's ID
+	 * @return the entity, or null if it is not in this list
+	 */
+	@SuppressWarnings("unchecked")
+	public T getByID(int id)
+	{
+		Slot slot = slots.get(id);
+		return (slot != null) ? (T) entities[slot.index] : null;
+	}
+
+	public boolean containsID(int id)
+	{
+		return slots.containsKey(id);
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Removes the entity at an index, moving the last entity into its place.
+	 * @param index the index of the entity to remove
+	 * @return the entity removed
+	 */
+	public T remove(int index)
+	{
+		T removed = get(index);
+		slots.remove(ids[index]);
+		int last = size - 1;
+		if(index != last)
+		{
+			entities[index] = entities[last];
+			ids[index] = ids[last];
+			slots.get(ids[index]).index = index;
+		}
+		entities[last] = null;
+		size--;
+		modCount++;
+		return removed;
+	}
+
+	/**
+	 * Removes an entity by its ID, moving the last entity into its place.
+	 * @param id the entity's ID
+	 * @return the entity removed, or null if it was not in this list
+	 */
+	public T removeByID(int id)
+	{
+		Slot slot = slots.get(id);
+		return (slot != null) ? remove(slot.index) : null;
+	}
+
+	/**
+	 * Removes an entity without knowing its ID. This has to search the list, so {@link #removeByID(int)} should be used
+	 * where the ID is known.
+	 * @param entity the entity to remove
+	 * @return true if the entity was in the list
+	 */
+	public boolean remove(Object entity)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			if(entities[i] == entity)
+			{
+				remove(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public void clear()
+	{
+		for(int i = 0; i < size; i++)
+		{
+			entities[i] = null;
+		}
+		slots.clear();
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * Where an entity is in the list. Updated in place when another removal moves the entity.
+	 */
+	private static class Slot
+	{
+		private int index;
+
+		public Slot(int index)
+		{
+			this.index = index;
+		}
+	}
+}
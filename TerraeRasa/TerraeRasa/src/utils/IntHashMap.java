@@ -0,0 +1,183 @@
+package utils;
+
+/**
+ * IntHashMap maps int keys to values without boxing the keys, for lookups that happen many times a tick, such as
+ * finding an entity by its ID. Keys and values are kept in flat arrays with open addressing: a key is stored in the
+ * first free slot at or after its hash, and removing a key shifts any later keys of the same run back into the gap, so
+ * there are no tombstones and lookups never slow down as entities come and go. The arrays double in size whenever they
+ * become half full.
+ * <br><br>
+ * Null values are not allowed, as a null value marks a free slot. IntHashMap is not synchronized.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class IntHashMap<V>
+{
+	private static final int DEFAULT_CAPACITY = 64;
+	private int[] keys;
+	private Object[] values;
+	/** The capacity minus one; the capacity is always a power of two */
+	private int mask;
+	private int size;
+
+	public IntHashMap()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty map.
+	 * @param expectedSize how many keys the map should hold before it needs to grow
+	 */
+	public IntHashMap(int expectedSize)
+	{
+		int capacity = 16;
+		while(capacity < expectedSize * 2)
+		{
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+
+	/**
+	 * Gets the value of a key.
+	 * @param key the key
+	 * @return the key's value, or null if the key is not in the map
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int key)
+	{
+		int slot = findSlot(key);
+		return (V) values[slot];
+	}
+
+	public boolean containsKey(int key)
+	{
+		return values[findSlot(key)] != null;
+	}
+
+	/**
+	 * Sets the value of a key, replacing any value it already had.
+	 * @param key the key
+	 * @param value the value, which may not be null
+	 * @return the key's previous value, or null if it had none
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value)
+	{
+		if(value == null)
+		{
+			throw new IllegalArgumentException("IntHashMap values may not be null");
+		}
+		int slot = findSlot(key);
+		V previous = (V) values[slot];
+		keys[slot] = key;
+		values[slot] = value;
+		if(previous == null && ++size * 2 > keys.length)
+		{
+			resize(keys.length * 2);
+		}
+		return previous;
+	}
+
+	/**
+	 * Removes a key from the map.
+	 * @param key the key
+	 * @return the key's value, or null if the key was not in the map
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(int key)
+	{
+		int slot = findSlot(key);
+		V previous = (V) values[slot];
+		if(previous == null)
+		{
+			return null;
+		}
+		values[slot] = null;
+		size--;
+		//Move back any key after the gap that could not be stored in its own slot, so every key stays reachable
+		int gap = slot;
+		int next = (slot + 1) & mask;
+		while(values[next] != null)
+		{
+			int home = hash(keys[next]);
+			//The key can fill the gap if its home slot is not between the gap and where it is now
+			if(((next - home) & mask) >= ((next - gap) & mask))
+			{
+				keys[gap] = keys[next];
+				values[gap] = values[next];
+				values[next] = null;
+				gap = next;
+			}
+			next = (next + 1) & mask;
+		}
+		return previous;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	public void clear()
+	{
+		for(int i = 0; i < values.length; i++)
+		{
+			values[i] = null;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Finds the slot holding a key, or the free slot where it would be stored.
+	 * @param key the key
+	 * @return the index of the slot
+	 */
+	private int findSlot(int key)
+	{
+		int slot = hash(key);
+		while(values[slot] != null && keys[slot] != key)
+		{
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private int hash(int key)
+	{
+		//Entity IDs are sequential, so mix the bits to spread runs of IDs out
+		int h = key * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	private void allocate(int capacity)
+	{
+		keys = new int[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+	}
+
+	private void resize(int capacity)
+	{
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+		allocate(capacity);
+		for(int i = 0; i < oldValues.length; i++)
+		{
+			if(oldValues[i] != null)
+			{
+				int slot = findSlot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+}
@@ -279,7 +279,7 @@ public class InventoryPlayer
 		
 		if((slot = doesPartialStackExist(stack)) != -1) //Is there already a partial stack of the item?
 		{
-			player.changedInventorySlots.add("i " + slot);
+			player.changedInventorySlots.markMainSlot(slot);
 			if(mainInventory[slot].getStackSize() + size > mainInventory[slot].getMaxStackSize()) //Is there more than enough to fill that stack? is so fill up that stack and continue;
 			{
 				int t = stack.getMaxStackSize() - mainInventory[slot].getStackSize();
@@ -309,7 +309,7 @@ public class InventoryPlayer
 					break;
 				else
 				{
-					player.changedInventorySlots.add("i " + slot);
+					player.changedInventorySlots.markMainSlot(slot);
 					if(size > stack.getMaxStackSize()) //Is there more than a stack of the item? if so loop again
 					{
 						mainInventory[slot] = new ItemStack(stack.getItemID(), stack.getStackSize());
@@ -384,61 +384,61 @@ public class InventoryPlayer
 		if(item instanceof ItemArmorHelmet && armorInventory[0] == null)
 		{
 			setArmorInventoryStack(player, stack, armorInventory[0], 0);
-			player.changedInventorySlots.add("a 0");
+			player.changedInventorySlots.markArmorSlot(0);
 			return null;			
 		}
 		else if(item instanceof ItemArmorBody && armorInventory[1] == null)
 		{
 			setArmorInventoryStack(player, stack, armorInventory[1], 1);
-			player.changedInventorySlots.add("a 1");
+			player.changedInventorySlots.markArmorSlot(1);
 			return null;
 		}
 		else if(item instanceof ItemArmorBelt && armorInventory[2] == null)
 		{
 			setArmorInventoryStack(player, stack, armorInventory[2], 2);
-			player.changedInventorySlots.add("a 2");
+			player.changedInventorySlots.markArmorSlot(2);
 			return null;
 		}
 		else if(item instanceof ItemArmorPants && armorInventory[3] == null)
 		{
 			setArmorInventoryStack(player, stack, armorInventory[3], 3);
-			player.changedInventorySlots.add("a 3");
+			player.changedInventorySlots.markArmorSlot(3);
 			return null;
 		}
 		else if(item instanceof ItemArmorBoots && armorInventory[4] == null)
 		{
 			setArmorInventoryStack(player, stack, armorInventory[4], 4);
-			player.changedInventorySlots.add("a 4");
+			player.changedInventorySlots.markArmorSlot(4);
 			return null;
 		}
 		else if(item instanceof ItemArmorGloves && armorInventory[5] == null)
 		{
 			setArmorInventoryStack(player, stack, armorInventory[5], 5);
-			player.changedInventorySlots.add("a 5");
+			player.changedInventorySlots.markArmorSlot(5);
 			return null;
 		}
 		else if(item instanceof ItemArmorAccessory && armorInventory[6] == null)
 		{
 			setArmorInventoryStack(player, stack, armorInventory[6], 6);
-			player.changedInventorySlots.add("a 6");
+			player.changedInventorySlots.markArmorSlot(6);
 			return null;
 		}
 		else if(item instanceof ItemArmorAccessory && armorInventory[7] == null)
 		{
 			setArmorInventoryStack(player, stack, armorInventory[7], 7);
-			player.changedInventorySlots.add("a 7");
+			player.changedInventorySlots.markArmorSlot(7);
 			return null;
 		}
 		else if(item instanceof ItemArmorAccessory && armorInventory[8] == null)
 		{
 			setArmorInventoryStack(player, stack, armorInventory[8], 8);
-			player.changedInventorySlots.add("a 8");
+			player.changedInventorySlots.markArmorSlot(8);
 			return null;			
 		}
 		else if(item instanceof ItemArmorAccessory && armorInventory[9] == null)
 		{
 			setArmorInventoryStack(player, stack, armorInventory[9], 9);
-			player.changedInventorySlots.add("a 9");
+			player.changedInventorySlots.markArmorSlot(9);
 			return null;
 		}
 		
@@ -458,7 +458,7 @@ public class InventoryPlayer
 			
 		if((slot = doesPartialQuiverStackExist(stack)) != -1) //Is there already a partial stack of the item?
 		{
-			player.changedInventorySlots.add("q " + slot);
+			player.changedInventorySlots.markQuiverSlot(slot);
 			if(quiver[slot].getStackSize() + size > quiver[slot].getMaxStackSize()) //Is there more than enough to fill that stack? is so fill up that stack and continue;
 			{
 				int t = stack.getMaxStackSize() - quiver[slot].getStackSize();
@@ -485,7 +485,7 @@ public class InventoryPlayer
 				if(slot == -1) break;
 				else
 				{
-					player.changedInventorySlots.add("q " + slot);
+					player.changedInventorySlots.markQuiverSlot(slot);
 					if(size > stack.getMaxStackSize()) //Is there more than a stack of the item? if so loop again
 					{
 						quiver[slot] = new ItemStack(stack.getItemID(), stack.getStackSize());
@@ -543,7 +543,7 @@ public class InventoryPlayer
 				}
 				else //There was a partial itemstack left, so a bit of additional math is needed
 				{
-					player.changedInventorySlots.add("i " + i);
+					player.changedInventorySlots.markMainSlot(i);
 					mainInventory[i].setStackSize(Math.abs(quantity));	
 					removeItems = true;
 					break;
@@ -558,7 +558,7 @@ public class InventoryPlayer
 				if(nullSlots[i]) //if the slot needs removed, remove it
 				{
 					mainInventory[i] = null;
-					player.changedInventorySlots.add("i " + i);
+					player.changedInventorySlots.markMainSlot(i);
 				}
 			}
 			inventoryTotals.put(stack.getItemName(), inventoryTotals.get(stack.getItemName()) - stack.getStackSize()); //adjust totals
@@ -583,7 +583,7 @@ public class InventoryPlayer
 		}
 		if(howMany < mainInventory[index].getStackSize())
 		{
-			player.changedInventorySlots.add("i " + index);
+			player.changedInventorySlots.markMainSlot(index);
 			mainInventory[index].removeFromStack(howMany);
 			if(mainInventory[index].getItemID() < ActionbarItem.spellIndex)
 			{
@@ -593,7 +593,7 @@ public class InventoryPlayer
 		}
 		else if(howMany == mainInventory[index].getStackSize())
 		{
-			player.changedInventorySlots.add("i " + index);
+			player.changedInventorySlots.markMainSlot(index);
 			mainInventory[index].removeFromStack(howMany);
 			if(mainInventory[index].getItemID() < ActionbarItem.spellIndex)
 			{
@@ -614,7 +614,7 @@ public class InventoryPlayer
 		player.onInventoryChange();
 		inventoryTotals.put(mainInventory[index].getItemName(), inventoryTotals.get(mainInventory[index].getItemName()) - mainInventory[index].getStackSize()); 
 		mainInventory[index] = null;
-		player.changedInventorySlots.add("i " + index);
+		player.changedInventorySlots.markMainSlot(index);
 	}
 	
 	/**
@@ -630,13 +630,13 @@ public class InventoryPlayer
 		//the stack to be placed is null, so clear the slot in mainInventory[] (this has to get a bit hacky for control reasons)
 		if(stack == null && mainInventory[index] != null) 
 		{
-			player.changedInventorySlots.add("i " + index);
+			player.changedInventorySlots.markMainSlot(index);
 			inventoryTotals.put(mainInventory[index].getItemName(), inventoryTotals.get(mainInventory[index].getItemName()) - mainInventory[index].getStackSize());		
 			mainInventory[index] = null;
 		}
 		else if(stack != null)//otherwise put the stack in the inventory
 		{
-			player.changedInventorySlots.add("i " + index);
+			player.changedInventorySlots.markMainSlot(index);
 			if(stack.getItemID() < ActionbarItem.spellIndex)
 			{
 				inventoryTotals.put(stack.getItemName(), inventoryTotals.get(stack.getItemName()) + stack.getStackSize());		
@@ -661,7 +661,7 @@ public class InventoryPlayer
 			return false;
 		}
 		
-		player.changedInventorySlots.add("i " + index);
+		player.changedInventorySlots.markMainSlot(index);
 		int size = stack.getStackSize();
 		mainInventory[index].addToStack(size);
 		inventoryTotals.put(stack.getItemName(), inventoryTotals.get(stack.getItemName()) + stack.getStackSize());		
@@ -678,7 +678,7 @@ public class InventoryPlayer
 	 */
 	public boolean setArmorInventoryStack(EntityPlayerBase player, ItemStack newStack, ItemStack oldStack, int index)
 	{
-		player.changedInventorySlots.add("a " + index);
+		player.changedInventorySlots.markArmorSlot(index);
 		if(newStack == null)
 		{
 			//If a piece of armor is being removed, then ensure its stats are appropriately neutralized
@@ -725,7 +725,7 @@ public class InventoryPlayer
 	 */
 	public boolean setTrashStack(EntityPlayerBase player, ItemStack stack, int index)
 	{	
-		player.changedInventorySlots.add("t " + index);
+		player.changedInventorySlots.markTrashSlot(index);
 		if(stack == null)
 		{
 			trash[index] = null;
@@ -828,7 +828,7 @@ public class InventoryPlayer
 			{
 				if(((ItemArmor)(Item.itemsList[armorInventory[i].getItemID()])).getIsSavingRelic())
 				{
-					player.changedInventorySlots.add("a " + i);
+					player.changedInventorySlots.markArmorSlot(i);
 					setArmorInventoryStack(player, null, armorInventory[i], i);
 					return;
 				}
@@ -864,7 +864,7 @@ public class InventoryPlayer
 	 */
 	public boolean setQuiverStack(EntityPlayerBase player, ItemStack stack, int index)
 	{
-		player.changedInventorySlots.add("q " + index);
+		player.changedInventorySlots.markQuiverSlot(index);
 		if(stack == null)
 		{
 			quiver[index] = null;
@@ -887,7 +887,7 @@ public class InventoryPlayer
 		{
 			//The change in stack size. A positive number is an increase, negative number a 
 			//decrease overall.
-			player.changedInventorySlots.add("i " + index);
+			player.changedInventorySlots.markMainSlot(index);
 			int differenceInStackSize = newStackSize - mainInventory[index].getStackSize();			
 			inventoryTotals.put(mainInventory[index].getItemName(), 
 					inventoryTotals.get(mainInventory[index].getItemName()) + differenceInStackSize);				
@@ -921,7 +921,7 @@ public class InventoryPlayer
 		{	
 			return false;
 		}
-		player.changedInventorySlots.add("q " + index);
+		player.changedInventorySlots.markQuiverSlot(index);
 		quiver[index].addToStack(stack.getStackSize());
 		return true;
 	}
@@ -936,7 +936,7 @@ public class InventoryPlayer
 	{
 		if(quiver[index] != null && quiver[index].getStackSize() != newStackSize)
 		{
-			player.changedInventorySlots.add("q " + index);
+			player.changedInventorySlots.markQuiverSlot(index);
 			quiver[index].setStackSize(newStackSize);
 		}
 	}
@@ -951,13 +951,13 @@ public class InventoryPlayer
 	{
 		if(howMany < quiver[index].getStackSize())
 		{
-			player.changedInventorySlots.add("q " + index);
+			player.changedInventorySlots.markQuiverSlot(index);
 			quiver[index].removeFromStack(howMany);
 			return true;
 		}
 		else if(howMany == quiver[index].getStackSize())
 		{
-			player.changedInventorySlots.add("q " + index);
+			player.changedInventorySlots.markQuiverSlot(index);
 			quiver[index].removeFromStack(howMany);
 			quiver[index] = null;
 			return true;
@@ -976,13 +976,13 @@ public class InventoryPlayer
 	{
 		if(howMany < trash[index].getStackSize())
 		{
-			player.changedInventorySlots.add("t " + index);
+			player.changedInventorySlots.markTrashSlot(index);
 			trash[index].removeFromStack(howMany);
 			return true;
 		}
 		else if(howMany == trash[index].getStackSize())
 		{
-			player.changedInventorySlots.add("t " + index);
+			player.changedInventorySlots.markTrashSlot(index);
 			trash[index].removeFromStack(howMany);
 			trash[index] = null;
 			return true;
@@ -238,7 +238,7 @@ public class ItemStack
 	 */ 
 	public final int getStackSize()
 	{
-		return new Integer(stackSize);
+		return stackSize;
 	}
 	
 	/**
@@ -247,7 +247,7 @@ public class ItemStack
 	 */
 	public final int getItemID()
 	{
-		return new Integer(itemID);
+		return itemID;
 	}
 
 	/**
@@ -341,6 +341,27 @@ public class ItemStack
 	}
 	
 	
+	/**
+	 * Gives this ItemStack an affix that has already been rolled, such as one received from the server. Its bonuses,
+	 * auras and rendered name are regenerated from the affix.
+	 * @param data the affix's ID and rolled powers
+	 */
+	public void applyAffix(AffixData data)
+	{
+		this.affix = data;
+		regenerateBonuses();
+		Affix affix = AffixGenerator.getAffix(data.getAffixID());
+		if(affix != null)
+		{
+			if (affix.getPrefix()){
+				this.setRenderedName(affix.getName() + " " + this.getItemName());
+			}
+			else{
+				this.setRenderedName(this.getItemName() + " " + affix.getName());
+			}
+		}
+	}
+	
 	public void regenerateBonuses()
 	{
 		if(this.affix != null)
@@ -0,0 +1,87 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * PercentileRecorder keeps the most recent samples of some measurement, such as tick times or latencies, and reports 
+ * percentiles of them. Only the last {@link #getCapacity()} samples are kept; older ones are overwritten. All methods 
+ * are synchronized, so samples can be recorded on one thread and reported on another.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class PercentileRecorder 
+{
+	private long[] samples;
+	private int next;
+	private int size;
+	private long total;
+	
+	/**
+	 * Creates a recorder keeping up to the given number of samples.
+	 * @param capacity the most samples kept
+	 */
+	public PercentileRecorder(int capacity)
+	{
+		samples = new long[capacity];
+	}
+	
+	public synchronized void record(long sample)
+	{
+		if(size == samples.length)
+		{
+			total -= samples[next];
+		}
+		else
+		{
+			size++;
+		}
+		samples[next] = sample;
+		total += sample;
+		next = (next + 1) % samples.length;
+	}
+	
+	/**
+	 * Gets a percentile of the samples kept, using the nearest rank.
+	 * @param percentile the percentile, from 0 to 100
+	 * @return the sample at that percentile, or 0 if nothing has been recorded
+	 */
+	public synchronized long getPercentile(double percentile)
+	{
+		if(size == 0)
+		{
+			return 0;
+		}
+		long[] sorted = Arrays.copyOf(samples, size);
+		Arrays.sort(sorted);
+		int rank = (int) Math.ceil(percentile / 100 * size) - 1;
+		return sorted[Math.max(0, Math.min(size - 1, rank))];
+	}
+	
+	/**
+	 * Gets the mean of the samples kept.
+	 * @return the mean, or 0 if nothing has been recorded
+	 */
+	public synchronized double getMean()
+	{
+		return (size == 0) ? 0 : (double)total / size;
+	}
+	
+	public synchronized int getSize()
+	{
+		return size;
+	}
+	
+	public int getCapacity()
+	{
+		return samples.length;
+	}
+	
+	public synchronized void clear()
+	{
+		next = 0;
+		size = 0;
+		total = 0;
+	}
+}
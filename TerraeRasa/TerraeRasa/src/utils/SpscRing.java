@@ -0,0 +1,156 @@
+package utils;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SpscRing is a bounded, lock-free queue for handing values from exactly one producer thread to exactly one consumer
+ * thread, such as from the game loop to a connection's writer. Neither side ever takes a lock or waits on the other:
+ * {@link #offer(Object)} fails instead of blocking when the ring is full, and the consumer takes everything waiting in
+ * one batch with {@link #drainTo(Collection)}, publishing the space it freed once per batch rather than once per value.
+ * <br><br>
+ * The ring is an array with a capacity that is a power of 2. The producer owns the tail and the consumer owns the head;
+ * each only ever writes its own index, and each keeps a cached copy of the other's so it rarely has to read the
+ * shared one. A value written to the array is published by the store to the tail that follows it, so everything the
+ * producer did before offering a value is visible to the consumer that takes it. The consumer frees space with an
+ * ordered store to the head, which is cheaper than a volatile write as nothing waits on it.
+ * <br><br>
+ * Only one thread may offer, and only one thread may take; {@link #size()} and {@link #isEmpty()} may be called from
+ * either. Values may not be null.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class SpscRing<T>
+{
+	private final Object[] buffer;
+	private final int mask;
+	/** The number of values ever offered. Only written by the producer */
+	private final AtomicLong tail;
+	/** The number of values ever taken. Only written by the consumer */
+	private final AtomicLong head;
+	/** The producer's last look at the head */
+	private long cachedHead;
+	/** The consumer's last look at the tail */
+	private long cachedTail;
+
+	/**
+	 * Creates an empty SpscRing.
+	 * @param capacity the most values the ring holds; this is rounded up to a power of 2
+	 */
+	public SpscRing(int capacity)
+	{
+		int size = 1;
+		while(size < capacity)
+		{
+			size <<= 1;
+		}
+		buffer = new Object[size];
+		mask = size - 1;
+		tail = new AtomicLong();
+		head = new AtomicLong();
+	}
+
+	/**
+	 * Adds a value to the ring, if there is room. Must only be called by the producer.
+	 * @param value the value to add, which may not be null
+	 * @return true if the value was added, false if the ring is full
+	 */
+	public boolean offer(T value)
+	{
+		long currentTail = tail.get();
+		if(currentTail - cachedHead >= buffer.length)
+		{
+			cachedHead = head.get();
+			if(currentTail - cachedHead >= buffer.length)
+			{
+				return false;
+			}
+		}
+		buffer[(int)currentTail & mask] = value;
+		//A full volatile write, so a consumer that announces it is about to wait and then finds the ring empty is
+		//always seen by the producer after this
+		tail.set(currentTail + 1);
+		return true;
+	}
+
+	/**
+	 * Gets how many more values can be offered before the ring is full. Called by the producer, the answer can only
+	 * grow until the producer offers again.
+	 * @return the free space in the ring
+	 */
+	public int remainingCapacity()
+	{
+		return buffer.length - size();
+	}
+
+	/**
+	 * Removes and returns the oldest value. Must only be called by the consumer.
+	 * @return the oldest value, or null if the ring is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public T poll()
+	{
+		long currentHead = head.get();
+		if(currentHead >= cachedTail)
+		{
+			cachedTail = tail.get();
+			if(currentHead >= cachedTail)
+			{
+				return null;
+			}
+		}
+		int index = (int)currentHead & mask;
+		T value = (T) buffer[index];
+		buffer[index] = null;
+		head.lazySet(currentHead + 1);
+		return value;
+	}
+
+	/**
+	 * Removes every value waiting in the ring, adding them to a collection oldest first. Must only be called by the
+	 * consumer.
+	 * @param into the collection to add to
+	 * @return the number of values removed
+	 */
+	@SuppressWarnings("unchecked")
+	public int drainTo(Collection<? super T> into)
+	{
+		long currentHead = head.get();
+		cachedTail = tail.get();
+		int total = (int)(cachedTail - currentHead);
+		for(int i = 0; i < total; i++)
+		{
+			int index = (int)(currentHead + i) & mask;
+			into.add((T) buffer[index]);
+			buffer[index] = null;
+		}
+		if(total > 0)
+		{
+			head.lazySet(currentHead + total);
+		}
+		return total;
+	}
+
+	/**
+	 * Gets how many values are waiting. The answer may already be out of date if called by a thread other than the
+	 * producer or consumer.
+	 * @return the number of values waiting
+	 */
+	public int size()
+	{
+		long currentHead = head.get();
+		return (int)(tail.get() - currentHead);
+	}
+
+	public boolean isEmpty()
+	{
+		return size() == 0;
+	}
+
+	public int getCapacity()
+	{
+		return buffer.length;
+	}
+}
@@ -0,0 +1,132 @@
+package utils;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * TickScheduler paces a loop that runs a fixed number of ticks per second. It is used like:
+ * <pre>
+ * scheduler.start();
+ * while(running)
+ * {
+ *     while(scheduler.isTickDue())
+ *     {
+ *         tick();
+ *     }
+ *     scheduler.waitForNextTick();
+ * }
+ * </pre>
+ * Tick times come from {@link System#nanoTime()} and are fixed in advance, one tick length apart, so a tick that starts
+ * late does not push back every tick after it. Between ticks the thread is parked, rather than spinning, so an idle loop
+ * costs next to nothing.
+ * <br><br>
+ * When the loop falls behind, up to {@link #getMaxCatchUpTicks()} ticks are run back to back before
+ * {@link #isTickDue()} returns false and lets the caller do anything else it does between ticks, such as rendering. If
+ * the loop falls more than the catch up limit behind, the ticks it missed are skipped rather than run at an accelerated
+ * rate. How late each tick started, and how many were skipped, is kept for reporting.
+ * <br><br>
+ * A TickScheduler must only be used by one thread. The lag and skipped ticks may be read from any thread.
+ * @author      Alec Sobeck
+ * @author      Matthew Robertson
+ * @version     1.0
+ * @since       1.0
+ */
+public class TickScheduler
+{
+	/** How many tick lags are kept for reporting */
+	private static final int LAG_SAMPLES = 1200;
+	private final long tickNanos;
+	private final int maxCatchUpTicks;
+	private final long maxLagNanos;
+	private long nextTick;
+	private int ticksInARow;
+	private volatile long skippedTicks;
+	/** How late each recent tick started, in nanoseconds */
+	private final PercentileRecorder lag;
+
+	/**
+	 * Creates a TickScheduler.
+	 * @param ticksPerSecond how many ticks to run each second
+	 * @param maxCatchUpTicks the most ticks run back to back when the loop is behind
+	 * @param maxLagMillis how far behind, in milliseconds, the loop may fall before the ticks it missed are skipped
+	 */
+	public TickScheduler(int ticksPerSecond, int maxCatchUpTicks, long maxLagMillis)
+	{
+		this.tickNanos = 1000000000L / ticksPerSecond;
+		this.maxCatchUpTicks = maxCatchUpTicks;
+		this.maxLagNanos = maxLagMillis * 1000000L;
+		this.lag = new PercentileRecorder(LAG_SAMPLES);
+		start();
+	}
+
+	/**
+	 * Makes the first tick due now. Should be called just before the loop starts.
+	 */
+	public void start()
+	{
+		nextTick = System.nanoTime();
+		ticksInARow = 0;
+	}
+
+	/**
+	 * Gets whether a tick should be run now, and if so counts it as run. Returns false after
+	 * {@link #getMaxCatchUpTicks()} ticks in a row, even if the loop is still behind, so the caller can do its other work.
+	 * @return true if a tick should be run now, otherwise false
+	 */
+	public boolean isTickDue()
+	{
+		long now = System.nanoTime();
+		long late = now - nextTick;
+		if(late < 0 || ticksInARow >= maxCatchUpTicks)
+		{
+			ticksInARow = 0;
+			if(late > maxLagNanos)
+			{
+				//Too far behind to catch up - skip what was missed rather than accelerate the game for a long time
+				skippedTicks += late / tickNanos;
+				nextTick = now;
+			}
+			return false;
+		}
+		lag.record(late);
+		nextTick += tickNanos;
+		ticksInARow++;
+		return true;
+	}
+
+	/**
+	 * Parks the thread until the next tick is due. Returns straight away if it already is, or if the thread is
+	 * interrupted.
+	 */
+	public void waitForNextTick()
+	{
+		long remaining;
+		while((remaining = nextTick - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted())
+		{
+			//parkNanos may return early, so check the time again
+			LockSupport.parkNanos(remaining);
+		}
+	}
+
+	/**
+	 * Gets how late each of the most recent ticks started, in nanoseconds.
+	 * @return the recent tick lags
+	 */
+	public PercentileRecorder getLag()
+	{
+		return lag;
+	}
+
+	/**
+	 * Gets how many ticks have been skipped because the loop fell too far behind.
+	 * @return the number of ticks skipped
+	 */
+	public long getSkippedTicks()
+	{
+		return skippedTicks;
+	}
+
+	public int getMaxCatchUpTicks()
+	{
+		return maxCatchUpTicks;
+	}
+}
@@ -2,7 +2,6 @@ package world;
 
 
 import java.util.ArrayList;
-import java.util.Dictionary;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Vector;
@@ -11,6 +10,7 @@ import server.entities.Entity;
 import server.entities.EntityPlayer;
 import transmission.ServerUpdate;
 import transmission.WorldData;
+import utils.IntHashMap;
 import utils.WorldText;
 import blocks.Block;
 import blocks.Chunk;
@@ -30,7 +30,8 @@ public abstract class World
 	protected long worldTime;
 	protected int width; //Width in blocks, not pixels
 	protected int height; //Height in blocks, not pixels
-	public Dictionary<String, Object> entitiesByID;
+	/** Every entity in the world, by entity ID */
+	public IntHashMap<Object> entitiesByID;
 	public List<WorldText> temporaryText; 
 	protected int[] generatedHeightMap;
 	protected int averageSkyHeight;
@@ -41,7 +42,7 @@ public abstract class World
 	public World(String name)
 	{
 		this.worldName = name;
-		entitiesByID = new Hashtable<String, Object>();
+		entitiesByID = new IntHashMap<Object>();
 		temporaryText = new ArrayList<WorldText>();
 	}
 	
@@ -157,7 +158,7 @@ public abstract class World
 	 * @param ticksLeft the time (in game ticks) before the text despawns
 	 * @param type the type of combat text (affects the colour). For example 'g' makes the text render green
 	 */
-	public final void addTemporaryText(String message, int x, int y, int ticksLeft, EnumColor color)
+	public void addTemporaryText(String message, int x, int y, int ticksLeft, EnumColor color)
 	{
 		temporaryText.add(new WorldText(message, x, y, ticksLeft, color, true));
 	}